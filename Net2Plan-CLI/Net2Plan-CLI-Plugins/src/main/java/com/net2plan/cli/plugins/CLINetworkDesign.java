@@ -15,6 +15,7 @@ package com.net2plan.cli.plugins;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.internal.CommandLineParser;
 import com.net2plan.internal.plugins.ICLIModule;
+import com.net2plan.libraries.CandidatePathListCache;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
@@ -89,6 +90,11 @@ public class CLINetworkDesign extends ICLIModule
         algorithmParameters.setArgs(2);
         algorithmParameters.setValueSeparator('=');
         OPTIONS.addOption(algorithmParameters);
+
+        Option pathCacheDirectory = new Option(null, "path-cache-dir", true, "(Optional) directory where the candidate path lists computed by the algorithm are saved, to be reused in later executions");
+        pathCacheDirectory.setType(PatternOptionBuilder.FILE_VALUE);
+        pathCacheDirectory.setArgName("directory");
+        OPTIONS.addOption(pathCacheDirectory);
     }
 
     @Override
@@ -130,6 +136,9 @@ public class CLINetworkDesign extends ICLIModule
 
         File outputFile = (File) cli.getParsedOptionValue("output-file");
 
+        if (cli.hasOption("path-cache-dir"))
+            CandidatePathListCache.getInstance().setDirectory((File) cli.getParsedOptionValue("path-cache-dir"));
+
         IAlgorithm algorithm;
         if (!cli.hasOption("package-name"))
         {
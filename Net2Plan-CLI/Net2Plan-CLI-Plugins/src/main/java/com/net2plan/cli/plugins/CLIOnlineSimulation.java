@@ -17,6 +17,7 @@ import static com.net2plan.internal.sim.SimKernel.runSimulation;
 import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -38,6 +39,7 @@ import com.net2plan.internal.IExternal;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.plugins.ICLIModule;
 import com.net2plan.internal.sim.SimKernel;
+import com.net2plan.internal.sim.SimReplicationRunner;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.HTMLUtils;
 import com.net2plan.utils.StringUtils;
@@ -110,6 +112,35 @@ public class CLIOnlineSimulation extends ICLIModule {
         eventProcessorClassName.setArgName("classname");
         eventProcessorClassName.setRequired(true);
         OPTIONS.addOption(eventProcessorClassName);
+
+        Option replications = new Option(null, "replications", true, "(Optional) Number of independent replications of the simulation, run in parallel (default: 1). For more than one replication, the output file contains the mean value of the metrics among replications with their confidence intervals, and the report of each replication is saved in a separate file");
+        replications.setType(PatternOptionBuilder.NUMBER_VALUE);
+        replications.setArgName("number");
+        OPTIONS.addOption(replications);
+
+        Option threads = new Option(null, "threads", true, "(Optional) Maximum number of replications run at the same time (default: number of available processors)");
+        threads.setType(PatternOptionBuilder.NUMBER_VALUE);
+        threads.setArgName("number");
+        OPTIONS.addOption(threads);
+
+        Option seed = new Option(null, "seed", true, "(Optional) Base seed from which the seeds of the replications are derived (default: 1)");
+        seed.setType(PatternOptionBuilder.NUMBER_VALUE);
+        seed.setArgName("number");
+        OPTIONS.addOption(seed);
+
+        Option seedParameters = new Option(null, "seed-param", true, "(Optional) Name of a " + generatorLabel.toLowerCase(Locale.getDefault()) + " or " + processorLabel.toLowerCase(Locale.getDefault()) + " parameter that receives the seed of each replication, e.g. randomSeed (use one of this for each parameter)");
+        seedParameters.setArgName("name");
+        OPTIONS.addOption(seedParameters);
+
+        Option eventTrace = new Option(null, "event-trace", true, "(Optional) Binary file where the events received by the " + processorLabel.toLowerCase(Locale.getDefault()) + " are recorded, to replay the simulation later (only for one replication)");
+        eventTrace.setType(PatternOptionBuilder.FILE_VALUE);
+        eventTrace.setArgName("file");
+        OPTIONS.addOption(eventTrace);
+
+        Option checkpointInterval = new Option(null, "event-trace-checkpoint-interval", true, "(Optional) Simulation time (in seconds) between the checkpoints of the network design saved in the event trace, from which a replay can start (default: 3600)");
+        checkpointInterval.setType(PatternOptionBuilder.NUMBER_VALUE);
+        checkpointInterval.setArgName("seconds");
+        OPTIONS.addOption(checkpointInterval);
     }
 
     @Override
@@ -160,8 +191,52 @@ public class CLIOnlineSimulation extends ICLIModule {
 
 		/* Initialize and run simulation */
         NetPlan aux_netPlan = new NetPlan(inputFile);
-        String html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
-        HTMLUtils.saveToFile(outputFile, html);
+        int numReplications = cli.hasOption("replications") ? ((Number) cli.getParsedOptionValue("replications")).intValue() : 1;
+        if (numReplications != 1 && cli.hasOption("event-trace"))
+            throw new Net2PlanException("The event trace can only be recorded for one replication");
+        if (numReplications == 1)
+        {
+            SimKernel simKernel = new SimKernel();
+            if (cli.hasOption("event-trace"))
+            {
+                double checkpointInterval = cli.hasOption("event-trace-checkpoint-interval") ? ((Number) cli.getParsedOptionValue("event-trace-checkpoint-interval")).doubleValue() : 3600;
+                simKernel.setEventTraceFile((File) cli.getParsedOptionValue("event-trace"), checkpointInterval);
+            }
+            String html = runSimulation(simKernel, aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+            HTMLUtils.saveToFile(outputFile, html);
+            return;
+        }
+
+		/* Run independent replications in parallel */
+        Map<String, String> simulationParameters = CommandLineParser.getParameters(new SimKernel().getSimulationParameters(), customSimulationParameters);
+        Map<String, String> eventGeneratorParameters = CommandLineParser.getParameters(getDefaultParameters(aux_eventGenerator), customEventGeneratorParameters);
+        Map<String, String> eventProcessorParameters = CommandLineParser.getParameters(getDefaultParameters(aux_eventProcessor), customEventProcessorParameters);
+
+        SimReplicationRunner runner = new SimReplicationRunner(aux_netPlan, aux_eventGenerator, eventGeneratorParameters, aux_eventProcessor, eventProcessorParameters, simulationParameters, net2planParameters);
+        runner.setNumberOfReplications(numReplications);
+        if (cli.hasOption("threads")) runner.setParallelism(((Number) cli.getParsedOptionValue("threads")).intValue());
+        if (cli.hasOption("seed")) runner.setBaseSeed(((Number) cli.getParsedOptionValue("seed")).longValue());
+        if (cli.hasOption("seed-param")) runner.setSeedParameters(Arrays.asList(cli.getOptionValues("seed-param")));
+
+        System.out.println(String.format("Running %d replications...", numReplications));
+        long init = System.nanoTime();
+        runner.run();
+        System.out.println(String.format("Replications finished successfully in %s", StringUtils.secondsToYearsDaysHoursMinutesSeconds((System.nanoTime() - init) / 1e9)));
+
+        HTMLUtils.saveToFile(outputFile, runner.getReport());
+        String outputFileName = outputFile.getName();
+        int extensionIndex = outputFileName.lastIndexOf('.');
+        String baseName = extensionIndex == -1 ? outputFileName : outputFileName.substring(0, extensionIndex);
+        String extension = extensionIndex == -1 ? "" : outputFileName.substring(extensionIndex);
+        List<String> replicationReports = runner.getReplicationReports();
+        for (int index = 0; index < replicationReports.size(); index++)
+            HTMLUtils.saveToFile(new File(outputFile.getAbsoluteFile().getParentFile(), String.format("%s_replication%d%s", baseName, index, extension)), replicationReports.get(index));
+    }
+
+    private static List<Triple<String, String, String>> getDefaultParameters(IExternal algorithm)
+    {
+        try { return algorithm.getParameters(); }
+        catch (UnsupportedOperationException ex) { return null; }
     }
 
     @Override
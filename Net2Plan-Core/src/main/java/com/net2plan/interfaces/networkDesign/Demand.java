@@ -223,7 +223,9 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setOfferedTrafficPerPeriodGrowthFactor (double growthFactor)
 	{
+		netPlan.checkIsModifiable();
 		if (growthFactor < -1) throw new Net2PlanException ("The growth factor cannot be lower than -1");
+		netPlan.journal.propertyChanged (this , this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth , growthFactor , Demand::setOfferedTrafficPerPeriodGrowthFactor);
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = growthFactor;
 	}
 
@@ -240,6 +242,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setQoSType (String newQosType)
 	{
+		netPlan.checkIsModifiable();
 		if (newQosType == null) throw new Net2PlanException ("Wrong value");
 		if (this.qosType != null)
 		{
@@ -253,6 +256,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		Pair<SortedSet<Demand>,SortedSet<MulticastDemand>> demandsNewType = layer.cache_qosTypes2DemandMap.get(newQosType);
 		if (demandsNewType == null) { demandsNewType = Pair.of(new TreeSet<> (),new TreeSet<> ()); layer.cache_qosTypes2DemandMap.put(newQosType, demandsNewType); }
 		demandsNewType.getFirst().add(this);
+		if (this.qosType != null) netPlan.journal.propertyChanged (this , this.qosType , newQosType , Demand::setQoSType);
 		this.qosType = newQosType;
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -270,6 +274,8 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setMaximumAcceptableE2EWorstCaseLatencyInMs (double maxLatencyMs)
 	{
+		netPlan.checkIsModifiable();
+		netPlan.journal.propertyChanged (this , this.maximumAcceptableE2EWorstCaseLatencyInMs , maxLatencyMs , Demand::setMaximumAcceptableE2EWorstCaseLatencyInMs);
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = maxLatencyMs;
 	}
 
@@ -303,7 +309,12 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	/** Sets the intended recovery type for this demand
 	 * @param recoveryType the recovery type
 	 */
-	public void setIntendedRecoveryType (IntendedRecoveryType recoveryType) { this.recoveryType = recoveryType; }
+	public void setIntendedRecoveryType (IntendedRecoveryType recoveryType)
+	{
+		netPlan.checkIsModifiable();
+		netPlan.journal.propertyChanged (this , this.recoveryType , recoveryType , Demand::setIntendedRecoveryType);
+		this.recoveryType = recoveryType;
+	}
 	
 	/**
 	 * <p>Returns the routes associated to this demand.</p>
@@ -336,6 +347,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
     {
         netPlan.checkIsModifiable();
         if (routingType == newRoutingType) return;
+        netPlan.journal.notReversible("the routing type of a demand was changed");
         if (newRoutingType == RoutingType.HOP_BY_HOP_ROUTING) 
             if (this.isServiceChainRequest())
                 throw new Net2PlanException("Cannot perform this operation with service chain demands, since the resource traversing information is lost");
@@ -512,12 +524,15 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setServiceChainSequenceOfTraversedResourceTypes (List<String> resourceTypesSequence)
 	{
+		netPlan.checkIsModifiable();
 		if (routingType != RoutingType.SOURCE_ROUTING) throw new Net2PlanException ("The routing type must be SOURCE ROUTING");
 		if (!cache_routes.isEmpty()) throw new Net2PlanException ("The demand must not have routes to execute this method");
+		final List<String> oldSequence = this.mandatorySequenceOfTraversedResourceTypes;
 		if (resourceTypesSequence == null)
 			this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> ();
 		else
 			this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> (resourceTypesSequence);
+		netPlan.journal.propertyChanged (this , new ArrayList<String> (oldSequence) , new ArrayList<String> (this.mandatorySequenceOfTraversedResourceTypes) , Demand::setServiceChainSequenceOfTraversedResourceTypes);
 	}
 	
 	/**
@@ -698,6 +713,8 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setBidirectionalPair(Demand d)
 	{
+		netPlan.checkIsModifiable();
+		netPlan.journal.notReversible ("the bidirectional pair of a demand was changed");
 		if (d == null)
 		{
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -819,6 +836,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		}
 
 		/* All tests passed */
+		netPlan.journal.demandCouplingChanged(this, link, true);
 		link.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
 		link.coupledLowerOrThisLayerDemand = this;
 		this.coupledUpperOrSameLayerLink = link;
@@ -866,6 +884,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		final NetworkLayer upperLayer = link.layer;
 		final NetworkLayer lowerLayer = this.layer;
 
+		netPlan.journal.demandCouplingChanged(this, link, false);
 		link.coupledLowerOrThisLayerDemand = null;
 		this.coupledUpperOrSameLayerLink = null;
 		link.layer.cache_coupledLinks.remove (link);
@@ -963,6 +982,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 		if (this.coupledUpperOrSameLayerLink != null) this.decouple();
 		
 		if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -978,6 +998,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
                 e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.remove(this);
                 e.cache_totalCarriedTraffic -= x_deOccup; 
                 e.cache_totalOccupiedCapacity -= x_deOccup; 
+                e.cache_notifyModified();
 //
 //				e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.remove(this);
 //				e.updateLinkTrafficAndOccupation();
@@ -998,6 +1019,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		final boolean removed = qosInfo.getFirst().remove(this);
 		assert removed;
 		if (qosInfo.getFirst().isEmpty() && qosInfo.getSecond().isEmpty()) layer.cache_qosTypes2DemandMap.remove(qosType);
+		netPlan.journal.record(journalRemoval);
 		final NetPlan npOld = this.netPlan;
         removeId();
         
@@ -1015,7 +1037,9 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		if (offeredTraffic == this.offeredTraffic) return;
 		netPlan.checkIsModifiable();
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
+		netPlan.journal.offeredTrafficChanged(this, this.offeredTraffic, offeredTraffic);
 		this.offeredTraffic = offeredTraffic;
+		cache_notifyModified();
 		if (!isSourceRouting()) updateHopByHopRoutingToGivenFrs(this.cacheHbH_frs);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -1207,6 +1231,14 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	
 	/* Updates all the network state, to the new situation where the hop-by-hop routing of a demand has changed */
 	void updateHopByHopRoutingToGivenFrs (SortedMap<Link,Double> newFrsWithoutZeros)
+	{
+		updateHopByHopRoutingToGivenFrs(newFrsWithoutZeros , null);
+	}
+
+	/* The same, where dagsPerFrsToApply (if not null) has the graphs of the forwarding rules already computed for other demands updated in the same
+	 * batch, and is filled with the new ones (null if the rules have cycles). Then, the demands with the same rules (e.g. destination-based routing to
+	 * the same egress node) share the graph */
+	void updateHopByHopRoutingToGivenFrs (SortedMap<Link,Double> newFrsWithoutZeros , Map<SortedMap<Link,Double>,GraphUtils.ForwardingRulesDag> dagsPerFrsToApply)
 	{
 		final SortedSet<Link> affectedLinks = new TreeSet<>(Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet()));
 		
@@ -1226,8 +1258,16 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 			frsToApply.put(e, f_e);
 		}
 		
-		Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
-				GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+		Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation;
+		if (dagsPerFrsToApply == null || ingressNode == egressNode)
+			fundMatrixComputation = GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+		else
+		{
+			if (!dagsPerFrsToApply.containsKey(frsToApply)) dagsPerFrsToApply.put(frsToApply, GraphUtils.ForwardingRulesDag.create(frsToApply));
+			final GraphUtils.ForwardingRulesDag dag = dagsPerFrsToApply.get(frsToApply);
+			fundMatrixComputation = dag != null? dag.computeRoutingFundamentalVector(ingressNode, egressNode) : 
+				GraphUtils.computeRoutingFundamentalVectorSolvingLinearSystem(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+		}
 		if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
 		{
 			System.out.println("Demand: " + this + ", ingress: " + ingressNode+ " -> egress: " + egressNode + ", frs: " + newFrsWithoutZeros);
@@ -1242,6 +1282,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		/* update different caches */
 		this.cacheHbH_linksPerNodeWithNonZeroFr = tentativeCacheHbH_linksPerNodeWithNonZeroFr;
 		carriedTraffic = offeredTraffic * M.get(egressNode.index) * s_egressNode;
+		cache_notifyModified();
 		if (coupledUpperOrSameLayerLink != null)
 			coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
 
@@ -1273,10 +1314,12 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 			}
 			link.cache_totalCarriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
 			link.cache_totalOccupiedCapacity += newXdeOccup - oldXdeOccup;
+			link.cache_notifyModified();
 			assert !((newXdeNormalized > 1e-3) && (!link.isUp));
 		}
 		
 		/* update the cache_frs in the link and demand */
+		if (netPlan != null && newFrsWithoutZeros != cacheHbH_frs) netPlan.journal.forwardingRulesChanged(this, cacheHbH_frs, newFrsWithoutZeros);
 		for (Link e : this.cacheHbH_frs.keySet())
 			e.cacheHbH_frs.remove(this);
 		this.cacheHbH_frs = new TreeMap<> (newFrsWithoutZeros);
@@ -1332,7 +1375,11 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	/** Sets the new time series for the monitored or forecasted offered traffic, eliminating any previous values 
 	 * @param newTimeSeries  see above
 	 */
-	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues()); }
+	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries)
+	{
+		if (netPlan != null) netPlan.journal.notReversible ("the monitored or forecasted traffic of a demand was changed");
+		this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues());
+	}
 
 	@Override
 	public TrafficSeries getMonitoredOrForecastedCarriedTraffic()
@@ -1343,6 +1390,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the monitored or forecasted traffic of a demand was changed");
 		this.monitoredOrForecastedTraffics = newTimeSeries;
 	}
 
@@ -1373,12 +1421,14 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a demand was changed");
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a demand was changed");
 		this.trafficPredictor = null;
 	}
 
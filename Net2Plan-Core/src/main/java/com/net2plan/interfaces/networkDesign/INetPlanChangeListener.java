@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+/**
+ * <p>Listener notified by a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object when its elements change,
+ * so that derived information (e.g. simulation statistics) can be updated incrementally instead of re-scanning the whole design.</p>
+ *
+ * <p>Notifications are issued synchronously, from inside the method that makes the change, so implementations
+ * should just record the change, and defer any work that reads the design until the change has been completed.
+ * An element may be notified as modified several times during the same operation.</p>
+ *
+ * <p>Modification notifications are issued for the changes in the quantities that depend on the network state:
+ * link capacity, occupied capacity, length and up/down state, demand offered and carried traffic, and node up/down state.
+ * Changes in names, attributes, tags and other descriptive information are not notified.</p>
+ *
+ * @see com.net2plan.interfaces.networkDesign.NetPlan#addChangeListener(INetPlanChangeListener)
+ * @since 0.6.5
+ */
+public interface INetPlanChangeListener
+{
+	/**
+	 * Called when an element is added to the design.
+	 *
+	 * @param element The new element
+	 */
+	public void elementAdded(NetworkElement element);
+
+	/**
+	 * Called when a state quantity of an element changes.
+	 *
+	 * @param element The modified element
+	 */
+	public void elementModified(NetworkElement element);
+
+	/**
+	 * Called when an element is removed from the design. The element is still attached to the design during the call.
+	 *
+	 * @param element The element being removed
+	 */
+	public void elementRemoved(NetworkElement element);
+
+	/**
+	 * Called when the whole content of the design is replaced (e.g. through {@link com.net2plan.interfaces.networkDesign.NetPlan#copyFrom(NetPlan) copyFrom()}
+	 * or {@link com.net2plan.interfaces.networkDesign.NetPlan#assignFrom(NetPlan) assignFrom()}). No individual notifications are issued in this case.
+	 */
+	public void netPlanReplaced();
+}
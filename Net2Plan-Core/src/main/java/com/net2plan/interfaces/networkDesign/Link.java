@@ -15,7 +15,9 @@ import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.SortedMap;
@@ -73,7 +75,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 //	private SortedMap<String,Pair<Double,Double>> cache_perQoSOccupationAndQosViolationMap;
 
 	SortedSet<SharedRiskGroup> cache_nonDynamicSrgs;
-	SortedMap<Route,Integer> cache_traversingRoutes; // for each traversing route, the number of times it traverses this link (in seqLinksRealPath). If the route has segments, their internal route counts also
+	Map<Route,Integer> cache_traversingRoutes; // for each traversing route, the number of times it traverses this link (in seqLinksRealPath). If the route has segments, their internal route counts also
 	SortedSet<MulticastTree> cache_traversingTrees;
 	Demand coupledLowerOrThisLayerDemand;
 	MulticastDemand coupledLowerLayerMulticastDemand;
@@ -89,7 +91,11 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	/** Sets the default Color that is assigned to this link for visualization
 	 * @param nominalColor see above
 	 */
-	public void setNominalColor (Color nominalColor) { this.nominalColor = nominalColor; }
+	public void setNominalColor (Color nominalColor)
+	{
+		if (netPlan != null) netPlan.journal.propertyChanged (this , this.nominalColor , nominalColor , Link::setNominalColor);
+		this.nominalColor = nominalColor;
+	}
 	
 	public double getOccupiedCapacityFromDemand (Demand d)
 	{
@@ -146,7 +152,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		this.coupledLowerOrThisLayerDemand = null;
 		this.coupledLowerLayerMulticastDemand = null;
 		this.cache_nonDynamicSrgs = new TreeSet<SharedRiskGroup> ();
-		this.cache_traversingRoutes = new TreeMap<Route,Integer> ();
+		this.cache_traversingRoutes = new LinkedHashMap<Route,Integer> ();
 		this.cache_traversingTrees = new TreeSet<MulticastTree> ();
 		this.cacheHbH_frs = new TreeMap<> ();
 		this.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState = new TreeMap<> ();
@@ -170,7 +176,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		this.isUp = origin.isUp;
 		this.nominalColor = origin.nominalColor;
 		this.cache_nonDynamicSrgs = new TreeSet<SharedRiskGroup> ();
-		this.cache_traversingRoutes = new TreeMap<Route,Integer> ();
+		this.cache_traversingRoutes = new LinkedHashMap<Route,Integer> ();
 		this.cache_traversingTrees = new TreeSet<MulticastTree> ();
 		this.qos2PriorityMaxLinkCapPercentage = new TreeMap<> ();
 		for (Entry<String,Pair<Integer,Double>> ee : origin.qos2PriorityMaxLinkCapPercentage.entrySet())
@@ -271,8 +277,10 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setQosTypePriorityAndMaxLinkUtilization (String qosType , int priority , double maxLinkUtilization)
 	{
+		netPlan.checkIsModifiable();
 		if (maxLinkUtilization <0  || maxLinkUtilization > 1) throw new Net2PlanException ("Maximum link utilizations must be between zero and one");
-		this.qos2PriorityMaxLinkCapPercentage.put (qosType , Pair.of(priority, maxLinkUtilization));
+		final Pair<Integer,Double> oldValue = this.qos2PriorityMaxLinkCapPercentage.put (qosType , Pair.of(priority, maxLinkUtilization));
+		netPlan.journal.propertyChanged (this , oldValue , Pair.of(priority, maxLinkUtilization) , (e , value) -> setQosTypePriorityAndMaxLinkUtilization (e , qosType , value));
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
 
@@ -282,7 +290,9 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void removeQosTypePriorityAndMaxLinkUtilization (String qosType)
 	{
-		this.qos2PriorityMaxLinkCapPercentage.remove (qosType);
+		netPlan.checkIsModifiable();
+		final Pair<Integer,Double> oldValue = this.qos2PriorityMaxLinkCapPercentage.remove (qosType);
+		netPlan.journal.propertyChanged (this , oldValue , null , (e , value) -> setQosTypePriorityAndMaxLinkUtilization (e , qosType , value));
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
 
@@ -453,6 +463,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		netPlan.checkIsModifiable();
 		if (newLinkCapacity < 0) throw new Net2PlanException ("Negative link capacities are not possible");
 		if ((coupledLowerOrThisLayerDemand != null) || (coupledLowerLayerMulticastDemand != null)) throw new Net2PlanException ("Coupled links cannot change its capacity");
+		netPlan.journal.linkCapacityChanged(this, capacity, newLinkCapacity);
 		updateCapacityAndZeroCapacityLinksAndRoutesCaches (newLinkCapacity);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -462,6 +473,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		final boolean fromZeroToMore = (this.capacity < Configuration.precisionFactor) && (newCapacity >= Configuration.precisionFactor); 
 		final boolean fromMoreToZero = (this.capacity >= Configuration.precisionFactor) && (newCapacity < Configuration.precisionFactor); 
 		this.capacity = newCapacity;
+		cache_notifyModified();
 		if (fromMoreToZero)
 		{
 			layer.cache_linksZeroCap.add(this);
@@ -551,6 +563,12 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 * <p>Sets the link length in km.</p>
 	 * @param lengthInKm New link length in km (must be non-negative)
 	 */
+	private static void setQosTypePriorityAndMaxLinkUtilization (Link e , String qosType , Pair<Integer,Double> priorityAndMaxLinkUtilization)
+	{
+		if (priorityAndMaxLinkUtilization == null) e.removeQosTypePriorityAndMaxLinkUtilization (qosType);
+		else e.setQosTypePriorityAndMaxLinkUtilization (qosType , priorityAndMaxLinkUtilization.getFirst () , priorityAndMaxLinkUtilization.getSecond ());
+	}
+
 	public void setLengthInKm(double lengthInKm)
 	{
 		if (this.isCoupled()) throw new Net2PlanException ("The length of coupled links cannot be changed");
@@ -558,7 +576,9 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
 		if (lengthInKm < 0) throw new Net2PlanException ("Link lengths cannot be negative");
+		netPlan.journal.propertyChanged (this , this.lengthInKm , lengthInKm , Link::setLengthInKm);
 		this.lengthInKm = lengthInKm;
+		cache_notifyModified();
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
 
@@ -600,6 +620,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
 		if (speed <= 0) throw new Net2PlanException ("Propagation speeds must be positive");
+		netPlan.journal.propertyChanged (this , this.propagationSpeedInKmPerSecond , speed , Link::setPropagationSpeedInKmPerSecond);
 		this.propagationSpeedInKmPerSecond = speed;
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
@@ -681,7 +702,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
      */
     public SortedMap<Route,Integer> getTraversingRoutesAndMultiplicity()
     {
-        return Collections.unmodifiableSortedMap(cache_traversingRoutes);
+        return Collections.unmodifiableSortedMap(new TreeMap<> (cache_traversingRoutes));
     }
 
 
@@ -812,6 +833,8 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setBidirectionalPair(Link e)
 	{
+		netPlan.checkIsModifiable();
+		netPlan.journal.notReversible ("the bidirectional pair of a link was changed");
 		if (e == null)
 		{
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -863,6 +886,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		ErrorHandling.DEBUG = false;
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 
 		if (this.coupledLowerOrThisLayerDemand != null) 
 			this.coupledLowerOrThisLayerDemand.decouple();
@@ -888,6 +912,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 
 		ErrorHandling.DEBUG = previousErrorHandling;
+		netPlan.journal.record(journalRemoval);
 		final NetPlan npOld = this.netPlan;
 	    removeId();
 	    if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -1120,6 +1145,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 			this.cache_totalCarriedTraffic += carriedTraffic;
 			this.cache_totalOccupiedCapacity += occupiedCapacity;
 		}
+		cache_notifyModified();
 	}
 
 	/** Returns the set of demands that could potentially put traffic in this link, 
@@ -1316,6 +1342,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 
 	void updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes ()
 	{
+		if (isCoupled()) cache_notifyModified(); // the length of coupled links depends on the coupled demand
 		/* updates route and associated demand times */
 		for (Route r : cache_traversingRoutes.keySet())
 			r.updatePropagationAndProcessingDelayInMiliseconds();
@@ -1439,6 +1466,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the monitored or forecasted traffic of a link was changed");
 		this.monitoredOrForecastedTraffics = new TrafficSeries(newTimeSeries.getValues());
 	}
 
@@ -1469,12 +1497,14 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a link was changed");
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a link was changed");
 		this.trafficPredictor = null;
 	}
 
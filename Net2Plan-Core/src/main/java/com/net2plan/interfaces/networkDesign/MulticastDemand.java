@@ -106,6 +106,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 */
 	public void setMaximumAcceptableE2EWorstCaseLatencyInMs (double maxLatencyMs)
 	{
+		if (netPlan != null) netPlan.journal.propertyChanged (this , this.maximumAcceptableE2EWorstCaseLatencyInMs , maxLatencyMs , MulticastDemand::setMaximumAcceptableE2EWorstCaseLatencyInMs);
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = maxLatencyMs;
 	}
 
@@ -123,6 +124,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 */
 	public void setQoSType (String newQosType)
 	{
+		netPlan.checkIsModifiable();
 		if (newQosType == null) throw new Net2PlanException ("Wrong value");
 		if (this.qosType != null)
 		{
@@ -136,6 +138,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		Pair<SortedSet<Demand>,SortedSet<MulticastDemand>> demandsNewType = layer.cache_qosTypes2DemandMap.get(newQosType);
 		if (demandsNewType == null) { demandsNewType = Pair.of(new TreeSet<> (),new TreeSet<> ()); layer.cache_qosTypes2DemandMap.put(newQosType, demandsNewType); }
 		demandsNewType.getSecond().add(this);
+		if (this.qosType != null) netPlan.journal.propertyChanged (this , this.qosType , newQosType , MulticastDemand::setQoSType);
 		this.qosType = newQosType;
 	}
 
@@ -154,7 +157,9 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 */
 	public void setOfferedTrafficPerPeriodGrowthFactor (double growthFactor)
 	{
+		netPlan.checkIsModifiable();
 		if (growthFactor < -1) throw new Net2PlanException ("The growth factor cannot be lower than -1");
+		netPlan.journal.propertyChanged (this , this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth , growthFactor , MulticastDemand::setOfferedTrafficPerPeriodGrowthFactor);
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = growthFactor;
 	}
 
@@ -409,6 +414,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		}
 
 		/* Link capacity at the upper layer is equal to the carried traffic at the lower layer */
+		netPlan.journal.multicastDemandCouplingChanged(this, links, true);
 		coupledUpperLayerLinks = new TreeMap<> ();
 		layer.cache_coupledMulticastDemands.add (this);
 		for (Link link : links)
@@ -479,6 +485,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		final NetworkLayer upperLayer = links.iterator().next().layer;
 		final NetworkLayer lowerLayer = layer;
 
+		netPlan.journal.multicastDemandCouplingChanged(this, links, false);
 		upperLayer.cache_coupledLinks.removeAll(links);
 		layer.cache_coupledMulticastDemands.remove(this);
 		for (Link link : links)
@@ -498,6 +505,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 		if (this.coupledUpperLayerLinks != null) this.decouple ();
 		
 		for (MulticastTree tree : new TreeSet<MulticastTree> (cache_multicastTrees)) tree.remove();
@@ -513,6 +521,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		assert removed;
 		if (qosInfo.getFirst().isEmpty() && qosInfo.getSecond().isEmpty()) layer.cache_qosTypes2DemandMap.remove(qosType);
 
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -529,6 +538,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
+		netPlan.journal.offeredTrafficChanged(this, this.offeredTraffic, offeredTraffic);
 		this.offeredTraffic = offeredTraffic;
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -608,7 +618,11 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	/** Sets the new time series for the monitored or forecasted offered traffic, eliminating any previous values 
 	 * @param newTimeSeries  see above
 	 */
-	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues()); }
+	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries)
+	{
+		if (netPlan != null) netPlan.journal.notReversible ("the monitored or forecasted traffic of a multicast demand was changed");
+		this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues());
+	}
 
 	@Override
 	public TrafficSeries getMonitoredOrForecastedCarriedTraffic()
@@ -619,6 +633,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the monitored or forecasted traffic of a multicast demand was changed");
 		this.monitoredOrForecastedTraffics = newTimeSeries;
 	}
 
@@ -649,12 +664,14 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a multicast demand was changed");
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		if (netPlan != null) netPlan.journal.notReversible ("the traffic predictor of a multicast demand was changed");
 		this.trafficPredictor = null;
 	}
 
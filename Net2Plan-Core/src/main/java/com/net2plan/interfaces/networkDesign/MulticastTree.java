@@ -285,6 +285,7 @@ public class MulticastTree extends NetworkElement
 			node.cache_nodeAssociatedulticastTrees.remove (this);
 
 		/* update the tree information of the object */
+		netPlan.journal.treeLinksChanged(this, linkSet, newLinkSet);
 		this.linkSet = new TreeSet<> (newLinkSet);
 		this.pathToReachableEgressNode = newPathToEgressNodeOfReachedNodes;
 		Triple<SortedSet<Node>,SortedMap<Node,Link>,SortedMap<Node,SortedSet<Link>>> caches = updateCaches (demand.ingressNode , this.pathToReachableEgressNode , this.linkSet);	
@@ -538,6 +539,7 @@ public class MulticastTree extends NetworkElement
 		if ((newCarriedTraffic < 0) || (newOccupiedLinkCapacity < 0)) throw new Net2PlanException ("Carried traffics and occupied link capacities must be non-negative");
 //		final double extraCarriedTraffic = isDown ()? 0.0 : this.carriedTrafficIfNotFailing - newCarriedTraffic;
 //		final double extraOccupiedLinkCapacity = isDown ()? 0.0 : this.occupiedLinkCapacityIfNotFailing - newOccupiedLinkCapacity;
+		netPlan.journal.treeTrafficChanged(this, carriedTrafficIfNotFailing, occupiedLinkCapacityIfNotFailing, newCarriedTraffic, newOccupiedLinkCapacity);
 		this.carriedTrafficIfNotFailing = newCarriedTraffic;
 		this.occupiedLinkCapacityIfNotFailing = newOccupiedLinkCapacity;
 //		if (this.isDown()) { this.carriedTraffic = 0; this.occupiedLinkCapacity = 0;  } else { this.carriedTraffic = newCarriedTraffic; this.occupiedLinkCapacity = newOccupiedLinkCapacity; }
@@ -559,6 +561,7 @@ public class MulticastTree extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 
 		setCarriedTraffic(0, 0);
 		netPlan.cache_id2MulticastTreeMap.remove(id);
@@ -570,6 +573,7 @@ public class MulticastTree extends NetworkElement
 		layer.cache_multicastTreesDown.remove(this);
 		layer.cache_multicastTreesTravLinkZeroCap.remove(this);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -20,6 +20,7 @@ import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.google.common.collect.Sets;
 import com.net2plan.internal.*;
+import com.net2plan.libraries.CandidatePathListCache;
 import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.*;
@@ -37,9 +38,15 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.XMLEvent;
 import java.awt.geom.Point2D;
 import java.io.*;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 //import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
@@ -109,6 +116,11 @@ public class NetPlan extends NetworkElement
 
     RoutingType DEFAULT_ROUTING_TYPE = RoutingType.SOURCE_ROUTING;
     boolean isModifiable;
+    boolean isReadOnlyCopy;
+    long modificationCounter;
+    long attributeModificationCounter;
+    WeakReference<NetPlan> cache_lastReadOnlyCopy; // weak, so that the design does not keep alive a copy that no reader uses
+    long cache_lastReadOnlyCopyModificationCounter;
     Date currentDate = new Date ();
 //    String networkDescription;
 //    String networkName;
@@ -131,15 +143,15 @@ public class NetPlan extends NetworkElement
     SortedSet<Node> cache_nodesDown;
     SortedSet<SharedRiskGroup> cache_dynamicSrgs;
     SortedMap<String, SortedSet<Resource>> cache_type2Resources;
-    SortedMap<Long, Node> cache_id2NodeMap;
-    SortedMap<Long, Resource> cache_id2ResourceMap;
-    SortedMap<Long, NetworkLayer> cache_id2LayerMap;
-    SortedMap<Long, Link> cache_id2LinkMap;
-    SortedMap<Long, Demand> cache_id2DemandMap;
-    SortedMap<Long, MulticastDemand> cache_id2MulticastDemandMap;
-    SortedMap<Long, Route> cache_id2RouteMap;
-    SortedMap<Long, MulticastTree> cache_id2MulticastTreeMap;
-    SortedMap<Long, SharedRiskGroup> cache_id2srgMap;
+    LongObjectHashMap<Node> cache_id2NodeMap;
+    LongObjectHashMap<Resource> cache_id2ResourceMap;
+    LongObjectHashMap<NetworkLayer> cache_id2LayerMap;
+    LongObjectHashMap<Link> cache_id2LinkMap;
+    LongObjectHashMap<Demand> cache_id2DemandMap;
+    LongObjectHashMap<MulticastDemand> cache_id2MulticastDemandMap;
+    LongObjectHashMap<Route> cache_id2RouteMap;
+    LongObjectHashMap<MulticastTree> cache_id2MulticastTreeMap;
+    LongObjectHashMap<SharedRiskGroup> cache_id2srgMap;
 
     SortedMap<String,SortedSet<NetworkElement>> cache_taggedElements;
     SortedMap<String,SortedSet<Node>> cache_nodesPerSiteName;
@@ -148,6 +160,15 @@ public class NetPlan extends NetworkElement
     DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping> interLayerCoupling;
     
     boolean defaultNodePairDistanceMetricIsHaversine = false;
+
+    /* Not copied nor assigned: the listeners are attached to this object, and survive copyFrom and assignFrom */
+    final List<INetPlanChangeListener> changeListeners = new ArrayList<INetPlanChangeListener>();
+
+    /* Not copied nor assigned: the journal of changes for transactions and undo/redo is attached to this object */
+    final NetPlanJournal journal = new NetPlanJournal(this);
+
+    /* Not copied nor assigned: information derived from this object by other libraries, see getDerivedInformation */
+    final Map<Class<?>, Object> derivedInformation = Collections.synchronizedMap(new HashMap<Class<?>, Object>());
     
     
     /**
@@ -180,15 +201,15 @@ public class NetPlan extends NetworkElement
         cache_nodesDown = new TreeSet<Node>();
         this.cache_dynamicSrgs = new TreeSet<> ();
         this.cache_type2Resources = new TreeMap<String, SortedSet<Resource>>();
-        this.cache_id2NodeMap = new TreeMap<Long, Node>();
-        this.cache_id2ResourceMap = new TreeMap<Long, Resource>();
-        this.cache_id2LayerMap = new TreeMap<Long, NetworkLayer>();
-        this.cache_id2srgMap = new TreeMap<Long, SharedRiskGroup>();
-        this.cache_id2LinkMap = new TreeMap<Long, Link>();
-        this.cache_id2DemandMap = new TreeMap<Long, Demand>();
-        this.cache_id2MulticastDemandMap = new TreeMap<Long, MulticastDemand>();
-        this.cache_id2RouteMap = new TreeMap<Long, Route>();
-        this.cache_id2MulticastTreeMap = new TreeMap<Long, MulticastTree>();
+        this.cache_id2NodeMap = new LongObjectHashMap<>();
+        this.cache_id2ResourceMap = new LongObjectHashMap<>();
+        this.cache_id2LayerMap = new LongObjectHashMap<>();
+        this.cache_id2srgMap = new LongObjectHashMap<>();
+        this.cache_id2LinkMap = new LongObjectHashMap<>();
+        this.cache_id2DemandMap = new LongObjectHashMap<>();
+        this.cache_id2MulticastDemandMap = new LongObjectHashMap<>();
+        this.cache_id2RouteMap = new LongObjectHashMap<>();
+        this.cache_id2MulticastTreeMap = new LongObjectHashMap<>();
         
         this.cache_taggedElements = new TreeMap<> ();
         this.cache_nodesPerSiteName = new TreeMap<> ();
@@ -224,7 +245,8 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Generates a new network design from an input stream.</p>
+     * <p>Generates a new network design from an input stream. The stream can contain a design in the XML format, or in the binary format
+     * written by {@link #saveToBinaryOutputStream(OutputStream, boolean)}: the format is detected from the first bytes of the stream.</p>
      *
      * @param inputStream Input stream
      * @since 0.3.1
@@ -235,6 +257,13 @@ public class NetPlan extends NetworkElement
 
         try
         {
+            if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
+            if (ReaderNetPlanN2PBinary.hasMagicNumber(inputStream))
+            {
+                new ReaderNetPlanN2PBinary(this, false).create(inputStream);
+                return;
+            }
+
             XMLInputFactory2 xmlInputFactory = (XMLInputFactory2) XMLInputFactory2.newInstance();
             XMLStreamReader2 xmlStreamReader = (XMLStreamReader2) xmlInputFactory.createXMLStreamReader(inputStream);
 
@@ -341,7 +370,8 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a {@code .n2p} file.</p>
+     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a {@code .n2p} file,
+     * in XML or binary format (the format is detected from the first bytes of the file).</p>
      *
      * @param file Input file
      * @return A network design
@@ -492,6 +522,7 @@ public class NetPlan extends NetworkElement
         if (setDemandsNodePair == null) { setDemandsNodePair = new TreeSet<> (); layer.cache_nodePairDemandsThisLayer.put(Pair.of(ingressNode, egressNode) , setDemandsNodePair); }  
         setDemandsNodePair.add(demand);
 
+        cache_notifyElementAdded(demand);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return demand;
     }
@@ -565,6 +596,7 @@ public class NetPlan extends NetworkElement
         layers.add(layer);
         if (layers.size() == 1) defaultLayer = layer;
 
+        cache_notifyElementAdded(layer);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return layer;
     }
@@ -677,6 +709,7 @@ public class NetPlan extends NetworkElement
         SortedSet<Link> setLinksNodePair = layer.cache_nodePairLinksThisLayer.get(Pair.of(originNode, destinationNode));
         if (setLinksNodePair == null) { setLinksNodePair = new TreeSet<> (); layer.cache_nodePairLinksThisLayer.put(Pair.of(originNode, destinationNode) , setLinksNodePair); }  
         setLinksNodePair.add(link);
+        cache_notifyElementAdded(link);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return link;
     }
@@ -768,6 +801,7 @@ public class NetPlan extends NetworkElement
         layer.multicastDemands.add(demand);
         for (Node n : egressNodes) n.cache_nodeIncomingMulticastDemands.add(demand);
         ingressNode.cache_nodeOutgoingMulticastDemands.add(demand);
+        cache_notifyElementAdded(demand);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return demand;
     }
@@ -829,6 +863,7 @@ public class NetPlan extends NetworkElement
         if (treeTravZeroCapLinks) layer.cache_multicastTreesTravLinkZeroCap.add(tree);
         demand.addMulticastTree(tree);
         tree.setCarriedTraffic(carriedTraffic, occupiedLinkCapacity);
+        cache_notifyElementAdded(tree);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return tree;
     }
@@ -861,6 +896,7 @@ public class NetPlan extends NetworkElement
         nodes.add(node);
         cache_id2NodeMap.put(nodeId, node);
 
+        cache_notifyElementAdded(node);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return node;
     }
@@ -917,6 +953,7 @@ public class NetPlan extends NetworkElement
         }
         resOfThisType.add(resource);
         if (hostNode.isPresent()) hostNode.get().cache_nodeResources.add(resource);
+        cache_notifyElementAdded(resource);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return resource;
     }
@@ -964,13 +1001,25 @@ public class NetPlan extends NetworkElement
 
         checkIsModifiable();
         checkInThisNetPlan(demand);
-        Pair<List<Link>, List<Resource>> listLinksAndListResources = checkPathValidityForDemand(sequenceOfLinksAndResources, demand);
-        demand.checkRoutingType(RoutingType.SOURCE_ROUTING);
+        checkServiceChainValidityForDemand(sequenceOfLinksAndResources, demand);
         if (carriedTraffic < 0) throw new Net2PlanException("Carried traffic must be non-negative");
         if (occupiedLinkAndResourceCapacities.size() != sequenceOfLinksAndResources.size())
             throw new Net2PlanException("Wrong size of occupations vector");
         for (double val : occupiedLinkAndResourceCapacities)
             if (val < 0) throw new Net2PlanException("Occupied capacities cannot be negative");
+
+        Route route = addServiceChainToCaches(routeId, demand, sequenceOfLinksAndResources, attributes);
+        route.setCarriedTraffic(carriedTraffic, occupiedLinkAndResourceCapacities);
+        cache_notifyElementAdded(route);
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+        return route;
+    }
+
+    /* Checks that the sequence of links and resources is a valid path for the demand, which must be source routed, and does not produce a loop in the intra-layer coupling */
+    void checkServiceChainValidityForDemand(List<? extends NetworkElement> sequenceOfLinksAndResources, Demand demand)
+    {
+        checkPathValidityForDemand(sequenceOfLinksAndResources, demand);
+        demand.checkRoutingType(RoutingType.SOURCE_ROUTING);
 		if (demand.isCoupledInSameLayer())
 		{
 			final SortedSet<Link> intraLayerUpPropagation = demand.coupledUpperOrSameLayerLink.getIntraLayerUpPropagationIncludingMe();
@@ -983,6 +1032,11 @@ public class NetPlan extends NetworkElement
 					
 				}
 		}
+    }
+
+    /* Creates the route, with zero carried traffic, and adds it to the caches of the design, layer, demand and traversed nodes and links. The caller sets the carried traffic and notifies the addition */
+    Route addServiceChainToCaches(Long routeId, Demand demand, List<? extends NetworkElement> sequenceOfLinksAndResources, Map<String, String> attributes)
+    {
         final NetworkLayer layer = demand.layer;
 
         if (routeId == null)
@@ -1014,13 +1068,11 @@ public class NetPlan extends NetworkElement
         demand.cache_routes.add(route);
         if (!isUpThisRoute) layer.cache_routesDown.add(route);
         if (isTraversingZeroCapLinks) layer.cache_routesTravLinkZeroCap.add(route);
-        route.setCarriedTraffic(carriedTraffic, occupiedLinkAndResourceCapacities);
-        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return route;
     }
 
     /**
-     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.</p>
+     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given. The node pairs are processed in parallel.</p>
      *
      * @param cpl          Candidate path list per demand
      * @param disjointType Type of disjointness: 0 for SRG-disjoint, 1 for link and node disjoint, other value means link disjoint
@@ -1028,62 +1080,88 @@ public class NetPlan extends NetworkElement
      */
     public static SortedMap<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> computeUnicastCandidate11PathList(Map<Pair<Node, Node>, List<List<Link>>> cpl, int disjointType)
     {
-        final boolean srgDisjoint = disjointType == 0;
-        final boolean linkAndNodeDisjoint = disjointType == 1;
-        final boolean linkDisjoint = !srgDisjoint && !linkAndNodeDisjoint;
         SortedMap<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> result = new TreeMap<>();
         if (cpl.isEmpty()) return result;
 
-        for (Pair<Node, Node> nodePair : cpl.keySet())
+        /* the node pairs are processed in parallel */
+        final List<Pair<Node, Node>> nodePairs = new ArrayList<>(cpl.keySet());
+        final List<Callable<List<Pair<List<Link>, List<Link>>>>> tasks = new ArrayList<>(nodePairs.size());
+        for (Pair<Node, Node> nodePair : nodePairs)
+            tasks.add(() -> computeUnicastCandidate11PathList(nodePair, cpl.get(nodePair), disjointType));
+        final ForkJoinPool pool = new ForkJoinPool(Math.min(Runtime.getRuntime().availableProcessors(), nodePairs.size()));
+        try
         {
-            List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
-            final List<List<Link>> paths = new ArrayList<>(cpl.get(nodePair));
-            final int P_d = paths.size();
-            for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+            final List<Future<List<Pair<List<Link>, List<Link>>>>> futures = pool.invokeAll(tasks);
+            for (int cont = 0; cont < nodePairs.size(); cont++)
+                result.put(nodePairs.get(cont), futures.get(cont).get());
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally
+        {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /* The disjoint path pairs of a node pair, among its candidate paths */
+    private static List<Pair<List<Link>, List<Link>>> computeUnicastCandidate11PathList(Pair<Node, Node> nodePair, List<List<Link>> pathsThisNodePair, int disjointType)
+    {
+        final boolean srgDisjoint = disjointType == 0;
+        final boolean linkAndNodeDisjoint = disjointType == 1;
+        final boolean linkDisjoint = !srgDisjoint && !linkAndNodeDisjoint;
+        List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
+        final List<List<Link>> paths = new ArrayList<>(pathsThisNodePair);
+        final int P_d = paths.size();
+        for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+        {
+            final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> e).collect(Collectors.toList());
+            final SortedSet<Link> firstPathLinks = new TreeSet<Link>(firstPathSeqLinks);
+            SortedSet<Node> firstPathNodesButLastAndFirst = null;
+            SortedSet<SharedRiskGroup> firstPathSRGs = null;
+            if (linkAndNodeDisjoint)
             {
-                final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> e).collect(Collectors.toList());
-                final SortedSet<Link> firstPathLinks = new TreeSet<Link>(firstPathSeqLinks);
-                SortedSet<Node> firstPathNodesButLastAndFirst = null;
-                SortedSet<SharedRiskGroup> firstPathSRGs = null;
-                if (linkAndNodeDisjoint)
+                List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
+                firstPathNodesButLastAndFirst = new TreeSet<Node>(firstPathSeqNodes);
+                firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
+                firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+            } else if (srgDisjoint)
+            {
+                firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+            }
+            for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+            {
+                //List<Link> secondPath = paths.get(secondPathIndex);
+                final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
+                boolean disjoint = true;
+                if (linkDisjoint)
                 {
-                    List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
-                    firstPathNodesButLastAndFirst = new TreeSet<Node>(firstPathSeqNodes);
-                    firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
-                    firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new TreeSet<>(secondPathSeqLinks)).isEmpty();
+                } else if (linkAndNodeDisjoint)
+                {
+                    SortedSet<Node> secondPathNodes = new TreeSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
+                    secondPathNodes.remove(nodePair.getFirst());
+                    secondPathNodes.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new TreeSet<>(secondPathSeqLinks)).isEmpty() &&
+                            Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
                 } else if (srgDisjoint)
                 {
-                    firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+                    disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
                 }
-                for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+                if (disjoint)
                 {
-                    //List<Link> secondPath = paths.get(secondPathIndex);
-                    final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
-                    boolean disjoint = true;
-                    if (linkDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathLinks, new TreeSet<>(secondPathSeqLinks)).isEmpty();
-                    } else if (linkAndNodeDisjoint)
-                    {
-                        SortedSet<Node> secondPathNodes = new TreeSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
-                        secondPathNodes.remove(nodePair.getFirst());
-                        secondPathNodes.remove(nodePair.getSecond());
-                        disjoint = Sets.intersection(firstPathLinks, new TreeSet<>(secondPathSeqLinks)).isEmpty() &&
-                                Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
-                    } else if (srgDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
-                    }
-                    if (disjoint)
-                    {
-                        checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
-                        pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
-                    }
+                    checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
+                    pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
                 }
             }
-            result.put(nodePair, pairs11ThisDemand);
         }
-        return result;
+        return pairs11ThisDemand;
     }
 
     /**
@@ -1247,7 +1325,9 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.</p>
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The paths of the node pairs are computed in parallel, and kept in the {@link CandidatePathListCache}, so they are not computed
+     * again for the same topology, link costs and options (also in other designs).</p>
      *
      * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
      * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
@@ -1269,9 +1349,6 @@ public class NetPlan extends NetworkElement
         final NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         if (linkCosts != null) if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
-        SortedMap<Pair<Node, Node>, List<List<Link>>> cpl = new TreeMap<>();
-        SortedMap<Link, Double> linkCostMap = new TreeMap<Link, Double>();
-        for (Link e : layer.links) linkCostMap.put(e, linkCosts == null ? 1.0 : linkCosts.get(e.index));
         if (nodePairs == null)
         {
             nodePairs = new TreeSet<>();
@@ -1279,14 +1356,13 @@ public class NetPlan extends NetworkElement
                 for (Node n2 : nodes)
                     if (n1 != n2) nodePairs.add(Pair.of(n1, n2));
         }
-        for (Pair<Node, Node> pair : nodePairs)
-            cpl.put(pair, GraphUtils.getKLooplessShortestPaths(nodes, layer.links, pair.getFirst(), pair.getSecond(), linkCostMap, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath));
-        return cpl;
+        return CandidatePathListCache.getInstance().getUnicastCandidatePathList(this, layer, linkCosts == null ? null : linkCosts.toArray(), K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs);
     }
 
     /**
      * <p>Adds multiples routes for each demand of the given layer, using the paths in an input Candidate Path List.
-     * The paths should use the links of the same layer</p>
+     * The paths should use the links of the same layer. The demands whose node pair is not in the list get no routes. The routes are added with a {@link NetPlanBulkUpdate}:
+     * if a path is not valid, no route is added</p>
      *
      * @param cpl           {@code SortedMap} where the keys are the node pairs and the values a list of sequence of links (each sequence is a route)
      * @param optionalLayer the layer (optional)
@@ -1295,18 +1371,20 @@ public class NetPlan extends NetworkElement
     {
         checkIsModifiable();
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayer);
-        List<Route> routes = new LinkedList<Route>();
-        try
-        {
-            for (Demand d : getDemands(layer))
-                for (List<Link> path : cpl.get(Pair.of(d.getIngressNode(), d.getEgressNode())))
-                    routes.add(this.addRoute(d, 0, 0, path, null));
-        } catch (Exception e)
-        {
-            for (Route r : routes) r.remove();
-            throw e;
-        }
-        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+        bulk().addRoutesFromCandidatePathList(cpl, layer).commit();
+    }
+
+    /**
+     * <p>Returns a new {@link NetPlanBulkUpdate} object, to add many links and routes, and change the carried traffic of many routes, at once.
+     * The staged changes are applied when {@link NetPlanBulkUpdate#commit()} is called, updating the carried traffic of the affected demands and links only once.</p>
+     *
+     * @return The bulk update
+     * @since 0.6.5
+     */
+    public NetPlanBulkUpdate bulk()
+    {
+        checkIsModifiable();
+        return new NetPlanBulkUpdate(this);
     }
 
     /**
@@ -1499,6 +1577,7 @@ public class NetPlan extends NetworkElement
         SharedRiskGroup srg = new SharedRiskGroup(this, srgId, srgs.size(), new TreeSet<Node>(), new TreeSet<Link>(), mttfInHours, mttrInHours, new AttributeMap(attributes));
         srgs.add(srg);
         cache_id2srgMap.put(srgId, srg);
+        cache_notifyElementAdded(srg);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return srg;
     }
@@ -1530,6 +1609,7 @@ public class NetPlan extends NetworkElement
         srgs.add(srg);
         cache_dynamicSrgs.add(srg);
         cache_id2srgMap.put(srgId, srg);
+        cache_notifyElementAdded(srg);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return srg;
     }
@@ -1597,6 +1677,7 @@ public class NetPlan extends NetworkElement
             for (Route e : layer.routes) e.netPlan = this;
             for (MulticastTree e : layer.multicastTrees) e.netPlan = this;
         }
+        cache_notifyNetPlanReplaced();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -1852,6 +1933,222 @@ public class NetPlan extends NetworkElement
     void checkIsModifiable()
     {
         if (!isModifiable) throw new UnsupportedOperationException(UNMODIFIABLE_EXCEPTION_STRING);
+        modificationCounter++;
+    }
+
+    /**
+     * <p>Checks if the {@code NetPlan} object is modifiable, as {@link #checkIsModifiable()}, before a change that only affects the attributes of an element.</p>
+     */
+    void checkIsModifiableForAttributeChange()
+    {
+        checkIsModifiable();
+        attributeModificationCounter++;
+    }
+
+    /**
+     * <p>Returns a counter of the changes in this design other than attribute changes: it is increased by every method that adds or
+     * removes elements, or modifies anything in them but their attributes (e.g. tags, couplings, capacities or traffics). Information derived
+     * from the design can store its value, to know later if it may be outdated.</p>
+     *
+     * @return see above
+     * @since 0.6.5
+     */
+    public long getNonAttributeModificationCounter()
+    {
+        return modificationCounter - attributeModificationCounter;
+    }
+
+    /**
+     * <p>Returns the object stored in this design for the given class, creating it with the given supplier if there is none. It is used by the
+     * libraries built on top of the design (e.g. the wrappers in {@code com.net2plan.niw}) to keep information derived from it, as long as the design exists.
+     * These objects are not copied with the design, and are responsible of checking if they are outdated, e.g. with {@link #getNonAttributeModificationCounter()}.
+     * This method can be called concurrently, e.g. by the readers of a read-only copy.</p>
+     *
+     * @param key The class of the stored object
+     * @param creator Creates the object if there is none
+     * @param <T> The type of the stored object
+     * @return The stored object
+     * @since 0.6.5
+     */
+    public <T> T getDerivedInformation(Class<T> key, Supplier<T> creator)
+    {
+        return key.cast(derivedInformation.computeIfAbsent(key, k -> creator.get()));
+    }
+
+    /**
+     * <p>Adds a listener to be notified of the changes in the elements of this design. Listeners are not copied
+     * to other designs, and are kept when the contents of this design are replaced with {@link #copyFrom(NetPlan) copyFrom()}
+     * or {@link #assignFrom(NetPlan) assignFrom()}.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.5
+     */
+    public void addChangeListener(INetPlanChangeListener listener)
+    {
+        if (listener == null) throw new Net2PlanException("A listener must be provided");
+        if (!changeListeners.contains(listener)) changeListeners.add(listener);
+    }
+
+    /**
+     * <p>Removes a listener previously added with {@link #addChangeListener(INetPlanChangeListener) addChangeListener()}.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.5
+     */
+    public void removeChangeListener(INetPlanChangeListener listener)
+    {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * <p>Starts a transaction. The changes made in the design until {@link #commit() commit()} or {@link #rollback() rollback()} is called,
+     * are recorded in a journal, storing only the previous and new values of the modified quantities (and the state of the removed elements),
+     * instead of a copy of the design. The journaled changes are: addition and removal of elements, link capacities,
+     * offered traffics, carried traffics and occupied capacities of routes and multicast trees, route paths and multicast tree link sets,
+     * resource capacities, forwarding rules, failure states of links and nodes, couplings between demands and links,
+     * membership of nodes and links in SRGs, attributes, and the other properties of the elements set through the public methods
+     * (e.g. names, descriptions and tags, link lengths and propagation speeds, backup routes, node positions, QoS types, planning domains).</p>
+     *
+     * <p>The changes that are not journaled make the transaction not reversible: it can be committed, but not rolled back nor undone.
+     * These are: changing the routing type of a demand, the bidirectional pair of a demand, link or route, the monitored or forecasted
+     * traffics and traffic predictors, the implementation of a dynamic SRG, adding or removing node layouts, and replacing the design
+     * contents with {@link #copyFrom(NetPlan) copyFrom()} or {@link #assignFrom(NetPlan) assignFrom()}. Changes made directly on the objects
+     * returned by the getters (e.g. adding samples to a traffic series) are not detected.
+     * Removed elements are restored with the same identifier and index, but some information is not restored: traffic monitoring and
+     * forecasts, link QoS priorities, per-layer node icons and link colors, and the initial state of routes and multicast trees.</p>
+     *
+     * @since 0.6.5
+     */
+    public void beginTransaction()
+    {
+        checkIsModifiable();
+        journal.beginTransaction();
+    }
+
+    /**
+     * <p>Ends the current transaction, keeping its changes. If the transaction was reversible, it becomes the last step that can be undone
+     * with {@link #undo() undo()}, and the steps that could be redone are discarded.</p>
+     *
+     * @since 0.6.5
+     */
+    public void commit()
+    {
+        journal.commit();
+    }
+
+    /**
+     * <p>Ends the current transaction, reverting all its changes. If the transaction is not reversible, an exception is thrown
+     * and the changes are kept.</p>
+     *
+     * @since 0.6.5
+     */
+    public void rollback()
+    {
+        journal.rollback();
+    }
+
+    /**
+     * <p>Indicates whether a transaction is active.</p>
+     *
+     * @return {@code true} if a transaction was started and not committed or rolled back yet, {@code false} otherwise
+     * @since 0.6.5
+     */
+    public boolean isTransactionActive()
+    {
+        return journal.isTransactionActive();
+    }
+
+    /**
+     * <p>Reverts the changes of the last committed transaction. The history of transactions is discarded when the
+     * design is changed outside a transaction.</p>
+     *
+     * @return {@code true} if a transaction was undone, {@code false} if there was nothing to undo
+     * @since 0.6.5
+     */
+    public boolean undo()
+    {
+        return journal.undo();
+    }
+
+    /**
+     * <p>Applies again the changes of the last transaction reverted with {@link #undo() undo()}.</p>
+     *
+     * @return {@code true} if a transaction was redone, {@code false} if there was nothing to redo
+     * @since 0.6.5
+     */
+    public boolean redo()
+    {
+        return journal.redo();
+    }
+
+    /**
+     * <p>Indicates whether there is a committed transaction that can be undone.</p>
+     *
+     * @return see above
+     * @since 0.6.5
+     */
+    public boolean canUndo()
+    {
+        return journal.canUndo();
+    }
+
+    /**
+     * <p>Indicates whether there is an undone transaction that can be redone.</p>
+     *
+     * @return see above
+     * @since 0.6.5
+     */
+    public boolean canRedo()
+    {
+        return journal.canRedo();
+    }
+
+    /**
+     * <p>Sets the maximum number of committed transactions kept to be undone (20 by default). The oldest ones are discarded first.</p>
+     *
+     * @param maximumNumberOfUndoSteps the maximum number of steps (zero disables the undo)
+     * @since 0.6.5
+     */
+    public void setMaximumNumberOfUndoSteps(int maximumNumberOfUndoSteps)
+    {
+        journal.setMaximumUndoSteps(maximumNumberOfUndoSteps);
+    }
+
+    /**
+     * <p>Returns the maximum number of committed transactions kept to be undone.</p>
+     *
+     * @return see above
+     * @since 0.6.5
+     */
+    public int getMaximumNumberOfUndoSteps()
+    {
+        return journal.getMaximumUndoSteps();
+    }
+
+    void cache_notifyElementAdded(NetworkElement e)
+    {
+        journal.elementAdded(e);
+        if (changeListeners.isEmpty()) return;
+        for (INetPlanChangeListener listener : changeListeners) listener.elementAdded(e);
+    }
+
+    void cache_notifyElementModified(NetworkElement e)
+    {
+        if (changeListeners.isEmpty()) return;
+        for (INetPlanChangeListener listener : changeListeners) listener.elementModified(e);
+    }
+
+    void cache_notifyElementRemoved(NetworkElement e)
+    {
+        if (changeListeners.isEmpty()) return;
+        for (INetPlanChangeListener listener : changeListeners) listener.elementRemoved(e);
+    }
+
+    void cache_notifyNetPlanReplaced()
+    {
+        journal.notReversible("the contents of the design were replaced");
+        if (changeListeners.isEmpty()) return;
+        for (INetPlanChangeListener listener : changeListeners) listener.netPlanReplaced();
     }
 
     /**
@@ -1953,6 +2250,45 @@ public class NetPlan extends NetworkElement
         return netPlan;
     }
 
+    /**
+     * <p>Returns a read-only copy of the current design, made with {@link #copy()}, that can never be made modifiable. Since the copy is never modified,
+     * it can be read concurrently by any number of threads (e.g. reports or {@link com.net2plan.libraries.GraphTheoryMetrics GraphTheoryMetrics}
+     * computations), while the thread owning this design keeps changing it.</p>
+     *
+     * <p>The copy does not share any state with this design: its time and memory cost are the ones of {@link #copy()}. The only saving is that,
+     * if the design has not been changed since the previous call to this method, and the previous copy is still referenced by some reader, the same
+     * instance is returned. This design only keeps a weak reference to it, so a copy that no reader keeps is garbage collected, and the next call
+     * makes a new one. The changes are detected by the methods that check that the design is modifiable, so changes in properties that do not check it
+     * (e.g. node layouts, link colors or monitored traffics) may not produce a new copy. As any other method of this class, this method must be called
+     * from the thread that modifies the design.</p>
+     *
+     * @return Unmodifiable copy of the current design
+     * @since 0.6.5
+     */
+    public NetPlan getReadOnlyCopy()
+    {
+        if (isReadOnlyCopy) return this;
+        final NetPlan lastCopy = cache_lastReadOnlyCopy == null? null : cache_lastReadOnlyCopy.get();
+        if (lastCopy != null && cache_lastReadOnlyCopyModificationCounter == modificationCounter) return lastCopy;
+        final NetPlan readOnlyCopy = copy();
+        readOnlyCopy.isModifiable = false;
+        readOnlyCopy.isReadOnlyCopy = true;
+        this.cache_lastReadOnlyCopy = new WeakReference<>(readOnlyCopy);
+        this.cache_lastReadOnlyCopyModificationCounter = modificationCounter;
+        return readOnlyCopy;
+    }
+
+    /**
+     * <p>Indicates whether this design is a read-only copy obtained with {@link #getReadOnlyCopy()}.</p>
+     *
+     * @return {@code true} if this design is a read-only copy, {@code false} otherwise
+     * @since 0.6.5
+     */
+    public boolean isReadOnlyCopy()
+    {
+        return isReadOnlyCopy;
+    }
+
     /** Replaces the partition of the current design by this design. The node ids are used to 
      * match this and other design. Nodes that are in both are assumed to be the scope of the 
      * partition. Then, all the links, demands etc. among these nodes are removed from current 
@@ -2277,15 +2613,15 @@ public class NetPlan extends NetworkElement
         this.cache_nodesDown = new TreeSet<Node>();
         this.cache_dynamicSrgs = new TreeSet<> ();
         this.cache_type2Resources = new TreeMap<>();
-        this.cache_id2NodeMap = new TreeMap<Long, Node>();
-        this.cache_id2ResourceMap = new TreeMap<Long, Resource>();
-        this.cache_id2LayerMap = new TreeMap<Long, NetworkLayer>();
-        this.cache_id2srgMap = new TreeMap<Long, SharedRiskGroup>();
-        this.cache_id2LinkMap = new TreeMap<Long, Link>();
-        this.cache_id2DemandMap = new TreeMap<Long, Demand>();
-        this.cache_id2MulticastDemandMap = new TreeMap<Long, MulticastDemand>();
-        this.cache_id2RouteMap = new TreeMap<Long, Route>();
-        this.cache_id2MulticastTreeMap = new TreeMap<Long, MulticastTree>();
+        this.cache_id2NodeMap = new LongObjectHashMap<>();
+        this.cache_id2ResourceMap = new LongObjectHashMap<>();
+        this.cache_id2LayerMap = new LongObjectHashMap<>();
+        this.cache_id2srgMap = new LongObjectHashMap<>();
+        this.cache_id2LinkMap = new LongObjectHashMap<>();
+        this.cache_id2DemandMap = new LongObjectHashMap<>();
+        this.cache_id2MulticastDemandMap = new LongObjectHashMap<>();
+        this.cache_id2RouteMap = new LongObjectHashMap<>();
+        this.cache_id2MulticastTreeMap = new LongObjectHashMap<>();
         this.cache_taggedElements = new TreeMap<> ();
         this.cache_nodesPerSiteName = new TreeMap<> ();
         this.cache_planningDomain2nodes = new TreeMap<> (); 
@@ -2445,6 +2781,7 @@ public class NetPlan extends NetworkElement
                 throw new RuntimeException("Bad: " + e);
             }
         }
+        cache_notifyNetPlanReplaced();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -4015,6 +4352,7 @@ public class NetPlan extends NetworkElement
     public void setPlotNodeLayoutCurrentlyActive (String newCurrentPlotNodeLayout) 
     {  
         if (!this.cache_definedPlotNodeLayouts.contains(newCurrentPlotNodeLayout)) throw new Net2PlanException ("The layout has not been defined");
+        journal.propertyChanged(this, this.currentPlotNodeLayout, newCurrentPlotNodeLayout, NetPlan::setPlotNodeLayoutCurrentlyActive);
         this.currentPlotNodeLayout = newCurrentPlotNodeLayout;
     }
 
@@ -4029,6 +4367,7 @@ public class NetPlan extends NetworkElement
     public void addPlotNodeLayout (String newPlotNodeLayoutName)
     {
         if (this.cache_definedPlotNodeLayouts.contains(newPlotNodeLayoutName)) throw new Net2PlanException ("The layout name already exists");
+        journal.notReversible("a node layout was added");
         for (Node n : nodes)
         {
             assert !n.mapLayout2NodeXYPositionMap.containsKey(newPlotNodeLayoutName);
@@ -4052,6 +4391,7 @@ public class NetPlan extends NetworkElement
         if (this.currentPlotNodeLayout.equals(plotLayoutToRemove)) throw new Net2PlanException ("The currently active layout cannot be removed");
         if (plotLayoutToRemove.equals(NetPlan.PLOTLAYTOUT_DEFAULTNODELAYOUTNAME)) throw new Net2PlanException ("The default layout cannot be removed");
         if (!this.cache_definedPlotNodeLayouts.contains(plotLayoutToRemove)) throw new Net2PlanException ("The layout name does not exist");
+        journal.notReversible("a node layout was removed");
         for (Node n : nodes)
         {
             assert n.mapLayout2NodeXYPositionMap.containsKey(plotLayoutToRemove);
@@ -5273,6 +5613,7 @@ public class NetPlan extends NetworkElement
     {
     	if (this.cache_planningDomain2nodes.containsKey(planningDomain)) throw new Net2PlanException ("Planning domain " + planningDomain + " already exists");
     	this.cache_planningDomain2nodes.put(planningDomain, new TreeSet <> ());
+    	journal.propertyChanged(this, false, true, (np, exists) -> { if (exists) np.addGlobalPlanningDomain(planningDomain); else np.removeGlobalPlanningDomain(planningDomain); });
     }
     
     /** Removes a global planning domain, if no elements have it assigned, and there is left at least one planning domain
@@ -5284,6 +5625,7 @@ public class NetPlan extends NetworkElement
     	if (!this.cache_planningDomain2nodes.containsKey(planningDomain)) return;
     	if (!this.cache_planningDomain2nodes.get(planningDomain).isEmpty()) throw new Net2PlanException ("Planning domain " + planningDomain + " cannot be removed while having elements in it");
     	this.cache_planningDomain2nodes.remove(planningDomain);
+    	journal.propertyChanged(this, true, false, (np, exists) -> { if (exists) np.addGlobalPlanningDomain(planningDomain); else np.removeGlobalPlanningDomain(planningDomain); });
     }
 
     /** Change globally the name of a planning domain, updating the information in all the elements
@@ -5615,7 +5957,11 @@ public class NetPlan extends NetworkElement
     /** Sets the current date property of the design
      * @param date see above
      */
-    public void setCurrentDate (Date date) { this.currentDate = date; }
+    public void setCurrentDate (Date date)
+    {
+        journal.propertyChanged(this, this.currentDate, date, NetPlan::setCurrentDate);
+        this.currentDate = date;
+    }
     
     /**
      * <p>Returns {@code true} if the network has more than one layer.</p>
@@ -5697,6 +6043,7 @@ public class NetPlan extends NetworkElement
         checkAttachedToNetPlanObject();
         netPlan.checkIsModifiable();
         if (netPlan.layers.size() == 1) throw new Net2PlanException("At least one layer must exist");
+        final NetPlanJournal.Change journalRemoval = journal.elementRemoval(layer);
 
         for (Route route : new LinkedList<Route>(layer.routes)) route.remove();
         for (MulticastTree tree : new LinkedList<MulticastTree>(layer.multicastTrees)) tree.remove();
@@ -5710,6 +6057,7 @@ public class NetPlan extends NetworkElement
         netPlan.cache_id2LayerMap.remove(layer.id);
         NetPlan.removeNetworkElementAndShiftIndexes(netPlan.layers, layer.index);
         if (netPlan.defaultLayer.equals(layer)) netPlan.defaultLayer = netPlan.layers.get(0);
+        journal.record(journalRemoval);
         layer.removeId();
         if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
     }
@@ -5740,6 +6088,7 @@ public class NetPlan extends NetworkElement
         for (Demand d : layer.demands)
         {
         	if (d.isSourceRouting()) continue;
+        	journal.forwardingRulesChanged(d, d.cacheHbH_frs, new TreeMap<Link, Double>());
         	d.cacheHbH_frs.clear();
         	d.cacheHbH_linksPerNodeWithNonZeroFr.clear();
         	d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.clear();
@@ -5747,6 +6096,7 @@ public class NetPlan extends NetworkElement
         	d.cache_worstCasePropagationTimeMs = Double.MAX_VALUE;
             d.routingCycleType = RoutingCycleType.LOOPLESS;
             d.carriedTraffic = 0;
+            d.cache_notifyModified();
             if (d.coupledUpperOrSameLayerLink != null)
             	d.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
         }
@@ -5882,6 +6232,12 @@ public class NetPlan extends NetworkElement
 		checkAttachedToNetPlanObject();
         checkIsModifiable();
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+        if (journal.recording())
+        {
+            /* the journal records the removal of each route */
+            for (Route r : new ArrayList<Route>(layer.routes)) r.remove();
+            return;
+        }
         
         for (Route r : netPlan.getRoutes(layer))
         {
@@ -5903,6 +6259,7 @@ public class NetPlan extends NetworkElement
     		d.cache_routes.clear ();
     		d.cache_worstCasePropagationTimeMs = 0;        
     		d.cache_worstCaseLengthInKm = 0;
+    		d.cache_notifyModified();
     	}
         for (Link e : netPlan.getLinks(layer))
         {
@@ -6035,6 +6392,53 @@ public class NetPlan extends NetworkElement
         }
     }
 
+    /**
+     * <p>Saves the current network plan to a given file, in the binary {@code .n2p} format. If extension {@code .n2p}
+     * is not in the file name, it will be added automatically.</p>
+     *
+     * @param file Output file
+     * @param compress If {@code true}, the file content is compressed (smaller files, slower saving)
+     * @see #saveToBinaryOutputStream(OutputStream, boolean)
+     * @see NetPlanBinaryFile
+     * @since 0.6.5
+     */
+    public void saveToBinaryFile(File file, boolean compress)
+    {
+        String filePath = file.getPath();
+        if (!filePath.toLowerCase(Locale.getDefault()).endsWith(".n2p")) file = new File(filePath + ".n2p");
+
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+        {
+            saveToBinaryOutputStream(os, compress);
+        } catch (FileNotFoundException e)
+        {
+            throw new Net2PlanException(e.getMessage());
+        } catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * <p>Saves the current network plan to a given output stream, in the binary {@code .n2p} format. The binary format stores the same information
+     * as the XML format written by {@link #saveToOutputStream(OutputStream)}, but it is much faster to write and read, and produces smaller files.
+     * Designs in both formats are read by {@link #loadFromFile(File)} and {@link #NetPlan(InputStream)}.</p>
+     *
+     * @param outputStream Output stream (it is flushed, but not closed)
+     * @param compress If {@code true}, the content is compressed (smaller files, slower saving)
+     * @since 0.6.5
+     */
+    public void saveToBinaryOutputStream(OutputStream outputStream, boolean compress)
+    {
+        try
+        {
+            WriterNetPlanN2PBinary.write(this, outputStream, compress);
+        } catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * <p>Saves the current network plan to a given output stream.</p>
      *
@@ -6559,6 +6963,8 @@ public class NetPlan extends NetworkElement
         if (nodesToSetAsDown != null) checkInThisNetPlan(nodesToSetAsDown);
         SortedSet<Link> affectedLinks = new TreeSet<Link>();
         SortedSet<Node> affectedNodes = new TreeSet<> ();
+        final List<Link> journalLinksUp = new ArrayList<>(), journalLinksDown = new ArrayList<>();
+        final List<Node> journalNodesUp = new ArrayList<>(), journalNodesDown = new ArrayList<>();
 
         if (linksToSetAsDown != null && linksToSetAsUp != null)
             if (!Sets.intersection(new TreeSet<>(linksToSetAsDown), new TreeSet<>(linksToSetAsUp)).isEmpty())
@@ -6574,14 +6980,18 @@ public class NetPlan extends NetworkElement
             if (!e.isUp)
             {
                 e.isUp = true;
+                journalLinksUp.add(e);
                 e.layer.cache_linksDown.remove(e);
+                e.cache_notifyModified();
                 affectedLinks.add(e);
             }
         if (linksToSetAsDown != null) for (Link e : linksToSetAsDown)
             if (e.isUp)
             {
                 e.isUp = false;
+                journalLinksDown.add(e);
                 e.layer.cache_linksDown.add(e);
+                e.cache_notifyModified();
                 affectedLinks.add(e);
             }
         if (nodesToSetAsUp != null)
@@ -6589,7 +6999,9 @@ public class NetPlan extends NetworkElement
                 if (!node.isUp)
                 {
                     node.isUp = true;
+                    journalNodesUp.add(node);
                     cache_nodesDown.remove(node);
+                    node.cache_notifyModified();
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
                     affectedNodes.add(node);
@@ -6599,12 +7011,16 @@ public class NetPlan extends NetworkElement
                 if (node.isUp)
                 {
                     node.isUp = false;
+                    journalNodesDown.add(node);
                     cache_nodesDown.add(node);
+                    node.cache_notifyModified();
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
                     affectedNodes.add(node);
                 }
 
+        journal.failureStateChanged(journalLinksUp, journalLinksDown, journalNodesUp, journalNodesDown);
+
         SortedSet<Demand> affectedDemandsHopByHopRouting = new TreeSet<>();
         SortedSet<Route> affectedRoutesSourceRouting = new TreeSet<Route>();
         SortedSet<MulticastTree> affectedTrees = new TreeSet<MulticastTree>();
@@ -6620,7 +7036,8 @@ public class NetPlan extends NetworkElement
                 affectedTrees.addAll(n.getOutgoingMulticastTrees(layer)); // for trees without links, only ingress node
 
         //		System.out.println ("affected routes: " + affectedRoutesSourceRouting);
-        for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
+        final Map<SortedMap<Link,Double>,GraphUtils.ForwardingRulesDag> dagsPerFrs = new HashMap<> (); // shared by the demands with the same forwarding rules
+        for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs , dagsPerFrs);
         netPlan.updateFailureStateRoutesAndTrees(affectedRoutesSourceRouting);
         netPlan.updateFailureStateRoutesAndTrees(affectedTrees);
 
@@ -6647,6 +7064,7 @@ public class NetPlan extends NetworkElement
         {
             throw e;
         }
+        journal.propertyChanged(layer, layer.demandTrafficUnitsName, demandTrafficUnitsName, (l, units) -> l.netPlan.setDemandTrafficUnitsName(units, l));
         layer.demandTrafficUnitsName = demandTrafficUnitsName;
     }
 
@@ -6770,8 +7188,9 @@ public class NetPlan extends NetworkElement
         for (double val : sumOutFrs.values()) if (val > 1 + Configuration.precisionFactor)
         	throw new Net2PlanException ();
 
+        final Map<SortedMap<Link,Double>,GraphUtils.ForwardingRulesDag> dagsPerFrs = new HashMap<> (); // shared by the demands with the same forwarding rules
         for (Demand d : newForwardingRules.keySet())
-        	d.updateHopByHopRoutingToGivenFrs(newForwardingRules.get(d));
+        	d.updateHopByHopRoutingToGivenFrs(newForwardingRules.get(d) , dagsPerFrs);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -6837,9 +7256,10 @@ public class NetPlan extends NetworkElement
             frMap.put(link, splittingFactor);
         }
 
+        final Map<SortedMap<Link,Double>,GraphUtils.ForwardingRulesDag> dagsPerFrs = new HashMap<> (); // shared by the demands with the same forwarding rules
         for (Demand d : demandsToUpdate)
         	if (!d.isSourceRouting()) 
-        		d.updateHopByHopRoutingToGivenFrs(newFrs.containsKey(d)? newFrs.get(d) : new TreeMap<> ());
+        		d.updateHopByHopRoutingToGivenFrs(newFrs.containsKey(d)? newFrs.get(d) : new TreeMap<> () , dagsPerFrs);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -6865,6 +7285,7 @@ public class NetPlan extends NetworkElement
         {
             throw e;
         }
+        journal.propertyChanged(layer, layer.linkCapacityUnitsName, name, (l, units) -> l.netPlan.setLinkCapacityUnitsName(units, l));
         layer.linkCapacityUnitsName = name;
     }
 
@@ -6876,6 +7297,8 @@ public class NetPlan extends NetworkElement
     public void setNetworkLayerDefault(NetworkLayer layer)
     {
         checkInThisNetPlan(layer);
+        if (this.defaultLayer != null && this.defaultLayer != layer)
+            journal.propertyChanged(this, this.defaultLayer.id, layer.id, (np, layerId) -> np.setNetworkLayerDefault((NetworkLayer) np.getFromId(layerId)));
         this.defaultLayer = layer;
     }
 
@@ -7086,6 +7509,7 @@ public class NetPlan extends NetworkElement
     {
         checkIsModifiable();
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+        journal.notReversible("the routing type of the demands was changed");
         if (newRoutingType == RoutingType.HOP_BY_HOP_ROUTING) 
         	for (Demand d : layer.demands)
         		if (d.isServiceChainRequest())
@@ -7195,7 +7619,9 @@ public class NetPlan extends NetworkElement
             throw new Net2PlanException("Offered traffic must be greater or equal than zero");
         for (Demand d : layer.demands)
         {
+            journal.offeredTrafficChanged(d, d.offeredTraffic, offeredTrafficVector.get(d.index));
             d.offeredTraffic = offeredTrafficVector.get(d.index);
+            d.cache_notifyModified();
             if (d.routingType == RoutingType.HOP_BY_HOP_ROUTING) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
         }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
@@ -7219,7 +7645,10 @@ public class NetPlan extends NetworkElement
             if ((e.coupledLowerOrThisLayerDemand != null) || (e.coupledLowerLayerMulticastDemand != null))
                 throw new Net2PlanException("Coupled links cannot change its capacity");
         for (Link e : layer.links)
+        {
+            journal.linkCapacityChanged(e, e.capacity, linkCapacities.get(e.index));
             e.updateCapacityAndZeroCapacityLinksAndRoutesCaches(linkCapacities.get(e.index));
+        }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -7240,7 +7669,10 @@ public class NetPlan extends NetworkElement
         if (offeredTrafficVector.size() > 0) if (offeredTrafficVector.getMinLocation()[0] < 0)
             throw new Net2PlanException("Offered traffic must be greater or equal than zero");
         for (MulticastDemand d : layer.multicastDemands)
+        {
+            journal.offeredTrafficChanged(d, d.offeredTraffic, offeredTrafficVector.get(d.index));
             d.offeredTraffic = offeredTrafficVector.get(d.index);
+        }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -7560,6 +7992,7 @@ public class NetPlan extends NetworkElement
      */
     public boolean setModifiableState(boolean isModifiable)
     {
+        if (isModifiable && isReadOnlyCopy) throw new Net2PlanException("A read-only copy of a design cannot be made modifiable");
         final boolean oldState = this.isModifiable;
         this.isModifiable = isModifiable;
         return oldState;
@@ -7697,7 +8130,7 @@ public class NetPlan extends NetworkElement
 //		return m;
 //	}
 
-    void checkCachesConsistency(List<? extends NetworkElement> list, SortedMap<Long, ? extends NetworkElement> cache, boolean mustBeSameSize)
+    void checkCachesConsistency(List<? extends NetworkElement> list, LongObjectHashMap<? extends NetworkElement> cache, boolean mustBeSameSize)
     {
         if (mustBeSameSize)
             if (cache.size() != list.size()) throw new RuntimeException("Bad: cache: " + cache + ", list: " + list);
@@ -7991,7 +8424,7 @@ public class NetPlan extends NetworkElement
         else throw new RuntimeException("Bad");
 
     }
-    private NetworkElement getFromId(long id)
+    NetworkElement getFromId(long id)
     {
     	if (this.id == id) return this;
     	NetworkElement el = cache_id2LinkMap.get(id); if (el != null) return el;
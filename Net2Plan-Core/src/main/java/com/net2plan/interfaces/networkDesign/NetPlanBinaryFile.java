@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.net2plan.utils.Pair;
+
+/**
+ * <p>A design saved in the binary {@code .n2p} format (see {@link NetPlan#saveToBinaryFile(File, boolean)}), opened for random access.
+ * Opening the file only reads its section index, whatever the file size. Then, the whole design, or only some of its layers, can be
+ * loaded with {@link #load()} and {@link #load(Collection)}.</p>
+ *
+ * <p>The file is memory-mapped, and each section is mapped only when it is read: the sections of the layers that are not loaded
+ * are never read from disk. This is useful for tools that only need some layers of very large designs (e.g. reports on the links of one layer).</p>
+ *
+ * <p>A design loaded with only some of its layers contains all the nodes, resources and (non-dynamic) shared risk groups, and all the elements in the
+ * selected layers, with the same identifiers as in the file. The shared risk groups only contain the links in the selected layers, the dynamic shared
+ * risk groups are not loaded, and the couplings between layers are loaded only if both layers are selected.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * try (NetPlanBinaryFile file = new NetPlanBinaryFile(new File("design.n2p")))
+ * {
+ *     final long ipLayerId = file.getLayerNames().entrySet().stream().filter(e -&gt; "IP".equals(e.getValue())).findFirst().get().getKey();
+ *     final NetPlan ipDesign = file.load(Collections.singleton(ipLayerId));
+ * }
+ * </pre>
+ *
+ * @since 0.6.5
+ */
+public class NetPlanBinaryFile implements Closeable
+{
+	private final FileChannel channel;
+	private final List<WriterNetPlanN2PBinary.SectionIndexEntry> sectionIndex;
+	private final SortedMap<Long, String> layerNames;
+
+	/**
+	 * <p>Opens a file in binary {@code .n2p} format, and reads its section index.</p>
+	 *
+	 * @param file Input file
+	 */
+	public NetPlanBinaryFile(File file)
+	{
+		try
+		{
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException e)
+		{
+			throw new Net2PlanException("File not found: " + file);
+		} catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+
+		boolean indexRead = false;
+		try
+		{
+			final long fileSize = channel.size();
+			final int headerSize = WriterNetPlanN2PBinary.MAGIC_NUMBER.length + 4;
+			if (fileSize < headerSize + WriterNetPlanN2PBinary.TRAILER_SIZE_IN_BYTES) throw new Net2PlanException("Not a valid .n2p file");
+			final ByteBuffer header = map(0, headerSize);
+			if (!hasMagicNumber(header)) throw new Net2PlanException("Not a file in binary .n2p format");
+			ReaderNetPlanN2PBinary.checkFormatVersion(header.getInt());
+
+			final ByteBuffer trailer = map(fileSize - WriterNetPlanN2PBinary.TRAILER_SIZE_IN_BYTES, WriterNetPlanN2PBinary.TRAILER_SIZE_IN_BYTES);
+			final long indexPosition = trailer.getLong();
+			if (!hasMagicNumber(trailer) || indexPosition < headerSize || indexPosition > fileSize - WriterNetPlanN2PBinary.SECTION_HEADER_SIZE_IN_BYTES)
+				throw new Net2PlanException("Not a valid .n2p file: the section index was not found");
+			final ByteBuffer indexHeader = map(indexPosition, WriterNetPlanN2PBinary.SECTION_HEADER_SIZE_IN_BYTES);
+			final int indexType = indexHeader.get() & 0xFF;
+			final int indexFlags = indexHeader.get() & 0xFF;
+			final int indexNumRecords = indexHeader.getInt();
+			final int indexStoredLength = indexHeader.getInt();
+			if (indexType != WriterNetPlanN2PBinary.SECTION_INDEX || indexNumRecords < 0 || indexStoredLength < 0) throw new Net2PlanException("Not a valid .n2p file: the section index was not found");
+			this.sectionIndex = ReaderNetPlanN2PBinary.readSectionIndex(indexFlags, indexNumRecords, mapSection(indexPosition, indexStoredLength));
+
+			this.layerNames = new TreeMap<> ();
+			for (WriterNetPlanN2PBinary.SectionIndexEntry entry : sectionIndex)
+			{
+				if (entry.type != WriterNetPlanN2PBinary.SECTION_LAYER) continue;
+				final Pair<Long, String> layerIdAndName = ReaderNetPlanN2PBinary.readLayerIdAndName(entry.flags, mapSection(entry.position, entry.storedLength));
+				if (layerIdAndName.getFirst() != entry.layerId) throw new Net2PlanException("Not a valid .n2p file");
+				layerNames.put(layerIdAndName.getFirst(), layerIdAndName.getSecond());
+			}
+			if (layerNames.isEmpty()) throw new Net2PlanException("Not a valid .n2p file");
+			indexRead = true;
+		} catch (BufferUnderflowException e)
+		{
+			throw new Net2PlanException("Not a valid .n2p file");
+		} catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		} finally
+		{
+			if (!indexRead) try { channel.close(); } catch (IOException e) { }
+		}
+	}
+
+	/**
+	 * <p>Returns the identifiers of the layers in the design, and their names.</p>
+	 *
+	 * @return The layer names, by layer identifier (unmodifiable)
+	 */
+	public SortedMap<Long, String> getLayerNames()
+	{
+		return Collections.unmodifiableSortedMap(layerNames);
+	}
+
+	/**
+	 * <p>Loads the whole design.</p>
+	 *
+	 * @return The design
+	 */
+	public NetPlan load()
+	{
+		return load(layerNames.keySet());
+	}
+
+	/**
+	 * <p>Loads the design with only the given layers. The layer that was the default in the file is the default layer if it is loaded,
+	 * otherwise the first loaded layer is the default.</p>
+	 *
+	 * @param layerIds Identifiers of the layers to load (at least one)
+	 * @return The design
+	 */
+	public NetPlan load(Collection<Long> layerIds)
+	{
+		final Set<Long> layerIdsToLoad = new HashSet<> (layerIds);
+		if (layerIdsToLoad.isEmpty()) throw new Net2PlanException("At least one layer must be loaded");
+		for (long layerId : layerIdsToLoad) if (!layerNames.containsKey(layerId)) throw new Net2PlanException("Unknown layer id: " + layerId);
+		if (!channel.isOpen()) throw new Net2PlanException("The file is closed");
+
+		final NetPlan netPlan = new NetPlan();
+		final ReaderNetPlanN2PBinary reader = new ReaderNetPlanN2PBinary(netPlan, layerIdsToLoad.size() < layerNames.size());
+		try
+		{
+			for (WriterNetPlanN2PBinary.SectionIndexEntry entry : sectionIndex)
+			{
+				if (entry.layerId != -1 && !layerIdsToLoad.contains(entry.layerId)) continue;
+				reader.readSection(entry.type, entry.flags, entry.numRecords, mapSection(entry.position, entry.storedLength));
+			}
+		} catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+		reader.finish();
+		return netPlan;
+	}
+
+	/**
+	 * <p>Closes the file. The designs already loaded are not affected.</p>
+	 */
+	@Override
+	public void close()
+	{
+		try
+		{
+			channel.close();
+		} catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/* the content of the section whose header starts at the given position */
+	private ByteBuffer mapSection(long sectionPosition, int storedLength) throws IOException
+	{
+		return map(sectionPosition + WriterNetPlanN2PBinary.SECTION_HEADER_SIZE_IN_BYTES, storedLength);
+	}
+
+	private ByteBuffer map(long position, int length) throws IOException
+	{
+		if (position < 0 || position + length > channel.size()) throw new Net2PlanException("Not a valid .n2p file");
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	private static boolean hasMagicNumber(ByteBuffer buffer)
+	{
+		for (byte b : WriterNetPlanN2PBinary.MAGIC_NUMBER)
+			if (buffer.get() != b) return false;
+		return true;
+	}
+}
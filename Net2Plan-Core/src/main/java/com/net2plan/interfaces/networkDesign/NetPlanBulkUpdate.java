@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.utils.Pair;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+
+/**
+ * <p>Groups many additions of links and routes, and changes in the carried traffic of the routes, of a {@link NetPlan} object,
+ * which are applied together when {@link #commit()} is called. It is obtained with {@link NetPlan#bulk()}.</p>
+ *
+ * <p>Adding the routes one by one (e.g. with {@link NetPlan#addRoute(Demand, double, double, List, Map)}) updates, for each route, the carried traffic of its demand
+ * (summing the traffic of all the demand routes) and the traffic and occupied capacity of each traversed link (summing all the routes traversing it). Then, adding
+ * many routes over the same links is quadratic in the number of routes. Here, the staged changes are kept in arrays, and at commit, the carried traffic of each
+ * affected demand and link is updated only once. The consistency checks of the caches in debug mode are also made once.</p>
+ *
+ * <p>All the staged changes are checked before any is applied: if one is not valid, an exception is thrown and the design is not modified. Example:</p>
+ *
+ * <pre>
+ * NetPlanBulkUpdate bulk = netPlan.bulk();
+ * for (Demand d : netPlan.getDemands())
+ *     bulk.addRoute(d, d.getOfferedTraffic(), d.getOfferedTraffic(), shortestPaths.get(d));
+ * List&lt;Route&gt; routes = bulk.commit().getAddedRoutes();
+ * </pre>
+ *
+ * <p>A bulk update can be committed only once.</p>
+ *
+ * @since 0.6.5
+ */
+public final class NetPlanBulkUpdate
+{
+	private final NetPlan netPlan;
+	private boolean committed;
+
+	private final List<NetworkLayer> linkLayers = new ArrayList<> ();
+	private final List<Node> linkOriginNodes = new ArrayList<> ();
+	private final List<Node> linkDestinationNodes = new ArrayList<> ();
+	private final DoubleArrayList linkCapacities = new DoubleArrayList ();
+	private final DoubleArrayList linkLengthsInKm = new DoubleArrayList ();
+	private final DoubleArrayList linkPropagationSpeedsInKmPerSecond = new DoubleArrayList ();
+
+	private final List<Demand> routeDemands = new ArrayList<> ();
+	private final List<List<Link>> routeSequencesOfLinks = new ArrayList<> ();
+	private final DoubleArrayList routeCarriedTraffics = new DoubleArrayList ();
+	private final DoubleArrayList routeOccupiedLinkCapacities = new DoubleArrayList ();
+
+	private final List<Route> modifiedRoutes = new ArrayList<> ();
+	private final DoubleArrayList modifiedRouteCarriedTraffics = new DoubleArrayList ();
+	private final DoubleArrayList modifiedRouteOccupiedLinkCapacities = new DoubleArrayList ();
+
+	private final List<Link> addedLinks = new ArrayList<> ();
+	private final List<Route> addedRoutes = new ArrayList<> ();
+
+	NetPlanBulkUpdate (NetPlan netPlan)
+	{
+		this.netPlan = netPlan;
+	}
+
+	/**
+	 * <p>Stages the addition of a link, as {@link NetPlan#addLink(Node, Node, double, double, double, Map, NetworkLayer...)}, with no attributes.</p>
+	 *
+	 * @param originNode Link origin node
+	 * @param destinationNode Link destination node
+	 * @param capacity Link capacity. It must be greater or equal to zero
+	 * @param lengthInKm Link length. If negative, the node pair euclidean distance is used as the link length
+	 * @param propagationSpeedInKmPerSecond Link propagation speed in km/s. It must be greater than zero
+	 * @param optionalLayerParameter Network layer to which add the link (optional)
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate addLink (Node originNode , Node destinationNode , double capacity , double lengthInKm , double propagationSpeedInKmPerSecond , NetworkLayer... optionalLayerParameter)
+	{
+		checkNotCommitted();
+		linkLayers.add(netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter));
+		linkOriginNodes.add(originNode);
+		linkDestinationNodes.add(destinationNode);
+		linkCapacities.add(capacity);
+		linkLengthsInKm.add(lengthInKm);
+		linkPropagationSpeedsInKmPerSecond.add(propagationSpeedInKmPerSecond);
+		return this;
+	}
+
+	/**
+	 * <p>Stages the addition of several links. The link i has the i-th origin and destination nodes, capacity, length and propagation speed.</p>
+	 *
+	 * @param originNodes Links origin nodes
+	 * @param destinationNodes Links destination nodes
+	 * @param capacities Links capacities
+	 * @param lengthsInKm Links lengths. If negative, the node pair euclidean distance is used as the link length
+	 * @param propagationSpeedsInKmPerSecond Links propagation speeds in km/s
+	 * @param optionalLayerParameter Network layer to which add the links (optional)
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate addLinks (List<Node> originNodes , List<Node> destinationNodes , double [] capacities , double [] lengthsInKm , double [] propagationSpeedsInKmPerSecond , NetworkLayer... optionalLayerParameter)
+	{
+		final int numLinks = originNodes.size();
+		if (destinationNodes.size() != numLinks || capacities.length != numLinks || lengthsInKm.length != numLinks || propagationSpeedsInKmPerSecond.length != numLinks)
+			throw new Net2PlanException ("All the inputs must have the same size");
+		for (int cont = 0; cont < numLinks ; cont ++)
+			addLink(originNodes.get(cont) , destinationNodes.get(cont) , capacities [cont] , lengthsInKm [cont] , propagationSpeedsInKmPerSecond [cont] , optionalLayerParameter);
+		return this;
+	}
+
+	/**
+	 * <p>Stages the addition of a route, as {@link NetPlan#addRoute(Demand, double, double, List, Map)}, with no attributes.</p>
+	 *
+	 * @param demand Demand associated to the route
+	 * @param carriedTraffic Carried traffic. It must be greater or equal than zero
+	 * @param occupiedLinkCapacity Occupied link capacity. It must be greater or equal than zero
+	 * @param sequenceOfLinks Sequence of links traversed by the route
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate addRoute (Demand demand , double carriedTraffic , double occupiedLinkCapacity , List<Link> sequenceOfLinks)
+	{
+		checkNotCommitted();
+		routeDemands.add(demand);
+		routeSequencesOfLinks.add(sequenceOfLinks);
+		routeCarriedTraffics.add(carriedTraffic);
+		routeOccupiedLinkCapacities.add(occupiedLinkCapacity);
+		return this;
+	}
+
+	/**
+	 * <p>Stages the addition of several routes. The route i is associated to the i-th demand, and has the i-th carried traffic, occupied link capacity
+	 * and sequence of links.</p>
+	 *
+	 * @param demands Demands associated to the routes
+	 * @param carriedTraffics Carried traffic of the routes
+	 * @param occupiedLinkCapacities Occupied link capacity of the routes. If {@code null}, it is equal to the carried traffic
+	 * @param sequencesOfLinks Sequences of links traversed by the routes
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate addRoutes (List<Demand> demands , double [] carriedTraffics , double [] occupiedLinkCapacities , List<List<Link>> sequencesOfLinks)
+	{
+		final int numRoutes = demands.size();
+		if (carriedTraffics.length != numRoutes || (occupiedLinkCapacities != null && occupiedLinkCapacities.length != numRoutes) || sequencesOfLinks.size() != numRoutes)
+			throw new Net2PlanException ("All the inputs must have the same size");
+		for (int cont = 0; cont < numRoutes ; cont ++)
+			addRoute(demands.get(cont) , carriedTraffics [cont] , occupiedLinkCapacities == null? carriedTraffics [cont] : occupiedLinkCapacities [cont] , sequencesOfLinks.get(cont));
+		return this;
+	}
+
+	/**
+	 * <p>Stages the addition of the routes of the demands in the given layer, with the paths in the candidate path list of its node pair, as
+	 * {@link NetPlan#addRoutesFromCandidatePathList(SortedMap, NetworkLayer...)}. The routes carry no traffic.</p>
+	 *
+	 * @param cpl {@code SortedMap} where the keys are the node pairs and the values a list of sequence of links (each sequence is a route)
+	 * @param optionalLayerParameter The layer (optional)
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate addRoutesFromCandidatePathList (SortedMap<Pair<Node,Node>,List<List<Link>>> cpl , NetworkLayer... optionalLayerParameter)
+	{
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+		for (Demand d : netPlan.getDemands(layer))
+		{
+			final List<List<Link>> paths = cpl.get(Pair.of(d.getIngressNode() , d.getEgressNode()));
+			if (paths == null) continue;
+			for (List<Link> path : paths) addRoute(d , 0 , 0 , path);
+		}
+		return this;
+	}
+
+	/**
+	 * <p>Stages the change of the carried traffic of all the routes in the given layer, as {@link Route#setCarriedTraffic(double, double)}.</p>
+	 *
+	 * @param carriedTraffics The carried traffic, per route index in the layer
+	 * @param occupiedLinkCapacities The occupied link capacity, per route index in the layer. If {@code null}, it is equal to the carried traffic
+	 * @param optionalLayerParameter The layer (optional)
+	 * @return This object
+	 */
+	public NetPlanBulkUpdate setCarriedTraffic (double [] carriedTraffics , double [] occupiedLinkCapacities , NetworkLayer... optionalLayerParameter)
+	{
+		checkNotCommitted();
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+		if (carriedTraffics.length != layer.routes.size() || (occupiedLinkCapacities != null && occupiedLinkCapacities.length != layer.routes.size()))
+			throw new Net2PlanException ("The arrays must have the same size as the number of routes in the layer");
+		for (Route r : layer.routes)
+		{
+			modifiedRoutes.add(r);
+			modifiedRouteCarriedTraffics.add(carriedTraffics [r.index]);
+			modifiedRouteOccupiedLinkCapacities.add(occupiedLinkCapacities == null? carriedTraffics [r.index] : occupiedLinkCapacities [r.index]);
+		}
+		return this;
+	}
+
+	/**
+	 * <p>Applies all the staged changes: first, the links are added, then the routes, and then the carried traffic of the routes is changed.
+	 * If any staged change is not valid, an exception is thrown and the design is not modified.</p>
+	 *
+	 * @return This object, from which the added links and routes can be retrieved
+	 */
+	public NetPlanBulkUpdate commit ()
+	{
+		checkNotCommitted();
+		netPlan.checkIsModifiable();
+
+		/* First, check all the changes */
+		for (int cont = 0; cont < linkOriginNodes.size() ; cont ++)
+		{
+			final Node originNode = linkOriginNodes.get(cont);
+			final Node destinationNode = linkDestinationNodes.get(cont);
+			netPlan.checkInThisNetPlan(linkLayers.get(cont));
+			netPlan.checkInThisNetPlan(originNode);
+			netPlan.checkInThisNetPlan(destinationNode);
+			if (originNode.equals(destinationNode)) throw new Net2PlanException("Self-links are not allowed");
+			if (NetPlan.adjustToTolerance(linkCapacities.getQuick(cont)) < 0) throw new Net2PlanException("Link capacity must be non-negative");
+			if (linkPropagationSpeedsInKmPerSecond.getQuick(cont) <= 0) throw new Net2PlanException("Propagation speed must be positive");
+		}
+		for (int cont = 0; cont < routeDemands.size() ; cont ++)
+		{
+			final Demand demand = routeDemands.get(cont);
+			netPlan.checkInThisNetPlan(demand);
+			netPlan.checkServiceChainValidityForDemand(routeSequencesOfLinks.get(cont) , demand);
+			checkNonNegativeTraffic(routeCarriedTraffics.getQuick(cont) , routeOccupiedLinkCapacities.getQuick(cont));
+		}
+		for (int cont = 0; cont < modifiedRoutes.size() ; cont ++)
+		{
+			netPlan.checkInThisNetPlan(modifiedRoutes.get(cont));
+			checkNonNegativeTraffic(modifiedRouteCarriedTraffics.getQuick(cont) , modifiedRouteOccupiedLinkCapacities.getQuick(cont));
+		}
+		committed = true;
+
+		/* Then, apply them, updating the traffic of the demands and traversed links and resources at the end */
+		for (int cont = 0; cont < linkOriginNodes.size() ; cont ++)
+			addedLinks.add(netPlan.addLink(null , linkOriginNodes.get(cont) , linkDestinationNodes.get(cont) , linkCapacities.getQuick(cont) , linkLengthsInKm.getQuick(cont) , linkPropagationSpeedsInKmPerSecond.getQuick(cont) , null , linkLayers.get(cont)));
+		final Set<Route> routesToUpdate = new LinkedHashSet<> ();
+		for (int cont = 0; cont < routeDemands.size() ; cont ++)
+		{
+			final List<Link> sequenceOfLinks = routeSequencesOfLinks.get(cont);
+			final Route route = netPlan.addServiceChainToCaches(null , routeDemands.get(cont) , sequenceOfLinks , null);
+			route.setCarriedTrafficWithoutUpdatingTraversedElements(NetPlan.adjustToTolerance(routeCarriedTraffics.getQuick(cont)) ,
+					Collections.nCopies(sequenceOfLinks.size() , NetPlan.adjustToTolerance(routeOccupiedLinkCapacities.getQuick(cont))));
+			addedRoutes.add(route);
+			routesToUpdate.add(route);
+		}
+		for (int cont = 0; cont < modifiedRoutes.size() ; cont ++)
+		{
+			final Route route = modifiedRoutes.get(cont);
+			route.setCarriedTrafficWithoutUpdatingTraversedElements(NetPlan.adjustToTolerance(modifiedRouteCarriedTraffics.getQuick(cont)) ,
+					Collections.nCopies(route.currentPath.size() , NetPlan.adjustToTolerance(modifiedRouteOccupiedLinkCapacities.getQuick(cont))));
+			routesToUpdate.add(route);
+		}
+		updateTraversedElements(routesToUpdate);
+		for (Route route : addedRoutes) netPlan.cache_notifyElementAdded(route);
+
+		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
+		return this;
+	}
+
+	/**
+	 * <p>Returns the links added at commit, in the order in which they were staged.</p>
+	 *
+	 * @return The added links (empty if not committed yet)
+	 */
+	public List<Link> getAddedLinks ()
+	{
+		return Collections.unmodifiableList(addedLinks);
+	}
+
+	/**
+	 * <p>Returns the routes added at commit, in the order in which they were staged.</p>
+	 *
+	 * @return The added routes (empty if not committed yet)
+	 */
+	public List<Route> getAddedRoutes ()
+	{
+		return Collections.unmodifiableList(addedRoutes);
+	}
+
+	/* Updates once the carried traffic of the demands, and the traffic and occupied capacity of the links and resources, traversed by the given routes */
+	private static void updateTraversedElements (Set<Route> routes)
+	{
+		final Set<Demand> demands = new LinkedHashSet<> ();
+		final Set<Link> links = new LinkedHashSet<> ();
+		for (Route route : routes)
+		{
+			demands.add(route.demand);
+			for (Map.Entry<NetworkElement,Double> entry : route.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap.entrySet())
+				if (entry.getKey() instanceof Resource)
+					((Resource) entry.getKey()).addTraversingRoute(route , entry.getValue());
+				else if (entry.getKey() instanceof Link)
+					links.add((Link) entry.getKey());
+		}
+		for (Demand demand : demands)
+		{
+			demand.carriedTraffic = 0; for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+			demand.cache_notifyModified();
+			if (demand.coupledUpperOrSameLayerLink != null)
+				demand.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
+		}
+		for (Link link : links) link.updateLinkTrafficAndOccupation();
+	}
+
+	private static void checkNonNegativeTraffic (double carriedTraffic , double occupiedLinkCapacity)
+	{
+		if (NetPlan.adjustToTolerance(carriedTraffic) < 0) throw new Net2PlanException("Carried traffic must be non-negative");
+		if (NetPlan.adjustToTolerance(occupiedLinkCapacity) < 0) throw new Net2PlanException("Occupied capacities cannot be negative");
+	}
+
+	private void checkNotCommitted ()
+	{
+		if (committed) throw new Net2PlanException ("The bulk update was already committed");
+	}
+}
@@ -0,0 +1,1114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+import com.net2plan.interfaces.networkDesign.Demand.IntendedRecoveryType;
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Journal of the changes made to a {@link NetPlan} object, used to roll back transactions and to undo/redo them
+ * without copying the design. Each change stores the identifiers of the elements involved, and the previous and new
+ * values of the modified quantity. When an element is removed (or when the addition of an element is undone), the
+ * state needed to create it again with the same identifier and index is captured.</p>
+ *
+ * <p>The journal only records changes while a transaction is active. A change made outside a transaction invalidates
+ * the undo/redo history. This class is not thread-safe.</p>
+ *
+ * @since 0.6.5
+ */
+final class NetPlanJournal
+{
+	private final NetPlan netPlan;
+	private ArrayList<Change> transaction; // null if no transaction is active
+	private String notReversibleCause;
+	private int muted; // greater than zero while the journal is applying changes itself
+	private int maximumUndoSteps = 20;
+	private final ArrayDeque<Change []> undoSteps = new ArrayDeque<Change []> ();
+	private final ArrayDeque<Change []> redoSteps = new ArrayDeque<Change []> ();
+
+	NetPlanJournal (NetPlan netPlan)
+	{
+		this.netPlan = netPlan;
+	}
+
+	void beginTransaction ()
+	{
+		if (transaction != null) throw new Net2PlanException ("A transaction is already active");
+		transaction = new ArrayList<Change> ();
+		notReversibleCause = null;
+	}
+
+	void commit ()
+	{
+		checkTransactionActive ();
+		final List<Change> changes = transaction;
+		transaction = null;
+		if (notReversibleCause != null) { clearHistory (); return; }
+		if (changes.isEmpty ()) return;
+		redoSteps.clear ();
+		undoSteps.addLast (changes.toArray (new Change [changes.size ()]));
+		while (undoSteps.size () > maximumUndoSteps) undoSteps.removeFirst ();
+	}
+
+	void rollback ()
+	{
+		checkTransactionActive ();
+		final List<Change> changes = transaction;
+		final String cause = notReversibleCause;
+		transaction = null;
+		if (cause != null)
+		{
+			clearHistory ();
+			throw new Net2PlanException ("The transaction cannot be rolled back: " + cause);
+		}
+		apply (changes.toArray (new Change [changes.size ()]) , true);
+	}
+
+	boolean isTransactionActive () { return transaction != null; }
+
+	boolean undo ()
+	{
+		checkNoTransactionActive ();
+		if (undoSteps.isEmpty ()) return false;
+		final Change [] step = undoSteps.removeLast ();
+		apply (step , true);
+		redoSteps.addLast (step);
+		return true;
+	}
+
+	boolean redo ()
+	{
+		checkNoTransactionActive ();
+		if (redoSteps.isEmpty ()) return false;
+		final Change [] step = redoSteps.removeLast ();
+		apply (step , false);
+		undoSteps.addLast (step);
+		return true;
+	}
+
+	boolean canUndo () { return transaction == null && !undoSteps.isEmpty (); }
+
+	boolean canRedo () { return transaction == null && !redoSteps.isEmpty (); }
+
+	int getMaximumUndoSteps () { return maximumUndoSteps; }
+
+	void setMaximumUndoSteps (int maximumUndoSteps)
+	{
+		if (maximumUndoSteps < 0) throw new Net2PlanException ("The maximum number of undo steps cannot be negative");
+		this.maximumUndoSteps = maximumUndoSteps;
+		while (undoSteps.size () > maximumUndoSteps) undoSteps.removeFirst ();
+	}
+
+	/* Returns true if the changes made now must be recorded. A change outside a transaction invalidates the history */
+	boolean recording ()
+	{
+		if (muted > 0) return false;
+		if (transaction == null)
+		{
+			if (!undoSteps.isEmpty () || !redoSteps.isEmpty ()) clearHistory ();
+			return false;
+		}
+		return notReversibleCause == null;
+	}
+
+	/* The current transaction (or the history, if there is no transaction) cannot be reverted because of a change that is not journaled */
+	void notReversible (String cause)
+	{
+		if (muted > 0) return;
+		if (transaction == null) { clearHistory (); return; }
+		if (notReversibleCause != null) return;
+		notReversibleCause = cause;
+		transaction = new ArrayList<Change> ();
+	}
+
+	void record (Change change)
+	{
+		if (change != null && recording ()) transaction.add (change);
+	}
+
+	void elementAdded (NetworkElement e)
+	{
+		if (recording ()) transaction.add (new ElementAddedOrRemoved (e.id , true , null));
+	}
+
+	/* Called at the beginning of the removal of an element, before any of its state is modified. The returned change
+	 * is recorded at the end of the removal, after the changes in the elements depending on it */
+	Change elementRemoval (NetworkElement e)
+	{
+		return recording ()? new ElementAddedOrRemoved (e.id , false , ElementState.of (e)) : null;
+	}
+
+	void linkCapacityChanged (Link e , double oldCapacity , double newCapacity)
+	{
+		if (oldCapacity != newCapacity && recording ()) transaction.add (new LinkCapacity (e.id , oldCapacity , newCapacity));
+	}
+
+	void offeredTrafficChanged (NetworkElement demand , double oldOfferedTraffic , double newOfferedTraffic)
+	{
+		if (oldOfferedTraffic != newOfferedTraffic && recording ()) transaction.add (new OfferedTraffic (demand.id , oldOfferedTraffic , newOfferedTraffic));
+	}
+
+	void routeTrafficChanged (Route r , double oldCarriedTraffic , List<Double> oldOccupations , double newCarriedTraffic , List<Double> newOccupations)
+	{
+		if (recording ()) transaction.add (new RouteTraffic (r.id , oldCarriedTraffic , toArray (oldOccupations) , newCarriedTraffic , toArray (newOccupations)));
+	}
+
+	void routePathChanged (Route r , List<? extends NetworkElement> oldPath , List<? extends NetworkElement> newPath)
+	{
+		if (recording ()) transaction.add (new RoutePath (r.id , ids (oldPath) , ids (newPath)));
+	}
+
+	void treeTrafficChanged (MulticastTree t , double oldCarriedTraffic , double oldOccupiedCapacity , double newCarriedTraffic , double newOccupiedCapacity)
+	{
+		if (recording ()) transaction.add (new TreeTraffic (t.id , oldCarriedTraffic , oldOccupiedCapacity , newCarriedTraffic , newOccupiedCapacity));
+	}
+
+	void treeLinksChanged (MulticastTree t , Collection<Link> oldLinks , Collection<Link> newLinks)
+	{
+		if (recording ()) transaction.add (new TreeLinks (t.id , ids (oldLinks) , ids (newLinks)));
+	}
+
+	void resourceCapacityChanged (Resource r , double newCapacity , Map<Resource,Double> newCapacityIOccupyInBaseResources)
+	{
+		if (!recording ()) return;
+		final long [] baseIds = ids (newCapacityIOccupyInBaseResources.keySet ());
+		final double [] oldOccupations = new double [baseIds.length];
+		final double [] newOccupations = new double [baseIds.length];
+		int cont = 0;
+		for (Map.Entry<Resource,Double> entry : newCapacityIOccupyInBaseResources.entrySet ())
+		{
+			final Double oldOccupation = r.capacityIOccupyInBaseResource.get (entry.getKey ());
+			oldOccupations [cont] = oldOccupation == null? 0 : oldOccupation;
+			newOccupations [cont ++] = entry.getValue ();
+		}
+		transaction.add (new ResourceCapacity (r.id , r.capacity , newCapacity , baseIds , oldOccupations , newOccupations));
+	}
+
+	void attributeChanged (NetworkElement e , String key , String oldValue , String newValue)
+	{
+		if (oldValue != null && oldValue.equals (newValue)) return;
+		if (recording ()) transaction.add (new Attribute (e.id , key , oldValue , newValue));
+	}
+
+	void attributesReplaced (NetworkElement e , Map<String,String> oldAttributes)
+	{
+		if (recording ()) transaction.add (new AttributeMapReplaced (e.id , new TreeMap<String,String> (oldAttributes) , new TreeMap<String,String> (e.attributes)));
+	}
+
+	void failureStateChanged (List<Link> linksSetAsUp , List<Link> linksSetAsDown , List<Node> nodesSetAsUp , List<Node> nodesSetAsDown)
+	{
+		if (linksSetAsUp.isEmpty () && linksSetAsDown.isEmpty () && nodesSetAsUp.isEmpty () && nodesSetAsDown.isEmpty ()) return;
+		if (recording ()) transaction.add (new FailureState (ids (linksSetAsUp) , ids (linksSetAsDown) , ids (nodesSetAsUp) , ids (nodesSetAsDown)));
+	}
+
+	void forwardingRulesChanged (Demand d , SortedMap<Link,Double> oldFrs , SortedMap<Link,Double> newFrs)
+	{
+		if (oldFrs.equals (newFrs) || !recording ()) return;
+		transaction.add (new ForwardingRules (d.id , ids (oldFrs.keySet ()) , toArray (oldFrs.values ()) , ids (newFrs.keySet ()) , toArray (newFrs.values ())));
+	}
+
+	/* Called before the coupling is made, so the link capacity is the one before the coupling */
+	void demandCouplingChanged (Demand d , Link e , boolean coupled)
+	{
+		if (recording ()) transaction.add (new DemandCoupling (d.id , new long [] { e.id } , new double [] { e.capacity } , coupled , false));
+	}
+
+	/* Called before the coupling is made, so the link capacities are the ones before the coupling */
+	void multicastDemandCouplingChanged (MulticastDemand d , Collection<Link> links , boolean coupled)
+	{
+		if (!recording ()) return;
+		final double [] capacities = new double [links.size ()];
+		int cont = 0;
+		for (Link e : links) capacities [cont ++] = e.capacity;
+		transaction.add (new DemandCoupling (d.id , ids (links) , capacities , coupled , true));
+	}
+
+	void srgMembershipChanged (SharedRiskGroup srg , NetworkElement nodeOrLink , boolean added)
+	{
+		if (recording ()) transaction.add (new SrgMembership (srg.id , nodeOrLink.id , added));
+	}
+
+	void backupRouteChanged (Route primary , Route backup , boolean added)
+	{
+		if (recording ()) transaction.add (new BackupRoute (primary.id , backup.id , primary.backupRoutes.indexOf (backup) , added));
+	}
+
+	/* A change in a property of an element, reverted and applied again calling the given setter. The setter must not keep
+	 * references to network elements (they are created again when a removal is undone), and the values must not be modified later */
+	<T extends NetworkElement,V> void propertyChanged (T e , V oldValue , V newValue , BiConsumer<T,V> setter)
+	{
+		if (Objects.equals (oldValue , newValue)) return;
+		if (recording ()) transaction.add (new Property<T,V> (e.id , oldValue , newValue , setter));
+	}
+
+	private void apply (Change [] changes , boolean undo)
+	{
+		netPlan.checkIsModifiable ();
+		muted ++;
+		try
+		{
+			if (undo)
+				for (int cont = changes.length - 1 ; cont >= 0 ; cont --) changes [cont].undo (netPlan);
+			else
+				for (Change change : changes) change.redo (netPlan);
+		} catch (RuntimeException e)
+		{
+			clearHistory ();
+			throw e;
+		} finally
+		{
+			muted --;
+		}
+	}
+
+	private void clearHistory ()
+	{
+		undoSteps.clear ();
+		redoSteps.clear ();
+	}
+
+	private void checkTransactionActive ()
+	{
+		if (transaction == null) throw new Net2PlanException ("There is no active transaction");
+	}
+
+	private void checkNoTransactionActive ()
+	{
+		if (transaction != null) throw new Net2PlanException ("Not allowed while a transaction is active");
+	}
+
+	/* Changes. The elements are referred by their identifiers, since removed elements are restored as new objects */
+
+	abstract static class Change
+	{
+		abstract void undo (NetPlan np);
+
+		abstract void redo (NetPlan np);
+	}
+
+	/* Changes in an element that does not exist when the change is applied are skipped: this only happens for the changes made
+	 * inside the add method of the element, before its addition is recorded, which are already included in the captured state */
+	private static final class ElementAddedOrRemoved extends Change
+	{
+		private final long id;
+		private final boolean added;
+		private ElementState state; // state of the element, valid while the element does not exist
+
+		ElementAddedOrRemoved (long id , boolean added , ElementState state) { this.id = id; this.added = added; this.state = state; }
+
+		@Override
+		void undo (NetPlan np) { if (added) remove (np); else state.restore (np); }
+
+		@Override
+		void redo (NetPlan np) { if (added) state.restore (np); else remove (np); }
+
+		private void remove (NetPlan np)
+		{
+			final NetworkElement e = get (np , id , NetworkElement.class);
+			state = ElementState.of (e);
+			if (e instanceof Node) ((Node) e).remove ();
+			else if (e instanceof Link) ((Link) e).remove ();
+			else if (e instanceof Demand) ((Demand) e).remove ();
+			else if (e instanceof Route) ((Route) e).remove ();
+			else if (e instanceof MulticastDemand) ((MulticastDemand) e).remove ();
+			else if (e instanceof MulticastTree) ((MulticastTree) e).remove ();
+			else if (e instanceof SharedRiskGroup) ((SharedRiskGroup) e).remove ();
+			else if (e instanceof Resource) ((Resource) e).remove ();
+			else if (e instanceof NetworkLayer) np.removeNetworkLayer ((NetworkLayer) e);
+			else throw new RuntimeException ("Bad");
+		}
+	}
+
+	private static final class LinkCapacity extends Change
+	{
+		private final long linkId;
+		private final double oldCapacity, newCapacity;
+
+		LinkCapacity (long linkId , double oldCapacity , double newCapacity) { this.linkId = linkId; this.oldCapacity = oldCapacity; this.newCapacity = newCapacity; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldCapacity); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newCapacity); }
+
+		private void set (NetPlan np , double capacity)
+		{
+			final NetworkElement e = np.getFromId (linkId);
+			if (e instanceof Link) ((Link) e).updateCapacityAndZeroCapacityLinksAndRoutesCaches (capacity);
+		}
+	}
+
+	private static final class OfferedTraffic extends Change
+	{
+		private final long demandId;
+		private final double oldOfferedTraffic, newOfferedTraffic;
+
+		OfferedTraffic (long demandId , double oldOfferedTraffic , double newOfferedTraffic) { this.demandId = demandId; this.oldOfferedTraffic = oldOfferedTraffic; this.newOfferedTraffic = newOfferedTraffic; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldOfferedTraffic); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newOfferedTraffic); }
+
+		private void set (NetPlan np , double offeredTraffic)
+		{
+			final NetworkElement d = np.getFromId (demandId);
+			if (d instanceof Demand) ((Demand) d).setOfferedTraffic (offeredTraffic);
+			else if (d instanceof MulticastDemand) ((MulticastDemand) d).setOfferedTraffic (offeredTraffic);
+		}
+	}
+
+	private static final class RouteTraffic extends Change
+	{
+		private final long routeId;
+		private final double oldCarriedTraffic, newCarriedTraffic;
+		private final double [] oldOccupations, newOccupations;
+
+		RouteTraffic (long routeId , double oldCarriedTraffic , double [] oldOccupations , double newCarriedTraffic , double [] newOccupations)
+		{
+			this.routeId = routeId;
+			this.oldCarriedTraffic = oldCarriedTraffic;
+			this.oldOccupations = oldOccupations;
+			this.newCarriedTraffic = newCarriedTraffic;
+			this.newOccupations = newOccupations;
+		}
+
+		@Override
+		void undo (NetPlan np) { set (np , oldCarriedTraffic , oldOccupations); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newCarriedTraffic , newOccupations); }
+
+		private void set (NetPlan np , double carriedTraffic , double [] occupations)
+		{
+			final NetworkElement r = np.getFromId (routeId);
+			if (r instanceof Route) ((Route) r).setCarriedTraffic (carriedTraffic , toList (occupations));
+		}
+	}
+
+	/* Recorded in the middle of Route.setPath: the carried traffic is released before, and set again after, in their own changes */
+	private static final class RoutePath extends Change
+	{
+		private final long routeId;
+		private final long [] oldPath, newPath;
+
+		RoutePath (long routeId , long [] oldPath , long [] newPath) { this.routeId = routeId; this.oldPath = oldPath; this.newPath = newPath; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldPath); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newPath); }
+
+		private void set (NetPlan np , long [] path)
+		{
+			final NetworkElement r = np.getFromId (routeId);
+			if (r instanceof Route) ((Route) r).setPath (0 , elements (np , path , NetworkElement.class) , Collections.nCopies (path.length , 0.0));
+		}
+	}
+
+	private static final class TreeTraffic extends Change
+	{
+		private final long treeId;
+		private final double oldCarriedTraffic, oldOccupiedCapacity, newCarriedTraffic, newOccupiedCapacity;
+
+		TreeTraffic (long treeId , double oldCarriedTraffic , double oldOccupiedCapacity , double newCarriedTraffic , double newOccupiedCapacity)
+		{
+			this.treeId = treeId;
+			this.oldCarriedTraffic = oldCarriedTraffic;
+			this.oldOccupiedCapacity = oldOccupiedCapacity;
+			this.newCarriedTraffic = newCarriedTraffic;
+			this.newOccupiedCapacity = newOccupiedCapacity;
+		}
+
+		@Override
+		void undo (NetPlan np) { set (np , oldCarriedTraffic , oldOccupiedCapacity); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newCarriedTraffic , newOccupiedCapacity); }
+
+		private void set (NetPlan np , double carriedTraffic , double occupiedCapacity)
+		{
+			final NetworkElement t = np.getFromId (treeId);
+			if (t instanceof MulticastTree) ((MulticastTree) t).setCarriedTraffic (carriedTraffic , occupiedCapacity);
+		}
+	}
+
+	private static final class TreeLinks extends Change
+	{
+		private final long treeId;
+		private final long [] oldLinks, newLinks;
+
+		TreeLinks (long treeId , long [] oldLinks , long [] newLinks) { this.treeId = treeId; this.oldLinks = oldLinks; this.newLinks = newLinks; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldLinks); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newLinks); }
+
+		private void set (NetPlan np , long [] links)
+		{
+			final NetworkElement t = np.getFromId (treeId);
+			if (t instanceof MulticastTree) ((MulticastTree) t).setLinks (new TreeSet<Link> (elements (np , links , Link.class)));
+		}
+	}
+
+	private static final class ResourceCapacity extends Change
+	{
+		private final long resourceId;
+		private final double oldCapacity, newCapacity;
+		private final long [] baseResources;
+		private final double [] oldOccupations, newOccupations;
+
+		ResourceCapacity (long resourceId , double oldCapacity , double newCapacity , long [] baseResources , double [] oldOccupations , double [] newOccupations)
+		{
+			this.resourceId = resourceId;
+			this.oldCapacity = oldCapacity;
+			this.newCapacity = newCapacity;
+			this.baseResources = baseResources;
+			this.oldOccupations = oldOccupations;
+			this.newOccupations = newOccupations;
+		}
+
+		@Override
+		void undo (NetPlan np) { set (np , oldCapacity , oldOccupations); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newCapacity , newOccupations); }
+
+		private void set (NetPlan np , double capacity , double [] occupations)
+		{
+			final NetworkElement r = np.getFromId (resourceId);
+			if (r instanceof Resource) ((Resource) r).setCapacity (capacity , toMap (np , baseResources , occupations , Resource.class));
+		}
+	}
+
+	private static final class Attribute extends Change
+	{
+		private final long elementId;
+		private final String key, oldValue, newValue; // a null value means that the attribute does not exist
+
+		Attribute (long elementId , String key , String oldValue , String newValue) { this.elementId = elementId; this.key = key; this.oldValue = oldValue; this.newValue = newValue; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldValue); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newValue); }
+
+		private void set (NetPlan np , String value)
+		{
+			final NetworkElement e = np.getFromId (elementId);
+			if (e == null) return;
+			if (value == null) e.attributes.remove (key); else e.attributes.put (key , value);
+		}
+	}
+
+	private static final class AttributeMapReplaced extends Change
+	{
+		private final long elementId;
+		private final SortedMap<String,String> oldAttributes, newAttributes;
+
+		AttributeMapReplaced (long elementId , SortedMap<String,String> oldAttributes , SortedMap<String,String> newAttributes) { this.elementId = elementId; this.oldAttributes = oldAttributes; this.newAttributes = newAttributes; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldAttributes); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newAttributes); }
+
+		private void set (NetPlan np , SortedMap<String,String> attributes)
+		{
+			final NetworkElement e = np.getFromId (elementId);
+			if (e == null) return;
+			e.attributes.clear ();
+			e.attributes.putAll (attributes);
+		}
+	}
+
+	/* Only the links and nodes which actually changed their state are stored */
+	private static final class FailureState extends Change
+	{
+		private final long [] linksSetAsUp, linksSetAsDown, nodesSetAsUp, nodesSetAsDown;
+
+		FailureState (long [] linksSetAsUp , long [] linksSetAsDown , long [] nodesSetAsUp , long [] nodesSetAsDown)
+		{
+			this.linksSetAsUp = linksSetAsUp;
+			this.linksSetAsDown = linksSetAsDown;
+			this.nodesSetAsUp = nodesSetAsUp;
+			this.nodesSetAsDown = nodesSetAsDown;
+		}
+
+		@Override
+		void undo (NetPlan np)
+		{
+			np.setLinksAndNodesFailureState (elements (np , linksSetAsDown , Link.class) , elements (np , linksSetAsUp , Link.class) ,
+					elements (np , nodesSetAsDown , Node.class) , elements (np , nodesSetAsUp , Node.class));
+		}
+
+		@Override
+		void redo (NetPlan np)
+		{
+			np.setLinksAndNodesFailureState (elements (np , linksSetAsUp , Link.class) , elements (np , linksSetAsDown , Link.class) ,
+					elements (np , nodesSetAsUp , Node.class) , elements (np , nodesSetAsDown , Node.class));
+		}
+	}
+
+	private static final class ForwardingRules extends Change
+	{
+		private final long demandId;
+		private final long [] oldLinks, newLinks;
+		private final double [] oldSplittingFactors, newSplittingFactors;
+
+		ForwardingRules (long demandId , long [] oldLinks , double [] oldSplittingFactors , long [] newLinks , double [] newSplittingFactors)
+		{
+			this.demandId = demandId;
+			this.oldLinks = oldLinks;
+			this.oldSplittingFactors = oldSplittingFactors;
+			this.newLinks = newLinks;
+			this.newSplittingFactors = newSplittingFactors;
+		}
+
+		@Override
+		void undo (NetPlan np) { set (np , oldLinks , oldSplittingFactors); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newLinks , newSplittingFactors); }
+
+		private void set (NetPlan np , long [] links , double [] splittingFactors)
+		{
+			final NetworkElement d = np.getFromId (demandId);
+			if (d instanceof Demand) ((Demand) d).updateHopByHopRoutingToGivenFrs (toMap (np , links , splittingFactors , Link.class));
+		}
+	}
+
+	private static final class DemandCoupling extends Change
+	{
+		private final long demandId;
+		private final long [] links;
+		private final double [] linkCapacitiesBeforeCoupling;
+		private final boolean coupled, multicast;
+
+		DemandCoupling (long demandId , long [] links , double [] linkCapacitiesBeforeCoupling , boolean coupled , boolean multicast)
+		{
+			this.demandId = demandId;
+			this.links = links;
+			this.linkCapacitiesBeforeCoupling = linkCapacitiesBeforeCoupling;
+			this.coupled = coupled;
+			this.multicast = multicast;
+		}
+
+		@Override
+		void undo (NetPlan np)
+		{
+			if (coupled)
+			{
+				decouple (np);
+				for (int cont = 0 ; cont < links.length ; cont ++)
+					get (np , links [cont] , Link.class).updateCapacityAndZeroCapacityLinksAndRoutesCaches (linkCapacitiesBeforeCoupling [cont]);
+			}
+			else couple (np);
+		}
+
+		@Override
+		void redo (NetPlan np) { if (coupled) couple (np); else decouple (np); }
+
+		private void couple (NetPlan np)
+		{
+			if (multicast) get (np , demandId , MulticastDemand.class).couple (new TreeSet<Link> (elements (np , links , Link.class)));
+			else get (np , demandId , Demand.class).coupleToUpperOrSameLayerLink (get (np , links [0] , Link.class));
+		}
+
+		private void decouple (NetPlan np)
+		{
+			if (multicast) get (np , demandId , MulticastDemand.class).decouple ();
+			else get (np , demandId , Demand.class).decouple ();
+		}
+	}
+
+	private static final class SrgMembership extends Change
+	{
+		private final long srgId, elementId;
+		private final boolean added;
+
+		SrgMembership (long srgId , long elementId , boolean added) { this.srgId = srgId; this.elementId = elementId; this.added = added; }
+
+		@Override
+		void undo (NetPlan np) { set (np , !added); }
+
+		@Override
+		void redo (NetPlan np) { set (np , added); }
+
+		private void set (NetPlan np , boolean add)
+		{
+			final NetworkElement srgElement = np.getFromId (srgId);
+			final NetworkElement e = np.getFromId (elementId);
+			if (!(srgElement instanceof SharedRiskGroup) || e == null) return;
+			final SharedRiskGroup srg = (SharedRiskGroup) srgElement;
+			if (e instanceof Node) { if (add) srg.addNode ((Node) e); else srg.removeNode ((Node) e); }
+			else if (e instanceof Link) { if (add) srg.addLink ((Link) e); else srg.removeLink ((Link) e); }
+		}
+	}
+
+	/* Recorded after the backup route is added, or before it is removed, so the index is its position in the list of backup routes */
+	private static final class BackupRoute extends Change
+	{
+		private final long primaryId, backupId;
+		private final int index;
+		private final boolean added;
+
+		BackupRoute (long primaryId , long backupId , int index , boolean added) { this.primaryId = primaryId; this.backupId = backupId; this.index = index; this.added = added; }
+
+		@Override
+		void undo (NetPlan np) { set (np , !added); }
+
+		@Override
+		void redo (NetPlan np) { set (np , added); }
+
+		private void set (NetPlan np , boolean add)
+		{
+			final NetworkElement primaryElement = np.getFromId (primaryId);
+			final NetworkElement backupElement = np.getFromId (backupId);
+			if (!(primaryElement instanceof Route) || !(backupElement instanceof Route)) return;
+			final Route primary = (Route) primaryElement;
+			final Route backup = (Route) backupElement;
+			if (add)
+			{
+				primary.addBackupRoute (backup);
+				primary.backupRoutes.add (Math.min (index , primary.backupRoutes.size () - 1) , primary.backupRoutes.remove (primary.backupRoutes.size () - 1));
+			}
+			else primary.removeBackupRoute (backup);
+		}
+	}
+
+	private static final class Property<T extends NetworkElement,V> extends Change
+	{
+		private final long elementId;
+		private final V oldValue, newValue;
+		private final BiConsumer<T,V> setter;
+
+		Property (long elementId , V oldValue , V newValue , BiConsumer<T,V> setter) { this.elementId = elementId; this.oldValue = oldValue; this.newValue = newValue; this.setter = setter; }
+
+		@Override
+		void undo (NetPlan np) { set (np , oldValue); }
+
+		@Override
+		void redo (NetPlan np) { set (np , newValue); }
+
+		/* An element restored after its removal keeps its identifier and class */
+		@SuppressWarnings("unchecked")
+		private void set (NetPlan np , V value)
+		{
+			final NetworkElement e = np.getFromId (elementId);
+			if (e != null) setter.accept ((T) e , value);
+		}
+	}
+
+	/* States of the elements, to create them again with the same identifier and index */
+
+	private abstract static class ElementState
+	{
+		final long id;
+		final int index;
+		final String name, description;
+		final List<String> tags;
+		final SortedMap<String,String> attributes;
+
+		ElementState (NetworkElement e)
+		{
+			this.id = e.id;
+			this.index = e.index;
+			this.name = e.name;
+			this.description = e.description;
+			this.tags = new ArrayList<String> (e.tags);
+			this.attributes = new TreeMap<String,String> (e.attributes);
+		}
+
+		abstract void restore (NetPlan np);
+
+		final <T extends NetworkElement> void restoreCommonFields (T e , List<T> listWithElementLast)
+		{
+			e.name = name;
+			e.description = description;
+			for (String tag : tags) e.addTag (tag);
+			final int last = listWithElementLast.size () - 1;
+			if (listWithElementLast.get (last) != e) throw new RuntimeException ("Bad");
+			if (index >= last) return;
+			listWithElementLast.add (index , listWithElementLast.remove (last));
+			for (int cont = index ; cont <= last ; cont ++) listWithElementLast.get (cont).index = cont;
+		}
+
+		static ElementState of (NetworkElement e)
+		{
+			if (e instanceof Node) return new NodeState ((Node) e);
+			if (e instanceof Link) return new LinkState ((Link) e);
+			if (e instanceof Demand) return new DemandState ((Demand) e);
+			if (e instanceof Route) return new RouteState ((Route) e);
+			if (e instanceof MulticastDemand) return new MulticastDemandState ((MulticastDemand) e);
+			if (e instanceof MulticastTree) return new MulticastTreeState ((MulticastTree) e);
+			if (e instanceof SharedRiskGroup) return new SrgState ((SharedRiskGroup) e);
+			if (e instanceof Resource) return new ResourceState ((Resource) e);
+			if (e instanceof NetworkLayer) return new LayerState ((NetworkLayer) e);
+			throw new RuntimeException ("Bad");
+		}
+	}
+
+	private static final class NodeState extends ElementState
+	{
+		private final SortedMap<String,java.awt.geom.Point2D> xyPositionPerLayout;
+		private final boolean isUp;
+		private final double population;
+		private final String siteName;
+		private final List<String> planningDomains;
+
+		NodeState (Node n)
+		{
+			super (n);
+			this.xyPositionPerLayout = new TreeMap<String,java.awt.geom.Point2D> (n.mapLayout2NodeXYPositionMap);
+			this.isUp = n.isUp;
+			this.population = n.population;
+			this.siteName = n.siteName;
+			this.planningDomains = new ArrayList<String> (n.planningDomains);
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final Node n = np.addNode (id , 0 , 0 , name , attributes);
+			restoreCommonFields (n , np.nodes);
+			n.mapLayout2NodeXYPositionMap = new TreeMap<String,java.awt.geom.Point2D> (xyPositionPerLayout);
+			n.population = population;
+			n.setSiteName (siteName);
+			for (String pd : planningDomains) if (np.cache_planningDomain2nodes.containsKey (pd)) n.addToPlanningDomain (pd);
+			if (!isUp) np.setLinksAndNodesFailureState (null , null , null , Collections.singleton (n));
+		}
+	}
+
+	private static final class LinkState extends ElementState
+	{
+		private final long layerId, originNodeId, destinationNodeId, bidirectionalPairId;
+		private final double capacity, lengthInKm, propagationSpeedInKmPerSecond;
+		private final boolean isUp;
+		private final long [] srgs;
+
+		LinkState (Link e)
+		{
+			super (e);
+			this.layerId = e.layer.id;
+			this.originNodeId = e.originNode.id;
+			this.destinationNodeId = e.destinationNode.id;
+			this.bidirectionalPairId = e.bidirectionalPair == null? -1 : e.bidirectionalPair.id;
+			this.capacity = e.capacity;
+			this.lengthInKm = e.lengthInKm;
+			this.propagationSpeedInKmPerSecond = e.propagationSpeedInKmPerSecond;
+			this.isUp = e.isUp;
+			this.srgs = ids (e.cache_nonDynamicSrgs);
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final NetworkLayer layer = get (np , layerId , NetworkLayer.class);
+			final Link e = np.addLink (id , get (np , originNodeId , Node.class) , get (np , destinationNodeId , Node.class) , capacity , lengthInKm , propagationSpeedInKmPerSecond , attributes , layer);
+			restoreCommonFields (e , layer.links);
+			final NetworkElement pair = np.getFromId (bidirectionalPairId);
+			if (pair instanceof Link && ((Link) pair).bidirectionalPair == null) { e.bidirectionalPair = (Link) pair; ((Link) pair).bidirectionalPair = e; }
+			for (SharedRiskGroup srg : elements (np , srgs , SharedRiskGroup.class)) srg.addLink (e);
+			if (!isUp) np.setLinksAndNodesFailureState (null , Collections.singleton (e) , null , null);
+		}
+	}
+
+	private static final class DemandState extends ElementState
+	{
+		private final long layerId, ingressNodeId, egressNodeId, bidirectionalPairId;
+		private final double offeredTraffic, maximumAcceptableE2EWorstCaseLatencyInMs, offeredTrafficGrowthFactor;
+		private final RoutingType routingType;
+		private final String qosType;
+		private final IntendedRecoveryType recoveryType;
+		private final List<String> mandatorySequenceOfTraversedResourceTypes;
+		private final long [] frLinks;
+		private final double [] frSplittingFactors;
+
+		DemandState (Demand d)
+		{
+			super (d);
+			this.layerId = d.layer.id;
+			this.ingressNodeId = d.ingressNode.id;
+			this.egressNodeId = d.egressNode.id;
+			this.bidirectionalPairId = d.bidirectionalPair == null? -1 : d.bidirectionalPair.id;
+			this.offeredTraffic = d.offeredTraffic;
+			this.maximumAcceptableE2EWorstCaseLatencyInMs = d.maximumAcceptableE2EWorstCaseLatencyInMs;
+			this.offeredTrafficGrowthFactor = d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth;
+			this.routingType = d.routingType;
+			this.qosType = d.qosType;
+			this.recoveryType = d.recoveryType;
+			this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> (d.mandatorySequenceOfTraversedResourceTypes);
+			this.frLinks = ids (d.cacheHbH_frs.keySet ());
+			this.frSplittingFactors = toArray (d.cacheHbH_frs.values ());
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final NetworkLayer layer = get (np , layerId , NetworkLayer.class);
+			final Demand d = np.addDemand (id , get (np , ingressNodeId , Node.class) , get (np , egressNodeId , Node.class) , offeredTraffic , routingType , attributes , layer);
+			restoreCommonFields (d , layer.demands);
+			if (qosType != null) d.setQoSType (qosType);
+			d.maximumAcceptableE2EWorstCaseLatencyInMs = maximumAcceptableE2EWorstCaseLatencyInMs;
+			d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = offeredTrafficGrowthFactor;
+			d.recoveryType = recoveryType;
+			d.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> (mandatorySequenceOfTraversedResourceTypes);
+			final NetworkElement pair = np.getFromId (bidirectionalPairId);
+			if (pair instanceof Demand && ((Demand) pair).bidirectionalPair == null) { d.bidirectionalPair = (Demand) pair; ((Demand) pair).bidirectionalPair = d; }
+			if (frLinks.length > 0) d.updateHopByHopRoutingToGivenFrs (toMap (np , frLinks , frSplittingFactors , Link.class));
+		}
+	}
+
+	private static final class RouteState extends ElementState
+	{
+		private final long demandId, bidirectionalPairId;
+		private final long [] path, backupRoutes, routesIAmBackup;
+		private final double carriedTraffic;
+		private final double [] occupations;
+
+		RouteState (Route r)
+		{
+			super (r);
+			this.demandId = r.demand.id;
+			this.bidirectionalPairId = r.bidirectionalPair == null? -1 : r.bidirectionalPair.id;
+			this.path = ids (r.currentPath);
+			this.backupRoutes = ids (r.backupRoutes);
+			this.routesIAmBackup = ids (r.cache_routesIAmBackUp);
+			this.carriedTraffic = r.currentCarriedTrafficIfNotFailing;
+			this.occupations = toArray (r.currentLinksAndResourcesOccupationIfNotFailing);
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final Demand d = get (np , demandId , Demand.class);
+			final Route r = np.addServiceChain (id , d , carriedTraffic , toList (occupations) , elements (np , path , NetworkElement.class) , attributes);
+			restoreCommonFields (r , d.layer.routes);
+			final NetworkElement pair = np.getFromId (bidirectionalPairId);
+			if (pair instanceof Route && ((Route) pair).bidirectionalPair == null) { r.bidirectionalPair = (Route) pair; ((Route) pair).bidirectionalPair = r; }
+			for (Route backup : elements (np , backupRoutes , Route.class))
+				if (!r.backupRoutes.contains (backup)) { r.backupRoutes.add (backup); backup.cache_routesIAmBackUp.add (r); }
+			for (Route primary : elements (np , routesIAmBackup , Route.class))
+				if (!primary.backupRoutes.contains (r)) { primary.backupRoutes.add (r); r.cache_routesIAmBackUp.add (primary); }
+		}
+	}
+
+	private static final class MulticastDemandState extends ElementState
+	{
+		private final long layerId, ingressNodeId;
+		private final long [] egressNodes;
+		private final double offeredTraffic, maximumAcceptableE2EWorstCaseLatencyInMs, offeredTrafficGrowthFactor;
+		private final String qosType;
+
+		MulticastDemandState (MulticastDemand d)
+		{
+			super (d);
+			this.layerId = d.layer.id;
+			this.ingressNodeId = d.ingressNode.id;
+			this.egressNodes = ids (d.egressNodes);
+			this.offeredTraffic = d.offeredTraffic;
+			this.maximumAcceptableE2EWorstCaseLatencyInMs = d.maximumAcceptableE2EWorstCaseLatencyInMs;
+			this.offeredTrafficGrowthFactor = d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth;
+			this.qosType = d.qosType;
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final NetworkLayer layer = get (np , layerId , NetworkLayer.class);
+			final MulticastDemand d = np.addMulticastDemand (id , get (np , ingressNodeId , Node.class) , new TreeSet<Node> (elements (np , egressNodes , Node.class)) , offeredTraffic , attributes , layer);
+			restoreCommonFields (d , layer.multicastDemands);
+			if (qosType != null) d.setQoSType (qosType);
+			d.maximumAcceptableE2EWorstCaseLatencyInMs = maximumAcceptableE2EWorstCaseLatencyInMs;
+			d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = offeredTrafficGrowthFactor;
+		}
+	}
+
+	private static final class MulticastTreeState extends ElementState
+	{
+		private final long demandId;
+		private final long [] links;
+		private final double carriedTraffic, occupiedCapacity;
+
+		MulticastTreeState (MulticastTree t)
+		{
+			super (t);
+			this.demandId = t.demand.id;
+			this.links = ids (t.linkSet);
+			this.carriedTraffic = t.carriedTrafficIfNotFailing;
+			this.occupiedCapacity = t.occupiedLinkCapacityIfNotFailing;
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final MulticastDemand d = get (np , demandId , MulticastDemand.class);
+			final MulticastTree t = np.addMulticastTree (id , d , carriedTraffic , occupiedCapacity , new TreeSet<Link> (elements (np , links , Link.class)) , attributes);
+			restoreCommonFields (t , d.layer.multicastTrees);
+		}
+	}
+
+	private static final class SrgState extends ElementState
+	{
+		private final double meanTimeToFailInHours, meanTimeToRepairInHours;
+		private final long [] nodes, links;
+		private final String dynamicClassName, dynamicInitializationString;
+
+		SrgState (SharedRiskGroup srg)
+		{
+			super (srg);
+			this.meanTimeToFailInHours = srg.meanTimeToFailInHours;
+			this.meanTimeToRepairInHours = srg.meanTimeToRepairInHours;
+			this.dynamicClassName = srg.isDynamicSrg ()? srg.dynamicSrgImplementation.getClass ().getName () : null;
+			this.dynamicInitializationString = srg.isDynamicSrg ()? srg.dynamicSrgImplementation.getInitializationString () : null;
+			this.nodes = srg.isDynamicSrg ()? new long [0] : ids (srg.getNodes ());
+			this.links = srg.isDynamicSrg ()? new long [0] : ids (srg.linksIfNonDynamic);
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final SharedRiskGroup srg = dynamicClassName != null?
+					np.addSRGDynamic (id , meanTimeToFailInHours , meanTimeToRepairInHours , dynamicClassName , dynamicInitializationString , attributes) :
+					np.addSRG (id , meanTimeToFailInHours , meanTimeToRepairInHours , attributes);
+			restoreCommonFields (srg , np.srgs);
+			for (Node n : elements (np , nodes , Node.class)) srg.addNode (n);
+			for (Link e : elements (np , links , Link.class)) srg.addLink (e);
+		}
+	}
+
+	private static final class ResourceState extends ElementState
+	{
+		private final String type, capacityMeasurementUnits;
+		private final long hostNodeId;
+		private final double capacity, processingTimeToTraversingTrafficInMs;
+		private final long [] baseResources;
+		private final double [] occupationsInBaseResources;
+		private final URL urlIcon;
+
+		ResourceState (Resource r)
+		{
+			super (r);
+			this.type = r.type;
+			this.capacityMeasurementUnits = r.capacityMeasurementUnits;
+			this.hostNodeId = r.hostNode.isPresent ()? r.hostNode.get ().id : -1;
+			this.capacity = r.capacity;
+			this.processingTimeToTraversingTrafficInMs = r.processingTimeToTraversingTrafficInMs;
+			this.baseResources = ids (r.capacityIOccupyInBaseResource.keySet ());
+			this.occupationsInBaseResources = toArray (r.capacityIOccupyInBaseResource.values ());
+			this.urlIcon = r.urlIcon;
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final Optional<Node> hostNode = hostNodeId == -1? Optional.empty () : Optional.of (get (np , hostNodeId , Node.class));
+			final Resource r = np.addResource (id , type , name , hostNode , capacity , capacityMeasurementUnits ,
+					toMap (np , baseResources , occupationsInBaseResources , Resource.class) , processingTimeToTraversingTrafficInMs , attributes);
+			restoreCommonFields (r , np.resources);
+			r.urlIcon = urlIcon;
+		}
+	}
+
+	private static final class LayerState extends ElementState
+	{
+		private final String linkCapacityUnitsName, demandTrafficUnitsName;
+		private final URL defaultNodeIconURL;
+		private final boolean isDefault;
+
+		LayerState (NetworkLayer layer)
+		{
+			super (layer);
+			this.linkCapacityUnitsName = layer.linkCapacityUnitsName;
+			this.demandTrafficUnitsName = layer.demandTrafficUnitsName;
+			this.defaultNodeIconURL = layer.defaultNodeIconURL;
+			this.isDefault = layer.netPlan.getNetworkLayerDefault () == layer;
+		}
+
+		@Override
+		void restore (NetPlan np)
+		{
+			final NetworkLayer layer = np.addLayer (id , name , description , linkCapacityUnitsName , demandTrafficUnitsName , defaultNodeIconURL , attributes);
+			restoreCommonFields (layer , np.layers);
+			if (isDefault) np.setNetworkLayerDefault (layer);
+		}
+	}
+
+	/* Helpers */
+
+	private static <T extends NetworkElement> T get (NetPlan np , long id , Class<T> type)
+	{
+		final NetworkElement e = np.getFromId (id);
+		if (!type.isInstance (e)) throw new Net2PlanException ("The element with identifier " + id + " does not exist, and the journal cannot be applied");
+		return type.cast (e);
+	}
+
+	private static <T extends NetworkElement> List<T> elements (NetPlan np , long [] ids , Class<T> type)
+	{
+		final List<T> res = new ArrayList<T> (ids.length);
+		for (long id : ids) res.add (get (np , id , type));
+		return res;
+	}
+
+	private static <T extends NetworkElement> SortedMap<T,Double> toMap (NetPlan np , long [] ids , double [] values , Class<T> type)
+	{
+		final SortedMap<T,Double> res = new TreeMap<T,Double> ();
+		for (int cont = 0 ; cont < ids.length ; cont ++) res.put (get (np , ids [cont] , type) , values [cont]);
+		return res;
+	}
+
+	private static long [] ids (Collection<? extends NetworkElement> elements)
+	{
+		final long [] res = new long [elements.size ()];
+		int cont = 0;
+		for (NetworkElement e : elements) res [cont ++] = e.id;
+		return res;
+	}
+
+	private static double [] toArray (Collection<Double> values)
+	{
+		final double [] res = new double [values.size ()];
+		int cont = 0;
+		for (Double val : values) res [cont ++] = val;
+		return res;
+	}
+
+	private static List<Double> toList (double [] values)
+	{
+		final List<Double> res = new ArrayList<Double> (values.length);
+		for (double val : values) res.add (val);
+		return res;
+	}
+}
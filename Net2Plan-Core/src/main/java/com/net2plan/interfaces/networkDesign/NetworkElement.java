@@ -11,6 +11,7 @@
 
 package com.net2plan.interfaces.networkDesign;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import com.net2plan.internal.AttributeMap;
@@ -65,7 +67,13 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	/** Sets this element name
 	 * @param name  see above
 	 */
-	public final void setName (String name) { this.name = name == null? "" : name; }
+	public final void setName (String name)
+	{
+		if (netPlan != null) netPlan.checkIsModifiable();
+		final String oldName = this.name;
+		this.name = name == null? "" : name;
+		if (netPlan != null) netPlan.journal.propertyChanged (this , oldName , this.name , NetworkElement::setName);
+	}
 
 	/** Returns current element name String
 	 * @return see above
@@ -75,7 +83,13 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     /** Sets this element description
      * @param description  see above
      */
-    public final void setDescription (String description) { this.description = description == null? "" : description; }
+	public final void setDescription (String description)
+	{
+		if (netPlan != null) netPlan.checkIsModifiable();
+		final String oldDescription = this.description;
+		this.description = description == null? "" : description;
+		if (netPlan != null) netPlan.journal.propertyChanged (this , oldDescription , this.description , NetworkElement::setDescription);
+	}
 
     /** Returns current element description String
      * @return see above
@@ -167,11 +181,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public Double getAttributeAsDouble (String key , Double defaultValue)
 	{
-		final String val = attributes.get(key);
-		if (val == null) return defaultValue;
 		try 
 		{
-			return Double.parseDouble(val);
+			final Double val = attributes.getDouble(key);
+			return val == null? defaultValue : val;
 		} catch (Exception ee) { return defaultValue; }
 	}
 	
@@ -243,7 +256,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 
 	
 	/**
-	 * Returns the value of a given attribute for this network element, in form of a list of doubles, as stored using the setAttributeAsDoubleList method
+	 * Returns the value of a given attribute for this network element, in form of a list of doubles, as stored using the setAttributeAsDoubleList method.
+	 * The returned list cannot be modified, and is a view of the stored values (a later change in the attribute is not reflected in it)
 	 * @param key Attribute name
 	 * @param defaultValue default value to return if not found, or could not be parsed
 	 * @return see above
@@ -251,19 +265,19 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public List<Double> getAttributeAsDoubleList (String key , List<Double> defaultValue)
 	{
 		checkAttachedToNetPlanObject();
-		final String val = attributes.get(key);
-		if (val == null) return defaultValue;  
+		final double [] vals;
 		try 
 		{
-			final String [] parts = val.split(MATRIX_COLSEPARATOR,-1);
-			final List<Double> res = new ArrayList<> (parts.length);
-			for (String part : parts)
-			{
-				if (part.equals("")) continue;
-				res.add(Double.parseDouble(part));
-			}
-			return res;
+			vals = attributes.getDoubles(key);
 		} catch (Exception ee) { ee.printStackTrace();return defaultValue; }
+		if (vals == null) return defaultValue;  
+		return new AbstractList<Double> ()
+		{
+			@Override
+			public Double get (int index) { return vals [index]; }
+			@Override
+			public int size () { return vals.length; }
+		};
 	}
 
 	/**
@@ -318,10 +332,12 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public void addTag (String tag)
 	{
-		this.tags.add (tag);
+		netPlan.checkIsModifiable();
+		final boolean added = this.tags.add (tag);
 		SortedSet<NetworkElement> setElements = netPlan.cache_taggedElements.get (tag);
 		if (setElements == null) { setElements = new TreeSet<> (); netPlan.cache_taggedElements.put (tag , setElements); }
 		setElements.add (this);
+		if (added) netPlan.journal.propertyChanged (this , false , true , (e , tagged) -> setTagged (e , tag , tagged));
 	}
 	
 	/** Returns true if this network element has the given tag
@@ -339,11 +355,20 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public boolean removeTag (String tag)
 	{
+		netPlan.checkIsModifiable();
 		final boolean removed = this.tags.remove (tag);
 		if (removed)
+		{
 			netPlan.cache_taggedElements.get (tag).remove (this);
+			netPlan.journal.propertyChanged (this , true , false , (e , tagged) -> setTagged (e , tag , tagged));
+		}
 		return removed;
 	}
+
+	private static void setTagged (NetworkElement e , String tag , boolean tagged)
+	{
+		if (tagged) e.addTag (tag); else e.removeTag (tag);
+	}
 	
 	/** Returns the set of tags assigned to this network element
 	 * @return the set (unmodifiable)
@@ -390,8 +415,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	final public void removeAllAttributes ()
 	{ 
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiableForAttributeChange();
+		final SortedMap<String,String> previousAttributes = netPlan.journal.recording()? new TreeMap<> (attributes) : null;
 		attributes.clear();
+		if (previousAttributes != null) netPlan.journal.attributesReplaced(this, previousAttributes);
 	}
 
 	/**
@@ -402,8 +429,9 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	final public void removeAttribute (String key)
 	{ 
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.remove(key);
+		netPlan.checkIsModifiableForAttributeChange();
+		final String previousValue = attributes.remove(key);
+		if (previousValue != null) netPlan.journal.attributeChanged(this, key, previousValue, null);
 	}
 
 	/**
@@ -416,8 +444,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttribute (String key, String value)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key,value);
+		netPlan.checkIsModifiableForAttributeChange();
+		putAttribute (key,value);
 	}
 
 	/**
@@ -429,8 +457,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttribute (String key, Number value)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key,value.toString());
+		netPlan.checkIsModifiableForAttributeChange();
+		final String previousValue = getAttributeIfJournalRecording (key);
+		attributes.putNumber (key , value);
+		notifyAttributeChanged (key , previousValue);
 	}
 
 	/**
@@ -442,15 +472,34 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsNumberList (String key, List<? extends Number> valueList)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		final StringBuffer st = new StringBuffer ();
-		boolean firstTime = true;
+		netPlan.checkIsModifiableForAttributeChange();
+		/* The values are stored in typed form. The string is created now only if it is not what Double.toString would give */
+		final double [] vals = new double [valueList.size()];
+		boolean allDoubles = true;
+		boolean allExactlyConvertible = true;
+		int cont = 0;
 		for (Number val : valueList)
 		{
-			if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
-			st.append(val.toString()); 
+			allDoubles &= val instanceof Double;
+			allExactlyConvertible &= val instanceof Double || val instanceof Integer || val instanceof Long;
+			vals [cont ++] = val.doubleValue();
+		}
+		String stringValue = null;
+		if (!allDoubles)
+		{
+			final StringBuffer st = new StringBuffer ();
+			boolean firstTime = true;
+			for (Number val : valueList)
+			{
+				if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
+				st.append(val.toString()); 
+			}
+			stringValue = st.toString();
 		}
-		attributes.put (key,st.toString());
+		if (!allExactlyConvertible) { putAttribute (key,stringValue); return; }
+		final String previousValue = getAttributeIfJournalRecording (key);
+		attributes.putDoubles (key , vals , stringValue);
+		notifyAttributeChanged (key , previousValue);
 	}
 
 	/**
@@ -463,8 +512,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsStringList (String key, List<String> vals)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key, StringUtils.createEscapedString_asStringList (vals));
+		netPlan.checkIsModifiableForAttributeChange();
+		putAttribute (key, StringUtils.createEscapedString_asStringList (vals));
 	}
 
 	/**
@@ -476,10 +525,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public void setAttributeAsStringMatrix (String key, List<List<String>> vals)
 	{
-		if (vals.isEmpty()) { attributes.put (key,""); return; }
+		if (vals.isEmpty()) { putAttribute (key,""); return; }
 		for (List<String> row : vals) if (row.isEmpty()) throw new Net2PlanException ("One of the rows of the matrix is empty");
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiableForAttributeChange();
 		final StringBuffer st = new StringBuffer ();
 		boolean firstRow = true;
 		for (List<String> row : vals)
@@ -492,7 +541,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 				st.append(StringUtils.escapedStringToWrite(cell));
 			}
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 
 	/**
@@ -504,7 +553,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsNumberMatrix (String key, DoubleMatrix2D vals)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiableForAttributeChange();
 		final StringBuffer st = new StringBuffer ();
 		for (int row = 0; row < vals.rows() ; row ++)
 		{
@@ -515,7 +564,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     		}
 			if (row != vals.rows()-1) st.append(MATRIX_ROWSEPARATOR);
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 	
     /**
@@ -527,7 +576,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     public void setAttributeAsNumberMatrix (String key, List<List<Number>> vals)
     {
         checkAttachedToNetPlanObject();
-        netPlan.checkIsModifiable();
+        netPlan.checkIsModifiableForAttributeChange();
         final StringBuffer st = new StringBuffer ();
         for (int row = 0; row < vals.size() ; row ++)
         {
@@ -539,7 +588,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
             }
             if (row != vals.size()-1) st.append(MATRIX_ROWSEPARATOR);
         }
-        attributes.put (key,st.toString());
+        putAttribute (key,st.toString());
     }
 
     /**
@@ -549,11 +598,30 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeMap (Map<String,String> map)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiableForAttributeChange();
+		final SortedMap<String,String> previousAttributes = netPlan.journal.recording()? new TreeMap<> (attributes) : null;
 		attributes.clear(); 
 		if (map != null) 
 			for (SortedMap.Entry<String,String> e : map.entrySet())
 				attributes.put (e.getKey() , e.getValue());
+		if (previousAttributes != null) netPlan.journal.attributesReplaced(this, previousAttributes);
+	}
+
+	private void putAttribute (String key , String value)
+	{
+		final String previousValue = attributes.put (key,value);
+		if (netPlan != null) netPlan.journal.attributeChanged(this, key, previousValue, value);
+	}
+
+	/* The previous value is only needed by the journal: this avoids creating the string of values stored in typed form */
+	private String getAttributeIfJournalRecording (String key)
+	{
+		return netPlan != null && netPlan.journal.recording()? attributes.get(key) : null;
+	}
+
+	private void notifyAttributeChanged (String key , String previousValue)
+	{
+		if (netPlan != null && netPlan.journal.recording()) netPlan.journal.attributeChanged(this, key, previousValue, attributes.get(key));
 	}
 
 	/**
@@ -584,9 +652,15 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 
 	final protected void removeId () 
 	{ 
+		if (netPlan != null) netPlan.cache_notifyElementRemoved(this);
 		this.netPlan = null;
 	} // called when the element is removed from the net2plan object
 
+	final void cache_notifyModified ()
+	{
+		if (netPlan != null) netPlan.cache_notifyElementModified(this);
+	} // called when a state quantity of the element (capacity, traffic, up/down state...) changes
+
 
 	void checkCachesConsistency ()
 	{
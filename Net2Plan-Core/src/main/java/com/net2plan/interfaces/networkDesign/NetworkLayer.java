@@ -199,6 +199,7 @@ public class NetworkLayer extends NetworkElement
 	 */
 	public void setDefaultNodeIconURL(URL defaultNodeIconURL) 
 	{
+		if (netPlan != null) netPlan.journal.propertyChanged (this , this.defaultNodeIconURL , defaultNodeIconURL , NetworkLayer::setDefaultNodeIconURL);
 		this.defaultNodeIconURL = defaultNodeIconURL;
 	}
 
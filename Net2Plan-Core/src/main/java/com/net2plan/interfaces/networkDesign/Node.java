@@ -158,7 +158,9 @@ public class Node extends NetworkElement
 	 */
 	public void setSiteName (String site)
 	{
+		netPlan.checkIsModifiable();
 		if  ((site == null) && (this.siteName == null)) return;
+		netPlan.journal.propertyChanged (this , this.siteName , site , Node::setSiteName);
 		if (site == null) 
 		{
 			if (this.siteName != null)
@@ -202,6 +204,7 @@ public class Node extends NetworkElement
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
 		if (population < 0) throw new Net2PlanException ("Node population must be non-negative");
+		netPlan.journal.propertyChanged (this , this.population , population , Node::setPopulation);
 		this.population = population;
 		this.name = name == null? "" : name;
 	}
@@ -467,13 +470,11 @@ public class Node extends NetworkElement
         checkAttachedToNetPlanObject();
 	    if (layout.length > 1) throw new Net2PlanException ("At most one layout can be set");
 		netPlan.checkIsModifiable();
-		if (layout.length == 0)
-		    this.mapLayout2NodeXYPositionMap.put(netPlan.getPlotNodeLayoutCurrentlyActive() , new UnmodifiablePoint2D (pos.getX() , pos.getY()));
-		else
-		{
-		    if (!netPlan.cache_definedPlotNodeLayouts.contains(layout [0])) throw new Net2PlanException ("The layout *" + (layout[0]) + "* does not exist. Current layouts: " + netPlan.cache_definedPlotNodeLayouts);
-            this.mapLayout2NodeXYPositionMap.put(layout [0] , new UnmodifiablePoint2D (pos.getX() , pos.getY()));
-		}
+		final String layoutName = layout.length == 0? netPlan.getPlotNodeLayoutCurrentlyActive() : layout [0];
+		if (!netPlan.cache_definedPlotNodeLayouts.contains(layoutName)) throw new Net2PlanException ("The layout *" + layoutName + "* does not exist. Current layouts: " + netPlan.cache_definedPlotNodeLayouts);
+		final Point2D newPos = new UnmodifiablePoint2D (pos.getX() , pos.getY());
+		final Point2D oldPos = this.mapLayout2NodeXYPositionMap.put(layoutName , newPos);
+		netPlan.journal.propertyChanged (this , oldPos , newPos , (n , p) -> { if (p == null) n.mapLayout2NodeXYPositionMap.remove (layoutName); else n.setXYPositionMap (p , layoutName); });
 	}
 
 	/**
@@ -833,6 +834,7 @@ public class Node extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 
 		for (Resource resource : new LinkedList<Resource> (cache_nodeResources)) resource.remove();
 		for (MulticastTree tree : new LinkedList<MulticastTree> (cache_nodeAssociatedulticastTrees)) tree.remove ();
@@ -848,6 +850,7 @@ public class Node extends NetworkElement
 		netPlan.cache_id2NodeMap.remove (id);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.nodes , this.index);
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -932,7 +935,9 @@ public class Node extends NetworkElement
 	public void setUrlNodeIcon (NetworkLayer layer , URL url , Double relativeSize)
 	{
 		if (relativeSize == null) relativeSize = 1.0; 
-		mapLayer2URLSpecificIcon.put(layer , Pair.of(url , relativeSize <= 0? 1.0 : relativeSize));
+		final Pair<URL,Double> newIcon = Pair.of(url , relativeSize <= 0? 1.0 : relativeSize);
+		final Pair<URL,Double> oldIcon = mapLayer2URLSpecificIcon.put(layer , newIcon);
+		journalUrlNodeIconChange (layer , oldIcon , newIcon);
 	}
 
 	/** Removes any previous url of the node icon for this layer (if any)
@@ -940,7 +945,20 @@ public class Node extends NetworkElement
 	 */
 	public void removeUrlNodeIcon (NetworkLayer layer)
 	{
-		mapLayer2URLSpecificIcon.remove(layer);
+		final Pair<URL,Double> oldIcon = mapLayer2URLSpecificIcon.remove(layer);
+		journalUrlNodeIconChange (layer , oldIcon , null);
+	}
+
+	private void journalUrlNodeIconChange (NetworkLayer layer , Pair<URL,Double> oldIcon , Pair<URL,Double> newIcon)
+	{
+		if (netPlan == null) return;
+		final long layerId = layer.getId();
+		netPlan.journal.propertyChanged (this , oldIcon , newIcon , (n , icon) ->
+		{
+			final NetworkElement e = n.netPlan.getFromId (layerId);
+			if (!(e instanceof NetworkLayer)) return;
+			if (icon == null) n.removeUrlNodeIcon ((NetworkLayer) e); else n.setUrlNodeIcon ((NetworkLayer) e , icon.getFirst() , icon.getSecond());
+		});
 	}
 
 	@Override
@@ -977,9 +995,11 @@ public class Node extends NetworkElement
 	 */
 	public void removeFromPlanningDomain (String planningDomain)
 	{
+		netPlan.checkIsModifiable();
 		if (!this.planningDomains.contains(planningDomain)) return;
 		this.planningDomains.remove(planningDomain);
 		netPlan.cache_planningDomain2nodes.get(planningDomain).remove(this);
+		netPlan.journal.propertyChanged (this , true , false , (n , inDomain) -> setInPlanningDomain (n , planningDomain , inDomain));
 	}
 
 	/** Remove this node from the given planning domain, if it belongs to it
@@ -988,10 +1008,17 @@ public class Node extends NetworkElement
 	 */
 	public void addToPlanningDomain (String planningDomain)
 	{
+		netPlan.checkIsModifiable();
 		if (!netPlan.cache_planningDomain2nodes.keySet().contains(planningDomain)) throw new Net2PlanException ("Wrong planning domain");
 		if (this.planningDomains.contains(planningDomain)) return;
 		this.planningDomains.add(planningDomain);
 		netPlan.cache_planningDomain2nodes.get(planningDomain).add(this);
+		netPlan.journal.propertyChanged (this , false , true , (n , inDomain) -> setInPlanningDomain (n , planningDomain , inDomain));
+	}
+
+	private static void setInPlanningDomain (Node n , String planningDomain , boolean inDomain)
+	{
+		if (inDomain) n.addToPlanningDomain (planningDomain); else n.removeFromPlanningDomain (planningDomain);
 	}
 	
 
@@ -0,0 +1,758 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.awt.Color;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.UnmodifiablePoint2D;
+import com.net2plan.libraries.TrafficPredictor;
+import com.net2plan.libraries.TrafficPredictor.TRAFFICPREDICTORTYPE;
+import com.net2plan.libraries.TrafficSeries;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Triple;
+
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * <p>Reader of the binary {@code .n2p} format written by {@link WriterNetPlanN2PBinary}. The elements are created in the same
+ * order, and with the same methods, as in the reader of the XML format (version 6).</p>
+ *
+ * <p>The sections are read one by one with {@link #readSection(int, int, int, ByteBuffer)}, either in sequence from a stream ({@link #create(InputStream)}),
+ * or only a subset of them, located through the section index of the file ({@link NetPlanBinaryFile}). In the latter case (partial design), the
+ * references to elements that were not read (e.g. links of other layers in an SRG) are ignored.</p>
+ *
+ * @since 0.6.5
+ */
+class ReaderNetPlanN2PBinary
+{
+	private final NetPlan netPlan;
+	private final boolean partialDesign;
+	private boolean hasAlreadyReadOneLayer;
+	private NetworkLayer currentLayer;
+	private final SortedMap<Long, List<Triple<Node, URL, Double>>> nodeAndLayerToIconURLMap = new TreeMap<> ();
+	private final SortedMap<Route, List<Long>> backupRouteIdsMap = new TreeMap<> ();
+	private final List<Triple<Long, Long, Double>> forwardingRules = new ArrayList<> ();
+
+	/**
+	 * <p>Creates a reader that fills the given (empty) design.</p>
+	 *
+	 * @param netPlan Empty design
+	 * @param partialDesign If {@code true}, not all the sections of the file will be read, and the references to elements not read are ignored
+	 */
+	ReaderNetPlanN2PBinary(NetPlan netPlan, boolean partialDesign)
+	{
+		this.netPlan = netPlan;
+		this.partialDesign = partialDesign;
+		this.hasAlreadyReadOneLayer = false;
+	}
+
+	/**
+	 * <p>Indicates whether the stream starts with the magic number of the binary format. The stream must support marks, and it is
+	 * reset to its initial position.</p>
+	 *
+	 * @param inputStream Input stream
+	 * @return {@code true} if the stream contains a design in binary format, {@code false} otherwise
+	 * @throws IOException If an I/O error occurs
+	 */
+	static boolean hasMagicNumber(InputStream inputStream) throws IOException
+	{
+		final byte [] magicNumber = WriterNetPlanN2PBinary.MAGIC_NUMBER;
+		inputStream.mark(magicNumber.length);
+		try
+		{
+			for (byte b : magicNumber)
+				if (inputStream.read() != (b & 0xFF)) return false;
+			return true;
+		} finally
+		{
+			inputStream.reset();
+		}
+	}
+
+	/**
+	 * <p>Reads all the design in the input stream.</p>
+	 *
+	 * @param inputStream Input stream, positioned at the magic number
+	 * @throws IOException If an I/O error occurs
+	 */
+	void create(InputStream inputStream) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(inputStream);
+		final byte [] magicNumber = new byte [WriterNetPlanN2PBinary.MAGIC_NUMBER.length];
+		in.readFully(magicNumber);
+		checkFormatVersion(in.readInt());
+
+		while (true)
+		{
+			final int sectionType = in.readUnsignedByte();
+			final int flags = in.readUnsignedByte();
+			final int numRecords = in.readInt();
+			final int storedLength = in.readInt();
+			if (numRecords < 0 || storedLength < 0) throw new Net2PlanException("Not a valid .n2p file");
+			final byte [] stored = new byte [storedLength];
+			in.readFully(stored);
+			if (sectionType == WriterNetPlanN2PBinary.SECTION_END) break;
+			readSection(sectionType, flags, numRecords, ByteBuffer.wrap(stored));
+		}
+		finish();
+	}
+
+	static void checkFormatVersion(int version)
+	{
+		if (version < 1 || version > WriterNetPlanN2PBinary.FORMAT_VERSION) throw new Net2PlanException("Wrong version number of the binary .n2p format: " + version);
+	}
+
+	/**
+	 * <p>Reads one section. The sections must be given in the order of the file.</p>
+	 *
+	 * @param sectionType Section type
+	 * @param flags Section flags
+	 * @param numRecords Number of records in the section
+	 * @param stored Section content, as stored in the file (the buffer position is moved)
+	 * @throws IOException If an I/O error occurs
+	 */
+	void readSection(int sectionType, int flags, int numRecords, ByteBuffer stored) throws IOException
+	{
+		final SectionInput section = new SectionInput(getContent(flags, stored));
+		try
+		{
+			switch (sectionType)
+			{
+				case WriterNetPlanN2PBinary.SECTION_NETWORK: for (int cont = 0; cont < numRecords; cont++) parseNetwork(section); break;
+				case WriterNetPlanN2PBinary.SECTION_NODES: for (int cont = 0; cont < numRecords; cont++) parseNode(section); break;
+				case WriterNetPlanN2PBinary.SECTION_RESOURCES: for (int cont = 0; cont < numRecords; cont++) parseResource(section); break;
+				case WriterNetPlanN2PBinary.SECTION_LAYER: for (int cont = 0; cont < numRecords; cont++) parseLayer(section); break;
+				case WriterNetPlanN2PBinary.SECTION_LINKS: for (int cont = 0; cont < numRecords; cont++) parseLink(section); break;
+				case WriterNetPlanN2PBinary.SECTION_DEMANDS: for (int cont = 0; cont < numRecords; cont++) parseDemand(section); break;
+				case WriterNetPlanN2PBinary.SECTION_MULTICASTDEMANDS: for (int cont = 0; cont < numRecords; cont++) parseMulticastDemand(section); break;
+				case WriterNetPlanN2PBinary.SECTION_MULTICASTTREES: for (int cont = 0; cont < numRecords; cont++) parseMulticastTree(section); break;
+				case WriterNetPlanN2PBinary.SECTION_ROUTES: for (int cont = 0; cont < numRecords; cont++) parseRoute(section); break;
+				case WriterNetPlanN2PBinary.SECTION_FORWARDINGRULES: for (int cont = 0; cont < numRecords; cont++) forwardingRules.add(Triple.of(section.readVarLong(), section.readVarLong(), section.readDouble())); break;
+				case WriterNetPlanN2PBinary.SECTION_LAYEREND: finishLayer(); break;
+				case WriterNetPlanN2PBinary.SECTION_SRGS: for (int cont = 0; cont < numRecords; cont++) parseSRG(section); break;
+				case WriterNetPlanN2PBinary.SECTION_LAYERCOUPLINGS: for (int cont = 0; cont < numRecords; cont++) parseLayerCoupling(section); break;
+				default: break; // the index, and sections of later format versions, are skipped
+			}
+		} catch (BufferUnderflowException e)
+		{
+			throw new Net2PlanException("Not a valid .n2p file");
+		}
+	}
+
+	/**
+	 * <p>Called after the last section was read.</p>
+	 */
+	void finish()
+	{
+		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
+	}
+
+	/**
+	 * <p>Reads the identifier and the name of the layer in a section of type {@link WriterNetPlanN2PBinary#SECTION_LAYER}, without creating it.</p>
+	 *
+	 * @param flags Section flags
+	 * @param stored Section content, as stored in the file
+	 * @return The layer identifier and name
+	 * @throws IOException If an I/O error occurs
+	 */
+	static Pair<Long, String> readLayerIdAndName(int flags, ByteBuffer stored) throws IOException
+	{
+		final SectionInput in = new SectionInput(getContent(flags, stored));
+		try
+		{
+			final long layerId = in.readVarLong();
+			in.readBoolean();
+			in.readString();
+			in.readString();
+			in.readString();
+			return Pair.of(layerId, in.readString());
+		} catch (BufferUnderflowException e)
+		{
+			throw new Net2PlanException("Not a valid .n2p file");
+		}
+	}
+
+	/**
+	 * <p>Reads the entries of a section of type {@link WriterNetPlanN2PBinary#SECTION_INDEX}.</p>
+	 *
+	 * @param flags Section flags
+	 * @param numRecords Number of records in the section
+	 * @param stored Section content, as stored in the file
+	 * @return The entries of the index, in the order of the sections in the file
+	 * @throws IOException If an I/O error occurs
+	 */
+	static List<WriterNetPlanN2PBinary.SectionIndexEntry> readSectionIndex(int flags, int numRecords, ByteBuffer stored) throws IOException
+	{
+		final SectionInput in = new SectionInput(getContent(flags, stored));
+		final List<WriterNetPlanN2PBinary.SectionIndexEntry> res = new ArrayList<> (numRecords);
+		try
+		{
+			for (int cont = 0; cont < numRecords; cont++)
+			{
+				final int type = in.readUnsignedByte();
+				final int sectionFlags = in.readUnsignedByte();
+				final int sectionNumRecords = in.readInt();
+				final long position = in.readVarLong();
+				final int storedLength = in.readInt();
+				final long layerId = in.readVarLong() - 1;
+				if (sectionNumRecords < 0 || storedLength < 0) throw new Net2PlanException("Not a valid .n2p file");
+				res.add(new WriterNetPlanN2PBinary.SectionIndexEntry(type, sectionFlags, sectionNumRecords, position, storedLength, layerId));
+			}
+		} catch (BufferUnderflowException e)
+		{
+			throw new Net2PlanException("Not a valid .n2p file");
+		}
+		return res;
+	}
+
+	private void parseNetwork(SectionInput in) throws IOException
+	{
+		netPlan.nextElementId = new MutableLong(in.readVarLong());
+		if (netPlan.nextElementId.toLong() <= 0) throw new Net2PlanException("A network element has an id higher than the nextElementId");
+		netPlan.setCurrentDate(new Date(in.readLong()));
+		netPlan.currentPlotNodeLayout = in.readString();
+		netPlan.cache_definedPlotNodeLayouts = new TreeSet<> ();
+		netPlan.cache_definedPlotNodeLayouts.add(NetPlan.PLOTLAYTOUT_DEFAULTNODELAYOUTNAME);
+		netPlan.cache_definedPlotNodeLayouts.addAll(in.readStringList());
+		for (String planningDomain : in.readStringList()) netPlan.addGlobalPlanningDomain(planningDomain);
+		in.readNameDescriptionTagsAndAttributes().applyTo(netPlan);
+	}
+
+	private void parseNode(SectionInput in) throws IOException
+	{
+		final long nodeId = checkId(in.readVarLong());
+		final double xCoord = in.readDouble();
+		final double yCoord = in.readDouble();
+		final SortedMap<String, UnmodifiablePoint2D> layoutPositions = new TreeMap<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--)
+			layoutPositions.put(in.readString(), new UnmodifiablePoint2D(in.readDouble(), in.readDouble()));
+		final double population = in.readDouble();
+		final String siteName = in.readString();
+		final boolean isUp = in.readBoolean();
+		final List<String> planningDomains = in.readStringList();
+		final List<Triple<Long, URL, Double>> icons = new ArrayList<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--)
+			icons.add(Triple.of(in.readVarLong(), new URL(in.readString()), in.readDouble()));
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final Node newNode = netPlan.addNode(nodeId, xCoord, yCoord, common.name, null);
+		for (Entry<String, UnmodifiablePoint2D> layout : layoutPositions.entrySet())
+			newNode.setXYPositionMap(layout.getValue(), layout.getKey());
+		for (String pd : planningDomains) newNode.addToPlanningDomain(pd);
+		newNode.setFailureState(isUp);
+		newNode.setPopulation(population);
+		if (siteName != null) newNode.setSiteName(siteName);
+
+		/* the icons are set when the layers are created */
+		for (Triple<Long, URL, Double> icon : icons)
+		{
+			List<Triple<Node, URL, Double>> iconsThisLayerSoFar = nodeAndLayerToIconURLMap.get(icon.getFirst());
+			if (iconsThisLayerSoFar == null) { iconsThisLayerSoFar = new LinkedList<> (); nodeAndLayerToIconURLMap.put(icon.getFirst(), iconsThisLayerSoFar); }
+			iconsThisLayerSoFar.add(Triple.of(newNode, icon.getSecond(), icon.getThird()));
+		}
+		common.applyTo(newNode);
+	}
+
+	private void parseResource(SectionInput in) throws IOException
+	{
+		final long resId = checkId(in.readVarLong());
+		final long hostNodeIdPlusOne = in.readVarLong();
+		final String type = in.readString();
+		final String capacityMeasurementUnits = in.readString();
+		final double processingTimeToTraversingTrafficInMs = in.readDouble();
+		final double capacity = in.readDouble();
+		final String urlIcon = in.readString();
+		final SortedMap<Resource, Double> occupiedCapacitiesInBaseResources = new TreeMap<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--)
+		{
+			final Resource baseResource = netPlan.getResourceFromId(in.readVarLong());
+			if (baseResource == null) throw new Net2PlanException("Unknown resource id");
+			occupiedCapacitiesInBaseResources.put(baseResource, in.readDouble());
+		}
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final Optional<Node> hostNode = hostNodeIdPlusOne == 0 ? Optional.empty() : Optional.of(getNode(hostNodeIdPlusOne - 1));
+		final Resource newResource = netPlan.addResource(resId, type, common.name, hostNode, capacity, capacityMeasurementUnits,
+				occupiedCapacitiesInBaseResources, processingTimeToTraversingTrafficInMs, null);
+		newResource.setUrlIcon(urlIcon == null ? null : new URL(urlIcon));
+		common.applyTo(newResource);
+	}
+
+	private void parseLayer(SectionInput in) throws IOException
+	{
+		final long layerId = checkId(in.readVarLong());
+		final boolean isDefaultLayer = in.readBoolean();
+		final String linkCapacityUnitsName = in.readString();
+		final String demandTrafficUnitsName = in.readString();
+		final String defaultNodeIconURLString = in.readString();
+		final URL defaultNodeIconURL = defaultNodeIconURLString == null ? null : new URL(defaultNodeIconURLString);
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		NetworkLayer newLayer;
+		if (!hasAlreadyReadOneLayer)
+		{
+			if (netPlan.layers.size() != 1) throw new RuntimeException("Bad");
+			if (netPlan.layers.get(0).id != layerId)
+			{
+				// the Id of first layer is different => create a new one and remove the existing
+				newLayer = netPlan.addLayer(layerId, common.name, common.description, linkCapacityUnitsName, demandTrafficUnitsName, defaultNodeIconURL, null);
+				netPlan.removeNetworkLayer(netPlan.layers.get(0));
+			}
+			else
+			{
+				newLayer = netPlan.layers.get(0); // it already has the right Id
+				newLayer.demandTrafficUnitsName = demandTrafficUnitsName;
+				newLayer.linkCapacityUnitsName = linkCapacityUnitsName;
+				newLayer.defaultNodeIconURL = defaultNodeIconURL;
+			}
+			hasAlreadyReadOneLayer = true;
+		}
+		else
+		{
+			newLayer = netPlan.addLayer(layerId, common.name, common.description, linkCapacityUnitsName, demandTrafficUnitsName, defaultNodeIconURL, null);
+		}
+
+		if (nodeAndLayerToIconURLMap.containsKey(newLayer.getId()))
+			for (Triple<Node, URL, Double> iconInfo : nodeAndLayerToIconURLMap.get(newLayer.getId()))
+				iconInfo.getFirst().setUrlNodeIcon(newLayer, iconInfo.getSecond(), iconInfo.getThird());
+
+		if (isDefaultLayer) netPlan.setNetworkLayerDefault(newLayer);
+		common.applyTo(newLayer);
+
+		this.currentLayer = newLayer;
+		this.backupRouteIdsMap.clear();
+		this.forwardingRules.clear();
+	}
+
+	private void parseLink(SectionInput in) throws IOException
+	{
+		final long linkId = checkId(in.readVarLong());
+		final Node originNode = getNode(in.readVarLong());
+		final Node destinationNode = getNode(in.readVarLong());
+		final double capacity = in.readDouble();
+		final double lengthInKm = in.readDouble();
+		final double propagationSpeedInKmPerSecond = in.readDouble();
+		final long bidirectionalPairIdPlusOne = in.readVarLong();
+		final Color nominalColor = new Color(in.readInt());
+		final boolean isUp = in.readBoolean();
+		final TrafficSeries monitoredOrForecastedTraffics = in.readTrafficSeries();
+		final TrafficPredictor trafficPredictor = in.readTrafficPredictor();
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final Link newLink = netPlan.addLink(linkId, originNode, destinationNode, capacity, lengthInKm, propagationSpeedInKmPerSecond, null, currentLayer);
+		newLink.setNominalColor(nominalColor);
+		newLink.setFailureState(isUp);
+		newLink.setMonitoredOrForecastedCarriedTraffic(monitoredOrForecastedTraffics);
+		if (trafficPredictor != null) newLink.setTrafficPredictor(trafficPredictor);
+		final Link bidirPairLink = bidirectionalPairIdPlusOne == 0 ? null : netPlan.getLinkFromId(bidirectionalPairIdPlusOne - 1);
+		if (bidirPairLink != null)
+		{
+			if (bidirPairLink.isBidirectional()) throw new RuntimeException();
+			bidirPairLink.setBidirectionalPair(newLink);
+		}
+		common.applyTo(newLink);
+	}
+
+	private void parseDemand(SectionInput in) throws IOException
+	{
+		final long demandId = checkId(in.readVarLong());
+		final Node ingressNode = getNode(in.readVarLong());
+		final Node egressNode = getNode(in.readVarLong());
+		final double offeredTraffic = in.readDouble();
+		final Demand.IntendedRecoveryType recoveryType = Demand.IntendedRecoveryType.valueOf(in.readString());
+		final RoutingType routingType = RoutingType.valueOf(in.readString());
+		final long bidirectionalPairIdPlusOne = in.readVarLong();
+		final double maximumAcceptableE2EWorstCaseLatencyInMs = in.readDouble();
+		final double offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = in.readDouble();
+		final TrafficSeries monitoredOrForecastedTraffics = in.readTrafficSeries();
+		final TrafficPredictor trafficPredictor = in.readTrafficPredictor();
+		final String qosType = in.readString();
+		final List<String> mandatorySequenceOfTraversedResourceTypes = in.readStringList();
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final Demand newDemand = netPlan.addDemand(demandId, ingressNode, egressNode, offeredTraffic, routingType, null, currentLayer);
+		newDemand.setIntendedRecoveryType(recoveryType);
+		newDemand.setOfferedTrafficPerPeriodGrowthFactor(offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+		newDemand.setMaximumAcceptableE2EWorstCaseLatencyInMs(maximumAcceptableE2EWorstCaseLatencyInMs);
+		newDemand.setQoSType(qosType);
+		newDemand.setMonitoredOrForecastedOfferedTraffic(monitoredOrForecastedTraffics);
+		if (trafficPredictor != null) newDemand.setTrafficPredictor(trafficPredictor);
+		final Demand bidirPairDemand = bidirectionalPairIdPlusOne == 0 ? null : netPlan.getDemandFromId(bidirectionalPairIdPlusOne - 1);
+		if (bidirPairDemand != null)
+		{
+			if (bidirPairDemand.isBidirectional()) throw new RuntimeException();
+			bidirPairDemand.setBidirectionalPair(newDemand);
+		}
+		if (!mandatorySequenceOfTraversedResourceTypes.isEmpty())
+			newDemand.setServiceChainSequenceOfTraversedResourceTypes(mandatorySequenceOfTraversedResourceTypes);
+		common.applyTo(newDemand);
+	}
+
+	private void parseMulticastDemand(SectionInput in) throws IOException
+	{
+		final long demandId = checkId(in.readVarLong());
+		final Node ingressNode = getNode(in.readVarLong());
+		final SortedSet<Node> egressNodes = new TreeSet<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--) egressNodes.add(getNode(in.readVarLong()));
+		final double offeredTraffic = in.readDouble();
+		final double maximumAcceptableE2EWorstCaseLatencyInMs = in.readDouble();
+		final double offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = in.readDouble();
+		final String qosType = in.readString();
+		final TrafficSeries monitoredOrForecastedTraffics = in.readTrafficSeries();
+		final TrafficPredictor trafficPredictor = in.readTrafficPredictor();
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final MulticastDemand newDemand = netPlan.addMulticastDemand(demandId, ingressNode, egressNodes, offeredTraffic, null, currentLayer);
+		newDemand.setMaximumAcceptableE2EWorstCaseLatencyInMs(maximumAcceptableE2EWorstCaseLatencyInMs);
+		newDemand.setOfferedTrafficPerPeriodGrowthFactor(offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+		newDemand.setQoSType(qosType);
+		newDemand.setMonitoredOrForecastedOfferedTraffic(monitoredOrForecastedTraffics);
+		if (trafficPredictor != null) newDemand.setTrafficPredictor(trafficPredictor);
+		common.applyTo(newDemand);
+	}
+
+	private void parseMulticastTree(SectionInput in) throws IOException
+	{
+		final long treeId = checkId(in.readVarLong());
+		final MulticastDemand demand = netPlan.getMulticastDemandFromId(in.readVarLong());
+		if (demand == null) throw new Net2PlanException("Unknown multicast demand id");
+		final double carriedTrafficIfNotFailing = in.readDouble();
+		final double occupiedLinkCapacityIfNotFailing = in.readDouble();
+		final SortedSet<Link> currentSetLinks = readLinkSet(in);
+		final SortedSet<Link> initialSetLinks = readLinkSet(in);
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final MulticastTree newTree = netPlan.addMulticastTree(treeId, demand, carriedTrafficIfNotFailing, occupiedLinkCapacityIfNotFailing, initialSetLinks, null);
+		newTree.setLinks(currentSetLinks);
+		common.applyTo(newTree);
+	}
+
+	private void parseRoute(SectionInput in) throws IOException
+	{
+		final long routeId = checkId(in.readVarLong());
+		final Demand demand = netPlan.getDemandFromId(in.readVarLong());
+		if (demand == null) throw new Net2PlanException("Unknown demand id");
+		final double currentCarriedTrafficIfNotFailing = in.readDouble();
+		final List<Double> currentLinksAndResourcesOccupationIfNotFailing = in.readDoubles();
+		final List<NetworkElement> currentPath = readLinkAndResourceList(in);
+		final long bidirectionalPairIdPlusOne = in.readVarLong();
+		final double initialStateCarriedTrafficIfNotFailing = in.readDouble();
+		final List<Double> initialStateOccupationIfNotFailing = in.readDoubles();
+		final List<NetworkElement> initialStatePath = readLinkAndResourceList(in);
+		final List<Long> backupRouteIds = new ArrayList<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--) backupRouteIds.add(in.readVarLong());
+		final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+
+		final Route newRoute = netPlan.addServiceChain(routeId, demand, initialStateCarriedTrafficIfNotFailing,
+				initialStateOccupationIfNotFailing, initialStatePath, null);
+		newRoute.setPath(currentCarriedTrafficIfNotFailing, currentPath, currentLinksAndResourcesOccupationIfNotFailing);
+		final Route bidirPairRoute = bidirectionalPairIdPlusOne == 0 ? null : netPlan.getRouteFromId(bidirectionalPairIdPlusOne - 1);
+		if (bidirPairRoute != null)
+		{
+			if (bidirPairRoute.isBidirectional()) throw new RuntimeException();
+			bidirPairRoute.setBidirectionalPair(newRoute);
+		}
+
+		/* To be added at the end of the layer: backup routes may not exist yet */
+		if (!backupRouteIds.isEmpty()) backupRouteIdsMap.put(newRoute, backupRouteIds);
+		common.applyTo(newRoute);
+	}
+
+	private void finishLayer()
+	{
+		for (Entry<Route, List<Long>> entry : backupRouteIdsMap.entrySet())
+			for (long backupId : entry.getValue()) entry.getKey().addBackupRoute(netPlan.getRouteFromId(backupId));
+		backupRouteIdsMap.clear();
+
+		final DoubleMatrix2D f_de = DoubleFactory2D.sparse.make(netPlan.getNumberOfDemands(currentLayer), netPlan.getNumberOfLinks(currentLayer));
+		for (Triple<Long, Long, Double> fr : forwardingRules)
+			f_de.set(netPlan.getDemandFromId(fr.getFirst()).index, netPlan.getLinkFromId(fr.getSecond()).index, fr.getThird());
+		netPlan.setForwardingRules(f_de, new TreeSet<> (netPlan.getDemandsHopByHopRouted(currentLayer)), currentLayer);
+		forwardingRules.clear();
+	}
+
+	private void parseSRG(SectionInput in) throws IOException
+	{
+		final long srgId = checkId(in.readVarLong());
+		final double meanTimeToFailInHours = in.readDouble();
+		final double meanTimeToRepairInHours = in.readDouble();
+		final boolean isDynamic = in.readBoolean();
+		SharedRiskGroup newSRG;
+		if (isDynamic)
+		{
+			final String className = in.readString();
+			final String configString = in.readString();
+			final ElementCommonFields common = in.readNameDescriptionTagsAndAttributes();
+			/* dynamic SRGs refer to the layers by their position, which is different in a partial design */
+			if (partialDesign) return;
+			newSRG = netPlan.addSRGDynamic(srgId, meanTimeToFailInHours, meanTimeToRepairInHours, className, configString, null);
+			common.applyTo(newSRG);
+		}
+		else
+		{
+			newSRG = netPlan.addSRG(srgId, meanTimeToFailInHours, meanTimeToRepairInHours, null);
+			for (long cont = in.readVarLong(); cont > 0; cont--) newSRG.addNode(getNode(in.readVarLong()));
+			for (Link e : readLinkSet(in)) newSRG.addLink(e);
+			in.readNameDescriptionTagsAndAttributes().applyTo(newSRG);
+		}
+	}
+
+	private void parseLayerCoupling(SectionInput in) throws IOException
+	{
+		final boolean isMulticast = in.readBoolean();
+		final long demandId = in.readVarLong();
+		final int numLinks = (int) in.readVarLong();
+		final SortedSet<Link> links = new TreeSet<> ();
+		for (int cont = 0; cont < numLinks; cont++)
+		{
+			final Link e = netPlan.getLinkFromId(in.readVarLong());
+			if (e != null) links.add(e);
+		}
+		if (partialDesign)
+		{
+			/* the coupling is kept only if both layers were read */
+			final NetworkElement demand = isMulticast ? netPlan.getMulticastDemandFromId(demandId) : netPlan.getDemandFromId(demandId);
+			if (demand == null || links.size() != numLinks) return;
+		}
+		else if (links.size() != numLinks) throw new Net2PlanException("Unknown link id");
+		if (isMulticast)
+			netPlan.getMulticastDemandFromId(demandId).couple(links);
+		else
+			netPlan.getDemandFromId(demandId).coupleToUpperOrSameLayerLink(links.first());
+	}
+
+	private long checkId(long id)
+	{
+		if (id >= netPlan.nextElementId.toLong()) throw new Net2PlanException("A network element has an id higher than the nextElementId");
+		return id;
+	}
+
+	private Node getNode(long id)
+	{
+		final Node node = netPlan.getNodeFromId(id);
+		if (node == null) throw new Net2PlanException("Unknown node id");
+		return node;
+	}
+
+	/* In partial designs, the unknown links are not included in the set */
+	private SortedSet<Link> readLinkSet(SectionInput in) throws IOException
+	{
+		final SortedSet<Link> res = new TreeSet<> ();
+		for (long cont = in.readVarLong(); cont > 0; cont--)
+		{
+			final Link e = netPlan.getLinkFromId(in.readVarLong());
+			if (e == null)
+			{
+				if (partialDesign) continue;
+				throw new Net2PlanException("Unknown link id");
+			}
+			res.add(e);
+		}
+		return res;
+	}
+
+	private List<NetworkElement> readLinkAndResourceList(SectionInput in) throws IOException
+	{
+		final int size = (int) in.readVarLong();
+		final List<NetworkElement> res = new ArrayList<> (size);
+		for (int cont = 0; cont < size; cont++)
+		{
+			final long id = in.readVarLong();
+			NetworkElement e = netPlan.getLinkFromId(id);
+			if (e == null) e = netPlan.getResourceFromId(id);
+			if (e == null) throw new Net2PlanException("Unknown id in the list");
+			res.add(e);
+		}
+		return res;
+	}
+
+	/* The content of the section: the stored bytes, or the inflated ones if the section is compressed */
+	private static ByteBuffer getContent(int flags, ByteBuffer stored) throws IOException
+	{
+		if ((flags & WriterNetPlanN2PBinary.FLAG_DEFLATE) == 0) return stored;
+		if (stored.remaining() < 4) throw new Net2PlanException("Not a valid .n2p file");
+		final int length = stored.getInt();
+		final byte [] input;
+		final int inputOffset;
+		if (stored.hasArray()) { input = stored.array(); inputOffset = stored.arrayOffset() + stored.position(); }
+		else { input = new byte [stored.remaining()]; stored.duplicate().get(input); inputOffset = 0; }
+		final byte [] res = new byte [length];
+		final Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput(input, inputOffset, stored.remaining());
+			int offset = 0;
+			while (offset < length)
+			{
+				final int inflated = inflater.inflate(res, offset, length - offset);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput())) throw new Net2PlanException("Not a valid .n2p file");
+				offset += inflated;
+			}
+		} catch (DataFormatException e)
+		{
+			throw new IOException(e);
+		} finally
+		{
+			inflater.end();
+		}
+		return ByteBuffer.wrap(res);
+	}
+
+	/**
+	 * Name, description, tags and attributes of an element, read before the element is created.
+	 */
+	private static final class ElementCommonFields
+	{
+		private String name;
+		private String description;
+		private List<String> tags;
+		private List<String> attributeKeysAndValues;
+
+		private void applyTo(NetworkElement e)
+		{
+			e.setName(name);
+			e.setDescription(description);
+			for (String tag : tags) e.addTag(tag);
+			for (int cont = 0; cont < attributeKeysAndValues.size(); cont += 2)
+				e.setAttribute(attributeKeysAndValues.get(cont), attributeKeysAndValues.get(cont + 1));
+		}
+	}
+
+	/**
+	 * Content of one section, with the helpers to read variable-length integers, and strings through the string table of the section.
+	 */
+	private static final class SectionInput
+	{
+		private final ByteBuffer in;
+		private final List<String> stringTable = new ArrayList<> ();
+
+		private SectionInput(ByteBuffer content)
+		{
+			this.in = content;
+		}
+
+		private int readUnsignedByte() { return in.get() & 0xFF; }
+
+		private boolean readBoolean() { return in.get() != 0; }
+
+		private int readInt() { return in.getInt(); }
+
+		private long readLong() { return in.getLong(); }
+
+		private double readDouble() { return in.getDouble(); }
+
+		private long readVarLong()
+		{
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7)
+			{
+				final int b = readUnsignedByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) return value;
+			}
+			throw new Net2PlanException("Not a valid .n2p file");
+		}
+
+		private String readString()
+		{
+			final long code = readVarLong();
+			if (code == 0) return null;
+			if (code >= 2)
+			{
+				if (code - 2 >= stringTable.size()) throw new Net2PlanException("Not a valid .n2p file");
+				return stringTable.get((int) (code - 2));
+			}
+			final int length = (int) readVarLong();
+			if (length < 0 || length > in.remaining()) throw new Net2PlanException("Not a valid .n2p file");
+			final String s;
+			if (in.hasArray())
+			{
+				s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+				in.position(in.position() + length);
+			}
+			else
+			{
+				final byte [] utf8 = new byte [length];
+				in.get(utf8);
+				s = new String(utf8, StandardCharsets.UTF_8);
+			}
+			stringTable.add(s);
+			return s;
+		}
+
+		private List<String> readStringList()
+		{
+			final int size = (int) readVarLong();
+			final List<String> res = new ArrayList<> (size);
+			for (int cont = 0; cont < size; cont++) res.add(readString());
+			return res;
+		}
+
+		private List<Double> readDoubles()
+		{
+			final int size = (int) readVarLong();
+			final List<Double> res = new ArrayList<> (size);
+			for (int cont = 0; cont < size; cont++) res.add(readDouble());
+			return res;
+		}
+
+		private TrafficSeries readTrafficSeries()
+		{
+			final TrafficSeries res = new TrafficSeries();
+			for (long cont = readVarLong(); cont > 0; cont--) res.addValue(new Date(readLong()), readDouble());
+			return res;
+		}
+
+		private TrafficPredictor readTrafficPredictor()
+		{
+			final List<String> rows = readStringList();
+			if (rows.size() < 2) return null;
+			return TrafficPredictor.createFromInitStrings(TRAFFICPREDICTORTYPE.valueOf(rows.get(0)), rows.get(1),
+					rows.size() >= 3 ? Optional.of(rows.get(2)) : Optional.empty()).orElse(null);
+		}
+
+		private ElementCommonFields readNameDescriptionTagsAndAttributes()
+		{
+			final ElementCommonFields res = new ElementCommonFields();
+			res.name = readString();
+			res.description = readString();
+			res.tags = readStringList();
+			final int numAttributes = (int) readVarLong();
+			res.attributeKeysAndValues = new ArrayList<> (2 * numAttributes);
+			for (int cont = 0; cont < 2 * numAttributes; cont++) res.attributeKeysAndValues.add(readString());
+			return res;
+		}
+	}
+}
@@ -15,6 +15,7 @@ package com.net2plan.interfaces.networkDesign;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
@@ -44,7 +45,7 @@ public class Resource extends NetworkElement
 	SortedMap<Resource , Double> capacityIOccupyInBaseResource; // capacity can change, but no new resources can be put (if not, there is danger of loops!!) 
 	double capacity;
 	double cache_totalOccupiedCapacity;
-	SortedMap<Route,Double> cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute;
+	Map<Route,Double> cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute;
 	
 	Resource (NetPlan netPlan , long id , int index , String type , String name , Optional<Node> hostNode , 
 			double capacity , String capacityMeasurementUnits,
@@ -81,7 +82,7 @@ public class Resource extends NetworkElement
 			entry.getKey().capacityUpperResourcesOccupyInMe.put(this , entry.getValue());
 			entry.getKey().updateTotalOccupiedCapacity();
 		}
-		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new TreeMap<> ();
+		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new LinkedHashMap<> ();
 	}
 
 	void copyFrom (Resource origin)
@@ -110,7 +111,7 @@ public class Resource extends NetworkElement
 			if (resourceThisNp == null) throw new RuntimeException ("Bad");
 			this.capacityIOccupyInBaseResource.put(resourceThisNp , entry.getValue());
 		}
-		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new TreeMap<Route,Double> ();
+		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new LinkedHashMap<Route,Double> ();
 		for (Entry<Route,Double> originRoute : origin.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.entrySet())
 		{
 			final Route routeThisNp = this.netPlan.getRouteFromId(originRoute.getKey().id);
@@ -170,7 +171,9 @@ public class Resource extends NetworkElement
 	 */
 	public void setProcessingTimeToTraversingTrafficInMs (double time)
 	{
+		netPlan.checkIsModifiable();
 		if (time < 0) throw new Net2PlanException ("The processing time cannot be negative");
+		netPlan.journal.propertyChanged (this , this.processingTimeToTraversingTrafficInMs , time , Resource::setProcessingTimeToTraversingTrafficInMs);
 		this.processingTimeToTraversingTrafficInMs = time;
 	}
 
@@ -187,6 +190,7 @@ public class Resource extends NetworkElement
 	 */
 	public void setUrlIcon (URL url)
 	{
+		if (netPlan != null) netPlan.journal.propertyChanged (this , this.urlIcon , url , Resource::setUrlIcon);
 		this.urlIcon = url;
 	}
 
@@ -228,6 +232,8 @@ public class Resource extends NetworkElement
 	 */
 	public void setCapacityMeasurementUnits(String units) 
 	{
+		netPlan.checkIsModifiable();
+		netPlan.journal.propertyChanged (this , this.capacityMeasurementUnits , units , Resource::setCapacityMeasurementUnits);
 		this.capacityMeasurementUnits = units;
 	}
 	
@@ -371,6 +377,7 @@ public class Resource extends NetworkElement
 			if (entry.getValue() < 0) throw new Net2PlanException ("The capacity occupied in a base resource cannot be negative");
 		}
 		if (newCapacity < 0) throw new Net2PlanException ("The capacity of a resource cannot be negative");
+		netPlan.journal.resourceCapacityChanged(this, newCapacity, newCapacityIOccupyInBaseResourcesMap);
 		this.capacity = newCapacity;
 		this.capacityIOccupyInBaseResource.putAll (newCapacityIOccupyInBaseResourcesMap);
 		for (Entry<Resource,Double> entry : newCapacityIOccupyInBaseResourcesMap.entrySet())
@@ -440,6 +447,7 @@ public class Resource extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 		for (Route r : new ArrayList<> (cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.keySet())) r.remove();
 		for (Resource upperResource : new ArrayList<> (capacityUpperResourcesOccupyInMe.keySet())) upperResource.remove();
 		for (Resource baseResource : new ArrayList<> (capacityIOccupyInBaseResource.keySet())) baseResource.removeUpperResourceOccupation(this);
@@ -450,6 +458,7 @@ public class Resource extends NetworkElement
 		if (hostNode.isPresent()) hostNode.get().cache_nodeResources.remove(this);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.resources , index);
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -172,6 +172,7 @@ public class Route extends NetworkElement
      */
     public void setBidirectionalPair(Route r)
     {
+		if (netPlan != null) netPlan.journal.notReversible ("the bidirectional pair of a route was changed");
 		if (r == null)
 		{
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -282,6 +283,7 @@ public class Route extends NetworkElement
 		if (this.backupRoutes.contains(backupRoute)) throw new Net2PlanException ("The route is already a backup route");
 		this.backupRoutes.add (backupRoute);
 		backupRoute.cache_routesIAmBackUp.add(this);
+		netPlan.journal.backupRouteChanged (this , backupRoute , true);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
 
@@ -295,6 +297,7 @@ public class Route extends NetworkElement
 		this.checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
 		if (!backupRoutes.contains(backupRoute)) throw new Net2PlanException ("This route is not a backup");
+		netPlan.journal.backupRouteChanged (this , backupRoute , false);
 		backupRoute.cache_routesIAmBackUp.remove(this);
 		this.backupRoutes.remove (backupRoute);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -474,6 +477,7 @@ public class Route extends NetworkElement
 		}
 		demand.cache_worstCasePropagationTimeMs = Math.max(demand.cache_worstCasePropagationTimeMs, this.cache_propagationDelayMs);
 		demand.cache_worstCaseLengthInKm = Math.max(demand.cache_worstCaseLengthInKm, thisRouteLengthKm);
+		demand.cache_notifyModified();
 		
 		if (demand.coupledUpperOrSameLayerLink != null)
 			demand.coupledUpperOrSameLayerLink.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
@@ -605,6 +609,7 @@ public class Route extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 		this.setCarriedTraffic(0, 0); // release all previous occupation
 
 		if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -645,8 +650,10 @@ public class Route extends NetworkElement
         {
         	demand.cache_worstCaseLengthInKm = 0;
         	for (Route r : demand.cache_routes) demand.cache_worstCaseLengthInKm = Math.max(demand.cache_worstCaseLengthInKm, r.getLengthInKm());
+        	demand.cache_notifyModified();
         }
 
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -689,21 +696,10 @@ public class Route extends NetworkElement
 		linkAndResourcesOccupationInformation = linkAndResourcesOccupationInformation.stream().map(e->NetPlan.adjustToTolerance(e)).collect(Collectors.toList());
 		if (newCarriedTraffic < 0) throw new Net2PlanException ("Carried traffics must be non-negative");
 
-		/* Update the initial state if this is the first time this is called */
-		if (initialStateCarriedTrafficIfNotFailing == -1)
-		{
-			this.initialStateCarriedTrafficIfNotFailing = newCarriedTraffic;
-			this.initialStateOccupationIfNotFailing = new ArrayList<Double> (linkAndResourcesOccupationInformation);
-			if (initialStateOccupationIfNotFailing.size() != initialStatePath.size()) throw new RuntimeException ("Bad");
-		}
-
-		this.currentCarriedTrafficIfNotFailing = newCarriedTraffic;
-		this.currentLinksAndResourcesOccupationIfNotFailing = new ArrayList<Double> (linkAndResourcesOccupationInformation);
-
-		/* Now the update of the links and resources occupation */
-		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
+		setCarriedTrafficWithoutUpdatingTraversedElements(newCarriedTraffic, linkAndResourcesOccupationInformation);
 
 		demand.carriedTraffic = 0; for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+		demand.cache_notifyModified();
 		if (demand.coupledUpperOrSameLayerLink != null)
 			demand.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
 
@@ -717,6 +713,26 @@ public class Route extends NetworkElement
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
 
+	/* Sets the carried traffic and occupations (already checked and adjusted to tolerance) of the route, but not the carried traffic of its demand,
+	 * and the traffic and occupation of the traversed links and resources. Used by NetPlanBulkUpdate to update them once for many routes */
+	void setCarriedTrafficWithoutUpdatingTraversedElements (double newCarriedTraffic , List<Double> linkAndResourcesOccupationInformation)
+	{
+		/* Update the initial state if this is the first time this is called */
+		if (initialStateCarriedTrafficIfNotFailing == -1)
+		{
+			this.initialStateCarriedTrafficIfNotFailing = newCarriedTraffic;
+			this.initialStateOccupationIfNotFailing = new ArrayList<Double> (linkAndResourcesOccupationInformation);
+			if (initialStateOccupationIfNotFailing.size() != initialStatePath.size()) throw new RuntimeException ("Bad");
+		}
+
+		netPlan.journal.routeTrafficChanged(this, currentCarriedTrafficIfNotFailing, currentLinksAndResourcesOccupationIfNotFailing, newCarriedTraffic, linkAndResourcesOccupationInformation);
+		this.currentCarriedTrafficIfNotFailing = newCarriedTraffic;
+		this.currentLinksAndResourcesOccupationIfNotFailing = new ArrayList<Double> (linkAndResourcesOccupationInformation);
+
+		/* Now the update of the links and resources occupation */
+		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
+	}
+
 	/** Sets the new sequence of links and/or resources traversed by the route, carried traffic, and occupied capacity in the traversed links/resources
 	 * If the new route traverses failing link or nodes, its current
 	 * carried traffic and occupied link capacities will be zero. If not, will be the base ones in the no failure state
@@ -757,6 +773,7 @@ public class Route extends NetworkElement
 		layer.cache_routesTravLinkZeroCap.remove(this);
 
 		/* Update this route info */
+		netPlan.journal.routePathChanged(this, currentPath, newPath);
 		this.currentPath = new LinkedList<NetworkElement> (newPath);
 		this.cache_seqLinksRealPath = new LinkedList<Link> (newSeqLinks);
 		boolean isRouteUp = demand.ingressNode.isUp;
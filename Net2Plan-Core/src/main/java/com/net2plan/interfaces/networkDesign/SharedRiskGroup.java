@@ -87,6 +87,7 @@ public class SharedRiskGroup extends NetworkElement
     public void setDynamicImplementation (DynamicSrgImplementation impl)
     {
         if (!isDynamicSrg()) throw new Net2PlanException ("The SRG is not dynamic");
+        if (netPlan != null) netPlan.journal.notReversible ("the implementation of a dynamic SRG was changed");
         this.dynamicSrgImplementation = impl;
     }
     
@@ -313,7 +314,9 @@ public class SharedRiskGroup extends NetworkElement
 	 */
 	public void setMeanTimeToFailInHours(double value)
 	{
+		netPlan.checkIsModifiable();
 		if (value <= 0) throw new Net2PlanException ("A positive value is expected");
+		netPlan.journal.propertyChanged (this , this.meanTimeToFailInHours , value , SharedRiskGroup::setMeanTimeToFailInHours);
 		this.meanTimeToFailInHours = value;
 	}
 
@@ -332,7 +335,9 @@ public class SharedRiskGroup extends NetworkElement
 	 */
 	public void setMeanTimeToRepairInHours(double value)
 	{
+		netPlan.checkIsModifiable();
 		if (value < 0) throw new Net2PlanException ("A positive value is expected");
+		netPlan.journal.propertyChanged (this , this.meanTimeToRepairInHours , value , SharedRiskGroup::setMeanTimeToRepairInHours);
 		this.meanTimeToRepairInHours = value;
 	}
 
@@ -375,6 +380,7 @@ public class SharedRiskGroup extends NetworkElement
 	    if (isDynamicSrg()) throw new Net2PlanException ("Cannot modify dynamic SRGs");
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		if (linksIfNonDynamic.contains(e)) netPlan.journal.srgMembershipChanged(this, e, false);
 		e.cache_nonDynamicSrgs.remove (this); 
 		linksIfNonDynamic.remove (e);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -389,6 +395,7 @@ public class SharedRiskGroup extends NetworkElement
         if (isDynamicSrg()) throw new Net2PlanException ("Cannot modify dynamic SRGs");
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		if (nodesIfNonDynamic.contains(n)) netPlan.journal.srgMembershipChanged(this, n, false);
 		n.cache_nodeNonDynamicSRGs.remove (this);
 		nodesIfNonDynamic.remove (n);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -401,6 +408,7 @@ public class SharedRiskGroup extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final NetPlanJournal.Change journalRemoval = netPlan.journal.elementRemoval(this);
 
 		if (!isDynamicSrg())
 		{
@@ -415,6 +423,7 @@ public class SharedRiskGroup extends NetworkElement
 		netPlan.cache_id2srgMap.remove (id);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.srgs , index);
 		if (isDynamicSrg()) netPlan.cache_dynamicSrgs.remove(this);
+        netPlan.journal.record(journalRemoval);
         final NetPlan npOld = this.netPlan;
         removeId();
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
@@ -431,6 +440,7 @@ public class SharedRiskGroup extends NetworkElement
 		netPlan.checkIsModifiable();
 		link.checkAttachedToNetPlanObject(this.netPlan);
 		if (this.linksIfNonDynamic.contains(link)) return;
+		netPlan.journal.srgMembershipChanged(this, link, true);
 		link.cache_nonDynamicSrgs.add(this);
 		this.linksIfNonDynamic.add(link);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -447,6 +457,7 @@ public class SharedRiskGroup extends NetworkElement
 		netPlan.checkIsModifiable();
 		node.checkAttachedToNetPlanObject(this.netPlan);
 		if (this.nodesIfNonDynamic.contains(node)) return;
+		netPlan.journal.srgMembershipChanged(this, node, true);
 		node.cache_nodeNonDynamicSRGs.add(this);
 		this.nodesIfNonDynamic.add(node);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -0,0 +1,560 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.net2plan.libraries.TrafficPredictor;
+import com.net2plan.libraries.TrafficSeries;
+
+/**
+ * <p>Writer of the binary {@code .n2p} format. The binary format stores the same information as the XML format, but
+ * numbers are written in binary form (doubles as their 8-byte representation, identifiers as variable-length integers), and
+ * the strings that repeat (attribute keys, tags, units...) are written once per section, and then referenced by an index.</p>
+ *
+ * <p>The file starts with the magic number {@link #MAGIC_NUMBER} and the format version. Then, a sequence of sections
+ * follows. Each section has a header with its type, flags, number of records, and length in bytes, so that readers can
+ * skip the sections they do not know. The content of a section can be optionally compressed (Deflate, preceded by the uncompressed length). Large tables
+ * (e.g. the routes of a layer) are split in several consecutive sections of the same type, so that the writer and the reader only need to
+ * keep one section in memory. The last section is of type {@link #SECTION_END}.</p>
+ *
+ * <p>Before the last section, a section of type {@link #SECTION_INDEX} lists the position in the file of all the other sections, and the layer
+ * they belong to. The file ends with the position of the index section and the magic number, so that a reader with random access to the
+ * file (see {@link NetPlanBinaryFile}) can locate the sections without reading the whole file.</p>
+ *
+ * @see ReaderNetPlanN2PBinary
+ * @since 0.6.5
+ */
+class WriterNetPlanN2PBinary
+{
+	/** First bytes of a binary {@code .n2p} file. The first byte is not valid at the start of an XML document */
+	static final byte [] MAGIC_NUMBER = new byte [] { (byte) 0x89 , 'N' , '2' , 'P' };
+	static final int FORMAT_VERSION = 1;
+
+	static final int SECTION_END = 0;
+	static final int SECTION_NETWORK = 1;
+	static final int SECTION_NODES = 2;
+	static final int SECTION_RESOURCES = 3;
+	static final int SECTION_LAYER = 4;
+	static final int SECTION_LINKS = 5;
+	static final int SECTION_DEMANDS = 6;
+	static final int SECTION_MULTICASTDEMANDS = 7;
+	static final int SECTION_MULTICASTTREES = 8;
+	static final int SECTION_ROUTES = 9;
+	static final int SECTION_FORWARDINGRULES = 10;
+	static final int SECTION_LAYEREND = 11;
+	static final int SECTION_SRGS = 12;
+	static final int SECTION_LAYERCOUPLINGS = 13;
+	static final int SECTION_INDEX = 14;
+
+	static final int FLAG_DEFLATE = 1;
+
+	/* bytes of the section header: type, flags, number of records and stored length */
+	static final int SECTION_HEADER_SIZE_IN_BYTES = 10;
+	/* bytes at the end of the file: position of the index section, and the magic number */
+	static final int TRAILER_SIZE_IN_BYTES = 8 + 4;
+
+	/* sections are closed when they reach this size, so that huge tables are written as several sections */
+	private static final int MAX_SECTION_SIZE_IN_BYTES = 1 << 20;
+
+	private final DataOutputStream out;
+	private final boolean compress;
+	private final SectionOutput section = new SectionOutput();
+	private int sectionType;
+	private int sectionNumRecords;
+	private long position;
+	private long currentLayerId = -1;
+	private final List<SectionIndexEntry> sectionIndex = new ArrayList<> ();
+
+	private WriterNetPlanN2PBinary(OutputStream outputStream, boolean compress)
+	{
+		this.out = new DataOutputStream(outputStream);
+		this.compress = compress;
+	}
+
+	/**
+	 * <p>Writes the design to the output stream in binary format. The output stream is flushed, but not closed.</p>
+	 *
+	 * @param netPlan Design
+	 * @param outputStream Output stream
+	 * @param compress If {@code true}, the content of each section is compressed
+	 * @throws IOException If an I/O error occurs
+	 */
+	static void write(NetPlan netPlan, OutputStream outputStream, boolean compress) throws IOException
+	{
+		new WriterNetPlanN2PBinary(outputStream, compress).writeNetwork(netPlan);
+	}
+
+	private void writeNetwork(NetPlan np) throws IOException
+	{
+		out.write(MAGIC_NUMBER);
+		out.writeInt(FORMAT_VERSION);
+		position = MAGIC_NUMBER.length + 4;
+
+		startSection(SECTION_NETWORK);
+		section.writeVarLong(np.nextElementId.toLong());
+		section.writeLong(np.getCurrentDate().getTime());
+		section.writeString(np.currentPlotNodeLayout);
+		section.writeStringList(np.cache_definedPlotNodeLayouts);
+		section.writeStringList(np.cache_planningDomain2nodes.keySet());
+		writeNameDescriptionTagsAndAttributes(np);
+		endRecord();
+		endSection();
+
+		startSection(SECTION_NODES);
+		for (Node node : np.nodes)
+		{
+			section.writeVarLong(node.id);
+			section.writeDouble(node.getXYPositionMap().getX());
+			section.writeDouble(node.getXYPositionMap().getY());
+			section.writeVarLong(node.mapLayout2NodeXYPositionMap.size());
+			for (Entry<String, Point2D> layout : node.mapLayout2NodeXYPositionMap.entrySet())
+			{
+				section.writeString(layout.getKey());
+				section.writeDouble(layout.getValue().getX());
+				section.writeDouble(layout.getValue().getY());
+			}
+			section.writeDouble(node.population);
+			section.writeString(node.siteName);
+			section.writeBoolean(node.isUp);
+			section.writeStringList(node.getPlanningDomains());
+			final List<NetworkLayer> layersWithIcons = new ArrayList<> ();
+			for (NetworkLayer layer : np.layers) if (node.getUrlNodeIcon(layer) != null) layersWithIcons.add(layer);
+			section.writeVarLong(layersWithIcons.size());
+			for (NetworkLayer layer : layersWithIcons)
+			{
+				section.writeVarLong(layer.id);
+				section.writeString(node.getUrlNodeIcon(layer).toString());
+				section.writeDouble(node.getNodeIconRelativeSize(layer));
+			}
+			writeNameDescriptionTagsAndAttributes(node);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_RESOURCES);
+		for (Resource res : np.resources)
+		{
+			section.writeVarLong(res.id);
+			section.writeOptionalId(res.iAttachedToANode() ? res.hostNode.get() : null);
+			section.writeString(res.type);
+			section.writeString(res.capacityMeasurementUnits);
+			section.writeDouble(res.processingTimeToTraversingTrafficInMs);
+			section.writeDouble(res.capacity);
+			section.writeString(res.urlIcon == null ? null : res.urlIcon.toString());
+			section.writeVarLong(res.capacityIOccupyInBaseResource.size());
+			for (Entry<Resource, Double> br : res.capacityIOccupyInBaseResource.entrySet())
+			{
+				section.writeVarLong(br.getKey().id);
+				section.writeDouble(br.getValue());
+			}
+			writeNameDescriptionTagsAndAttributes(res);
+			endRecord();
+		}
+		endSection();
+
+		for (NetworkLayer layer : np.layers)
+			writeLayer(np, layer);
+
+		startSection(SECTION_SRGS);
+		for (SharedRiskGroup srg : np.srgs)
+		{
+			section.writeVarLong(srg.id);
+			section.writeDouble(srg.meanTimeToFailInHours);
+			section.writeDouble(srg.meanTimeToRepairInHours);
+			section.writeBoolean(srg.isDynamicSrg());
+			if (srg.isDynamicSrg())
+			{
+				section.writeString(srg.getDynamicSrgImplementation().getClass().getName());
+				section.writeString(srg.getDynamicSrgImplementation().getInitializationString());
+			}
+			else
+			{
+				section.writeIds(srg.getNodes());
+				section.writeIds(srg.getLinksAllLayers());
+			}
+			writeNameDescriptionTagsAndAttributes(srg);
+			endRecord();
+		}
+		endSection();
+
+		/* coupling records: demand id, and the ids of the coupled links (one for unicast demands) */
+		startSection(SECTION_LAYERCOUPLINGS);
+		for (DemandLinkMapping d_e : np.interLayerCoupling.edgeSet())
+		{
+			for (Entry<Demand, Link> coupling : d_e.demandLinkMapping.entrySet())
+			{
+				section.writeBoolean(false);
+				section.writeVarLong(coupling.getKey().id);
+				section.writeIds(Arrays.asList(coupling.getValue()));
+				endRecord();
+			}
+			for (Entry<MulticastDemand, SortedSet<Link>> coupling : d_e.multicastDemandLinkMapping.entrySet())
+			{
+				section.writeBoolean(true);
+				section.writeVarLong(coupling.getKey().id);
+				section.writeIds(coupling.getValue());
+				endRecord();
+			}
+		}
+		for (NetworkLayer layer : np.layers)
+			for (Demand demand : np.getDemandsCoupled(layer))
+				if (demand.isCoupledInSameLayer())
+				{
+					section.writeBoolean(false);
+					section.writeVarLong(demand.id);
+					section.writeIds(Arrays.asList(demand.coupledUpperOrSameLayerLink));
+					endRecord();
+				}
+		endSection();
+
+		/* the index is written as a single section, whatever its size */
+		final long indexPosition = position;
+		startSection(SECTION_INDEX);
+		for (SectionIndexEntry entry : sectionIndex)
+		{
+			section.writeByte(entry.type);
+			section.writeByte(entry.flags);
+			section.writeInt(entry.numRecords);
+			section.writeVarLong(entry.position);
+			section.writeInt(entry.storedLength);
+			section.writeVarLong(entry.layerId + 1);
+			sectionNumRecords++;
+		}
+		endSection();
+
+		startSection(SECTION_END);
+		endSection();
+		out.writeLong(indexPosition);
+		out.write(MAGIC_NUMBER);
+		out.flush();
+	}
+
+	private void writeLayer(NetPlan np, NetworkLayer layer) throws IOException
+	{
+		currentLayerId = layer.id;
+		startSection(SECTION_LAYER);
+		section.writeVarLong(layer.id);
+		section.writeBoolean(np.defaultLayer == layer);
+		section.writeString(layer.linkCapacityUnitsName);
+		section.writeString(layer.demandTrafficUnitsName);
+		section.writeString(layer.defaultNodeIconURL == null ? null : layer.defaultNodeIconURL.toString());
+		writeNameDescriptionTagsAndAttributes(layer);
+		endRecord();
+		endSection();
+
+		startSection(SECTION_LINKS);
+		for (Link link : layer.links)
+		{
+			section.writeVarLong(link.id);
+			section.writeVarLong(link.originNode.id);
+			section.writeVarLong(link.destinationNode.id);
+			section.writeDouble(link.capacity);
+			section.writeDouble(link.lengthInKm);
+			section.writeDouble(link.propagationSpeedInKmPerSecond);
+			section.writeOptionalId(link.bidirectionalPair);
+			section.writeInt(link.getNominalColor().getRGB());
+			section.writeBoolean(link.isUp);
+			section.writeTrafficSeries(link.getMonitoredOrForecastedCarriedTraffic());
+			section.writeStringList(getTrafficPredictorInitializationStrings(link.getTrafficPredictor().orElse(null)));
+			writeNameDescriptionTagsAndAttributes(link);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_DEMANDS);
+		for (Demand demand : layer.demands)
+		{
+			section.writeVarLong(demand.id);
+			section.writeVarLong(demand.ingressNode.id);
+			section.writeVarLong(demand.egressNode.id);
+			section.writeDouble(demand.offeredTraffic);
+			section.writeString(demand.recoveryType.name());
+			section.writeString(demand.routingType.name());
+			section.writeOptionalId(demand.bidirectionalPair);
+			section.writeDouble(demand.maximumAcceptableE2EWorstCaseLatencyInMs);
+			section.writeDouble(demand.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+			section.writeTrafficSeries(demand.getMonitoredOrForecastedOfferedTraffic());
+			section.writeStringList(getTrafficPredictorInitializationStrings(demand.getTrafficPredictor().orElse(null)));
+			section.writeString(demand.qosType);
+			section.writeStringList(demand.mandatorySequenceOfTraversedResourceTypes);
+			writeNameDescriptionTagsAndAttributes(demand);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_MULTICASTDEMANDS);
+		for (MulticastDemand demand : layer.multicastDemands)
+		{
+			section.writeVarLong(demand.id);
+			section.writeVarLong(demand.ingressNode.id);
+			section.writeIds(demand.egressNodes);
+			section.writeDouble(demand.offeredTraffic);
+			section.writeDouble(demand.maximumAcceptableE2EWorstCaseLatencyInMs);
+			section.writeDouble(demand.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+			section.writeString(demand.qosType);
+			section.writeTrafficSeries(demand.getMonitoredOrForecastedOfferedTraffic());
+			section.writeStringList(getTrafficPredictorInitializationStrings(demand.getTrafficPredictor().orElse(null)));
+			writeNameDescriptionTagsAndAttributes(demand);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_MULTICASTTREES);
+		for (MulticastTree tree : layer.multicastTrees)
+		{
+			section.writeVarLong(tree.id);
+			section.writeVarLong(tree.demand.id);
+			section.writeDouble(tree.carriedTrafficIfNotFailing);
+			section.writeDouble(tree.occupiedLinkCapacityIfNotFailing);
+			section.writeIds(tree.linkSet);
+			/* If the original link set was removed, it is replaced by the current link set (as in the XML format) */
+			boolean initialLinkSetNotRemoved = true;
+			for (Link e : tree.initialSetLinksWhenWasCreated) if (e.netPlan == null) { initialLinkSetNotRemoved = false; break; }
+			section.writeIds(initialLinkSetNotRemoved ? tree.initialSetLinksWhenWasCreated : tree.linkSet);
+			writeNameDescriptionTagsAndAttributes(tree);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_ROUTES);
+		for (Route route : layer.routes)
+		{
+			section.writeVarLong(route.id);
+			section.writeVarLong(route.demand.id);
+			section.writeDouble(route.currentCarriedTrafficIfNotFailing);
+			section.writeDoubles(route.currentLinksAndResourcesOccupationIfNotFailing);
+			section.writeIds(route.currentPath);
+			section.writeOptionalId(route.bidirectionalPair);
+			section.writeDouble(route.initialStateCarriedTrafficIfNotFailing);
+			section.writeDoubles(route.initialStateOccupationIfNotFailing);
+			section.writeIds(route.initialStatePath);
+			section.writeIds(route.backupRoutes);
+			writeNameDescriptionTagsAndAttributes(route);
+			endRecord();
+		}
+		endSection();
+
+		startSection(SECTION_FORWARDINGRULES);
+		for (Demand demand : layer.demands)
+			for (Entry<Link, Double> fr : demand.cacheHbH_frs.entrySet())
+			{
+				section.writeVarLong(demand.id);
+				section.writeVarLong(fr.getKey().id);
+				section.writeDouble(fr.getValue());
+				endRecord();
+			}
+		endSection();
+
+		startSection(SECTION_LAYEREND);
+		endSection();
+		currentLayerId = -1;
+	}
+
+	private void writeNameDescriptionTagsAndAttributes(NetworkElement e) throws IOException
+	{
+		section.writeString(e.getName());
+		section.writeString(e.getDescription());
+		section.writeStringList(e.tags);
+		section.writeVarLong(e.attributes.size());
+		for (Entry<String, String> entry : e.attributes.entrySet())
+		{
+			section.writeString(entry.getKey());
+			section.writeString(entry.getValue());
+		}
+	}
+
+	private static List<String> getTrafficPredictorInitializationStrings(TrafficPredictor tp)
+	{
+		if (tp == null) return Arrays.asList();
+		return Arrays.asList(tp.getTpType().toString(), tp.computeInitializationString(),
+				tp.getTpType().isManual() || tp.getStatistics() == null ? "" : tp.getStatistics().getInitializationString());
+	}
+
+	private void startSection(int type)
+	{
+		this.sectionType = type;
+		this.sectionNumRecords = 0;
+		section.reset();
+	}
+
+	/* Called after each record: if the section is too big, it is written, and a new one of the same type is started */
+	private void endRecord() throws IOException
+	{
+		sectionNumRecords++;
+		if (section.size() >= MAX_SECTION_SIZE_IN_BYTES)
+		{
+			endSection();
+			startSection(sectionType);
+		}
+	}
+
+	private void endSection() throws IOException
+	{
+		if (sectionNumRecords == 0 && sectionType != SECTION_END && sectionType != SECTION_LAYEREND && section.size() == 0) return;
+		final boolean compressThisSection = compress && section.size() > 0 && sectionType != SECTION_INDEX;
+		final int storedLength;
+		out.writeByte(sectionType);
+		if (compressThisSection)
+		{
+			final ByteArrayOutputStream compressed = new ByteArrayOutputStream(section.size() / 2 + 64);
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(compressed, deflater))
+			{
+				section.writeTo(deflaterOut);
+			} finally
+			{
+				deflater.end();
+			}
+			out.writeByte(FLAG_DEFLATE);
+			out.writeInt(sectionNumRecords);
+			storedLength = 4 + compressed.size();
+			out.writeInt(storedLength);
+			out.writeInt(section.size()); // uncompressed length, so that the reader can inflate the section at once
+			compressed.writeTo(out);
+		}
+		else
+		{
+			storedLength = section.size();
+			out.writeByte(0);
+			out.writeInt(sectionNumRecords);
+			out.writeInt(storedLength);
+			section.writeTo(out);
+		}
+		if (sectionType != SECTION_INDEX && sectionType != SECTION_END)
+			sectionIndex.add(new SectionIndexEntry(sectionType, compressThisSection ? FLAG_DEFLATE : 0, sectionNumRecords, position, storedLength, currentLayerId));
+		position += SECTION_HEADER_SIZE_IN_BYTES + storedLength;
+	}
+
+	/**
+	 * Entry of the section index: where a section starts in the file, and the layer it belongs to ({@code -1} for sections not in a layer).
+	 */
+	static final class SectionIndexEntry
+	{
+		final int type;
+		final int flags;
+		final int numRecords;
+		final long position;
+		final int storedLength;
+		final long layerId;
+
+		SectionIndexEntry(int type, int flags, int numRecords, long position, int storedLength, long layerId)
+		{
+			this.type = type;
+			this.flags = flags;
+			this.numRecords = numRecords;
+			this.position = position;
+			this.storedLength = storedLength;
+			this.layerId = layerId;
+		}
+	}
+
+	/**
+	 * Buffer for the content of one section, with the helpers to write variable-length integers, and strings through the string table of the section.
+	 */
+	static final class SectionOutput extends DataOutputStream
+	{
+		private final Map<String, Integer> stringTable = new HashMap<> ();
+
+		SectionOutput()
+		{
+			super(new ByteArrayOutputStream(MAX_SECTION_SIZE_IN_BYTES + (MAX_SECTION_SIZE_IN_BYTES >> 2)));
+		}
+
+		void reset()
+		{
+			((ByteArrayOutputStream) out).reset();
+			stringTable.clear();
+			written = 0;
+		}
+
+		void writeTo(OutputStream outputStream) throws IOException
+		{
+			((ByteArrayOutputStream) out).writeTo(outputStream);
+		}
+
+		/* non-negative values, 7 bits per byte */
+		void writeVarLong(long value) throws IOException
+		{
+			if (value < 0) throw new Net2PlanException("Negative value in a variable-length integer");
+			while ((value & ~0x7FL) != 0)
+			{
+				write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((int) value);
+		}
+
+		void writeOptionalId(NetworkElement e) throws IOException
+		{
+			writeVarLong(e == null ? 0 : e.id + 1);
+		}
+
+		void writeIds(Collection<? extends NetworkElement> elements) throws IOException
+		{
+			writeVarLong(elements.size());
+			for (NetworkElement e : elements) writeVarLong(e.id);
+		}
+
+		void writeDoubles(Collection<Double> values) throws IOException
+		{
+			writeVarLong(values.size());
+			for (double value : values) writeDouble(value);
+		}
+
+		void writeTrafficSeries(TrafficSeries series) throws IOException
+		{
+			final SortedMap<Date, Double> values = series.getValues();
+			writeVarLong(values.size());
+			for (Entry<Date, Double> entry : values.entrySet())
+			{
+				writeLong(entry.getKey().getTime());
+				writeDouble(entry.getValue());
+			}
+		}
+
+		/* 0: null, 1: new string (added to the table), n >= 2: string n-2 of the table */
+		void writeString(String s) throws IOException
+		{
+			if (s == null) { writeVarLong(0); return; }
+			final Integer index = stringTable.get(s);
+			if (index != null) { writeVarLong(index + 2); return; }
+			stringTable.put(s, stringTable.size());
+			final byte [] utf8 = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(1);
+			writeVarLong(utf8.length);
+			write(utf8);
+		}
+
+		void writeStringList(Collection<String> strings) throws IOException
+		{
+			writeVarLong(strings.size());
+			for (String s : strings) writeString(s);
+		}
+	}
+}
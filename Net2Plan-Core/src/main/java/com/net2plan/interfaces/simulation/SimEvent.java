@@ -11,6 +11,8 @@
 
 package com.net2plan.interfaces.simulation;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -19,6 +21,7 @@ import java.util.List;
 import com.net2plan.interfaces.networkDesign.Demand;
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.MulticastDemand;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.interfaces.networkDesign.Node;
 import com.net2plan.interfaces.networkDesign.Route;
@@ -182,6 +185,169 @@ public class SimEvent implements Comparable<SimEvent>
 		
 	}
 
+	/**
+	 * <p>Base class of the event objects that can be reused, taken from a {@link SimEventPool}. Each holder of a reference to the object (e.g. the event that carries it,
+	 * or an algorithm that keeps it to read it later) counts as a reference: the object is returned to its pool, and cleared, when the last one is released.</p>
+	 *
+	 * <p>An object taken from the pool has one reference, which is transferred to the event it is put in. Then, the kernel releases it after the event is processed,
+	 * unless the algorithm called {@link #retain()} to keep it.</p>
+	 *
+	 * @since 0.6.5
+	 */
+	public static abstract class PooledPayload
+	{
+		SimEventPool pool;
+		int referenceCount = 1;
+
+		/**
+		 * Adds a reference to the object, so that it is not reused until {@link #release()} is called.
+		 */
+		public final void retain()
+		{
+			if (referenceCount <= 0) throw new Net2PlanException("The object was already returned to the pool");
+			referenceCount++;
+		}
+
+		/**
+		 * Releases a reference to the object. If it was the last one, the object is cleared and returned to its pool (if any).
+		 */
+		public final void release()
+		{
+			if (referenceCount <= 0) throw new Net2PlanException("The object was already returned to the pool");
+			if (--referenceCount > 0) return;
+			clear();
+			if (pool != null) pool.recycle(this);
+		}
+
+		/**
+		 * Clears the references this object keeps (e.g. to network elements, or to other pooled objects, which should be released here), before it is reused.
+		 */
+		protected abstract void clear();
+	}
+
+	/**
+	 * <p>Reusable version of {@link RouteAdd}, taken from a {@link SimEventPool}. The sequence of links is kept in an array, reused when the object is reused.</p>
+	 *
+	 * <p><b>Important</b>: Its content is valid only while the event is processed, unless the object is retained (see {@link PooledPayload}).</p>
+	 *
+	 * @since 0.6.5
+	 */
+	public static final class PooledRouteAdd extends PooledPayload
+	{
+		public Route routeAddedToFillByProcessor; public Demand demand; public double carriedTraffic; public double occupiedLinkCapacity;
+		private Link [] seqLinks = new Link [8];
+		private int numberOfLinks;
+		private final List<Link> seqLinksView = new AbstractList<Link>()
+		{
+			@Override
+			public Link get(int index) { return getLink(index); }
+			@Override
+			public int size() { return numberOfLinks; }
+		};
+
+		/**
+		 * Sets the content of the object.
+		 * @param demand Demand associated to the Route
+		 * @param seqLinks Sequence of links (may be null, or empty, if the processor decides it)
+		 * @param carriedTraffic Carried traffic
+		 * @param occupiedLinkCapacity Occupied link capacity
+		 * @return This object
+		 */
+		public PooledRouteAdd set(Demand demand, List<Link> seqLinks, double carriedTraffic, double occupiedLinkCapacity)
+		{
+			this.routeAddedToFillByProcessor = null; this.demand = demand; this.carriedTraffic = carriedTraffic; this.occupiedLinkCapacity = occupiedLinkCapacity;
+			this.numberOfLinks = 0;
+			if (seqLinks != null) for (Link link : seqLinks) addLink(link);
+			return this;
+		}
+
+		/**
+		 * Appends a link to the sequence of links.
+		 * @param link Link
+		 */
+		public void addLink(Link link)
+		{
+			if (numberOfLinks == seqLinks.length) seqLinks = Arrays.copyOf(seqLinks, 2 * numberOfLinks);
+			seqLinks[numberOfLinks++] = link;
+		}
+
+		/**
+		 * Returns the link in the given position of the sequence of links.
+		 * @param index Position
+		 * @return The link
+		 */
+		public Link getLink(int index)
+		{
+			if (index < 0 || index >= numberOfLinks) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + numberOfLinks);
+			return seqLinks[index];
+		}
+
+		/**
+		 * Returns the number of links of the sequence of links.
+		 * @return Number of links
+		 */
+		public int getNumberOfLinks()
+		{
+			return numberOfLinks;
+		}
+
+		/**
+		 * Returns an unmodifiable view of the sequence of links, backed by the array of this object (then, it should not be kept after the object is released).
+		 * @return Sequence of links
+		 */
+		public List<Link> getSeqLinks()
+		{
+			return seqLinksView;
+		}
+
+		@Override
+		protected void clear()
+		{
+			routeAddedToFillByProcessor = null; demand = null;
+			Arrays.fill(seqLinks, 0, numberOfLinks, null);
+			numberOfLinks = 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.getClass ().getSimpleName() + " [demand=" + demand + ", seqLinks=" + seqLinksView + ", carriedTraffic=" + carriedTraffic + ", occupiedLinkCapacity=" + occupiedLinkCapacity + "]";
+		}
+	}
+
+	/**
+	 * <p>Reusable version of {@link RouteRemove}, taken from a {@link SimEventPool}.</p>
+	 *
+	 * @since 0.6.5
+	 */
+	public static final class PooledRouteRemove extends PooledPayload
+	{
+		public Route route;
+
+		/**
+		 * Sets the content of the object.
+		 * @param route Route to be removed
+		 * @return This object
+		 */
+		public PooledRouteRemove set(Route route)
+		{
+			this.route = route;
+			return this;
+		}
+
+		@Override
+		protected void clear()
+		{
+			route = null;
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.getClass ().getSimpleName() + " [route=" + route + "]";
+		}
+	}
+
 	/**
 	 * This class represents the request to remove and existing Route.
 	 */
@@ -324,11 +490,12 @@ public class SimEvent implements Comparable<SimEvent>
 //	 */
 //	public final static int DEFAULT_TYPE = 0;
 //	
-	private final double eventTime;
-	private final int type;
-	private final int priority;
-	private final Object object;
-	private final DestinationModule destinationModule;
+	private double eventTime;
+	private int type;
+	private int priority;
+	private Object object;
+	private DestinationModule destinationModule;
+	SimEventPool pool; // null if the event is not reused
 
 	//	private final List<SimAction> actions;
 	//	private final EnumSet<SimAction.ActionType> actionTypes;
@@ -368,6 +535,27 @@ public class SimEvent implements Comparable<SimEvent>
 	}
 	
 
+	/* Sets the content of an event taken from a pool */
+	final void set(double eventTime, DestinationModule destinationModule , int type , int priority , Object object)
+	{
+		this.eventTime = eventTime;
+		this.type = type;
+		this.priority = priority;
+		this.object = object;
+		this.destinationModule = destinationModule;
+	}
+
+	/**
+	 * Indicates whether the event was taken from a {@link SimEventPool}, and then it is reused after it is processed.
+	 *
+	 * @return {@code true} if the event is reused, {@code false} otherwise
+	 * @since 0.6.5
+	 */
+	public final boolean isPooled()
+	{
+		return pool != null;
+	}
+
 	@Override
 	public final int compareTo(SimEvent e)
 	{
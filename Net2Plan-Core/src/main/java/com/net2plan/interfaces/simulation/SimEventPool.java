@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.interfaces.simulation;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Route;
+
+/**
+ * <p>Pool of reusable events and event objects, for simulations with high event rates (e.g. millions of connection arrivals per simulated hour),
+ * where creating a new {@link SimEvent}, a {@link SimEvent.RouteAdd} with a copy of its sequence of links, and the objects the event generator uses
+ * for its own events, in each arrival is the main source of garbage.</p>
+ *
+ * <p>Its use is optional: the event generators and processors get the pool of the kernel with
+ * {@link com.net2plan.internal.sim.ISimExternal#getEventPool() getEventPool()}, and create the events with {@link #newEvent(double, SimEvent.DestinationModule, int, int, Object) newEvent()}
+ * instead of the constructor of {@link SimEvent}. The kernel returns an event taken from the pool, and its object if it is a {@link SimEvent.PooledPayload},
+ * after it is processed (and the next event starts). Then, the algorithms must not keep references to them, unless they retain the object (see {@link SimEvent.PooledPayload}).
+ * Event processors receiving pooled events must accept the pooled payload classes (e.g. {@link SimEvent.PooledRouteAdd}).</p>
+ *
+ * <p>Example, in an event generator:</p>
+ * <pre>
+ * SimEvent.PooledRouteAdd routeAdd = getEventPool().newRouteAdd(demand, null, connectionSize, connectionSize);
+ * scheduleEvent(getEventPool().newEvent(simTime, SimEvent.DestinationModule.EVENT_PROCESSOR, -1, routeAdd));
+ * </pre>
+ *
+ * <p>Algorithm-specific objects extending {@link SimEvent.PooledPayload} can be pooled too, with {@link #newPayload(Class, Supplier) newPayload()}.
+ * This class is not thread-safe, since a simulation runs in a single thread.</p>
+ *
+ * @since 0.6.5
+ */
+public final class SimEventPool
+{
+	/**
+	 * Maximum number of free objects kept of each class. Objects released when it is reached are left to the garbage collector.
+	 */
+	public final static int MAXIMUM_FREE_OBJECTS_PER_CLASS = 1 << 16;
+
+	private final ArrayDeque<SimEvent> freeEvents = new ArrayDeque<SimEvent>();
+	private final ArrayDeque<SimEvent.PooledPayload> freeRouteAdds = new ArrayDeque<SimEvent.PooledPayload>();
+	private final ArrayDeque<SimEvent.PooledPayload> freeRouteRemoves = new ArrayDeque<SimEvent.PooledPayload>();
+	private final Map<Class<?>, ArrayDeque<SimEvent.PooledPayload>> freePayloads = new HashMap<Class<?>, ArrayDeque<SimEvent.PooledPayload>>();
+	private long numberOfCreatedObjects;
+	private long numberOfReusedObjects;
+
+	/**
+	 * Returns an event taken from the pool (or a new one if the pool is empty), that will be reused after it is processed.
+	 *
+	 * @param eventTime Event time
+	 * @param destinationModule Module that will receive the event
+	 * @param type Event type
+	 * @param priority Event priority
+	 * @param object Custom object (if it is a {@link SimEvent.PooledPayload}, the event takes its reference)
+	 * @return The event
+	 */
+	public SimEvent newEvent(double eventTime, SimEvent.DestinationModule destinationModule, int type, int priority, Object object)
+	{
+		SimEvent event = freeEvents.pollFirst();
+		if (event == null)
+		{
+			event = new SimEvent(eventTime, destinationModule, type, priority, object);
+			event.pool = this;
+			numberOfCreatedObjects++;
+		}
+		else
+		{
+			event.set(eventTime, destinationModule, type, priority, object);
+			numberOfReusedObjects++;
+		}
+		return event;
+	}
+
+	/**
+	 * Returns an event taken from the pool, with the default priority. See {@link #newEvent(double, SimEvent.DestinationModule, int, int, Object)}.
+	 *
+	 * @param eventTime Event time
+	 * @param destinationModule Module that will receive the event
+	 * @param type Event type
+	 * @param object Custom object
+	 * @return The event
+	 */
+	public SimEvent newEvent(double eventTime, SimEvent.DestinationModule destinationModule, int type, Object object)
+	{
+		return newEvent(eventTime, destinationModule, type, SimEvent.DEFAULT_PRIORITY, object);
+	}
+
+	/**
+	 * Returns a request to add a route taken from the pool, with one reference.
+	 *
+	 * @param demand Demand associated to the Route
+	 * @param seqLinks Sequence of links (copied into the array of the object; may be null)
+	 * @param carriedTraffic Carried traffic
+	 * @param occupiedLinkCapacity Occupied link capacity
+	 * @return The request
+	 */
+	public SimEvent.PooledRouteAdd newRouteAdd(Demand demand, List<Link> seqLinks, double carriedTraffic, double occupiedLinkCapacity)
+	{
+		SimEvent.PooledRouteAdd routeAdd = (SimEvent.PooledRouteAdd) take(freeRouteAdds);
+		if (routeAdd == null) routeAdd = created(new SimEvent.PooledRouteAdd());
+		return routeAdd.set(demand, seqLinks, carriedTraffic, occupiedLinkCapacity);
+	}
+
+	/**
+	 * Returns a request to remove a route taken from the pool, with one reference.
+	 *
+	 * @param route Route to be removed
+	 * @return The request
+	 */
+	public SimEvent.PooledRouteRemove newRouteRemove(Route route)
+	{
+		SimEvent.PooledRouteRemove routeRemove = (SimEvent.PooledRouteRemove) take(freeRouteRemoves);
+		if (routeRemove == null) routeRemove = created(new SimEvent.PooledRouteRemove());
+		return routeRemove.set(route);
+	}
+
+	/**
+	 * Returns an algorithm-specific object of the given class taken from the pool, with one reference, or a new one created with the given factory
+	 * if there is no free object of that class. The caller sets its content.
+	 *
+	 * @param <T> Class of the object
+	 * @param payloadClass Class of the object
+	 * @param factory Factory of new objects (e.g. the constructor of the class)
+	 * @return The object
+	 */
+	public <T extends SimEvent.PooledPayload> T newPayload(Class<T> payloadClass, Supplier<T> factory)
+	{
+		final ArrayDeque<SimEvent.PooledPayload> free = freePayloads.get(payloadClass);
+		final SimEvent.PooledPayload payload = free == null ? null : take(free);
+		if (payload != null) return payloadClass.cast(payload);
+		return created(factory.get());
+	}
+
+	/**
+	 * Returns an event taken from a pool (and its object, if it is a {@link SimEvent.PooledPayload}) to its pool, so it is reused. It has no effect if
+	 * the event was not taken from a pool. The kernel calls it after each event is processed, so algorithms do not need to.
+	 *
+	 * @param event The event
+	 */
+	public void release(SimEvent event)
+	{
+		final SimEventPool eventPool = event.pool;
+		if (eventPool == null) return;
+		if (event.getEventDestinationModule() == null) throw new Net2PlanException("The event was already returned to the pool");
+		final Object object = event.getEventObject();
+		event.set(0, null, 0, 0, null);
+		if (object instanceof SimEvent.PooledPayload) ((SimEvent.PooledPayload) object).release();
+		if (eventPool.freeEvents.size() < MAXIMUM_FREE_OBJECTS_PER_CLASS) eventPool.freeEvents.addFirst(event);
+		else event.pool = null;
+	}
+
+	/**
+	 * Returns the number of events and objects created by this pool (the ones not taken from the free ones).
+	 *
+	 * @return Number of created objects
+	 */
+	public long getNumberOfCreatedObjects()
+	{
+		return numberOfCreatedObjects;
+	}
+
+	/**
+	 * Returns the number of times an event or object was reused.
+	 *
+	 * @return Number of reused objects
+	 */
+	public long getNumberOfReusedObjects()
+	{
+		return numberOfReusedObjects;
+	}
+
+	/* Called when the last reference to an object taken from this pool is released */
+	void recycle(SimEvent.PooledPayload payload)
+	{
+		final ArrayDeque<SimEvent.PooledPayload> free;
+		if (payload instanceof SimEvent.PooledRouteAdd) free = freeRouteAdds;
+		else if (payload instanceof SimEvent.PooledRouteRemove) free = freeRouteRemoves;
+		else
+		{
+			ArrayDeque<SimEvent.PooledPayload> freeOfClass = freePayloads.get(payload.getClass());
+			if (freeOfClass == null) freePayloads.put(payload.getClass(), freeOfClass = new ArrayDeque<SimEvent.PooledPayload>());
+			free = freeOfClass;
+		}
+		if (free.size() < MAXIMUM_FREE_OBJECTS_PER_CLASS) free.addFirst(payload);
+	}
+
+	private SimEvent.PooledPayload take(ArrayDeque<SimEvent.PooledPayload> free)
+	{
+		final SimEvent.PooledPayload payload = free.pollFirst();
+		if (payload == null) return null;
+		payload.referenceCount = 1;
+		numberOfReusedObjects++;
+		return payload;
+	}
+
+	private <T extends SimEvent.PooledPayload> T created(T payload)
+	{
+		payload.pool = this;
+		numberOfCreatedObjects++;
+		return payload;
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.interfaces.simulation;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * <p>Stream of random numbers of a simulation component (an event generator, an event processor, the failures of an SRG...), obtained from
+ * {@link SimRandomStreams}. It is backed by a {@code SplittableRandom} generator, so that it is fast, it can be split in new independent streams,
+ * and it does not synchronize, as the global generators do (e.g. {@code Math.random()} or the static methods of Colt distributions).</p>
+ *
+ * <p>It extends {@code Random}, so that it can be given to any method expecting one (e.g. {@code Collections.shuffle()}), and adds samplers
+ * of the exponential, normal and Pareto distributions.</p>
+ *
+ * <p><b>Important</b>: A stream must not be shared by several threads. Use a different stream for each thread (see {@link #split()}).</p>
+ *
+ * @since 0.6.5
+ */
+public final class SimRandomStream extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	private final SplittableRandom generator;
+	private double nextGaussian;
+	private boolean haveNextGaussian;
+
+	SimRandomStream(long seed)
+	{
+		this(new SplittableRandom(seed));
+	}
+
+	private SimRandomStream(SplittableRandom generator)
+	{
+		super(0);
+		this.generator = generator;
+	}
+
+	/**
+	 * <p>Returns a new stream, independent of this one. Both streams are modified, and then calling this method gives the same results only
+	 * if the streams received the same calls before.</p>
+	 *
+	 * @return New stream
+	 */
+	public SimRandomStream split()
+	{
+		return new SimRandomStream(generator.split());
+	}
+
+	/**
+	 * Not supported: the seed of a stream is given by {@link SimRandomStreams}.
+	 *
+	 * @param seed Seed
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		if (generator != null) throw new UnsupportedOperationException("The seed of a random stream cannot be changed");
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return generator.nextInt() >>> (32 - bits);
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return generator.nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound)
+	{
+		return generator.nextInt(bound);
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return generator.nextLong();
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return generator.nextDouble();
+	}
+
+	@Override
+	public boolean nextBoolean()
+	{
+		return generator.nextBoolean();
+	}
+
+	/**
+	 * Returns a value from the standard normal distribution, using the polar method (as {@code Random} does, but without synchronization).
+	 *
+	 * @return Normal value, with mean zero and standard deviation one
+	 */
+	@Override
+	public double nextGaussian()
+	{
+		if (haveNextGaussian)
+		{
+			haveNextGaussian = false;
+			return nextGaussian;
+		}
+
+		double v1, v2, s;
+		do
+		{
+			v1 = 2 * generator.nextDouble() - 1;
+			v2 = 2 * generator.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+
+		final double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		nextGaussian = v2 * multiplier;
+		haveNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+	/**
+	 * Returns a value from an exponential distribution.
+	 *
+	 * @param mean Mean of the distribution (inverse of the rate)
+	 * @return Exponential value
+	 */
+	public double nextExponential(double mean)
+	{
+		return -mean * Math.log(1 - generator.nextDouble());
+	}
+
+	/**
+	 * Returns a value from a normal distribution.
+	 *
+	 * @param mean Mean of the distribution
+	 * @param standardDeviation Standard deviation of the distribution
+	 * @return Normal value
+	 */
+	public double nextNormal(double mean, double standardDeviation)
+	{
+		return mean + standardDeviation * nextGaussian();
+	}
+
+	/**
+	 * Returns a value from a Pareto distribution (type I), with the given shape and scale (minimum value).
+	 *
+	 * @param shape Shape of the distribution (or tail index). The mean is finite only if it is greater than one
+	 * @param scale Scale of the distribution (the minimum value)
+	 * @return Pareto value
+	 */
+	public double nextPareto(double shape, double scale)
+	{
+		return scale / Math.pow(1 - generator.nextDouble(), 1 / shape);
+	}
+}
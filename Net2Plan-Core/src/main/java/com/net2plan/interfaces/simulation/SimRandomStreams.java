@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.interfaces.simulation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Gives independent streams of random numbers (see {@link SimRandomStream}) to the components of a simulation, all of them derived from a single seed.
+ * Each stream is identified by a name (e.g. {@code "connectionArrivals"}, or the name plus an index, such as the SRG id), and its seed only depends on
+ * the seed of the simulation and that name. Then, the numbers drawn by a component do not depend on the order in which the streams are requested,
+ * or on how many numbers other components drew, and parallel replicas of a simulation give the same results for the same seed, regardless of the
+ * scheduling of their threads.</p>
+ *
+ * <p>The event generators and processors get the streams of the simulation kernel through
+ * {@link com.net2plan.internal.sim.ISimExternal#getRandomStream(String) getRandomStream()}. Algorithms with their own seed parameter can create their own:</p>
+ *
+ * <pre>
+ * SimRandomStreams randomStreams = new SimRandomStreams(randomSeed);
+ * double interArrivalTime = randomStreams.getStream("connectionArrivals").nextExponential(meanInterArrivalTime);
+ * double timeToFail = randomStreams.getStream("srg", srg.getId()).nextExponential(srg.getMeanTimeToFailInHours());
+ * </pre>
+ *
+ * <p>This class is thread-safe, while the streams are not: each stream should be used by one thread.</p>
+ *
+ * @since 0.6.5
+ */
+public final class SimRandomStreams
+{
+	private final long seed;
+	private final ConcurrentMap<String, SimRandomStream> streams = new ConcurrentHashMap<String, SimRandomStream>();
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param seed Seed from which the seeds of the streams are derived
+	 */
+	public SimRandomStreams(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the seed from which the seeds of the streams are derived.
+	 *
+	 * @return Seed
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Returns the stream with the given name, creating it the first time it is requested. Later calls return the same stream (not a new one starting again).
+	 *
+	 * @param name Stream name
+	 * @return The stream
+	 */
+	public SimRandomStream getStream(String name)
+	{
+		SimRandomStream stream = streams.get(name);
+		if (stream != null) return stream;
+		stream = new SimRandomStream(getStreamSeed(name));
+		final SimRandomStream previousStream = streams.putIfAbsent(name, stream);
+		return previousStream == null ? stream : previousStream;
+	}
+
+	/**
+	 * Returns the stream with the given name and index (e.g. the stream of the failures of an SRG, given by its id).
+	 *
+	 * @param name Stream name
+	 * @param index Index of the stream
+	 * @return The stream
+	 */
+	public SimRandomStream getStream(String name, long index)
+	{
+		return getStream(name + '#' + index);
+	}
+
+	/**
+	 * Returns a new stream, whose seed is derived from the given name as in {@link #getStream(String) getStream()}, but it is not kept. Then, each call
+	 * returns a stream starting again from the beginning.
+	 *
+	 * @param name Stream name
+	 * @return New stream
+	 */
+	public SimRandomStream newStream(String name)
+	{
+		return new SimRandomStream(getStreamSeed(name));
+	}
+
+	/* The seed mixed with a 64-bit hash of the name, and scrambled with the finalizer of SplitMix64, so that similar names give unrelated seeds */
+	private long getStreamSeed(String name)
+	{
+		long nameHash = 0xcbf29ce484222325L; // FNV-1a
+		for (int cont = 0; cont < name.length(); cont++)
+		{
+			nameHash ^= name.charAt(cont);
+			nameHash *= 0x100000001b3L;
+		}
+		return mix64(seed + mix64(nameHash) * 0x9e3779b97f4a7c15L);
+	}
+
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
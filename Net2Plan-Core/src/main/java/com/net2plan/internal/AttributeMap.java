@@ -1,7 +1,7 @@
 /*******************************************************************************
  * Copyright (c) 2017 Pablo Pavon Marino and others.
  * All rights reserved. This program and the accompanying materials
- * are made available under the terms of the 2-clause BSD License 
+ * are made available under the terms of the 2-clause BSD License
  * which accompanies this distribution, and is available at
  * https://opensource.org/licenses/BSD-2-Clause
  *
@@ -11,39 +11,73 @@
 
 
 
- 
+
 
 
 
 
 package com.net2plan.internal;
 
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
- * Extends {@code TreeMap} to forbid 'null or empty' keys.
- * 
+ * <p>Map of attributes of a network element, sorted by key, that forbids 'null or empty' keys.</p>
+ *
+ * <p>Network elements usually have a few attributes, and the same keys are repeated in many elements. Then, the entries are stored in two
+ * sorted arrays (keys and values), and the keys are interned, so that all the elements share the same key instances.</p>
+ *
+ * <p>The values are always seen as strings through the {@code Map} interface, but they can be stored in typed form (see {@link #putNumber(String, Number)}
+ * and {@link #putDoubles(String, double[], String)}): then, {@link #getDouble(String)} and {@link #getDoubles(String)} return them without parsing, and
+ * the string is only created when it is first read (e.g. when the design is saved). A string value made of numbers separated by spaces (e.g. the attributes
+ * read from a file) is parsed once, when put, and stored in typed form together with the original string, which is the one returned by {@link #get(Object)}.
+ * Other string values are parsed in each call.</p>
+ *
+ * <p>Reading the map never changes its entries, so a map that is not modified (e.g. in a read-only copy of a design) can be read by several threads. The only
+ * state filled when reading is the string form of a typed value, computed from the immutable typed value: concurrent readers may compute it twice,
+ * but always equal.</p>
+ *
+ * <p>The maps returned by {@link #subMap(String, String)}, {@link #headMap(String)} and {@link #tailMap(String)} are copies, not views of this map.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.3.0
  */
-public class AttributeMap extends TreeMap<String, String>
+public class AttributeMap extends AbstractMap<String, String> implements SortedMap<String, String>, Serializable
 {
-	private static final long serialVersionUID = 1L;
-	
+	private static final long serialVersionUID = 2L;
+	private static final String [] NO_KEYS = new String [0];
+	private static final Object [] NO_VALUES = new Object [0];
+
+	private String [] keys;
+	private Object [] values; // String, or TypedValue
+	private int size;
+	private transient int modCount;
+
 	/**
 	 * Default constructor.
-	 * 
+	 *
 	 * @since 0.3.0
 	 */
 	public AttributeMap()
 	{
-		super();
+		this.keys = NO_KEYS;
+		this.values = NO_VALUES;
+		this.size = 0;
 	}
 
 	/**
 	 * Constructor that copies the value set of the input map.
-	 * 
+	 *
 	 * @param m Map to be copied (if null, it will be initialized as empty)
 	 * @since 0.3.0
 	 */
@@ -52,20 +86,340 @@ public class AttributeMap extends TreeMap<String, String>
 		this();
 
 		if (m == null) return;
-		for (Map.Entry<String, String> entry : m.entrySet()) put(new String (entry.getKey()), new String (entry.getValue()));
+		putAll(m);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public String get(Object key)
+	{
+		final int index = indexOf(key);
+		return index < 0 ? null : getString(index);
 	}
 
 	@Override
 	public String put(String key, String value)
 	{
-		if (key == null || key.isEmpty()) throw new RuntimeException("Key cannot be null or empty");
-		return super.put(key, value);
+		final int index = indexOf(key);
+		final String previousValue = index < 0 ? null : getString(index);
+		setValue(key, index, parseIfNumeric(value));
+		return previousValue;
 	}
-	
+
 	@Override
 	public void putAll(Map<? extends String, ? extends String> m)
 	{
 		if (m == null) { clear(); return; }
-		super.putAll(m);
+		if (m instanceof AttributeMap && isEmpty())
+		{
+			/* the typed values are immutable (except for their string form, computed from the value), and can be shared */
+			final AttributeMap other = (AttributeMap) m;
+			this.keys = Arrays.copyOf(other.keys, other.size);
+			this.values = Arrays.copyOf(other.values, other.size);
+			this.size = other.size;
+			modCount++;
+			return;
+		}
+		for (Map.Entry<? extends String, ? extends String> entry : m.entrySet()) put(entry.getKey(), entry.getValue());
+	}
+
+	@Override
+	public String remove(Object key)
+	{
+		final int index = indexOf(key);
+		if (index < 0) return null;
+		final String previousValue = getString(index);
+		removeAt(index);
+		return previousValue;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * <p>Sets the value of an attribute, as a number. The string value of the attribute is {@code value.toString()}.</p>
+	 *
+	 * @param key Attribute name
+	 * @param value Value
+	 */
+	public void putNumber(String key, Number value)
+	{
+		if (value instanceof Double || value instanceof Long || value instanceof Integer)
+			setValue(key, indexOf(key), new TypedValue(value, null));
+		else
+			setValue(key, indexOf(key), value.toString());
+	}
+
+	/**
+	 * <p>Sets the value of an attribute, as a list of numbers.</p>
+	 *
+	 * @param key Attribute name
+	 * @param value Values (the array is not copied, and should not be modified later)
+	 * @param stringValue String value of the attribute, or {@code null} if it is the values written with {@link Double#toString(double)}, and separated by spaces
+	 */
+	public void putDoubles(String key, double [] value, String stringValue)
+	{
+		setValue(key, indexOf(key), new TypedValue(value, stringValue));
+	}
+
+	/**
+	 * <p>Returns the value of an attribute parsed as a number.</p>
+	 *
+	 * @param key Attribute name
+	 * @return The value, or {@code null} if the attribute is not defined
+	 * @throws NumberFormatException If the value is not a number
+	 */
+	public Double getDouble(String key)
+	{
+		final int index = indexOf(key);
+		if (index < 0) return null;
+		final Object value = values [index];
+		if (value instanceof TypedValue)
+		{
+			final Object typedValue = ((TypedValue) value).value;
+			if (typedValue instanceof Double) return (Double) typedValue;
+			if (typedValue instanceof Number) return ((Number) typedValue).doubleValue();
+		}
+		return Double.parseDouble(getString(index));
+	}
+
+	/**
+	 * <p>Returns the value of an attribute parsed as a list of numbers separated by spaces.</p>
+	 *
+	 * @param key Attribute name
+	 * @return The values (the array should not be modified, since it is the stored one if the value is kept in typed form), or {@code null} if the attribute is not defined
+	 * @throws NumberFormatException If the value is not a list of numbers
+	 */
+	public double [] getDoubles(String key)
+	{
+		final int index = indexOf(key);
+		if (index < 0) return null;
+		final Object value = values [index];
+		if (value instanceof TypedValue)
+		{
+			final Object typedValue = ((TypedValue) value).value;
+			if (typedValue instanceof double []) return (double []) typedValue;
+			if (typedValue instanceof Number) return new double [] { ((Number) typedValue).doubleValue() };
+		}
+		final String stringValue = getString(index);
+		if (stringValue == null) throw new NumberFormatException("null");
+		final String [] parts = stringValue.split(" ", -1);
+		double [] res = new double [parts.length];
+		int numValues = 0;
+		for (String part : parts)
+		{
+			if (part.equals("")) continue;
+			res [numValues ++] = Double.parseDouble(part);
+		}
+		if (numValues != res.length) res = Arrays.copyOf(res, numValues);
+		return res;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<String, String>>()
+		{
+			@Override
+			public int size()
+			{
+				return size;
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator()
+			{
+				return new Iterator<Map.Entry<String, String>>()
+				{
+					private int next = 0;
+					private int last = -1;
+					private int expectedModCount = modCount;
+
+					@Override
+					public boolean hasNext()
+					{
+						return next < size;
+					}
+
+					@Override
+					public Map.Entry<String, String> next()
+					{
+						if (modCount != expectedModCount) throw new ConcurrentModificationException();
+						if (next >= size) throw new NoSuchElementException();
+						last = next++;
+						return new AbstractMap.SimpleImmutableEntry<>(keys [last], getString(last));
+					}
+
+					@Override
+					public void remove()
+					{
+						if (last < 0) throw new IllegalStateException();
+						if (modCount != expectedModCount) throw new ConcurrentModificationException();
+						removeAt(last);
+						next = last;
+						last = -1;
+						expectedModCount = modCount;
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Comparator<? super String> comparator()
+	{
+		return null;
+	}
+
+	@Override
+	public String firstKey()
+	{
+		if (size == 0) throw new NoSuchElementException();
+		return keys [0];
+	}
+
+	@Override
+	public String lastKey()
+	{
+		if (size == 0) throw new NoSuchElementException();
+		return keys [size - 1];
+	}
+
+	@Override
+	public SortedMap<String, String> subMap(String fromKey, String toKey)
+	{
+		return new TreeMap<>(this).subMap(fromKey, toKey);
+	}
+
+	@Override
+	public SortedMap<String, String> headMap(String toKey)
+	{
+		return new TreeMap<>(this).headMap(toKey);
+	}
+
+	@Override
+	public SortedMap<String, String> tailMap(String fromKey)
+	{
+		return new TreeMap<>(this).tailMap(fromKey);
+	}
+
+	private int indexOf(Object key)
+	{
+		if (!(key instanceof String)) return -1;
+		return Arrays.binarySearch(keys, 0, size, (String) key);
+	}
+
+	private String getString(int index)
+	{
+		final Object value = values [index];
+		return value instanceof TypedValue ? ((TypedValue) value).getString() : (String) value;
+	}
+
+	/* The value in typed form, if it is a number or a list of numbers separated by spaces (in the form accepted by getDouble and getDoubles), keeping the
+	 * original string. Otherwise (also for special values like NaN, which are still parsed when read), the same string */
+	private static Object parseIfNumeric(String value)
+	{
+		if (value == null) return null;
+		boolean hasDigits = false;
+		for (int cont = 0; cont < value.length(); cont++)
+		{
+			final char c = value.charAt(cont);
+			if (c >= '0' && c <= '9') hasDigits = true;
+			else if (c != ' ' && c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') return value;
+		}
+		if (!hasDigits) return value;
+		final String [] parts = value.split(" ", -1);
+		double [] res = new double [parts.length];
+		int numValues = 0;
+		try
+		{
+			for (String part : parts)
+			{
+				if (part.equals("")) continue;
+				res [numValues ++] = Double.parseDouble(part);
+			}
+		} catch (NumberFormatException e) { return value; }
+		if (numValues == 1) return new TypedValue(res [0], value);
+		return new TypedValue(numValues == res.length ? res : Arrays.copyOf(res, numValues), value);
+	}
+
+	/* index is the result of indexOf(key) */
+	private void setValue(String key, int index, Object value)
+	{
+		if (index >= 0) { values [index] = value; return; }
+		if (key == null || key.isEmpty()) throw new RuntimeException("Key cannot be null or empty");
+		final int insertionPoint = -index - 1;
+		if (size == keys.length)
+		{
+			final int newCapacity = size < 4 ? 4 : size + (size >> 1);
+			keys = Arrays.copyOf(keys, newCapacity);
+			values = Arrays.copyOf(values, newCapacity);
+		}
+		System.arraycopy(keys, insertionPoint, keys, insertionPoint + 1, size - insertionPoint);
+		System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+		keys [insertionPoint] = key.intern();
+		values [insertionPoint] = value;
+		size++;
+		modCount++;
+	}
+
+	private void removeAt(int index)
+	{
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		keys [size] = null;
+		values [size] = null;
+		modCount++;
+	}
+
+	/**
+	 * A value stored in typed form (a {@code Double}, {@code Long}, {@code Integer} or {@code double []}), and its string form, created when needed.
+	 */
+	private static final class TypedValue implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final Object value;
+		private String string;
+
+		private TypedValue(Object value, String string)
+		{
+			this.value = value;
+			this.string = string;
+		}
+
+		private String getString()
+		{
+			if (string != null) return string;
+			if (value instanceof double [])
+			{
+				final StringBuilder st = new StringBuilder();
+				for (double val : (double []) value)
+				{
+					if (st.length() > 0) st.append(' ');
+					st.append(val);
+				}
+				string = st.toString();
+			}
+			else string = value.toString();
+			return string;
+		}
 	}
 }
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Hash map from primitive {@code long} keys to non-null objects, using open addressing with linear probing.
+ * Keys are not boxed, so that look-ups by identifier do not allocate, and take constant expected time.</p>
+ *
+ * <p>The iteration order of {@link #values()} is not specified. This class is not thread-safe.</p>
+ *
+ * @param <V> Value type
+ * @since 0.6.5
+ */
+public final class LongObjectHashMap<V>
+{
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private Object[] values; // a null value marks an empty bucket
+	private int size, mask, resizeThreshold;
+
+	/**
+	 * Default constructor.
+	 */
+	public LongObjectHashMap()
+	{
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns the value associated to the key, or {@code null} if none.
+	 *
+	 * @param key Key
+	 * @return Value, or {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key)
+	{
+		for (int bucket = bucketOf(key); ; bucket = (bucket + 1) & mask)
+		{
+			final Object value = values[bucket];
+			if (value == null) return null;
+			if (keys[bucket] == key) return (V) value;
+		}
+	}
+
+	/**
+	 * Indicates whether the key is in the map.
+	 *
+	 * @param key Key
+	 * @return {@code true} if the key is in the map, {@code false} otherwise
+	 */
+	public boolean containsKey(long key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Associates a value to the key, replacing the previous one, if any.
+	 *
+	 * @param key Key
+	 * @param value Value (cannot be {@code null})
+	 * @return Previous value, or {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value)
+	{
+		if (value == null) throw new NullPointerException("Null values are not allowed");
+
+		int bucket = bucketOf(key);
+		for (; values[bucket] != null; bucket = (bucket + 1) & mask)
+		{
+			if (keys[bucket] == key)
+			{
+				final V previous = (V) values[bucket];
+				values[bucket] = value;
+				return previous;
+			}
+		}
+
+		keys[bucket] = key;
+		values[bucket] = value;
+		if (++size > resizeThreshold) rehash(2 * values.length);
+		return null;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 *
+	 * @param key Key
+	 * @return Removed value, or {@code null} if the key was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key)
+	{
+		int bucket = bucketOf(key);
+		for (; ; bucket = (bucket + 1) & mask)
+		{
+			if (values[bucket] == null) return null;
+			if (keys[bucket] == key) break;
+		}
+
+		final V removed = (V) values[bucket];
+
+		/* Backward-shift deletion: move later entries of the probe sequence into the gap, so no tombstones are needed */
+		int gap = bucket;
+		for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask)
+		{
+			final int home = bucketOf(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask))
+			{
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+		values[gap] = null;
+		size--;
+		return removed;
+	}
+
+	/**
+	 * Removes all the entries, keeping the current capacity.
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return Number of entries
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Indicates whether the map is empty.
+	 *
+	 * @return {@code true} if the map has no entries, {@code false} otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns a new list with the values of the map, in no particular order.
+	 *
+	 * @return List of values
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values()
+	{
+		final List<V> res = new ArrayList<V>(size);
+		for (Object value : values)
+			if (value != null) res.add((V) value);
+		return res;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder("{");
+		for (int bucket = 0; bucket < values.length; bucket++)
+		{
+			if (values[bucket] == null) continue;
+			if (sb.length() > 1) sb.append(", ");
+			sb.append(keys[bucket]).append('=').append(values[bucket]);
+		}
+		return sb.append('}').toString();
+	}
+
+	private int bucketOf(long key)
+	{
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		resizeThreshold = capacity / 2;
+	}
+
+	private void rehash(int newCapacity)
+	{
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(newCapacity);
+		for (int bucket = 0; bucket < oldValues.length; bucket++)
+		{
+			if (oldValues[bucket] == null) continue;
+			int newBucket = bucketOf(oldKeys[bucket]);
+			while (values[newBucket] != null) newBucket = (newBucket + 1) & mask;
+			keys[newBucket] = oldKeys[bucket];
+			values[newBucket] = oldValues[bucket];
+		}
+	}
+}
@@ -23,7 +23,9 @@ import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.utils.StringUtils;
 
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 /**
@@ -37,23 +39,82 @@ import java.util.PriorityQueue;
  * <li>3. Insertion order (first in, first out)</li>
  * </ul>
  *
+ * <p>The underlying priority queue is selected through {@link FutureEventListType FutureEventListType}:
+ * a binary heap (O(log n) operations, the default), or a calendar queue (O(1)
+ * amortized operations, recommended for long simulations with many pending events).</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.0
  */
 public final class FutureEventList
 {
-	private final PriorityQueue<SimEvent> futureEventList;
+	/**
+	 * Available implementations of the future event list.
+	 *
+	 * @since 0.6.5
+	 */
+	public enum FutureEventListType
+	{
+		/**
+		 * Binary heap, with O(log n) enqueue and dequeue operations.
+		 *
+		 * @since 0.6.5
+		 */
+		BINARY_HEAP("binaryHeap"),
+
+		/**
+		 * Calendar queue, with O(1) amortized enqueue and dequeue operations.
+		 *
+		 * @since 0.6.5
+		 */
+		CALENDAR_QUEUE("calendarQueue");
+
+		private final String label;
+		private FutureEventListType(String label) { this.label = label; }
+
+		@Override
+		public String toString() { return label; }
+
+		/**
+		 * Returns the type associated to the given label.
+		 *
+		 * @param label Label (e.g. {@code binaryHeap}, {@code calendarQueue})
+		 * @return Future event list type
+		 * @since 0.6.5
+		 */
+		public static FutureEventListType fromLabel(String label)
+		{
+			for (FutureEventListType type : values())
+				if (type.label.equals(label)) return type;
+
+			throw new Net2PlanException("Unknown future event list type: " + label);
+		}
+	}
+
+	private FutureEventListType type;
+	private FutureEventQueue futureEventList;
 	private double currentTime;
 	private long eventsProcessed;
 
 	/**
-	 * Default constructor.
+	 * Default constructor. The future event list is backed by a binary heap.
 	 *
 	 * @since 0.2.0
 	 */
 	public FutureEventList()
 	{
-		futureEventList = new PriorityQueue<SimEvent>();
+		this(FutureEventListType.BINARY_HEAP);
+	}
+
+	/**
+	 * Constructor that allows to select the future event list implementation.
+	 *
+	 * @param type Future event list type
+	 * @since 0.6.5
+	 */
+	public FutureEventList(FutureEventListType type)
+	{
+		setFutureEventListType(type);
 		reset();
 	}
 	
@@ -62,8 +123,7 @@ public final class FutureEventList
 	{
 		StringBuilder out = new StringBuilder();
 		
-		Iterator<SimEvent> it = futureEventList.iterator();
-		while(it.hasNext()) out.append(it.next());
+		for (SimEvent event : futureEventList.getOrderedEvents()) out.append(event);
 		
 		return out.toString();
 	}
@@ -142,7 +202,7 @@ public final class FutureEventList
 			return -1;
 		}
 
-		return futureEventList.peek().getEventTime();
+		return futureEventList.peekEntry().time;
 	}
 
 	/**
@@ -154,9 +214,9 @@ public final class FutureEventList
 	 */
 	public SimEvent getNextEvent()
 	{
-		if (futureEventList.isEmpty()) return null;
+		if (futureEventList.size() == 0) return null;
 
-		SimEvent nextEvent = futureEventList.poll();
+		SimEvent nextEvent = futureEventList.pollEntry().event;
 		currentTime = nextEvent.getEventTime();
 		eventsProcessed++;
 
@@ -185,18 +245,51 @@ public final class FutureEventList
 		return eventsProcessed;
 	}
 
+	/**
+	 * Returns the type of the future event list implementation.
+	 *
+	 * @return Future event list type
+	 * @since 0.6.5
+	 */
+	public FutureEventListType getFutureEventListType()
+	{
+		return type;
+	}
+
 	/**
 	 * <p>Returns the whole future event list.</p>
 	 *
-	 * <p><b>Important</b>: It is the original future event list, changes by user
-	 * are not checked, so it is discouraged at all.</p>
+	 * <p><b>Important</b>: Since the future event list can be backed by a calendar queue, it is a copy of the pending events:
+	 * changes in it do not affect the simulation. Its comparator returns the order in which the events will be processed.
+	 * Use {@link #getPendingEventsInOrder()} to obtain the events already sorted.</p>
 	 *
 	 * @return Future event list
 	 * @since 0.2.0
 	 */
 	public PriorityQueue<SimEvent> getPendingEvents()
 	{
-		return futureEventList;
+		final List<SimEvent> events = futureEventList.getOrderedEvents();
+		final Map<SimEvent, Integer> position = new IdentityHashMap<SimEvent, Integer>();
+		for (int cont = 0; cont < events.size(); cont++) position.put(events.get(cont), cont);
+		final PriorityQueue<SimEvent> res = new PriorityQueue<SimEvent>(Math.max(1, events.size()), (e1, e2) ->
+		{
+			final int compare = e1.compareTo(e2);
+			if (compare != 0) return compare;
+			return Integer.compare(position.getOrDefault(e1, Integer.MAX_VALUE), position.getOrDefault(e2, Integer.MAX_VALUE));
+		});
+		res.addAll(events);
+		return res;
+	}
+
+	/**
+	 * <p>Returns a copy of the pending events, sorted in the order they will be processed.</p>
+	 *
+	 * @return Pending events
+	 * @since 0.6.5
+	 */
+	public List<SimEvent> getPendingEventsInOrder()
+	{
+		return futureEventList.getOrderedEvents();
 	}
 
 	/**
@@ -207,7 +300,7 @@ public final class FutureEventList
 	 */
 	public boolean hasMoreEvents()
 	{
-		return !futureEventList.isEmpty();
+		return futureEventList.size() != 0;
 	}
 
 	/**
@@ -221,6 +314,29 @@ public final class FutureEventList
 		futureEventList.remove(event);
 	}
 
+	/**
+	 * <p>Sets the implementation of the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed when there are no pending events.</p>
+	 *
+	 * @param type Future event list type
+	 * @since 0.6.5
+	 */
+	public void setFutureEventListType(FutureEventListType type)
+	{
+		if (type == null) throw new Net2PlanException("Future event list type cannot be null");
+		if (futureEventList != null && hasMoreEvents()) throw new Net2PlanException("Future event list type cannot be changed while there are pending events");
+		if (type == this.type) return;
+
+		this.type = type;
+		switch (type)
+		{
+			case BINARY_HEAP: futureEventList = new FutureEventQueue_binaryHeap(); break;
+			case CALENDAR_QUEUE: futureEventList = new FutureEventQueue_calendarQueue(); break;
+			default: throw new RuntimeException("Bad");
+		}
+	}
+
 	/**
 	 * Resets the future event list.
 	 *
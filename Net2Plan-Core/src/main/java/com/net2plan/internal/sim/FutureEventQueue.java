@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Base class for the priority queues backing the {@link FutureEventList FutureEventList}.</p>
+ *
+ * <p>Events are wrapped into entries that carry an insertion sequence number, so
+ * that every implementation honors the same order: event time, then event
+ * priority (higher first), then insertion order.</p>
+ *
+ * @since 0.6.5
+ */
+abstract class FutureEventQueue
+{
+	/**
+	 * Node of the queue, holding the event and its insertion sequence number.
+	 *
+	 * @since 0.6.5
+	 */
+	static final class Entry
+	{
+		final SimEvent event;
+		final double time;
+		final int priority;
+		final long seq;
+		long bucket;
+		Entry next;
+
+		Entry(SimEvent event, long seq)
+		{
+			this.event = event;
+			this.time = event.getEventTime();
+			this.priority = event.getEventPriority();
+			this.seq = seq;
+		}
+
+		boolean precedes(Entry e)
+		{
+			if (time != e.time) return time < e.time;
+			if (priority != e.priority) return priority > e.priority;
+			return seq < e.seq;
+		}
+	}
+
+	static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>()
+	{
+		@Override
+		public int compare(Entry e1, Entry e2)
+		{
+			if (e1 == e2) return 0;
+			return e1.precedes(e2) ? -1 : 1;
+		}
+	};
+
+	private long nextSeq = 0;
+
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param event Event to be added
+	 */
+	final void add(SimEvent event)
+	{
+		offer(new Entry(event, nextSeq++));
+	}
+
+	/**
+	 * Returns the events currently in the queue, in dequeue order.
+	 *
+	 * @return Ordered list of pending events
+	 */
+	final List<SimEvent> getOrderedEvents()
+	{
+		List<Entry> entries = entries();
+		Collections.sort(entries, ENTRY_ORDER);
+		List<SimEvent> res = new ArrayList<SimEvent>(entries.size());
+		for (Entry e : entries) res.add(e.event);
+		return res;
+	}
+
+	/**
+	 * Removes all the events.
+	 */
+	final void clear()
+	{
+		nextSeq = 0;
+		clearEntries();
+	}
+
+	abstract void offer(Entry entry);
+	abstract Entry peekEntry();
+	abstract Entry pollEntry();
+	abstract boolean remove(SimEvent event);
+	abstract int size();
+	abstract List<Entry> entries();
+	abstract void clearEntries();
+}
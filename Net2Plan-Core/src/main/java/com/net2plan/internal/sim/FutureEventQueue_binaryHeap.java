@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * Future event queue backed by a binary heap ({@code java.util.PriorityQueue}).
+ * Enqueue and dequeue operations are O(log n).
+ *
+ * @since 0.6.5
+ */
+final class FutureEventQueue_binaryHeap extends FutureEventQueue
+{
+	private final PriorityQueue<Entry> heap = new PriorityQueue<Entry>(11, ENTRY_ORDER);
+
+	@Override
+	void offer(Entry entry)
+	{
+		heap.add(entry);
+	}
+
+	@Override
+	Entry peekEntry()
+	{
+		return heap.peek();
+	}
+
+	@Override
+	Entry pollEntry()
+	{
+		return heap.poll();
+	}
+
+	@Override
+	boolean remove(SimEvent event)
+	{
+		Iterator<Entry> it = heap.iterator();
+		while (it.hasNext())
+		{
+			if (it.next().event == event)
+			{
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	int size()
+	{
+		return heap.size();
+	}
+
+	@Override
+	List<Entry> entries()
+	{
+		return new ArrayList<Entry>(heap);
+	}
+
+	@Override
+	void clearEntries()
+	{
+		heap.clear();
+	}
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Future event queue implemented as a calendar queue, with O(1) amortized
+ * enqueue and dequeue operations.</p>
+ *
+ * <p>The time axis is divided into "days" of a given width, which are mapped
+ * circularly to an array of buckets (the "calendar"). Each bucket keeps its
+ * events in a sorted linked list. The number of buckets doubles (halves) when
+ * the number of events grows over (falls below) twice (half) the number of
+ * buckets, and at that moment the day width is re-estimated from the
+ * separation between the head events.</p>
+ *
+ * @see <a href="https://doi.org/10.1145/63039.63045">R. Brown, "Calendar queues: a fast O(1) priority queue implementation for the simulation event set problem," <i>Communications of the ACM</i>, vol. 31, no. 10, pp. 1220-1227, 1988</a>
+ * @since 0.6.5
+ */
+final class FutureEventQueue_calendarQueue extends FutureEventQueue
+{
+	private final static int MIN_NUMBER_OF_BUCKETS = 2;
+	private final static int MAX_NUMBER_OF_BUCKETS = 1 << 30;
+	private final static int NUMBER_OF_SAMPLES_FOR_WIDTH = 25;
+
+	private Entry[] heads;
+	private Entry[] tails;
+	private int mask;
+	private double width;
+	private int size;
+	private long currentDay;
+	private Entry cachedMin;
+	private int cachedMinBucket;
+
+	FutureEventQueue_calendarQueue()
+	{
+		initializeCalendar(MIN_NUMBER_OF_BUCKETS, 1.0);
+	}
+
+	@Override
+	void offer(Entry entry)
+	{
+		insert(entry);
+		size++;
+		if (size > 2 * heads.length && heads.length < MAX_NUMBER_OF_BUCKETS) resize(2 * heads.length);
+	}
+
+	@Override
+	Entry peekEntry()
+	{
+		return size == 0 ? null : findMin();
+	}
+
+	@Override
+	Entry pollEntry()
+	{
+		if (size == 0) return null;
+		final Entry min = pollEntryWithoutResize();
+		if (size < heads.length / 2 && heads.length > MIN_NUMBER_OF_BUCKETS) resize(heads.length / 2);
+		return min;
+	}
+
+	@Override
+	boolean remove(SimEvent event)
+	{
+		final int b = (int) (dayOf(event.getEventTime()) & mask);
+		Entry prev = null;
+		for (Entry e = heads[b]; e != null; prev = e, e = e.next)
+		{
+			if (e.event != event) continue;
+			if (prev == null) heads[b] = e.next; else prev.next = e.next;
+			if (tails[b] == e) tails[b] = prev;
+			e.next = null;
+			if (cachedMin == e) cachedMin = null;
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	int size()
+	{
+		return size;
+	}
+
+	@Override
+	List<Entry> entries()
+	{
+		List<Entry> res = new ArrayList<Entry>(size);
+		for (Entry head : heads)
+			for (Entry e = head; e != null; e = e.next)
+				res.add(e);
+		return res;
+	}
+
+	@Override
+	void clearEntries()
+	{
+		initializeCalendar(MIN_NUMBER_OF_BUCKETS, 1.0);
+	}
+
+	private long dayOf(double time)
+	{
+		return (long) (time / width);
+	}
+
+	private void initializeCalendar(int numberOfBuckets, double newWidth)
+	{
+		heads = new Entry[numberOfBuckets];
+		tails = new Entry[numberOfBuckets];
+		mask = numberOfBuckets - 1;
+		width = newWidth;
+		size = 0;
+		currentDay = 0;
+		cachedMin = null;
+	}
+
+	/* Inserts the entry in its bucket, keeping the bucket sorted. Appending at the tail (the usual case) is O(1) */
+	private void insert(Entry entry)
+	{
+		entry.bucket = dayOf(entry.time);
+		entry.next = null;
+		final int b = (int) (entry.bucket & mask);
+		if (size == 0 || entry.bucket < currentDay) currentDay = entry.bucket;
+
+		final Entry tail = tails[b];
+		if (tail == null)
+		{
+			heads[b] = entry;
+			tails[b] = entry;
+		}
+		else if (!entry.precedes(tail))
+		{
+			tail.next = entry;
+			tails[b] = entry;
+		}
+		else if (entry.precedes(heads[b]))
+		{
+			entry.next = heads[b];
+			heads[b] = entry;
+		}
+		else
+		{
+			Entry prev = heads[b];
+			while (!entry.precedes(prev.next)) prev = prev.next;
+			entry.next = prev.next;
+			prev.next = entry;
+		}
+
+		if (cachedMin != null && entry.precedes(cachedMin))
+		{
+			cachedMin = entry;
+			cachedMinBucket = b;
+		}
+	}
+
+	/* Scans one year of the calendar starting at the current day; falls back to a direct search if no event is found */
+	private Entry findMin()
+	{
+		if (cachedMin != null) return cachedMin;
+
+		for (int i = 0; i < heads.length; i++)
+		{
+			final long day = currentDay + i;
+			final int b = (int) (day & mask);
+			final Entry head = heads[b];
+			if (head != null && head.bucket == day)
+			{
+				currentDay = day;
+				cachedMin = head;
+				cachedMinBucket = b;
+				return head;
+			}
+		}
+
+		Entry best = null;
+		int bestBucket = -1;
+		for (int b = 0; b < heads.length; b++)
+		{
+			final Entry head = heads[b];
+			if (head != null && (best == null || head.precedes(best)))
+			{
+				best = head;
+				bestBucket = b;
+			}
+		}
+		currentDay = best.bucket;
+		cachedMin = best;
+		cachedMinBucket = bestBucket;
+		return best;
+	}
+
+	private void resize(int newNumberOfBuckets)
+	{
+		final double newWidth = estimateWidth();
+		final List<Entry> all = entries();
+		initializeCalendar(newNumberOfBuckets, newWidth);
+		for (Entry e : all)
+		{
+			insert(e);
+			size++;
+		}
+	}
+
+	/* Average separation between the first events, discarding large gaps, times three (Brown, 1988) */
+	private double estimateWidth()
+	{
+		final int numSamples = Math.min(size, NUMBER_OF_SAMPLES_FOR_WIDTH);
+		if (numSamples < 2) return width;
+
+		final Entry[] samples = new Entry[numSamples];
+		for (int i = 0; i < numSamples; i++)
+		{
+			samples[i] = pollEntryWithoutResize();
+		}
+		for (Entry e : samples)
+		{
+			insert(e);
+			size++;
+		}
+
+		final double averageSeparation = (samples[numSamples - 1].time - samples[0].time) / (numSamples - 1);
+		double sum = 0;
+		int count = 0;
+		for (int i = 1; i < numSamples; i++)
+		{
+			final double separation = samples[i].time - samples[i - 1].time;
+			if (separation <= 2 * averageSeparation)
+			{
+				sum += separation;
+				count++;
+			}
+		}
+
+		final double newWidth = count == 0 ? 0 : 3 * sum / count;
+		return newWidth > 0 && !Double.isInfinite(newWidth) ? newWidth : width;
+	}
+
+	private Entry pollEntryWithoutResize()
+	{
+		final Entry min = findMin();
+		final int b = cachedMinBucket;
+		heads[b] = min.next;
+		if (heads[b] == null) tails[b] = null;
+		min.next = null;
+		cachedMin = null;
+		size--;
+		return min;
+	}
+}
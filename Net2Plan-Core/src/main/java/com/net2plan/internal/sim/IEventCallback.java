@@ -47,6 +47,15 @@ public interface IEventCallback extends IGUISimulationListener
 	 */
 	public void finishTransitory(double currentSimTime);
 	
+	/**
+	 * Indicates whether the simulation is driven by a user interface, that may pause, step or stop it 
+	 * while running. Otherwise, the simulation core uses a faster loop without per-event synchronization.
+	 * 
+	 * @return {@code true} if the simulation is interactive, {@code false} otherwise
+	 * @since 0.6.5
+	 */
+	public boolean isInteractive();
+
 	/**
 	 * Processes a single event.
 	 * 
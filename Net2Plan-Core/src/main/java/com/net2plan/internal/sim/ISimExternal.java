@@ -22,11 +22,14 @@ package com.net2plan.internal.sim;
 
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.interfaces.simulation.SimEventPool;
+import com.net2plan.interfaces.simulation.SimRandomStream;
 import com.net2plan.internal.IExternal;
 import com.net2plan.utils.Triple;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Abstract class for any runnable code used into the online simulator, either 
@@ -99,6 +102,69 @@ public abstract class ISimExternal implements IExternal
 	@Override
 	public abstract String getDescription();
 
+	/**
+	 * <p>Returns the random number generator of the simulation kernel. Using it, instead of
+	 * algorithm-specific generators, makes each replication of a simulation depend only on the seed
+	 * given to the kernel.</p>
+	 * 
+	 * <p><b>Important</b>: It is available from the {@link #initialize(NetPlan, Map, Map, Map) initialize()} method on.</p>
+	 *
+	 * @return Random number generator
+	 * @since 0.6.5
+	 */
+	public Random getRandom()
+	{
+		if (simKernel == null) throw new RuntimeException("Bad");
+		return simKernel.getRandom();
+	}
+
+	/**
+	 * <p>Returns the pool of reusable events of the simulation kernel (see {@link SimEventPool}). Using it is optional, and reduces the
+	 * objects created in simulations with high event rates.</p>
+	 * 
+	 * <p><b>Important</b>: It is available from the {@link #initialize(NetPlan, Map, Map, Map) initialize()} method on.</p>
+	 *
+	 * @return Event pool
+	 * @since 0.6.5
+	 */
+	public SimEventPool getEventPool()
+	{
+		if (simKernel == null) throw new RuntimeException("Bad");
+		return simKernel.getEventPool();
+	}
+
+	/**
+	 * <p>Returns a stream of random numbers of this algorithm, independent of the streams of other algorithms and with other names (see
+	 * {@link com.net2plan.interfaces.simulation.SimRandomStreams SimRandomStreams}). It is derived from the seed given to the kernel and the
+	 * class and stream names, so that the numbers it gives do not depend on the random numbers drawn by other components.</p>
+	 * 
+	 * <p><b>Important</b>: It is available from the {@link #initialize(NetPlan, Map, Map, Map) initialize()} method on.</p>
+	 *
+	 * @param name Stream name (e.g. {@code "connectionArrivals"})
+	 * @return Random stream
+	 * @since 0.6.5
+	 */
+	public SimRandomStream getRandomStream(String name)
+	{
+		if (simKernel == null) throw new RuntimeException("Bad");
+		return simKernel.getRandomStreams().getStream(getClass().getName() + '.' + name);
+	}
+
+	/**
+	 * <p>Returns a stream of random numbers of this algorithm, given by a name and an index (e.g. the stream of the failures of an SRG, given by its id).
+	 * See {@link #getRandomStream(String)}.</p>
+	 *
+	 * @param name Stream name
+	 * @param index Index of the stream
+	 * @return Random stream
+	 * @since 0.6.5
+	 */
+	public SimRandomStream getRandomStream(String name, long index)
+	{
+		if (simKernel == null) throw new RuntimeException("Bad");
+		return simKernel.getRandomStreams().getStream(getClass().getName() + '.' + name, index);
+	}
+
 	/**
 	 * Returns the list of required parameters, where the first item of each element is the parameter name, the second one is the parameter value, and the third one is the parameter description.
 	 *
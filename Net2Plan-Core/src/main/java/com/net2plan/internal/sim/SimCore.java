@@ -18,6 +18,9 @@
 
 package com.net2plan.internal.sim;
 
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.internal.Constants.UserInterface;
@@ -99,8 +102,19 @@ public final class SimCore implements Runnable
 	private double totalSimTime;
 	private double totalTransitoryTime;
 	private boolean isInTransitory;
-	private SimState simulationState;
-	private boolean processingEvent;
+
+	/* Control plane: state changes requested from other threads wait for the event in process (if any) to finish,
+	 * and a paused simulation waits for the next state change. Both are signaled through the same condition. The
+	 * simulation thread only takes the lock at the end of an event if some thread is waiting for it */
+	private final ReentrantLock controlLock = new ReentrantLock();
+	private final Condition controlCondition = controlLock.newCondition();
+	private volatile SimState simulationState;
+	private volatile boolean processingEvent;
+	private volatile int numThreadsWaitingForEvent;
+	private volatile Thread simulationThread;
+
+	/* In headless simulations, the CPU time and the refresh timer are only checked after this number of events */
+	private final static int HEADLESS_REFRESH_CHECK_INTERVAL = 1024;
 
 	/**
 	 * Default constructor.
@@ -116,18 +130,35 @@ public final class SimCore implements Runnable
 		reset();
 	}
 
+	/**
+	 * <p>Runs the simulation loop, until the simulation is stopped.</p>
+	 * 
+	 * <p>If the callback is interactive (see {@link IEventCallback#isInteractive() isInteractive()}), state changes
+	 * requested from other threads (i.e. pause, step or stop) wait for the event in process to finish, so that they take
+	 * effect between events, and the CPU time and the refresh timer are checked after every event. Otherwise, the
+	 * loop only checks the simulation state after every event (e.g. to stop it from another thread), and the refresh
+	 * timer every 1024 events.</p>
+	 */
 	@Override
 	public void run()
 	{
 		if (simulationState == SimState.NOT_STARTED) throw new RuntimeException("Bad - Simulation not started yet");
 
+		simulationThread = Thread.currentThread();
+		final boolean interactive = callback.isInteractive();
+
 		isInTransitory = true;
 		if (totalTransitoryEvents == -1 && totalTransitoryTime == -1) isInTransitory = false;
-		while (simulationState != SimState.STOPPED)
+		while (simulationState == SimState.RUNNING || simulationState == SimState.STEP || simulationState == SimState.PAUSED)
 		{
+			long headlessStart = System.nanoTime();
+			int headlessEventsSinceCheck = 0;
+
 			while (futureEventList.hasMoreEvents())
 			{
-				synchronized (callback)
+				if (interactive && !beginEvent()) break;
+
+				try
 				{
 					double nextEventTime = futureEventList.getNextEventSimulationTime();
 					if (nextEventTime == -1) throw new RuntimeException("Bad");
@@ -144,22 +175,17 @@ public final class SimCore implements Runnable
 						}
 					}
 
-					if (totalSimTime != -1 && nextEventTime >= totalSimTime)
+					if ((totalSimTime != -1 && nextEventTime >= totalSimTime) || (totalSimEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalSimEvents))
 					{
+						if (!interactive) cpuTime += (System.nanoTime() - headlessStart) / 1e9;
 						setSimulationState(SimState.STOPPED, new EndSimulationException());
 						return; // this kills the thread
 					}
-					else if (totalSimEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalSimEvents)
-					{
-						setSimulationState(SimState.STOPPED, new EndSimulationException());
-						return;  // this kills the thread
-					}
 
 					/* Process next event in the future event list */
-					long start = System.nanoTime();
+					long start = interactive ? System.nanoTime() : 0;
 
 					SimEvent event = futureEventList.getNextEvent();
-					processingEvent = true;
 					
 					try
 					{
@@ -168,45 +194,67 @@ public final class SimCore implements Runnable
 					}
 					catch (Throwable e)
 					{
-						processingEvent = false;
+						if (interactive) endEvent();
+						cpuTime += ((double) (System.nanoTime() - (interactive ? start : headlessStart))) / 1e9;
 						setSimulationState(SimCore.SimState.STOPPED, e);
-
-						long end = System.nanoTime();
-						cpuTime += ((double) (end - start)) / 1e9;
 						callback.refresh(true);
 
 						return;  // this kills the thread
 					}
 
-					processingEvent = false;
-					long end = System.nanoTime();
-
-					cpuTime += ((double) (end - start)) / 1e9;
+					if (interactive)
+					{
+						long end = System.nanoTime();
+						cpuTime += ((double) (end - start)) / 1e9;
 
-					if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
+						if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
+						{
+							callback.refresh(false);
+							timeSinceLastRefresh = cpuTime;
+						}
+					}
+					else if (++headlessEventsSinceCheck == HEADLESS_REFRESH_CHECK_INTERVAL)
 					{
-						callback.refresh(false);
-						timeSinceLastRefresh = cpuTime;
+						long end = System.nanoTime();
+						cpuTime += ((double) (end - headlessStart)) / 1e9;
+						headlessStart = end;
+						headlessEventsSinceCheck = 0;
+
+						if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
+						{
+							callback.refresh(false);
+							timeSinceLastRefresh = cpuTime;
+						}
 					}
 
 					if (futureEventList.getNumberOfProcessedEvents() == Long.MAX_VALUE)
 					{
+						if (!interactive) cpuTime += (System.nanoTime() - headlessStart) / 1e9;
 						setSimulationState(SimState.STOPPED);
 						return;  // this kills the thread
 					}
+				}
+				finally
+				{
+					if (interactive) endEvent();
+				}
 
-					if (simulationState == SimState.STEP)
-					{
-						setSimulationState(SimState.PAUSED);
-					}
+				if (simulationState == SimState.STEP)
+				{
+					setSimulationState(SimState.PAUSED);
+				}
 
-					if (simulationState != SimState.RUNNING)
-					{
-						break;
-					}
+				if (simulationState != SimState.RUNNING)
+				{
+					break;
 				}
 			}
 
+			if (!interactive) cpuTime += (System.nanoTime() - headlessStart) / 1e9;
+
+			/* Stopped or reset from another thread */
+			if (simulationState != SimState.RUNNING && simulationState != SimState.STEP && simulationState != SimState.PAUSED) return;
+
 			callback.refresh(true);
 			timeSinceLastRefresh = cpuTime;
 
@@ -219,24 +267,59 @@ public final class SimCore implements Runnable
 			if (SystemUtils.getUserInterface() == UserInterface.CLI)
 			{
 				setSimulationState(SimState.STOPPED, new EndSimulationException());
+				return;  // this kills the thread
 			}
 
-			simulationState = SimState.PAUSED;
+			/* Wait (without polling) until the simulation is resumed, stepped, stopped or reset */
+			controlLock.lock();
+			try
+			{
+				while (simulationState == SimState.PAUSED)
+					controlCondition.await();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			finally
+			{
+				controlLock.unlock();
+			}
 
-			while (simulationState == SimState.PAUSED)
+			if (Thread.currentThread().isInterrupted())
 			{
-				try
-				{
-					Thread.sleep(1);
-				}
-				catch (InterruptedException ex)
-				{
-					setSimulationState(SimState.STOPPED);
-					break;
-				}
+				setSimulationState(SimState.STOPPED);
+				return;
 			}
 		}
 	}
+
+	/* Marks the start of the processing of an event, unless the simulation is not running anymore */
+	private boolean beginEvent()
+	{
+		processingEvent = true;
+		if (simulationState == SimState.RUNNING || simulationState == SimState.STEP) return true;
+
+		endEvent();
+		return false;
+	}
+
+	/* Marks the end of the processing of an event, waking up the threads waiting to change the simulation state */
+	private void endEvent()
+	{
+		processingEvent = false;
+		if (numThreadsWaitingForEvent == 0) return;
+
+		controlLock.lock();
+		try
+		{
+			controlCondition.signalAll();
+		}
+		finally
+		{
+			controlLock.unlock();
+		}
+	}
 	
 	private void checkSimulationNotStartedYet()
 	{
@@ -317,6 +400,20 @@ public final class SimCore implements Runnable
 		setSimulationState(SimState.NOT_STARTED);
 	}
 	
+	/**
+	 * <p>Sets the implementation of the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed before the simulation starts.</p>
+	 * 
+	 * @param type Future event list type
+	 * @since 0.6.5
+	 */
+	public void setFutureEventListType(FutureEventList.FutureEventListType type)
+	{
+		checkSimulationNotStartedYet();
+		futureEventList.setFutureEventListType(type);
+	}
+
 	/**
 	 * <p>Sets the time to refresh the simulation log.</p>
 	 *
@@ -418,7 +515,8 @@ public final class SimCore implements Runnable
 	}
 
 	/**
-	 * Sets the current simulation state.
+	 * Sets the current simulation state. If an event is being processed by the simulation thread of an interactive
+	 * simulation, it blocks until the event is finished.
 	 * 
 	 * @param simulationState Current simulation state
 	 * @since 0.2.0
@@ -430,11 +528,31 @@ public final class SimCore implements Runnable
 
 	private void setSimulationState(SimState simulationState, Throwable reason)
 	{
-		this.simulationState = simulationState;
-		while (processingEvent)
+		controlLock.lock();
+		try
+		{
+			this.simulationState = simulationState;
+
+			/* Requests from other threads take effect once the event in process (if any) is finished */
+			if (Thread.currentThread() != simulationThread)
+			{
+				numThreadsWaitingForEvent++;
+				try
+				{
+					while (processingEvent)
+						controlCondition.awaitUninterruptibly();
+				}
+				finally
+				{
+					numThreadsWaitingForEvent--;
+				}
+			}
+
+			controlCondition.signalAll();
+		}
+		finally
 		{
-			try { Thread.sleep(1); }
-			catch (Throwable e) { }
+			controlLock.unlock();
 		}
 
 		callback.simulationStateChanged(simulationState, reason);
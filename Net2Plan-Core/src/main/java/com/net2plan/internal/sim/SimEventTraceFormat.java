@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.MulticastDemand;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkElement;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.WDMUtils;
+import com.net2plan.utils.Constants.RoutingType;
+
+import cern.colt.matrix.tint.IntFactory2D;
+import cern.colt.matrix.tint.IntMatrix2D;
+
+/**
+ * <p>Binary format of the event traces written by {@link SimEventTraceWriter} and read by {@link SimEventTraceReplay}.</p>
+ *
+ * <p>The file starts with a magic number and the format version, followed by a sequence of records. Each record is a type byte, the
+ * length of its content in bytes, and the content:</p>
+ *
+ * <ul>
+ * <li>Event: time, priority, type, and the object of the event. The objects of the classes in {@link SimEvent} (e.g. {@link SimEvent.RouteAdd}) and
+ * {@link WDMUtils} (e.g. {@link WDMUtils.LightpathAdd}) are encoded with the identifiers of the network elements they refer to, and the rest with Java
+ * serialization. Pooled objects (e.g. {@link SimEvent.PooledRouteAdd}) are read as new objects of the same class, not taken from a pool. The events with
+ * other objects that are not serializable cannot be recorded (see {@link #canWriteEvent(SimEvent)}).</li>
+ * <li>Checkpoint: time, number of events recorded before it, and the design at that time in binary {@code .n2p} format.</li>
+ * <li>End: the time, number of events and file offset of each checkpoint, followed (out of the record) by the offset of the end record and the magic number.
+ * It is written when the trace is closed: a trace without it (e.g. of a simulation that crashed) is still readable.</li>
+ * </ul>
+ *
+ * @since 0.6.5
+ */
+final class SimEventTraceFormat
+{
+	static final int MAGIC_NUMBER = 0x4E325054; // "N2PT"
+	static final int VERSION = 1;
+	static final int HEADER_LENGTH = 8;
+	static final int TRAILER_LENGTH = 12;
+
+	static final byte RECORD_EVENT = 0;
+	static final byte RECORD_CHECKPOINT = 1;
+	static final byte RECORD_END = 2;
+
+	private static final byte OBJECT_NULL = 0;
+	private static final byte OBJECT_DEMAND_ADD = 1;
+	private static final byte OBJECT_DEMAND_REMOVE = 2;
+	private static final byte OBJECT_DEMAND_MODIFY = 3;
+	private static final byte OBJECT_MULTICAST_DEMAND_MODIFY = 4;
+	private static final byte OBJECT_ROUTE_ADD = 5;
+	private static final byte OBJECT_ROUTE_REMOVE = 6;
+	private static final byte OBJECT_ROUTE_MODIFY = 7;
+	private static final byte OBJECT_NODES_AND_LINKS_CHANGE_FAILURE_STATE = 8;
+	private static final byte OBJECT_LINK_ADD = 9;
+	private static final byte OBJECT_LINK_REMOVE = 10;
+	private static final byte OBJECT_LINK_MODIFY = 11;
+	private static final byte OBJECT_SERIALIZED = 12;
+	private static final byte OBJECT_POOLED_ROUTE_ADD = 13;
+	private static final byte OBJECT_POOLED_ROUTE_REMOVE = 14;
+	private static final byte OBJECT_LIGHTPATH_ADD = 15;
+	private static final byte OBJECT_LIGHTPATH_REMOVE = 16;
+	private static final byte OBJECT_LIGHTPATH_MODIFY = 17;
+
+	private static final Set<Class<?>> CLASSES_ENCODED_WITH_IDS = new HashSet<> (Arrays.asList(SimEvent.DemandAdd.class , SimEvent.DemandRemove.class ,
+			SimEvent.DemandModify.class , SimEvent.MulticastDemandModify.class , SimEvent.RouteAdd.class , SimEvent.RouteRemove.class , SimEvent.RouteModify.class ,
+			SimEvent.NodesAndLinksChangeFailureState.class , SimEvent.LinkAdd.class , SimEvent.LinkRemove.class , SimEvent.LinkModify.class ,
+			SimEvent.PooledRouteAdd.class , SimEvent.PooledRouteRemove.class , WDMUtils.LightpathAdd.class , WDMUtils.LightpathRemove.class , WDMUtils.LightpathModify.class));
+
+	private SimEventTraceFormat () { }
+
+	/* Indicates whether the object of the event can be written: it is null, of one of the classes encoded with the identifiers of the elements, or serializable */
+	static boolean canWriteEvent (SimEvent event)
+	{
+		final Object object = event.getEventObject();
+		return object == null || CLASSES_ENCODED_WITH_IDS.contains(object.getClass()) || object instanceof Serializable;
+	}
+
+	static void writeEvent (DataOutput out , SimEvent event) throws IOException
+	{
+		out.writeDouble(event.getEventTime());
+		out.writeInt(event.getEventPriority());
+		out.writeInt(event.getEventType());
+		final Object object = event.getEventObject();
+		if (object == null)
+		{
+			out.writeByte(OBJECT_NULL);
+		}
+		else if (object.getClass() == SimEvent.DemandAdd.class)
+		{
+			final SimEvent.DemandAdd o = (SimEvent.DemandAdd) object;
+			out.writeByte(OBJECT_DEMAND_ADD);
+			writeId(out , o.ingressNode); writeId(out , o.egressNode); writeId(out , o.layer);
+			out.writeDouble(o.offeredTraffic);
+			out.writeByte(o.routingType == null? -1 : o.routingType.ordinal());
+		}
+		else if (object.getClass() == SimEvent.DemandRemove.class)
+		{
+			out.writeByte(OBJECT_DEMAND_REMOVE);
+			writeId(out , ((SimEvent.DemandRemove) object).demand);
+		}
+		else if (object.getClass() == SimEvent.DemandModify.class)
+		{
+			final SimEvent.DemandModify o = (SimEvent.DemandModify) object;
+			out.writeByte(OBJECT_DEMAND_MODIFY);
+			writeId(out , o.demand); out.writeDouble(o.offeredTraffic); out.writeBoolean(o.modificationIsRelativeToCurrentOfferedTraffic);
+		}
+		else if (object.getClass() == SimEvent.MulticastDemandModify.class)
+		{
+			final SimEvent.MulticastDemandModify o = (SimEvent.MulticastDemandModify) object;
+			out.writeByte(OBJECT_MULTICAST_DEMAND_MODIFY);
+			writeId(out , o.demand); out.writeDouble(o.offeredTraffic); out.writeBoolean(o.modificationIsRelativeToCurrentOfferedTraffic);
+		}
+		else if (object.getClass() == SimEvent.RouteAdd.class)
+		{
+			final SimEvent.RouteAdd o = (SimEvent.RouteAdd) object;
+			out.writeByte(OBJECT_ROUTE_ADD);
+			writeId(out , o.demand); writeIds(out , o.seqLinks); out.writeDouble(o.carriedTraffic); out.writeDouble(o.occupiedLinkCapacity);
+		}
+		else if (object.getClass() == SimEvent.RouteRemove.class)
+		{
+			out.writeByte(OBJECT_ROUTE_REMOVE);
+			writeId(out , ((SimEvent.RouteRemove) object).route);
+		}
+		else if (object.getClass() == SimEvent.RouteModify.class)
+		{
+			final SimEvent.RouteModify o = (SimEvent.RouteModify) object;
+			out.writeByte(OBJECT_ROUTE_MODIFY);
+			writeId(out , o.route); writeIds(out , o.seqLinks); out.writeDouble(o.carriedTraffic); out.writeDouble(o.occupiedLinkCapacity);
+		}
+		else if (object.getClass() == SimEvent.NodesAndLinksChangeFailureState.class)
+		{
+			final SimEvent.NodesAndLinksChangeFailureState o = (SimEvent.NodesAndLinksChangeFailureState) object;
+			out.writeByte(OBJECT_NODES_AND_LINKS_CHANGE_FAILURE_STATE);
+			writeIds(out , o.nodesToUp); writeIds(out , o.nodesToDown); writeIds(out , o.linksToUp); writeIds(out , o.linksToDown);
+		}
+		else if (object.getClass() == SimEvent.LinkAdd.class)
+		{
+			final SimEvent.LinkAdd o = (SimEvent.LinkAdd) object;
+			out.writeByte(OBJECT_LINK_ADD);
+			writeId(out , o.originNode); writeId(out , o.destinationNode); writeId(out , o.layer);
+			out.writeDouble(o.capacity); out.writeDouble(o.lengthInKm); out.writeDouble(o.propagationSpeedInKmPerSecond);
+		}
+		else if (object.getClass() == SimEvent.LinkRemove.class)
+		{
+			out.writeByte(OBJECT_LINK_REMOVE);
+			writeId(out , ((SimEvent.LinkRemove) object).link);
+		}
+		else if (object.getClass() == SimEvent.LinkModify.class)
+		{
+			final SimEvent.LinkModify o = (SimEvent.LinkModify) object;
+			out.writeByte(OBJECT_LINK_MODIFY);
+			writeId(out , o.link); out.writeDouble(o.newCapacity);
+		}
+		else if (object.getClass() == SimEvent.PooledRouteAdd.class)
+		{
+			final SimEvent.PooledRouteAdd o = (SimEvent.PooledRouteAdd) object;
+			out.writeByte(OBJECT_POOLED_ROUTE_ADD);
+			writeId(out , o.demand); writeIds(out , o.getSeqLinks()); out.writeDouble(o.carriedTraffic); out.writeDouble(o.occupiedLinkCapacity);
+		}
+		else if (object.getClass() == SimEvent.PooledRouteRemove.class)
+		{
+			out.writeByte(OBJECT_POOLED_ROUTE_REMOVE);
+			writeId(out , ((SimEvent.PooledRouteRemove) object).route);
+		}
+		else if (object.getClass() == WDMUtils.LightpathAdd.class)
+		{
+			final WDMUtils.LightpathAdd o = (WDMUtils.LightpathAdd) object;
+			out.writeByte(OBJECT_LIGHTPATH_ADD);
+			writeId(out , o.demand); writeId(out , o.ingressNode); writeId(out , o.egressNode); writeId(out , o.layer);
+			writeRsa(out , o.primaryRSA); writeRsa(out , o.backupRSA); out.writeDouble(o.lineRateGbps);
+		}
+		else if (object.getClass() == WDMUtils.LightpathRemove.class)
+		{
+			out.writeByte(OBJECT_LIGHTPATH_REMOVE);
+			writeId(out , ((WDMUtils.LightpathRemove) object).lp);
+		}
+		else if (object.getClass() == WDMUtils.LightpathModify.class)
+		{
+			final WDMUtils.LightpathModify o = (WDMUtils.LightpathModify) object;
+			out.writeByte(OBJECT_LIGHTPATH_MODIFY);
+			writeId(out , o.lp); writeRsa(out , o.rsa); out.writeDouble(o.carriedTraffic);
+		}
+		else if (object instanceof Serializable)
+		{
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+			try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) { objectOut.writeObject(object); }
+			out.writeByte(OBJECT_SERIALIZED);
+			out.writeInt(bytes.size());
+			out.write(bytes.toByteArray());
+		}
+		else throw new Net2PlanException ("The object of the event cannot be recorded in the event trace, since it is not serializable: " + object.getClass().getName());
+	}
+
+	/* Reads an event, taking the network elements it refers to from the given design (null if they do not exist) */
+	static SimEvent readEvent (DataInput in , NetPlan np) throws IOException
+	{
+		final double time = in.readDouble();
+		final int priority = in.readInt();
+		final int type = in.readInt();
+		final Object object;
+		final byte objectType = in.readByte();
+		switch (objectType)
+		{
+			case OBJECT_NULL: object = null; break;
+			case OBJECT_DEMAND_ADD:
+			{
+				final Node ingressNode = np.getNodeFromId(in.readLong());
+				final Node egressNode = np.getNodeFromId(in.readLong());
+				final NetworkLayer layer = np.getNetworkLayerFromId(in.readLong());
+				final double offeredTraffic = in.readDouble();
+				final byte routingType = in.readByte();
+				object = new SimEvent.DemandAdd(ingressNode , egressNode , layer , offeredTraffic , routingType == -1? null : RoutingType.values() [routingType]);
+				break;
+			}
+			case OBJECT_DEMAND_REMOVE: object = new SimEvent.DemandRemove(np.getDemandFromId(in.readLong())); break;
+			case OBJECT_DEMAND_MODIFY: object = new SimEvent.DemandModify(np.getDemandFromId(in.readLong()) , in.readDouble() , in.readBoolean()); break;
+			case OBJECT_MULTICAST_DEMAND_MODIFY: object = new SimEvent.MulticastDemandModify(np.getMulticastDemandFromId(in.readLong()) , in.readDouble() , in.readBoolean()); break;
+			case OBJECT_ROUTE_ADD:
+			{
+				final Demand demand = np.getDemandFromId(in.readLong());
+				final List<Link> seqLinks = readLinks(in , np);
+				object = new SimEvent.RouteAdd(demand , seqLinks , in.readDouble() , in.readDouble());
+				break;
+			}
+			case OBJECT_ROUTE_REMOVE: object = new SimEvent.RouteRemove(np.getRouteFromId(in.readLong())); break;
+			case OBJECT_ROUTE_MODIFY:
+			{
+				final Route route = np.getRouteFromId(in.readLong());
+				final List<Link> seqLinks = readLinks(in , np);
+				object = new SimEvent.RouteModify(route , seqLinks , in.readDouble() , in.readDouble());
+				break;
+			}
+			case OBJECT_NODES_AND_LINKS_CHANGE_FAILURE_STATE:
+			{
+				final List<Node> nodesToUp = readNodes(in , np);
+				final List<Node> nodesToDown = readNodes(in , np);
+				final List<Link> linksToUp = readLinks(in , np);
+				final List<Link> linksToDown = readLinks(in , np);
+				object = new SimEvent.NodesAndLinksChangeFailureState(nodesToUp , nodesToDown , linksToUp , linksToDown);
+				break;
+			}
+			case OBJECT_LINK_ADD:
+			{
+				final Node originNode = np.getNodeFromId(in.readLong());
+				final Node destinationNode = np.getNodeFromId(in.readLong());
+				final NetworkLayer layer = np.getNetworkLayerFromId(in.readLong());
+				object = new SimEvent.LinkAdd(originNode , destinationNode , layer , in.readDouble() , in.readDouble() , in.readDouble());
+				break;
+			}
+			case OBJECT_LINK_REMOVE: object = new SimEvent.LinkRemove(np.getLinkFromId(in.readLong())); break;
+			case OBJECT_LINK_MODIFY: object = new SimEvent.LinkModify(np.getLinkFromId(in.readLong()) , in.readDouble()); break;
+			case OBJECT_POOLED_ROUTE_ADD:
+			{
+				final Demand demand = np.getDemandFromId(in.readLong());
+				final List<Link> seqLinks = readLinks(in , np);
+				object = new SimEvent.PooledRouteAdd().set(demand , seqLinks , in.readDouble() , in.readDouble());
+				break;
+			}
+			case OBJECT_POOLED_ROUTE_REMOVE: object = new SimEvent.PooledRouteRemove().set(np.getRouteFromId(in.readLong())); break;
+			case OBJECT_LIGHTPATH_ADD:
+			{
+				final Demand demand = np.getDemandFromId(in.readLong());
+				final Node ingressNode = np.getNodeFromId(in.readLong());
+				final Node egressNode = np.getNodeFromId(in.readLong());
+				final NetworkLayer layer = np.getNetworkLayerFromId(in.readLong());
+				final WDMUtils.RSA primaryRSA = readRsa(in , np);
+				final WDMUtils.RSA backupRSA = readRsa(in , np);
+				final double lineRateGbps = in.readDouble();
+				if (demand != null) object = new WDMUtils.LightpathAdd(demand , primaryRSA , backupRSA , lineRateGbps);
+				else if (primaryRSA == null) object = new WDMUtils.LightpathAdd(ingressNode , egressNode , layer , lineRateGbps);
+				else if (backupRSA == null) object = new WDMUtils.LightpathAdd(layer , primaryRSA , lineRateGbps);
+				else object = new WDMUtils.LightpathAdd(layer , primaryRSA , backupRSA , lineRateGbps);
+				break;
+			}
+			case OBJECT_LIGHTPATH_REMOVE: object = new WDMUtils.LightpathRemove(np.getRouteFromId(in.readLong())); break;
+			case OBJECT_LIGHTPATH_MODIFY:
+			{
+				final Route lp = np.getRouteFromId(in.readLong());
+				final WDMUtils.RSA rsa = readRsa(in , np);
+				object = new WDMUtils.LightpathModify(lp , rsa , in.readDouble());
+				break;
+			}
+			case OBJECT_SERIALIZED:
+			{
+				final int numBytes = in.readInt();
+				if (numBytes < 0) throw new Net2PlanException ("Wrong length of an object in the event trace: " + numBytes);
+				final byte [] bytes = new byte [numBytes];
+				in.readFully(bytes);
+				try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+				{
+					object = objectIn.readObject();
+				} catch (ClassNotFoundException e)
+				{
+					throw new Net2PlanException ("The object of an event in the trace is of an unknown class: " + e.getMessage());
+				}
+				break;
+			}
+			default: throw new Net2PlanException ("Unknown object type in the event trace: " + objectType);
+		}
+		return new SimEvent(time , SimEvent.DestinationModule.EVENT_PROCESSOR , type , priority , object);
+	}
+
+	private static void writeId (DataOutput out , NetworkElement e) throws IOException
+	{
+		out.writeLong(e == null? -1 : e.getId());
+	}
+
+	private static void writeIds (DataOutput out , Collection<? extends NetworkElement> elements) throws IOException
+	{
+		if (elements == null) { out.writeInt(-1); return; }
+		out.writeInt(elements.size());
+		for (NetworkElement e : elements) writeId(out , e);
+	}
+
+	/* An RSA: its links, the frequency slots per link, and the regenerators per link. A null RSA is written as a negative number of links */
+	private static void writeRsa (DataOutput out , WDMUtils.RSA rsa) throws IOException
+	{
+		if (rsa == null) { out.writeInt(-1); return; }
+		writeIds(out , rsa.seqLinks);
+		out.writeInt(rsa.seqFrequencySlots_se.rows());
+		for (int s = 0; s < rsa.seqFrequencySlots_se.rows() ; s ++)
+			for (int e = 0; e < rsa.seqFrequencySlots_se.columns() ; e ++)
+				out.writeInt(rsa.seqFrequencySlots_se.getQuick(s , e));
+		for (int e = 0; e < rsa.seqLinks.size() ; e ++) out.writeInt(rsa.seqRegeneratorsOccupancy_e [e]);
+	}
+
+	private static WDMUtils.RSA readRsa (DataInput in , NetPlan np) throws IOException
+	{
+		final List<Link> seqLinks = readLinks(in , np);
+		if (seqLinks == null) return null;
+		final int numSlots = in.readInt();
+		if (numSlots < 0) throw new Net2PlanException ("Wrong number of frequency slots in the event trace: " + numSlots);
+		final IntMatrix2D seqFrequencySlots_se = IntFactory2D.dense.make(numSlots , seqLinks.size());
+		for (int s = 0; s < numSlots ; s ++)
+			for (int e = 0; e < seqLinks.size() ; e ++)
+				seqFrequencySlots_se.setQuick(s , e , in.readInt());
+		final int [] seqRegenerators_e = new int [seqLinks.size()];
+		for (int e = 0; e < seqRegenerators_e.length ; e ++) seqRegenerators_e [e] = in.readInt();
+		return new WDMUtils.RSA(seqLinks , seqFrequencySlots_se , seqRegenerators_e);
+	}
+
+	private static List<Node> readNodes (DataInput in , NetPlan np) throws IOException
+	{
+		final int size = in.readInt();
+		if (size == -1) return null;
+		if (size < 0) throw new Net2PlanException ("Wrong number of elements in the event trace: " + size);
+		final List<Node> res = new ArrayList<> ();
+		for (int cont = 0; cont < size ; cont ++) res.add(np.getNodeFromId(in.readLong()));
+		return res;
+	}
+
+	private static List<Link> readLinks (DataInput in , NetPlan np) throws IOException
+	{
+		final int size = in.readInt();
+		if (size == -1) return null;
+		if (size < 0) throw new Net2PlanException ("Wrong number of elements in the event trace: " + size);
+		final List<Link> res = new ArrayList<> ();
+		for (int cont = 0; cont < size ; cont ++) res.add(np.getLinkFromId(in.readLong()));
+		return res;
+	}
+}
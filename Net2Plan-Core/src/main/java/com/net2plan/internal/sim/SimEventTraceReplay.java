@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.simulation.ICombinedEventProcessor;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Replays an event trace recorded by an online simulation (see {@link SimKernel#setEventTraceFile(File, double)}): the recorded events are read from the file
+ * and given directly to an event processor, without the event generator, the future event list, or the statistics of the simulation. Then, a replay runs
+ * at the speed at which the events can be read and processed.</p>
+ *
+ * <p>The replay can start at any checkpoint of the trace: the event processor is initialized with the design saved at the checkpoint, and receives the events
+ * recorded after it. Then, the state of the network at, e.g., the hour 700 of a simulated year is reached without processing the events before the previous checkpoint.
+ * The replay reproduces the original simulation if the event processor is deterministic, and its decisions only depend on the design (and not on its internal state before
+ * the checkpoint). The events scheduled by the event processor during the replay are ignored, since the ones it received in the simulation are already in the trace.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * try (SimEventTraceReplay replay = new SimEventTraceReplay(new File("trace.bin")))
+ * {
+ *     NetPlan netPlan = replay.replay(eventProcessor, eventProcessorParameters, simulationParameters, net2planParameters, 700 * 3600, 701 * 3600);
+ * }
+ * </pre>
+ *
+ * @since 0.6.5
+ */
+public class SimEventTraceReplay implements Closeable
+{
+	private final File file;
+	private final List<Double> checkpointTimes = new ArrayList<> ();
+	private final List<Long> checkpointOffsets = new ArrayList<> ();
+	private DataInputStream in;
+	private Long randomSeed;
+	private long numberOfReplayedEvents;
+
+	/**
+	 * <p>Opens an event trace, and reads its index of checkpoints. If the trace was not closed (e.g. the simulation crashed), the checkpoints are found reading the whole file,
+	 * and the events recorded until the simulation stopped can be replayed.</p>
+	 *
+	 * @param file Event trace file
+	 */
+	public SimEventTraceReplay (File file)
+	{
+		this.file = file;
+		try (RandomAccessFile raf = new RandomAccessFile(file , "r"))
+		{
+			if (raf.length() < SimEventTraceFormat.HEADER_LENGTH || raf.readInt() != SimEventTraceFormat.MAGIC_NUMBER) throw new Net2PlanException ("Not an event trace file: " + file);
+			if (raf.readInt() != SimEventTraceFormat.VERSION) throw new Net2PlanException ("Unsupported version of the event trace file: " + file);
+			if (!readCheckpointIndex(raf)) scanCheckpoints();
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error reading the event trace file " + file + ": " + e.getMessage());
+		}
+		if (checkpointTimes.isEmpty()) throw new Net2PlanException ("The event trace file has no checkpoints: " + file);
+	}
+
+	/**
+	 * <p>Returns the simulation time of the checkpoints in the trace, in ascending order. The first one is at time zero, with the initial design.</p>
+	 *
+	 * @return The checkpoint times
+	 */
+	public List<Double> getCheckpointTimes ()
+	{
+		return Collections.unmodifiableList(checkpointTimes);
+	}
+
+	/**
+	 * <p>Returns the design saved at the last checkpoint at or before the given simulation time.</p>
+	 *
+	 * @param time Simulation time
+	 * @return The design
+	 */
+	public NetPlan getCheckpoint (double time)
+	{
+		try
+		{
+			return openAtCheckpoint(getCheckpointIndex(time));
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error reading the event trace file " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * <p>Returns the number of events processed in the last replay, including the ones between the checkpoint and the start time.</p>
+	 *
+	 * @return The number of events
+	 */
+	public long getNumberOfReplayedEvents ()
+	{
+		return numberOfReplayedEvents;
+	}
+
+	/**
+	 * <p>Sets the seed of the random number generator given to the event processor (see {@link ISimExternal#getRandom()}). By default, it is not seeded.</p>
+	 *
+	 * @param seed The seed
+	 */
+	public void setRandomSeed (long seed)
+	{
+		this.randomSeed = seed;
+	}
+
+	/**
+	 * <p>Replays the events of the trace from the last checkpoint at or before the start time, until the end time (included), or the end of the trace.
+	 * The event processor is initialized with the design of the checkpoint, and then receives the events.</p>
+	 *
+	 * @param eventProcessor Event processor
+	 * @param eventProcessorParameters Parameters of the event processor
+	 * @param simulationParameters Simulation parameters
+	 * @param net2planParameters Net2Plan-wide configuration parameters
+	 * @param startTime Simulation time from which the state is wanted
+	 * @param endTime Simulation time of the last event to replay (if negative, all the events after the checkpoint are replayed)
+	 * @return The design after the last replayed event
+	 */
+	public NetPlan replay (IEventProcessor eventProcessor , Map<String,String> eventProcessorParameters , Map<String,String> simulationParameters , Map<String,String> net2planParameters , double startTime , double endTime)
+	{
+		if (endTime >= 0 && endTime < startTime) throw new Net2PlanException ("The end time cannot be lower than the start time");
+		numberOfReplayedEvents = 0;
+		try
+		{
+			final NetPlan netPlan = openAtCheckpoint(getCheckpointIndex(startTime));
+
+			/* The kernel only gives the random number generator to the event processor, and receives (and ignores) the events it schedules */
+			final SimKernel kernel = new SimKernel();
+			if (randomSeed != null) kernel.setRandomSeed(randomSeed);
+			((ISimExternal) eventProcessor).setKernel(kernel);
+			if (eventProcessor instanceof ICombinedEventProcessor)
+				for (IEventProcessor internalEventProcessor : ((ICombinedEventProcessor) eventProcessor).eventProcessors)
+					((ISimExternal) internalEventProcessor).setKernel(kernel);
+			eventProcessor.initialize(netPlan , eventProcessorParameters , simulationParameters , net2planParameters);
+
+			while (true)
+			{
+				final SimEvent event = readNextEvent(netPlan);
+				if (event == null) break;
+				if (endTime >= 0 && event.getEventTime() > endTime) break;
+				try
+				{
+					eventProcessor.processEvent(netPlan , event);
+				} catch (EndSimulationException e)
+				{
+					break;
+				}
+				numberOfReplayedEvents ++;
+				kernel.getSimCore().getFutureEventList().reset();
+			}
+			return netPlan;
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error reading the event trace file " + file + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void close ()
+	{
+		if (in == null) return;
+		try { in.close(); } catch (IOException e) { }
+		in = null;
+	}
+
+	/* Index of the last checkpoint at or before the given time (the first one if none) */
+	private int getCheckpointIndex (double time)
+	{
+		int index = 0;
+		while (index + 1 < checkpointTimes.size() && checkpointTimes.get(index + 1) <= time) index ++;
+		return index;
+	}
+
+	/* Reads the design of the checkpoint, leaving the stream at the first event after it */
+	private NetPlan openAtCheckpoint (int checkpointIndex) throws IOException
+	{
+		close();
+		final FileInputStream fileIn = new FileInputStream(file);
+		fileIn.getChannel().position(checkpointOffsets.get(checkpointIndex));
+		in = new DataInputStream(new BufferedInputStream(fileIn , 1 << 16));
+		if (in.readByte() != SimEventTraceFormat.RECORD_CHECKPOINT) throw new Net2PlanException ("Wrong checkpoint offset in the event trace file: " + file);
+		final byte [] content = new byte [in.readInt()];
+		in.readFully(content);
+		final DataInputStream checkpoint = new DataInputStream(new ByteArrayInputStream(content));
+		checkpoint.readDouble();
+		checkpoint.readLong();
+		return new NetPlan(checkpoint);
+	}
+
+	/* The next event in the stream, skipping the checkpoints, or null at the end of the trace (including a truncated last record) */
+	private SimEvent readNextEvent (NetPlan netPlan) throws IOException
+	{
+		try
+		{
+			while (true)
+			{
+				final byte recordType = in.readByte();
+				final int length = in.readInt();
+				if (recordType == SimEventTraceFormat.RECORD_END) return null;
+				if (recordType == SimEventTraceFormat.RECORD_EVENT) return SimEventTraceFormat.readEvent(in , netPlan);
+				in.skipBytes(length);
+			}
+		} catch (EOFException e)
+		{
+			return null;
+		}
+	}
+
+	/* Reads the index of checkpoints written at the end of the file. Returns false if the trace was not closed */
+	private boolean readCheckpointIndex (RandomAccessFile raf) throws IOException
+	{
+		if (raf.length() < SimEventTraceFormat.HEADER_LENGTH + SimEventTraceFormat.TRAILER_LENGTH) return false;
+		raf.seek(raf.length() - SimEventTraceFormat.TRAILER_LENGTH);
+		final long endRecordOffset = raf.readLong();
+		if (raf.readInt() != SimEventTraceFormat.MAGIC_NUMBER) return false;
+		if (endRecordOffset < SimEventTraceFormat.HEADER_LENGTH || endRecordOffset >= raf.length()) return false;
+		raf.seek(endRecordOffset);
+		if (raf.readByte() != SimEventTraceFormat.RECORD_END) return false;
+		raf.readInt();
+		final int numCheckpoints = raf.readInt();
+		if (numCheckpoints < 0 || 24L * numCheckpoints > raf.length() - raf.getFilePointer()) return false;
+		final byte [] index = new byte [numCheckpoints * 24];
+		raf.readFully(index);
+		final DataInputStream indexIn = new DataInputStream(new ByteArrayInputStream(index));
+		for (int cont = 0; cont < numCheckpoints ; cont ++)
+		{
+			checkpointTimes.add(indexIn.readDouble());
+			indexIn.readLong(); // number of events before the checkpoint
+			checkpointOffsets.add(indexIn.readLong());
+		}
+		return true;
+	}
+
+	/* Finds the checkpoints reading the headers of all the records */
+	private void scanCheckpoints () throws IOException
+	{
+		try (DataInputStream scan = new DataInputStream(new BufferedInputStream(new FileInputStream(file) , 1 << 16)))
+		{
+			scan.skipBytes(SimEventTraceFormat.HEADER_LENGTH);
+			long offset = SimEventTraceFormat.HEADER_LENGTH;
+			while (true)
+			{
+				final byte recordType = scan.readByte();
+				final int length = scan.readInt();
+				if (recordType == SimEventTraceFormat.RECORD_CHECKPOINT)
+				{
+					final double time = scan.readDouble();
+					scan.readLong(); // number of events before the checkpoint
+					if (scan.skipBytes(length - 16) != length - 16) break;
+					checkpointTimes.add(time);
+					checkpointOffsets.add(offset);
+				}
+				else if (scan.skipBytes(length) != length) break;
+				offset += 5 + length;
+			}
+		} catch (EOFException e)
+		{
+			/* end of a trace that was not closed */
+		}
+	}
+}
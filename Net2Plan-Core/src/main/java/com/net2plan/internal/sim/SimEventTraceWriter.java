@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tlong.LongArrayList;
+
+/**
+ * <p>Records the events delivered to the event processor of a simulation in a binary trace (see {@link SimEventTraceFormat}), to be replayed later
+ * with {@link SimEventTraceReplay}. A checkpoint with the current design is written when the trace is created, and then periodically, before the first event
+ * at or after each multiple of the checkpoint interval.</p>
+ *
+ * @since 0.6.5
+ */
+final class SimEventTraceWriter implements Closeable
+{
+	private final File file;
+	private final DataOutputStream out;
+	private final double checkpointIntervalInSeconds;
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream (256);
+	private final DataOutputStream record = new DataOutputStream(recordBytes);
+	private final DoubleArrayList checkpointTimes = new DoubleArrayList ();
+	private final LongArrayList checkpointNumberOfEvents = new LongArrayList ();
+	private final LongArrayList checkpointOffsets = new LongArrayList ();
+	private final Set<Class<?>> classesNotRecorded = new HashSet<> ();
+	private long offset;
+	private long numberOfEvents;
+	private double nextCheckpointTime;
+	private boolean closed;
+
+	/**
+	 * Creates the trace file, and writes a checkpoint with the initial design.
+	 *
+	 * @param file Output file
+	 * @param checkpointIntervalInSeconds Simulation time between checkpoints (if non-positive, only the initial checkpoint is written)
+	 * @param initialNetPlan Design at the beginning of the simulation
+	 */
+	SimEventTraceWriter (File file , double checkpointIntervalInSeconds , NetPlan initialNetPlan)
+	{
+		this.file = file;
+		this.checkpointIntervalInSeconds = checkpointIntervalInSeconds;
+		try
+		{
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file) , 1 << 16));
+			out.writeInt(SimEventTraceFormat.MAGIC_NUMBER);
+			out.writeInt(SimEventTraceFormat.VERSION);
+			this.offset = SimEventTraceFormat.HEADER_LENGTH;
+		} catch (FileNotFoundException e)
+		{
+			throw new Net2PlanException ("Cannot create the event trace file " + file + ": " + e.getMessage());
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error writing the event trace file " + file + ": " + e.getMessage());
+		}
+		writeCheckpoint(0 , initialNetPlan);
+		this.nextCheckpointTime = checkpointIntervalInSeconds > 0? checkpointIntervalInSeconds : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Records an event, before it is processed. If a checkpoint is due, it is written first, with the current design. An event whose object cannot
+	 * be written (see {@link SimEventTraceFormat#canWriteEvent(SimEvent)}) is not recorded, and a warning is printed the first time for each class.
+	 *
+	 * @param event Event
+	 * @param currentNetPlan Current design
+	 */
+	void record (SimEvent event , NetPlan currentNetPlan)
+	{
+		if (closed) throw new RuntimeException ("Bad");
+		if (!SimEventTraceFormat.canWriteEvent(event))
+		{
+			final Class<?> objectClass = event.getEventObject().getClass();
+			if (classesNotRecorded.add(objectClass))
+				System.out.println("Warning: the events with objects of class " + objectClass.getName() + " are not recorded in the event trace " + file + ", since the class is not serializable");
+			return;
+		}
+		if (event.getEventTime() >= nextCheckpointTime)
+		{
+			writeCheckpoint(event.getEventTime() , currentNetPlan);
+			nextCheckpointTime = (Math.floor(event.getEventTime() / checkpointIntervalInSeconds) + 1) * checkpointIntervalInSeconds;
+		}
+		try
+		{
+			recordBytes.reset();
+			SimEventTraceFormat.writeEvent(record , event);
+			writeRecord(SimEventTraceFormat.RECORD_EVENT);
+			numberOfEvents ++;
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error writing the event trace file " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the index of checkpoints and closes the file. Calling it again has no effect.
+	 */
+	@Override
+	public void close ()
+	{
+		if (closed) return;
+		closed = true;
+		try
+		{
+			recordBytes.reset();
+			record.writeInt(checkpointTimes.size());
+			for (int cont = 0; cont < checkpointTimes.size() ; cont ++)
+			{
+				record.writeDouble(checkpointTimes.getQuick(cont));
+				record.writeLong(checkpointNumberOfEvents.getQuick(cont));
+				record.writeLong(checkpointOffsets.getQuick(cont));
+			}
+			final long endRecordOffset = offset;
+			writeRecord(SimEventTraceFormat.RECORD_END);
+			out.writeLong(endRecordOffset);
+			out.writeInt(SimEventTraceFormat.MAGIC_NUMBER);
+			out.close();
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error writing the event trace file " + file + ": " + e.getMessage());
+		}
+	}
+
+	private void writeCheckpoint (double time , NetPlan netPlan)
+	{
+		try
+		{
+			checkpointTimes.add(time);
+			checkpointNumberOfEvents.add(numberOfEvents);
+			checkpointOffsets.add(offset);
+			recordBytes.reset();
+			record.writeDouble(time);
+			record.writeLong(numberOfEvents);
+			netPlan.saveToBinaryOutputStream(record , true);
+			writeRecord(SimEventTraceFormat.RECORD_CHECKPOINT);
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error writing the event trace file " + file + ": " + e.getMessage());
+		}
+	}
+
+	private void writeRecord (byte recordType) throws IOException
+	{
+		out.writeByte(recordType);
+		out.writeInt(recordBytes.size());
+		recordBytes.writeTo(out);
+		offset += 5 + recordBytes.size();
+	}
+}
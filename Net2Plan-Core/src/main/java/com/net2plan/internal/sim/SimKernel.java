@@ -19,6 +19,7 @@
 
 package com.net2plan.internal.sim;
 
+import java.io.File;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -27,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 
 import com.jom.JOMException;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
@@ -36,6 +38,8 @@ import com.net2plan.interfaces.simulation.ICombinedEventProcessor;
 import com.net2plan.interfaces.simulation.IEventGenerator;
 import com.net2plan.interfaces.simulation.IEventProcessor;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.interfaces.simulation.SimEventPool;
+import com.net2plan.interfaces.simulation.SimRandomStreams;
 import com.net2plan.internal.CommandLineParser;
 import com.net2plan.internal.ErrorHandling;
 import com.net2plan.internal.IExternal;
@@ -66,6 +70,12 @@ public class SimKernel implements IEventCallback
 	private SimEvent lastEvent;
 	private IGUISimulationListener guiListener;
 	private Throwable lastReason = null;
+	private SimRandomStreams randomStreams = new SimRandomStreams(new Random().nextLong());
+	private Random random = randomStreams.getStream("kernel");
+	private final SimEventPool eventPool = new SimEventPool();
+	private File eventTraceFile;
+	private double eventTraceCheckpointIntervalInSeconds;
+	private SimEventTraceWriter eventTrace;
 	private final SimCore simCore;
 //	private NetPlan originalNetPlan;
 	
@@ -96,9 +106,17 @@ public class SimKernel implements IEventCallback
 		if (!disableStatistics) stats.reset(currentSimTime);
 	}
 
+	@Override
+	public boolean isInteractive()
+	{
+		return guiListener != null;
+	}
+
 	@Override
 	public final void processEvent(SimEvent event)
 	{
+		/* A pooled event is reused once the next one starts, so it is still valid as the last event in the meantime */
+		if (lastEvent != null) eventPool.release(lastEvent);
 		lastEvent = event;
 		simulationLoop(event);
 	}
@@ -127,6 +145,8 @@ public class SimKernel implements IEventCallback
 	{
 		this.lastReason = reason;
 
+		if (simulationState == SimCore.SimState.STOPPED) closeEventTrace();
+
 		if (guiListener != null)
 		{
 			guiListener.simulationStateChanged(simulationState, reason);
@@ -189,6 +209,10 @@ public class SimKernel implements IEventCallback
 		if (!simulationParameters.containsKey("simTime")) throw new Net2PlanException("'simTime' parameter is not configured");
 		double simTime = Double.parseDouble(simulationParameters.get("simTime"));
 		simCore.setTotalSimulationTime(simTime);
+
+		/* Optional for backwards compatibility */
+		String futureEventListType = simulationParameters.get("futureEventList");
+		simCore.setFutureEventListType(futureEventListType == null ? FutureEventList.FutureEventListType.BINARY_HEAP : FutureEventList.FutureEventListType.fromLabel(futureEventListType));
 		
 		if (!getEventGeneratorClass().isAssignableFrom(eventGenerator.getClass())) throw new RuntimeException("Bad - Event generator is not an instance of " + getEventGeneratorClass().getName());
 		if (!getEventProcessorClass().isAssignableFrom(eventProcessor.getClass())) throw new RuntimeException("Bad - Event processor is not an instance of " + getEventProcessorClass().getName());
@@ -269,6 +293,49 @@ public class SimKernel implements IEventCallback
 		return initialNetPlan;
 	}
 
+	/* Reason of the last change in the simulation state (null if none) */
+	Throwable getLastReason()
+	{
+		return lastReason;
+	}
+
+	/**
+	 * Returns the random number generator of this simulation. Event generators and processors
+	 * can use it (through {@link ISimExternal#getRandom() getRandom()}), so that independent
+	 * replications of the same simulation just differ in the seed given to the kernel.
+	 * 
+	 * @return Random number generator
+	 * @since 0.6.5
+	 */
+	public Random getRandom()
+	{
+		return random;
+	}
+
+	/**
+	 * Returns the random streams of this simulation, derived from the seed given to the kernel. Event generators and processors
+	 * get them through {@link ISimExternal#getRandomStream(String) getRandomStream()}.
+	 * 
+	 * @return Random streams
+	 * @since 0.6.5
+	 */
+	public SimRandomStreams getRandomStreams()
+	{
+		return randomStreams;
+	}
+
+	/**
+	 * Returns the pool of reusable events of this simulation. Event generators and processors
+	 * get it through {@link ISimExternal#getEventPool() getEventPool()}.
+	 * 
+	 * @return Event pool
+	 * @since 0.6.5
+	 */
+	public SimEventPool getEventPool()
+	{
+		return eventPool;
+	}
+
 	/**
 	 * Returns a reference to the simulation core.
 	 * 
@@ -336,10 +403,23 @@ public class SimKernel implements IEventCallback
 		parameters.add(Triple.of("transitoryEvents", "-1", "Number of events for transitory period (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("simTime", "-1", "Total simulation time (in seconds, including transitory period) (-1 means no limit). In case that 'simTime' and 'simEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("transitoryTime", "-1", "Transitory time (in seconds) (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
+		parameters.add(Triple.of("futureEventList", "#select# binaryHeap calendarQueue", "Implementation of the future event list: binary heap (O(log n) operations), or calendar queue (O(1) amortized operations, faster for simulations with many pending events)"));
 
 		return parameters;
 	}
 
+	/**
+	 * Returns the main time-averaged metrics of the simulation (see {@link SimStats#getMetrics(double) SimStats.getMetrics()}).
+	 * 
+	 * @return Metric values (empty if 'disableStatistics' was set to 'true')
+	 * @since 0.6.5
+	 */
+	public Map<String, Double> getSimulationMetrics()
+	{
+		if (stats == null) return new LinkedHashMap<String, Double>();
+		return stats.getMetrics(getSimCore().getFutureEventList().getCurrentSimulationTime());
+	}
+
 	/**
 	 * Returns the simulation report.
 	 * 
@@ -431,8 +511,11 @@ public class SimKernel implements IEventCallback
 				((ISimExternal) internalEventProcessor).setKernel(this);
 		
 		((ISimExternal) eventGenerator).initialize(currentNetPlan, eventGeneratorParameters, simulationParameters, net2planParameters);
+		closeEventTrace();
+		if (eventTraceFile != null) eventTrace = new SimEventTraceWriter(eventTraceFile, eventTraceCheckpointIntervalInSeconds, currentNetPlan);
 		((ISimExternal) eventProcessor).initialize(currentNetPlan, eventProcessorParameters, simulationParameters, net2planParameters);
 		//if (!disableStatistics) stats = new SimStats(initialNetPlan, currentNetPlan.unmodifiableView(), simulationParameters, net2planParameters);
+		if (stats != null) stats.detach();
 		if (!disableStatistics) stats = new SimStats(currentNetPlan, simulationParameters, net2planParameters);
 	}
 
@@ -458,8 +541,10 @@ public class SimKernel implements IEventCallback
 	public void reset()
 	{
 		simCore.reset();
+		closeEventTrace();
 		initializeNetState();
 		lastReason = null;
+		if (stats != null) stats.detach();
 		stats = null;
 	}
 
@@ -525,7 +610,9 @@ public class SimKernel implements IEventCallback
 		String totalSimTime = StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalSimTimeInSeconds);
 		System.out.println(String.format("%n%nSimulation finished successfully in %s", totalSimTime));
 		
-		return Pair.of(simKernel.getCurrentNetPlan(), simKernel.getSimulationReport());
+		final String simulationReport = simKernel.getSimulationReport();
+		if (simKernel.stats != null) simKernel.stats.detach();
+		return Pair.of(simKernel.getCurrentNetPlan(), simulationReport);
 	}
 	
 	/**
@@ -539,6 +626,43 @@ public class SimKernel implements IEventCallback
 		this.guiListener = stateListener;
 	}
 
+	/**
+	 * <p>Records the events delivered to the event processor in the given file, so the simulation can be replayed later
+	 * with {@link SimEventTraceReplay}. The trace includes checkpoints with the design at the beginning of the simulation (after the initialization
+	 * of the event generator, and before the one of the event processor), and then periodically. The file is closed when the simulation stops.</p>
+	 * 
+	 * <p><b>Important</b>: Once the simulation is started, the trace file cannot be changed.</p>
+	 * 
+	 * @param file Event trace file ({@code null} means no event trace)
+	 * @param checkpointIntervalInSeconds Simulation time between checkpoints (if non-positive, only the initial checkpoint is written)
+	 * @since 0.6.5
+	 */
+	public void setEventTraceFile(File file, double checkpointIntervalInSeconds)
+	{
+		if (getSimCore().getSimulationState() != SimCore.SimState.NOT_STARTED)
+			throw new Net2PlanException("The event trace cannot be changed once the simulation was started");
+
+		this.eventTraceFile = file;
+		this.eventTraceCheckpointIntervalInSeconds = checkpointIntervalInSeconds;
+	}
+
+	/**
+	 * <p>Re-creates the random number generator and the random streams of this simulation with the given seed.</p>
+	 * 
+	 * <p><b>Important</b>: Once the simulation is started, the seed cannot be changed.</p>
+	 * 
+	 * @param seed Seed of the random number generator
+	 * @since 0.6.5
+	 */
+	public void setRandomSeed(long seed)
+	{
+		if (getSimCore().getSimulationState() != SimCore.SimState.NOT_STARTED)
+			throw new Net2PlanException("The random seed cannot be changed once the simulation was started");
+
+		randomStreams = new SimRandomStreams(seed);
+		random = randomStreams.getStream("kernel");
+	}
+
 	/**
 	 * <p>Sets the initial network plan.</p>
 	 * 
@@ -577,6 +701,7 @@ public class SimKernel implements IEventCallback
 				break;
 				
 			case EVENT_PROCESSOR:
+				if (eventTrace != null) eventTrace.record(event, currentNetPlan);
 				((ISimExternal) eventProcessor).processEvent(currentNetPlan, event);
 				break;
 				
@@ -586,4 +711,12 @@ public class SimKernel implements IEventCallback
 
 		if (!disableStatistics) stats.computeNextState(event.getEventTime());
 	}
+
+	/* Writes the end of the event trace (if any), so it can be replayed */
+	private void closeEventTrace()
+	{
+		if (eventTrace == null) return;
+		eventTrace.close();
+		eventTrace = null;
+	}
 }
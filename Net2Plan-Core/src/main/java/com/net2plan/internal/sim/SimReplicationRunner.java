@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.internal.IExternal;
+import com.net2plan.utils.StringUtils;
+
+/**
+ * <p>Runs independent replications of the same simulation in parallel, and merges their results.</p>
+ *
+ * <p>Each replication has its own simulation kernel, its own copy of the initial network design, and its own
+ * instances of the event generator and processor (created through their no-argument constructors). Replications
+ * only differ in their random seed, which is derived from a base seed, so that results are reproducible
+ * regardless of the number of threads. The seed is given to the random number generator of the kernel
+ * (see {@link ISimExternal#getRandom() getRandom()}), and also written into the event generator and processor
+ * parameters whose names are given in {@link #setSeedParameters(Collection) setSeedParameters()}, for those
+ * algorithms having their own seed parameter.</p>
+ *
+ * <p>Replications share no state, and they are run on a fork-join pool with one worker per thread.
+ * For each metric in {@link SimStats#getMetrics(double) SimStats.getMetrics()}, the mean value among
+ * replications is reported, together with its confidence interval (using the Student's t-distribution).</p>
+ *
+ * @since 0.6.5
+ */
+public final class SimReplicationRunner
+{
+	private final NetPlan netPlan;
+	private final IExternal eventGenerator, eventProcessor;
+	private final Map<String, String> eventGeneratorParameters, eventProcessorParameters, simulationParameters, net2planParameters;
+
+	private int numReplications = 1;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private long baseSeed = 1;
+	private double confidenceLevel = 0.95;
+	private final Set<String> seedParameters = new LinkedHashSet<String>();
+
+	private List<Replication> replications;
+	private Map<String, MetricSummary> mergedMetrics;
+	private double wallClockTimeInSeconds;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param netPlan Initial network design (it is not modified)
+	 * @param eventGenerator An instance of the event generator (used as a template: each replication uses a new instance of the same class)
+	 * @param eventGeneratorParameters Parameter-value map for the event generator
+	 * @param eventProcessor An instance of the event processor (used as a template: each replication uses a new instance of the same class)
+	 * @param eventProcessorParameters Parameter-value map for the event processor
+	 * @param simulationParameters Simulation parameters
+	 * @param net2planParameters Net2Plan-wide configuration parameters
+	 */
+	public SimReplicationRunner(NetPlan netPlan, IExternal eventGenerator, Map<String, String> eventGeneratorParameters, IExternal eventProcessor, Map<String, String> eventProcessorParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters)
+	{
+		if (netPlan == null) throw new Net2PlanException("A network design is required");
+		if (eventGenerator == null || eventProcessor == null) throw new Net2PlanException("An event generator and an event processor are required");
+
+		this.netPlan = netPlan;
+		this.eventGenerator = eventGenerator;
+		this.eventProcessor = eventProcessor;
+		this.eventGeneratorParameters = new LinkedHashMap<String, String>(eventGeneratorParameters);
+		this.eventProcessorParameters = new LinkedHashMap<String, String>(eventProcessorParameters);
+		this.simulationParameters = new LinkedHashMap<String, String>(simulationParameters);
+		this.net2planParameters = new LinkedHashMap<String, String>(net2planParameters);
+	}
+
+	/**
+	 * Sets the seed from which the seeds of the replications are derived (default: 1).
+	 *
+	 * @param baseSeed Base seed
+	 */
+	public void setBaseSeed(long baseSeed)
+	{
+		this.baseSeed = baseSeed;
+	}
+
+	/**
+	 * Sets the confidence level of the confidence intervals (default: 0.95).
+	 *
+	 * @param confidenceLevel Confidence level, in range (0, 1)
+	 */
+	public void setConfidenceLevel(double confidenceLevel)
+	{
+		if (!(confidenceLevel > 0 && confidenceLevel < 1)) throw new Net2PlanException("The confidence level must be in range (0, 1)");
+		this.confidenceLevel = confidenceLevel;
+	}
+
+	/**
+	 * Sets the number of replications (default: 1).
+	 *
+	 * @param numReplications Number of replications
+	 */
+	public void setNumberOfReplications(int numReplications)
+	{
+		if (numReplications <= 0) throw new Net2PlanException("The number of replications must be greater than zero");
+		this.numReplications = numReplications;
+	}
+
+	/**
+	 * Sets the maximum number of replications run at the same time (default: number of available processors).
+	 *
+	 * @param parallelism Number of threads
+	 */
+	public void setParallelism(int parallelism)
+	{
+		if (parallelism <= 0) throw new Net2PlanException("The number of threads must be greater than zero");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the names of the event generator and event processor parameters that receive the seed of each
+	 * replication (e.g. {@code randomSeed}). Names not appearing in the parameters of an algorithm are ignored for it.
+	 *
+	 * @param seedParameters Parameter names
+	 */
+	public void setSeedParameters(Collection<String> seedParameters)
+	{
+		this.seedParameters.clear();
+		this.seedParameters.addAll(seedParameters);
+	}
+
+	/**
+	 * Runs the replications, and waits until all of them are finished.
+	 */
+	public void run()
+	{
+		/* Seeds are drawn in order, so that each replication is reproducible regardless of the scheduling */
+		final Random seedGenerator = new Random(baseSeed);
+		final List<Callable<Replication>> tasks = new ArrayList<Callable<Replication>>(numReplications);
+		for (int index = 0; index < numReplications; index++)
+		{
+			final int replicationIndex = index;
+			final long seed = seedGenerator.nextLong();
+			tasks.add(new Callable<Replication>()
+			{
+				@Override
+				public Replication call()
+				{
+					return runReplication(replicationIndex, seed);
+				}
+			});
+		}
+
+		final List<Replication> results = new ArrayList<Replication>(numReplications);
+		final ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, numReplications));
+		final long init = System.nanoTime();
+		try
+		{
+			for (Future<Replication> future : pool.invokeAll(tasks))
+				results.add(future.get());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		wallClockTimeInSeconds = (System.nanoTime() - init) / 1e9;
+
+		replications = Collections.unmodifiableList(results);
+		mergedMetrics = mergeMetrics(results, confidenceLevel);
+	}
+
+	/**
+	 * Returns the merged metrics: for each metric, its mean value among replications and its confidence interval.
+	 *
+	 * @return Metric summaries, in the order of the metrics in the first replication
+	 */
+	public Map<String, MetricSummary> getMergedMetrics()
+	{
+		checkFinished();
+		return Collections.unmodifiableMap(mergedMetrics);
+	}
+
+	/**
+	 * Returns the reports of the individual replications (see {@link SimKernel#getSimulationReport() getSimulationReport()}).
+	 *
+	 * @return Reports, in replication order
+	 */
+	public List<String> getReplicationReports()
+	{
+		checkFinished();
+		List<String> reports = new ArrayList<String>(replications.size());
+		for (Replication replication : replications) reports.add(replication.report);
+		return reports;
+	}
+
+	/**
+	 * Returns the seeds used in each replication.
+	 *
+	 * @return Seeds, in replication order
+	 */
+	public List<Long> getReplicationSeeds()
+	{
+		checkFinished();
+		List<Long> seeds = new ArrayList<Long>(replications.size());
+		for (Replication replication : replications) seeds.add(replication.seed);
+		return seeds;
+	}
+
+	/**
+	 * Returns a HTML report with the merged results of all the replications.
+	 *
+	 * @return Merged report
+	 */
+	public String getReport()
+	{
+		checkFinished();
+
+		long totalProcessedEvents = 0;
+		double totalCpuTime = 0;
+		for (Replication replication : replications)
+		{
+			totalProcessedEvents += replication.processedEvents;
+			totalCpuTime += replication.cpuTime;
+		}
+
+		StringBuilder info = new StringBuilder();
+		info.append("<html><head><title>Replicated simulation report</title></head>");
+		info.append("<body>");
+		info.append("<h1>Replication information</h1>");
+		info.append("<center><table border='1'><tr><th>Parameter</th><th>Value</th></tr>");
+		info.append(String.format("<tr><td>Number of replications</td><td>%d</td></tr>", replications.size()));
+		info.append(String.format("<tr><td>Number of threads</td><td>%d</td></tr>", Math.min(parallelism, numReplications)));
+		info.append(String.format("<tr><td>Base seed</td><td>%d</td></tr>", baseSeed));
+		info.append(String.format("<tr><td>Wall-clock time</td><td>%s</td></tr>", StringUtils.secondsToYearsDaysHoursMinutesSeconds(wallClockTimeInSeconds)));
+		info.append(String.format("<tr><td>Total CPU time</td><td>%s</td></tr>", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalCpuTime)));
+		info.append(String.format("<tr><td>Total number of processed events</td><td>%d (%.3g ev/sec)</td></tr>", totalProcessedEvents, wallClockTimeInSeconds == 0 ? 0 : totalProcessedEvents / wallClockTimeInSeconds));
+		info.append("</table></center>");
+
+		info.append("<h1>Merged results</h1>");
+		if (mergedMetrics.isEmpty())
+		{
+			info.append("<p>No results available (statistics disabled, or no event was processed)</p>");
+		}
+		else
+		{
+			info.append(String.format("<p>Mean value among replications, and half-width of the %.1f%% confidence interval (not available for a single replication)</p>", 100 * confidenceLevel));
+			info.append("<center><table border='1'><tr><th>Metric</th><th>Mean</th><th>Confidence interval (&plusmn;)</th><th>Standard deviation</th><th>Minimum</th><th>Maximum</th><th>Replications</th></tr>");
+			for (Map.Entry<String, MetricSummary> entry : mergedMetrics.entrySet())
+			{
+				MetricSummary summary = entry.getValue();
+				info.append(String.format("<tr><td>%s</td><td>%.6f</td><td>%s</td><td>%.6f</td><td>%.6f</td><td>%.6f</td><td>%d</td></tr>", entry.getKey(), summary.getMean(), summary.getNumberOfReplications() > 1 ? String.format("%.6f", summary.getConfidenceIntervalHalfWidth()) : "-", summary.getStandardDeviation(), summary.getMinimum(), summary.getMaximum(), summary.getNumberOfReplications()));
+			}
+			info.append("</table></center>");
+		}
+
+		info.append("<h1>Replications</h1>");
+		info.append("<center><table border='1'><tr><th>Replication</th><th>Seed</th><th>Simulation time</th><th>CPU time</th><th>Number of processed events</th></tr>");
+		for (Replication replication : replications)
+			info.append(String.format("<tr><td>%d</td><td>%d</td><td>%s</td><td>%s</td><td>%d</td></tr>", replication.index, replication.seed, StringUtils.secondsToYearsDaysHoursMinutesSeconds(replication.simTime), StringUtils.secondsToYearsDaysHoursMinutesSeconds(replication.cpuTime), replication.processedEvents));
+		info.append("</table></center>");
+
+		info.append("</body></html>");
+		return info.toString();
+	}
+
+	private void checkFinished()
+	{
+		if (replications == null) throw new Net2PlanException("Replications were not run yet");
+	}
+
+	private Replication runReplication(int index, long seed)
+	{
+		final IExternal replicationEventGenerator = newInstance(eventGenerator);
+		final IExternal replicationEventProcessor = newInstance(eventProcessor);
+		final Map<String, String> replicationEventGeneratorParameters = withSeed(eventGeneratorParameters, seed);
+		final Map<String, String> replicationEventProcessorParameters = withSeed(eventProcessorParameters, seed);
+
+		/* Periodic progress information of many replications at the same time would flood the console */
+		final Map<String, String> replicationSimulationParameters = new LinkedHashMap<String, String>(simulationParameters);
+		replicationSimulationParameters.put("refreshTime", Double.toString(Double.MAX_VALUE));
+
+		/* The design is shared among workers: only one of them reads it at a time */
+		final NetPlan replicationNetPlan;
+		synchronized (netPlan) { replicationNetPlan = netPlan.copy(); }
+
+		/* Headless kernel (no GUI listener), so that the simulation core runs without per-event synchronization */
+		final SimKernel simKernel = new SimKernel();
+		simKernel.setNetPlan(replicationNetPlan);
+		simKernel.setRandomSeed(seed);
+		simKernel.configureSimulation(replicationSimulationParameters, net2planParameters, replicationEventGenerator, replicationEventGeneratorParameters, replicationEventProcessor, replicationEventProcessorParameters);
+		simKernel.initialize();
+
+		simKernel.getSimCore().setSimulationState(SimCore.SimState.RUNNING);
+		simKernel.getSimCore().run();
+		final Throwable reason = simKernel.getLastReason();
+		if (reason != null && !(reason instanceof EndSimulationException))
+		{
+			if (reason instanceof Net2PlanException) throw new Net2PlanException("Replication " + index + " (seed " + seed + "): " + reason.getMessage());
+			throw new RuntimeException("Replication " + index + " (seed " + seed + ") failed", reason);
+		}
+
+		final Replication replication = new Replication(index, seed);
+		replication.report = simKernel.getSimulationReport();
+		replication.metrics = simKernel.getSimulationMetrics();
+		replication.simTime = simKernel.getSimCore().getFutureEventList().getCurrentSimulationTime();
+		replication.cpuTime = simKernel.getSimCore().getCPUTime();
+		replication.processedEvents = simKernel.getSimCore().getFutureEventList().getNumberOfProcessedEvents();
+		return replication;
+	}
+
+	private Map<String, String> withSeed(Map<String, String> algorithmParameters, long seed)
+	{
+		final Map<String, String> res = new LinkedHashMap<String, String>(algorithmParameters);
+		for (String seedParameter : seedParameters)
+			if (res.containsKey(seedParameter)) res.put(seedParameter, Long.toString(seed));
+		return res;
+	}
+
+	private static IExternal newInstance(IExternal template)
+	{
+		try
+		{
+			return template.getClass().getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new Net2PlanException("Class " + template.getClass().getName() + " must have a public no-argument constructor to run replications");
+		}
+	}
+
+	static Map<String, MetricSummary> mergeMetrics(List<Replication> replications, double confidenceLevel)
+	{
+		final Map<String, List<Double>> samples = new LinkedHashMap<String, List<Double>>();
+		for (Replication replication : replications)
+		{
+			for (Map.Entry<String, Double> entry : replication.metrics.entrySet())
+			{
+				List<Double> values = samples.get(entry.getKey());
+				if (values == null) { values = new ArrayList<Double>(replications.size()); samples.put(entry.getKey(), values); }
+				values.add(entry.getValue());
+			}
+		}
+
+		final Map<String, MetricSummary> res = new LinkedHashMap<String, MetricSummary>();
+		final Map<Integer, Double> tQuantiles = new LinkedHashMap<Integer, Double>();
+		for (Map.Entry<String, List<Double>> entry : samples.entrySet())
+		{
+			final List<Double> values = entry.getValue();
+			final int n = values.size();
+			double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+			for (double value : values) { sum += value; min = Math.min(min, value); max = Math.max(max, value); }
+			final double mean = sum / n;
+
+			double sumOfSquares = 0;
+			for (double value : values) sumOfSquares += (value - mean) * (value - mean);
+			final double standardDeviation = n > 1 ? Math.sqrt(sumOfSquares / (n - 1)) : 0;
+
+			double halfWidth = Double.NaN;
+			if (n > 1)
+			{
+				Double t = tQuantiles.get(n);
+				if (t == null) { t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidenceLevel) / 2); tQuantiles.put(n, t); }
+				halfWidth = t * standardDeviation / Math.sqrt(n);
+			}
+
+			res.put(entry.getKey(), new MetricSummary(n, mean, standardDeviation, halfWidth, min, max));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Summary of the values of a metric among replications.
+	 *
+	 * @since 0.6.5
+	 */
+	public static final class MetricSummary
+	{
+		private final int numReplications;
+		private final double mean, standardDeviation, confidenceIntervalHalfWidth, minimum, maximum;
+
+		MetricSummary(int numReplications, double mean, double standardDeviation, double confidenceIntervalHalfWidth, double minimum, double maximum)
+		{
+			this.numReplications = numReplications;
+			this.mean = mean;
+			this.standardDeviation = standardDeviation;
+			this.confidenceIntervalHalfWidth = confidenceIntervalHalfWidth;
+			this.minimum = minimum;
+			this.maximum = maximum;
+		}
+
+		/**
+		 * Returns the half-width of the confidence interval of the mean ({@code NaN} for a single replication).
+		 *
+		 * @return Half-width of the confidence interval
+		 */
+		public double getConfidenceIntervalHalfWidth()
+		{
+			return confidenceIntervalHalfWidth;
+		}
+
+		/**
+		 * Returns the maximum value among replications.
+		 *
+		 * @return Maximum value
+		 */
+		public double getMaximum()
+		{
+			return maximum;
+		}
+
+		/**
+		 * Returns the mean value among replications.
+		 *
+		 * @return Mean value
+		 */
+		public double getMean()
+		{
+			return mean;
+		}
+
+		/**
+		 * Returns the minimum value among replications.
+		 *
+		 * @return Minimum value
+		 */
+		public double getMinimum()
+		{
+			return minimum;
+		}
+
+		/**
+		 * Returns the number of replications where the metric was available.
+		 *
+		 * @return Number of replications
+		 */
+		public int getNumberOfReplications()
+		{
+			return numReplications;
+		}
+
+		/**
+		 * Returns the sample standard deviation among replications (zero for a single replication).
+		 *
+		 * @return Standard deviation
+		 */
+		public double getStandardDeviation()
+		{
+			return standardDeviation;
+		}
+	}
+
+	/* Results of a single replication */
+	static final class Replication
+	{
+		final int index;
+		final long seed;
+		String report;
+		Map<String, Double> metrics;
+		double simTime, cpuTime;
+		long processedEvents;
+
+		Replication(int index, long seed)
+		{
+			this.index = index;
+			this.seed = seed;
+		}
+	}
+}
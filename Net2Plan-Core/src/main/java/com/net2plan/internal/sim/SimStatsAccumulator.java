@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import java.util.Arrays;
+
+/**
+ * <p>Time-weighted accumulators for a set of elements (slots), each one with a fixed number of metrics, stored in primitive arrays.</p>
+ *
+ * <p>Each slot keeps the current value of its metrics, and the time since when they hold. Accumulation is lazy: the
+ * contribution of the current values ({@code value * elapsedTime}) and their effect on the minimum and maximum are
+ * only added when the slot is advanced in time, which is done just before changing the values, or before reading the results.
+ * Advancing to the same time has no effect, so several changes at the same simulation time only keep the last value.</p>
+ *
+ * <p>Following the conventions of {@link SimStats SimStats}, maximum values start at zero and minimum values at {@code Double.MAX_VALUE}.</p>
+ *
+ * @since 0.6.5
+ */
+final class SimStatsAccumulator
+{
+	/**
+	 * Slot identifier for elements not (yet) tracked. Getters return the initial values for it.
+	 */
+	final static int NO_SLOT = -1;
+
+	private final int numMetrics;
+	private double[] value, accum, min, max;
+	private double[] since, totalTime;
+	private boolean[] inUse;
+	private int[] freeSlots;
+	private int numFreeSlots, numSlots, numSlotsInUse;
+
+	SimStatsAccumulator(int numMetrics)
+	{
+		this.numMetrics = numMetrics;
+		final int initialCapacity = 16;
+		value = new double[initialCapacity * numMetrics];
+		accum = new double[initialCapacity * numMetrics];
+		min = new double[initialCapacity * numMetrics];
+		max = new double[initialCapacity * numMetrics];
+		since = new double[initialCapacity];
+		totalTime = new double[initialCapacity];
+		inUse = new boolean[initialCapacity];
+		freeSlots = new int[initialCapacity];
+	}
+
+	/**
+	 * Allocates a slot whose metrics are zero since the given time.
+	 *
+	 * @param time Current simulation time
+	 * @return Slot identifier
+	 */
+	int allocate(double time)
+	{
+		final int slot;
+		if (numFreeSlots > 0) slot = freeSlots[--numFreeSlots];
+		else { ensureCapacity(numSlots + 1); slot = numSlots++; }
+
+		final int offset = slot * numMetrics;
+		Arrays.fill(value, offset, offset + numMetrics, 0);
+		Arrays.fill(accum, offset, offset + numMetrics, 0);
+		Arrays.fill(min, offset, offset + numMetrics, Double.MAX_VALUE);
+		Arrays.fill(max, offset, offset + numMetrics, 0);
+		since[slot] = time;
+		totalTime[slot] = 0;
+		inUse[slot] = true;
+		numSlotsInUse++;
+		return slot;
+	}
+
+	/**
+	 * Releases a slot, so that it can be reused.
+	 *
+	 * @param slot Slot identifier
+	 */
+	void release(int slot)
+	{
+		if (!inUse[slot]) throw new RuntimeException("Slot " + slot + " is not in use");
+		inUse[slot] = false;
+		numSlotsInUse--;
+		if (numFreeSlots == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlots.length);
+		freeSlots[numFreeSlots++] = slot;
+	}
+
+	/**
+	 * Accumulates the current values of the slot from the last time it was advanced, up to the given time.
+	 *
+	 * @param slot Slot identifier
+	 * @param time Simulation time
+	 */
+	void advance(int slot, double time)
+	{
+		final double timeInterval = time - since[slot];
+		if (!(timeInterval > 0)) return;
+
+		final int offset = slot * numMetrics;
+		for (int m = offset; m < offset + numMetrics; m++)
+		{
+			final double v = value[m];
+			accum[m] += v * timeInterval;
+			if (v < min[m]) min[m] = v;
+			if (v > max[m]) max[m] = v;
+		}
+		totalTime[slot] += timeInterval;
+		since[slot] = time;
+	}
+
+	/**
+	 * Advances all the slots in use up to the given time.
+	 *
+	 * @param time Simulation time
+	 */
+	void advanceAll(double time)
+	{
+		for (int slot = 0; slot < numSlots; slot++)
+			if (inUse[slot]) advance(slot, time);
+	}
+
+	void set(int slot, int metric, double newValue)
+	{
+		value[slot * numMetrics + metric] = newValue;
+	}
+
+	double get(int slot, int metric)
+	{
+		return slot == NO_SLOT ? 0 : value[slot * numMetrics + metric];
+	}
+
+	double getAccum(int slot, int metric)
+	{
+		return slot == NO_SLOT ? 0 : accum[slot * numMetrics + metric];
+	}
+
+	double getMin(int slot, int metric)
+	{
+		return slot == NO_SLOT ? Double.MAX_VALUE : min[slot * numMetrics + metric];
+	}
+
+	double getMax(int slot, int metric)
+	{
+		return slot == NO_SLOT ? 0 : max[slot * numMetrics + metric];
+	}
+
+	double getTotalTime(int slot)
+	{
+		return slot == NO_SLOT ? 0 : totalTime[slot];
+	}
+
+	/**
+	 * Returns the maximum current value of a metric among the slots in use (zero if none).
+	 *
+	 * @param metric Metric index
+	 * @return Maximum current value
+	 */
+	double getMaxCurrentValue(int metric)
+	{
+		double res = 0;
+		for (int slot = 0; slot < numSlots; slot++)
+			if (inUse[slot]) res = Math.max(res, value[slot * numMetrics + metric]);
+		return res;
+	}
+
+	int getNumberOfSlotsInUse()
+	{
+		return numSlotsInUse;
+	}
+
+	private void ensureCapacity(int requiredSlots)
+	{
+		if (requiredSlots <= inUse.length) return;
+		final int newCapacity = Math.max(requiredSlots, 2 * inUse.length);
+		value = Arrays.copyOf(value, newCapacity * numMetrics);
+		accum = Arrays.copyOf(accum, newCapacity * numMetrics);
+		min = Arrays.copyOf(min, newCapacity * numMetrics);
+		max = Arrays.copyOf(max, newCapacity * numMetrics);
+		since = Arrays.copyOf(since, newCapacity);
+		totalTime = Arrays.copyOf(totalTime, newCapacity);
+		inUse = Arrays.copyOf(inUse, newCapacity);
+	}
+}
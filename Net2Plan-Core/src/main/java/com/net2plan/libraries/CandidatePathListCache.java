@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+
+/**
+ * <p>Cache of the candidate path lists (k-shortest paths per node pair) computed by
+ * {@link NetPlan#computeUnicastCandidatePathList(cern.colt.matrix.tdouble.DoubleMatrix1D, int, double, int, double, double, double, double, java.util.SortedSet, NetworkLayer...)}.
+ * It is shared by all the designs, so an algorithm executed several times on the same topology (or on copies of the same design) computes the paths once.
+ * The paths are stored per node pair, as sequences of link indexes, with a key that is a hash of the topology of the layer (the end nodes, length and propagation
+ * delay of each link), the link costs, K and the path constraints.</p>
+ *
+ * <p>The most recently used candidate path lists are kept in memory, up to the number set with
+ * {@link #setMaxPathListsInMemory(int)} (four by default). If a directory is set (see {@link #setDirectory(File)}), they are also saved there
+ * after computing new paths, and read from there when not in memory, so they are reused by later executions (e.g. of the CLI). A file that
+ * cannot be read, or whose contents are not valid, is ignored and the paths are computed again.</p>
+ *
+ * <p>The paths of the node pairs not in the cache are computed in parallel by a fork-join pool shared by all the calls, each worker with its own scratch space in the {@link CsrGraph} of the layer.</p>
+ *
+ * @since 0.6.5
+ */
+public class CandidatePathListCache
+{
+	private static final int FILE_FORMAT_VERSION = 1;
+	private static final String FILE_EXTENSION = ".cpl";
+	private static final CandidatePathListCache INSTANCE = new CandidatePathListCache();
+
+	private final LinkedHashMap<String,PathList> pathLists = new LinkedHashMap<> (16 , 0.75f , true); // in access order
+	private int maxPathListsInMemory = 4;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool = null; // created when first needed, with numThreads threads
+	private File directory = null;
+
+	private CandidatePathListCache ()
+	{
+	}
+
+	/**
+	 * <p>Returns the cache used by all the designs.</p>
+	 *
+	 * @return The cache
+	 */
+	public static CandidatePathListCache getInstance ()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * <p>Sets the maximum number of candidate path lists kept in memory (four by default). When exceeded, the least recently used are removed from memory.</p>
+	 *
+	 * @param maxPathListsInMemory The maximum number of candidate path lists. If zero, the lists are not kept in memory
+	 */
+	public synchronized void setMaxPathListsInMemory (int maxPathListsInMemory)
+	{
+		if (maxPathListsInMemory < 0) throw new Net2PlanException ("The maximum number of candidate path lists cannot be negative");
+		this.maxPathListsInMemory = maxPathListsInMemory;
+		removeLeastRecentlyUsed();
+	}
+
+	/**
+	 * <p>Sets the number of threads computing the paths (by default, the number of available processors).</p>
+	 *
+	 * @param numThreads The number of threads
+	 */
+	public synchronized void setNumberOfThreads (int numThreads)
+	{
+		if (numThreads <= 0) throw new Net2PlanException ("The number of threads must be greater than zero");
+		if (numThreads == this.numThreads) return;
+		this.numThreads = numThreads;
+		this.pool = null; // the computations running in the previous pool are finished there, and then its threads end
+	}
+
+	/**
+	 * <p>Sets the directory where the candidate path lists are saved, and read from when not in memory. It is created if it does not exist.</p>
+	 *
+	 * @param directory The directory. If {@code null}, the lists are not saved
+	 */
+	public synchronized void setDirectory (File directory)
+	{
+		if (directory != null)
+		{
+			directory.mkdirs();
+			if (!directory.isDirectory()) throw new Net2PlanException ("Cannot use " + directory + " as the directory of the candidate path lists");
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * <p>Removes the candidate path lists kept in memory. The ones saved in the directory are not removed.</p>
+	 */
+	public synchronized void clear ()
+	{
+		pathLists.clear();
+	}
+
+	/**
+	 * <p>Returns the k-shortest paths of the given node pairs, as {@link GraphUtils#getKLooplessShortestPaths(List, List, Node, Node, Map, int, double, int, double, double, double, double)},
+	 * taking the paths of the node pairs already computed for the same topology, link costs and constraints from the cache, and computing in parallel the rest.</p>
+	 *
+	 * @param netPlan Network design
+	 * @param layer Network layer
+	 * @param linkCosts Cost per link index in the layer. If {@code null}, all the links have cost one
+	 * @param K Desired number of paths
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param nodePairs The node pairs
+	 * @return The paths (values) per node pair (keys)
+	 */
+	public SortedMap<Pair<Node,Node>,List<List<Link>>> getUnicastCandidatePathList (NetPlan netPlan , NetworkLayer layer , double [] linkCosts , int K , double maxLengthInKm , int maxNumHops , double maxPropDelayInMs , double maxRouteCost , double maxRouteCostFactorRespectToShortestPath , double maxRouteCostRespectToShortestPath , Collection<Pair<Node,Node>> nodePairs)
+	{
+		final List<Link> links = netPlan.getLinks(layer);
+		final int N = netPlan.getNumberOfNodes();
+		if (linkCosts == null) { linkCosts = new double [links.size()]; Arrays.fill(linkCosts , 1.0); }
+		if (linkCosts.length != links.size()) throw new Net2PlanException ("The array of costs must have the same length as the number of links in the layer");
+		for (double cost : linkCosts) if (cost < 0) throw new Net2PlanException ("Link costs must be non-negative");
+		final double [] constraints = new double [] { maxLengthInKm , maxNumHops , maxPropDelayInMs , maxRouteCost , maxRouteCostFactorRespectToShortestPath , maxRouteCostRespectToShortestPath };
+		for (int cont = 0; cont < constraints.length ; cont ++) if (constraints [cont] <= 0) constraints [cont] = -1;
+
+		final PathList pathList = getPathList(computeKey(links , N , linkCosts , K , constraints) , N , links.size());
+		final List<Pair<Node,Node>> nodePairsToCompute = new ArrayList<> ();
+		for (Pair<Node,Node> nodePair : nodePairs)
+			if (pathList.get(getNodePairKey(nodePair , N)) == null) nodePairsToCompute.add(nodePair);
+		if (!nodePairsToCompute.isEmpty())
+		{
+			final CsrGraph graph = CsrGraph.getFromLayer(netPlan , layer);
+			final double [] graphLinkCosts = new double [graph.getNumberOfLinks()];
+			for (int a = 0; a < graphLinkCosts.length ; a ++) graphLinkCosts [a] = linkCosts [graph.getLink(a).getIndex()];
+			final int [][][] paths = computeInParallel(nodePairsToCompute , nodePair -> toLinkIndexes(graph.getKLooplessShortestPaths(graphLinkCosts , nodePair.getFirst() , nodePair.getSecond() , K ,
+					maxLengthInKm , maxNumHops , maxPropDelayInMs , maxRouteCost , maxRouteCostFactorRespectToShortestPath , maxRouteCostRespectToShortestPath)));
+			for (int cont = 0; cont < paths.length ; cont ++) pathList.put(getNodePairKey(nodePairsToCompute.get(cont) , N) , paths [cont]);
+			save(pathList);
+		}
+
+		final SortedMap<Pair<Node,Node>,List<List<Link>>> cpl = new TreeMap<> ();
+		for (Pair<Node,Node> nodePair : nodePairs)
+		{
+			final List<List<Link>> paths = new ArrayList<> ();
+			for (int [] path : pathList.get(getNodePairKey(nodePair , N)))
+			{
+				final List<Link> seqLinks = new ArrayList<> (path.length);
+				for (int e : path) seqLinks.add(links.get(e));
+				paths.add(seqLinks);
+			}
+			cpl.put(nodePair , paths);
+		}
+		return cpl;
+	}
+
+	/* The paths of each node pair, computed by a pool of workers. If a computation throws an exception, the rest are not started and the exception is thrown */
+	private int [][][] computeInParallel (List<Pair<Node,Node>> nodePairs , Function<Pair<Node,Node>,int [][]> computation)
+	{
+		final int [][][] res = new int [nodePairs.size()][][];
+		final int numWorkers;
+		final ForkJoinPool pool;
+		synchronized (this)
+		{
+			numWorkers = Math.min(numThreads , nodePairs.size());
+			if (numWorkers > 1 && this.pool == null) this.pool = new ForkJoinPool(numThreads);
+			pool = this.pool;
+		}
+		if (numWorkers <= 1)
+		{
+			for (int cont = 0; cont < res.length ; cont ++) res [cont] = computation.apply(nodePairs.get(cont));
+			return res;
+		}
+		final AtomicInteger nextNodePair = new AtomicInteger ();
+		final AtomicBoolean stop = new AtomicBoolean ();
+		final List<Callable<Void>> workers = new ArrayList<> (numWorkers);
+		for (int cont = 0; cont < numWorkers ; cont ++)
+			workers.add(() ->
+			{
+				try
+				{
+					while (!stop.get())
+					{
+						final int index = nextNodePair.getAndIncrement();
+						if (index >= res.length) break;
+						res [index] = computation.apply(nodePairs.get(index));
+					}
+				}
+				catch (RuntimeException | Error e)
+				{
+					stop.set(true);
+					throw e;
+				}
+				return null;
+			});
+		Throwable firstFailure = null;
+		try
+		{
+			for (Future<Void> future : pool.invokeAll(workers))
+			{
+				try { future.get(); }
+				catch (ExecutionException e) { if (firstFailure == null) firstFailure = e.getCause(); }
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		if (firstFailure instanceof RuntimeException) throw (RuntimeException) firstFailure;
+		if (firstFailure instanceof Error) throw (Error) firstFailure;
+		if (firstFailure != null) throw new RuntimeException(firstFailure);
+		return res;
+	}
+
+	/* The candidate path list with the given key: from memory, from the directory, or a new empty one */
+	private synchronized PathList getPathList (String key , int numNodes , int numLinks)
+	{
+		PathList pathList = pathLists.get(key);
+		if (pathList != null) return pathList;
+		pathList = directory == null? null : load(new File(directory , key + FILE_EXTENSION) , key , numNodes , numLinks);
+		if (pathList == null) pathList = new PathList(key);
+		if (maxPathListsInMemory > 0)
+		{
+			pathLists.put(key , pathList);
+			removeLeastRecentlyUsed();
+		}
+		return pathList;
+	}
+
+	private void removeLeastRecentlyUsed ()
+	{
+		final Iterator<String> it = pathLists.keySet().iterator();
+		while (pathLists.size() > maxPathListsInMemory && it.hasNext()) { it.next(); it.remove(); }
+	}
+
+	private void save (PathList pathList)
+	{
+		final File directory;
+		synchronized (this) { directory = this.directory; }
+		if (directory == null) return;
+		final File file = new File(directory , pathList.key + FILE_EXTENSION);
+		File tmpFile = null;
+		try
+		{
+			tmpFile = File.createTempFile(pathList.key , ".tmp" , directory);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))))
+			{
+				out.writeInt(FILE_FORMAT_VERSION);
+				synchronized (pathList)
+				{
+					out.writeInt(pathList.pathsPerNodePair.size());
+					for (Map.Entry<Long,int [][]> entry : pathList.pathsPerNodePair.entrySet())
+					{
+						out.writeLong(entry.getKey());
+						out.writeInt(entry.getValue().length);
+						for (int [] path : entry.getValue())
+						{
+							out.writeInt(path.length);
+							for (int e : path) out.writeInt(e);
+						}
+					}
+				}
+			}
+			/* the file is replaced at once, so a concurrent reader (e.g. another execution) never sees it partially written */
+			try { Files.move(tmpFile.toPath() , file.toPath() , StandardCopyOption.ATOMIC_MOVE , StandardCopyOption.REPLACE_EXISTING); }
+			catch (AtomicMoveNotSupportedException e) { Files.move(tmpFile.toPath() , file.toPath() , StandardCopyOption.REPLACE_EXISTING); }
+			tmpFile = null;
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error saving the candidate path list in " + file + ": " + e.getMessage());
+		} finally
+		{
+			if (tmpFile != null) tmpFile.delete();
+		}
+	}
+
+	/* Reads a candidate path list, or returns null if the file does not exist or is not valid (then, the paths are computed again). Every count is
+	 * checked against the number of bytes of the file, and every node pair and link index against the layer, before using it */
+	private static PathList load (File file , String key , int numNodes , int numLinks)
+	{
+		if (!file.isFile()) return null;
+		final long numBytes = file.length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != FILE_FORMAT_VERSION) return null;
+			final PathList pathList = new PathList(key);
+			final int numNodePairs = readCount(in , numBytes);
+			for (int cont = 0; cont < numNodePairs ; cont ++)
+			{
+				final long nodePairKey = in.readLong();
+				if (nodePairKey < 0 || nodePairKey >= ((long) numNodes) * numNodes) return null;
+				final int [][] paths = new int [readCount(in , numBytes)][];
+				for (int p = 0; p < paths.length ; p ++)
+				{
+					paths [p] = new int [readCount(in , numBytes)];
+					if (paths [p].length > numLinks) return null;
+					for (int hop = 0; hop < paths [p].length ; hop ++)
+					{
+						paths [p][hop] = in.readInt();
+						if (paths [p][hop] < 0 || paths [p][hop] >= numLinks) return null;
+					}
+				}
+				pathList.put(nodePairKey , paths);
+			}
+			if (in.read() != -1) return null;
+			return pathList;
+		} catch (IOException | RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	/* A count of elements of at least four bytes each, which cannot be larger than the file */
+	private static int readCount (DataInputStream in , long numBytes) throws IOException
+	{
+		final int count = in.readInt();
+		if (count < 0 || 4L * count > numBytes) throw new IOException ("Wrong count");
+		return count;
+	}
+
+	/* Hash of everything the paths depend on: the topology of the layer, the link costs, K and the constraints */
+	private static String computeKey (List<Link> links , int numNodes , double [] linkCosts , int K , double [] constraints)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new OutputStream() { @Override public void write(int b) { } } , digest)))
+			{
+				out.writeInt(FILE_FORMAT_VERSION);
+				out.writeInt(numNodes);
+				out.writeInt(links.size());
+				for (Link e : links)
+				{
+					out.writeInt(e.getOriginNode().getIndex());
+					out.writeInt(e.getDestinationNode().getIndex());
+					out.writeDouble(e.getLengthInKm());
+					out.writeDouble(e.getPropagationDelayInMs());
+					out.writeDouble(linkCosts [e.getIndex()]);
+				}
+				out.writeInt(K);
+				for (double constraint : constraints) out.writeDouble(constraint);
+			}
+			final StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest()) key.append(String.format("%02x" , b));
+			return key.toString();
+		} catch (NoSuchAlgorithmException | IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long getNodePairKey (Pair<Node,Node> nodePair , int numNodes)
+	{
+		return ((long) nodePair.getFirst().getIndex()) * numNodes + nodePair.getSecond().getIndex();
+	}
+
+	private static int [][] toLinkIndexes (List<List<Link>> paths)
+	{
+		final int [][] res = new int [paths.size()][];
+		for (int p = 0; p < res.length ; p ++)
+		{
+			res [p] = new int [paths.get(p).size()];
+			for (int hop = 0; hop < res [p].length ; hop ++) res [p][hop] = paths.get(p).get(hop).getIndex();
+		}
+		return res;
+	}
+
+	/* The paths of the node pairs computed for a key, as link indexes in the layer */
+	private static final class PathList
+	{
+		private final String key;
+		private final Map<Long,int [][]> pathsPerNodePair = new HashMap<> ();
+
+		private PathList (String key)
+		{
+			this.key = key;
+		}
+
+		private synchronized int [][] get (long nodePairKey)
+		{
+			return pathsPerNodePair.get(nodePairKey);
+		}
+
+		private synchronized void put (long nodePairKey , int [][] paths)
+		{
+			pathsPerNodePair.put(nodePairKey , paths);
+		}
+	}
+}
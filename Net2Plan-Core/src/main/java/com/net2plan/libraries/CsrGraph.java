@@ -0,0 +1,696 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/**
+ * <p>Directed graph of a set of nodes and links, in compressed sparse row (CSR) form, used by the shortest path algorithms in {@link GraphUtils}.
+ * Nodes and links are given consecutive indexes in the graph, and the outgoing links of each node are stored in consecutive positions of primitive arrays.
+ * Then, the graph is built in linear time, and the Dijkstra, Yen and Suurballe algorithms implemented here do not create objects per node or link visited:
+ * the heap and the scratch arrays are reused in the calls of the same thread.</p>
+ *
+ * <p>The link costs are not part of the graph: they are given to the algorithms as an array with one cost per link index in the graph
+ * (see {@link #getLinkCosts(Map)}), so the same graph is used with any costs. A cost of {@code Double.MAX_VALUE} means that the link cannot be used.</p>
+ *
+ * <p>The graph with all the nodes and links of a layer is built once per state of the design, and shared by all the calls (see {@link #getFromLayer(NetPlan, NetworkLayer...)}).
+ * Objects of this class are not modified after created, and can be used by several threads at the same time.</p>
+ *
+ * @since 0.6.5
+ */
+public final class CsrGraph
+{
+	private final Node [] nodes; // per node index
+	private final Map<Node,Integer> nodeIndexes;
+	private final int [] outStart; // per node, index of its first outgoing link. The outgoing links of node n are outStart [n] ... outStart [n+1]-1
+	private final Link [] links; // per link index, sorted by origin node
+	private final int [] originIndex; // per link
+	private final int [] destinationIndex; // per link
+	private final long nonAttributeModificationCounter; // for the graphs of a layer, the state of the design when built
+	private static final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new); // one per thread, shared by all the graphs
+
+	private CsrGraph (Collection<Node> nodeCollection , Collection<Link> linkCollection , long nonAttributeModificationCounter)
+	{
+		this.nonAttributeModificationCounter = nonAttributeModificationCounter;
+		this.nodeIndexes = new HashMap<> ();
+		final List<Node> nodeList = new ArrayList<> (nodeCollection.size());
+		for (Node n : nodeCollection)
+			if (!nodeIndexes.containsKey(n)) { nodeIndexes.put(n , nodeList.size()); nodeList.add(n); }
+		this.nodes = nodeList.toArray(new Node [nodeList.size()]);
+		final int N = nodes.length;
+
+		final List<Link> linkList = new ArrayList<> ();
+		final int [] numOutLinks = new int [N];
+		if (linkCollection != null)
+		{
+			final Set<Link> linksAdded = new HashSet<> ();
+			for (Link e : linkCollection)
+			{
+				final Integer a = nodeIndexes.get(e.getOriginNode());
+				final Integer b = nodeIndexes.get(e.getDestinationNode());
+				if (a == null || b == null) throw new Net2PlanException ("The end nodes of link " + e + " are not in the graph");
+				if (!linksAdded.add(e)) continue;
+				linkList.add(e);
+				numOutLinks [a] ++;
+			}
+		}
+		final int E = linkList.size();
+		this.outStart = new int [N + 1];
+		for (int n = 0; n < N ; n ++) outStart [n + 1] = outStart [n] + numOutLinks [n];
+		this.links = new Link [E];
+		this.originIndex = new int [E];
+		this.destinationIndex = new int [E];
+		final int [] nextPosition = Arrays.copyOf(outStart, N);
+		for (Link e : linkList)
+		{
+			final int a = nodeIndexes.get(e.getOriginNode());
+			final int position = nextPosition [a] ++;
+			links [position] = e;
+			originIndex [position] = a;
+			destinationIndex [position] = nodeIndexes.get(e.getDestinationNode());
+		}
+	}
+
+	/**
+	 * <p>Returns the graph formed by the given nodes and links. Repeated nodes or links are considered once.</p>
+	 *
+	 * @param nodes Collection of nodes
+	 * @param links Collection of links (if {@code null}, no links). The end nodes of the links must be in {@code nodes}
+	 * @return The graph
+	 */
+	public static CsrGraph create (Collection<Node> nodes , Collection<Link> links)
+	{
+		return new CsrGraph(nodes , links , -1);
+	}
+
+	/**
+	 * <p>Returns the graph formed by all the nodes, and all the links of the given layer, of a design. The graph is kept in the design, and built again only
+	 * when the design changes in something other than the attributes (see {@link NetPlan#getNonAttributeModificationCounter()}).</p>
+	 *
+	 * @param netPlan Network design
+	 * @param optionalLayer Network layer (optional)
+	 * @return The graph
+	 */
+	public static CsrGraph getFromLayer (NetPlan netPlan , NetworkLayer ... optionalLayer)
+	{
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer);
+		return netPlan.getDerivedInformation(LayerGraphs.class, LayerGraphs::new).get(netPlan , layer);
+	}
+
+	/* The graph of the given nodes and links: the one of the layer if they are all the nodes, and all the links of a layer */
+	static CsrGraph getFromCollections (Collection<Node> nodes , Collection<Link> links)
+	{
+		if (links == null || links.isEmpty()) return create(nodes , links);
+		final Link firstLink = links.iterator().next();
+		final NetPlan netPlan = firstLink.getNetPlan();
+		final NetworkLayer layer = firstLink.getLayer();
+		if (netPlan == null || nodes.size() != netPlan.getNumberOfNodes() || links.size() != netPlan.getNumberOfLinks(layer)) return create(nodes , links);
+		final boolean [] nodeFound = new boolean [nodes.size()];
+		for (Node n : nodes)
+		{
+			if (n.getNetPlan() != netPlan || nodeFound [n.getIndex()]) return create(nodes , links);
+			nodeFound [n.getIndex()] = true;
+		}
+		final boolean [] linkFound = new boolean [links.size()];
+		for (Link e : links)
+		{
+			if (e.getNetPlan() != netPlan || e.getLayer() != layer || linkFound [e.getIndex()]) return create(nodes , links);
+			linkFound [e.getIndex()] = true;
+		}
+		return getFromLayer(netPlan , layer);
+	}
+
+	/**
+	 * <p>Returns the number of nodes in the graph.</p>
+	 *
+	 * @return The number of nodes
+	 */
+	public int getNumberOfNodes ()
+	{
+		return nodes.length;
+	}
+
+	/**
+	 * <p>Returns the number of links in the graph.</p>
+	 *
+	 * @return The number of links
+	 */
+	public int getNumberOfLinks ()
+	{
+		return links.length;
+	}
+
+	/**
+	 * <p>Returns the node with the given index in the graph.</p>
+	 *
+	 * @param index Node index
+	 * @return The node
+	 */
+	public Node getNode (int index)
+	{
+		return nodes [index];
+	}
+
+	/**
+	 * <p>Returns the index of the given node in the graph, or -1 if the node is not in the graph.</p>
+	 *
+	 * @param node Node
+	 * @return The index
+	 */
+	public int getNodeIndex (Node node)
+	{
+		final Integer index = nodeIndexes.get(node);
+		return index == null? -1 : index;
+	}
+
+	/**
+	 * <p>Returns the link with the given index in the graph. Link indexes in the graph are sorted by origin node, and in general are not the
+	 * indexes of the links in their layer.</p>
+	 *
+	 * @param index Link index
+	 * @return The link
+	 */
+	public Link getLink (int index)
+	{
+		return links [index];
+	}
+
+	/**
+	 * <p>Returns the array of link costs for the algorithms in this graph, with the cost of each link in the given map.</p>
+	 *
+	 * @param linkCostMap Cost per link. If {@code null}, all the links have cost one. A cost of {@code Double.MAX_VALUE} means that the link cannot be used
+	 * @return The cost per link index in the graph
+	 */
+	public double [] getLinkCosts (Map<Link,Double> linkCostMap)
+	{
+		final double [] linkCost = new double [links.length];
+		if (linkCostMap == null) { Arrays.fill(linkCost , 1.0); return linkCost; }
+		for (int a = 0; a < links.length ; a ++)
+		{
+			final Double cost = linkCostMap.get(links [a]);
+			if (cost == null) throw new Net2PlanException ("Bad - No weight for link " + links [a]);
+			if (cost < 0) throw new Net2PlanException ("Link costs must be non-negative");
+			linkCost [a] = cost;
+		}
+		return linkCost;
+	}
+
+	/**
+	 * <p>Returns the shortest path between two nodes, using Dijkstra's algorithm.</p>
+	 *
+	 * @param linkCost Cost per link index in the graph
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return Sequence of links in the shortest path (empty, if the nodes are the same, are not in the graph, or the destination is not reachable)
+	 */
+	public List<Link> getShortestPath (double [] linkCost , Node originNode , Node destinationNode)
+	{
+		checkLinkCosts(linkCost);
+		final int s = getNodeIndex(originNode);
+		final int t = getNodeIndex(destinationNode);
+		if (s < 0 || t < 0 || s == t) return new ArrayList<> ();
+		final Workspace ws = getWorkspace();
+		ws.clearBlocks();
+		dijkstra(ws , linkCost , null , null , s , t);
+		if (!ws.isSettled(t)) return new ArrayList<> ();
+		return toLinks(getPath(ws , s , t));
+	}
+
+	/**
+	 * <p>Returns the K-loopless shortest paths between two nodes, satisfying some constraints, using Yen's algorithm. If only <i>n</i> paths are found (n&lt;K), those are returned.
+	 * Paths are returned in increasing order of cost (the ones with more links first if equal cost). The constraints are the same as in
+	 * {@link GraphUtils#getKLooplessShortestPaths(List, List, Node, Node, Map, int, double, int, double, double, double, double)}.</p>
+	 *
+	 * <p>Reference: {@code J.Y. Yen, "Finding the K Shortest Loopless Paths in a Network," Management Science, vol. 17, no. 11, pp. 712-716, Jul. 1971}</p>
+	 *
+	 * @param linkCost Cost per link index in the graph
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @param K Desired number of paths
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @return K-shortest paths
+	 */
+	public List<List<Link>> getKLooplessShortestPaths (double [] linkCost , Node originNode , Node destinationNode , int K , double maxLengthInKm , int maxNumHops , double maxPropDelayInMs , double maxRouteCost , double maxRouteCostFactorRespectToShortestPath , double maxRouteCostRespectToShortestPath)
+	{
+		checkLinkCosts(linkCost);
+		final List<List<Link>> res = new ArrayList<> ();
+		final int s = getNodeIndex(originNode);
+		final int t = getNodeIndex(destinationNode);
+		if (s < 0 || t < 0 || s == t) return res;
+		final PathConstraints constraints = new PathConstraints(maxLengthInKm , maxNumHops , maxPropDelayInMs , maxRouteCost , maxRouteCostFactorRespectToShortestPath , maxRouteCostRespectToShortestPath);
+		final Workspace ws = getWorkspace();
+		ws.clearBlocks();
+		dijkstra(ws , linkCost , null , null , s , t);
+		if (!ws.isSettled(t)) return res;
+		final Path shortestPath = new Path(getPath(ws , s , t) , linkCost);
+		if (!constraints.isAccepted(shortestPath)) return res;
+
+		final List<Path> paths = new ArrayList<> ();
+		final PriorityQueue<Path> candidates = new PriorityQueue<> ();
+		final Set<Path> candidatesFound = new HashSet<> ();
+		paths.add(shortestPath);
+		while (paths.size() < K)
+		{
+			final int [] currentPath = paths.get(paths.size() - 1).links;
+			for (int deviation = 0; deviation < currentPath.length ; deviation ++)
+			{
+				final int deviationNode = originIndex [currentPath [deviation]];
+
+				/* Block the nodes in the head, and the links leaving the deviation node in the paths found with the same head */
+				ws.clearBlocks();
+				for (int cont = 0; cont < deviation ; cont ++) ws.blockNode(originIndex [currentPath [cont]]);
+				for (Path path : paths)
+					if (path.links.length > deviation && isSameHead(path.links , currentPath , deviation)) ws.blockLink(path.links [deviation]);
+
+				dijkstra(ws , linkCost , null , null , deviationNode , t);
+				if (!ws.isSettled(t)) continue;
+				final int [] tail = getPath(ws , deviationNode , t);
+				final int [] candidateLinks = Arrays.copyOf(currentPath , deviation + tail.length);
+				System.arraycopy(tail , 0 , candidateLinks , deviation , tail.length);
+				final Path candidate = new Path(candidateLinks , linkCost);
+				if (candidatesFound.contains(candidate)) continue;
+				if (!constraints.isAccepted(candidate) || !constraints.isAcceptedRespectToShortestPath(candidate , shortestPath)) continue;
+				candidatesFound.add(candidate);
+				candidates.add(candidate);
+			}
+			if (candidates.isEmpty()) break;
+			paths.add(candidates.poll());
+		}
+		for (Path path : paths) res.add(toLinks(path.links));
+		return res;
+	}
+
+	/**
+	 * <p>Returns the pair of link-disjoint paths between two nodes with minimum total cost, using Suurballe's algorithm. The number of returned items will be equal to the number
+	 * of paths found: when empty, no path was found; when {@code size()} = 1, there are no two link-disjoint paths, and the shortest path is returned;
+	 * and when {@code size()} = 2, the two link-disjoint paths are returned, the one with lower cost first.</p>
+	 *
+	 * <p>Reference: {@code J.W. Suurballe, R.E. Tarjan, "A quick method for finding shortest pairs of disjoint paths," Networks, vol. 14, no. 2, pp. 325-336, 1984}</p>
+	 *
+	 * @param linkCost Cost per link index in the graph
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return Shortest pair of link-disjoint paths
+	 */
+	public List<List<Link>> getTwoLinkDisjointPaths (double [] linkCost , Node originNode , Node destinationNode)
+	{
+		checkLinkCosts(linkCost);
+		final List<List<Link>> res = new ArrayList<> ();
+		final int s = getNodeIndex(originNode);
+		final int t = getNodeIndex(destinationNode);
+		if (s < 0 || t < 0 || s == t) return res;
+		final Workspace ws = getWorkspace();
+		ws.clearBlocks();
+		dijkstra(ws , linkCost , null , null , s , -1);
+		if (!ws.isSettled(t)) return res;
+		final int [] firstPath = getPath(ws , s , t);
+
+		/* Shortest path in the residual graph: links of the first path reversed with cost zero, and the rest with the reduced costs */
+		final double [] potential = ws.potential;
+		for (int n = 0; n < nodes.length ; n ++) potential [n] = ws.isSettled(n)? ws.dist [n] : Double.MAX_VALUE;
+		final int [] reversedLink = ws.reversedLink;
+		ws.clearBlocks();
+		for (int a : firstPath) { ws.blockLink(a); reversedLink [destinationIndex [a]] = a; }
+		dijkstra(ws , linkCost , potential , reversedLink , s , t);
+		for (int a : firstPath) reversedLink [destinationIndex [a]] = -1;
+		if (!ws.isSettled(t)) { res.add(toLinks(firstPath)); return res; }
+		final int [] secondPath = getPath(ws , s , t);
+
+		/* The links of the two paths, but those traversed in both directions, form the two disjoint paths */
+		final int E = links.length;
+		for (int a : firstPath) ws.linkInUnion [a] = true;
+		for (int a : secondPath) ws.linkInUnion [a >= E? a - E : a] = a < E;
+		final int [] path1 = extractPathFromUnion(ws , s , t);
+		final int [] path2 = extractPathFromUnion(ws , s , t);
+		for (int a : firstPath) ws.linkInUnion [a] = false;
+		for (int a : secondPath) ws.linkInUnion [a >= E? a - E : a] = false;
+		final boolean isPath1First = new Path(path1 , linkCost).cost <= new Path(path2 , linkCost).cost;
+		res.add(toLinks(isPath1First? path1 : path2));
+		res.add(toLinks(isPath1First? path2 : path1));
+		return res;
+	}
+
+	/* Dijkstra's algorithm from the source node, until the target node is settled (or all the reachable nodes, if the target is -1). Links with cost Double.MAX_VALUE,
+	 * blocked links and blocked nodes are not used. If potential is not null, the costs are the reduced costs c(a,b)+potential(a)-potential(b). If reversedLink is not null,
+	 * a node n with reversedLink [n] != -1 has an additional outgoing link with cost zero, to the origin node of the link reversedLink [n] (its predecessor is stored as E + link index) */
+	private void dijkstra (Workspace ws , double [] linkCost , double [] potential , int [] reversedLink , int source , int target)
+	{
+		ws.startSearch();
+		ws.reach(source , 0 , -1);
+		while (!ws.isHeapEmpty())
+		{
+			final int n = ws.pollHeap();
+			if (n == target) return;
+			final double distN = ws.dist [n];
+			for (int a = outStart [n]; a < outStart [n + 1] ; a ++)
+			{
+				if (linkCost [a] == Double.MAX_VALUE || ws.isLinkBlocked(a)) continue;
+				final int m = destinationIndex [a];
+				if (ws.isSettled(m) || ws.isNodeBlocked(m)) continue;
+				final double cost = potential == null? linkCost [a] : Math.max(0 , linkCost [a] + potential [n] - potential [m]);
+				ws.reach(m , distN + cost , a);
+			}
+			if (reversedLink != null && reversedLink [n] != -1)
+			{
+				final int m = originIndex [reversedLink [n]];
+				if (!ws.isSettled(m) && !ws.isNodeBlocked(m)) ws.reach(m , distN , links.length + reversedLink [n]);
+			}
+		}
+	}
+
+	/* The scratch space of this thread, large enough for this graph */
+	private Workspace getWorkspace ()
+	{
+		final Workspace ws = workspace.get();
+		ws.ensureCapacity(nodes.length , links.length);
+		return ws;
+	}
+
+	/* The links of the path to node t found in the last search (values E + link index for reversed links) */
+	private int [] getPath (Workspace ws , int s , int t)
+	{
+		int numLinks = 0;
+		for (int n = t; n != s ; numLinks ++) n = getPredecessorNode(ws , n);
+		final int [] path = new int [numLinks];
+		for (int n = t; n != s ; n = getPredecessorNode(ws , n)) path [-- numLinks] = ws.predecessorLink [n];
+		return path;
+	}
+
+	private int getPredecessorNode (Workspace ws , int n)
+	{
+		final int a = ws.predecessorLink [n];
+		return a >= links.length? destinationIndex [a - links.length] : originIndex [a];
+	}
+
+	/* Extracts a path from the origin to the destination using the links marked in the workspace, which are unmarked. Cycles are removed */
+	private int [] extractPathFromUnion (Workspace ws , int s , int t)
+	{
+		final int [] path = ws.pathBuffer;
+		final int [] positionInPath = ws.positionInPath;
+		int length = 0;
+		positionInPath [s] = 0;
+		int n = s;
+		while (n != t)
+		{
+			int nextLink = -1;
+			for (int a = outStart [n]; a < outStart [n + 1] ; a ++)
+				if (ws.linkInUnion [a]) { nextLink = a; break; }
+			if (nextLink == -1) throw new Net2PlanException ("Bad - the paths cannot be recombined");
+			ws.linkInUnion [nextLink] = false;
+			n = destinationIndex [nextLink];
+			if (positionInPath [n] != -1)
+			{
+				for (int cont = positionInPath [n]; cont < length ; cont ++) positionInPath [destinationIndex [path [cont]]] = -1;
+				length = positionInPath [n];
+			}
+			else
+			{
+				path [length ++] = nextLink;
+				positionInPath [n] = length;
+			}
+		}
+		positionInPath [s] = -1;
+		for (int cont = 0; cont < length ; cont ++) positionInPath [destinationIndex [path [cont]]] = -1;
+		return Arrays.copyOf(path , length);
+	}
+
+	private List<Link> toLinks (int [] path)
+	{
+		final List<Link> res = new ArrayList<> (path.length);
+		for (int a : path) res.add(links [a]);
+		return res;
+	}
+
+	private void checkLinkCosts (double [] linkCost)
+	{
+		if (linkCost.length != links.length) throw new Net2PlanException ("Wrong array size");
+	}
+
+	private static boolean isSameHead (int [] path1 , int [] path2 , int headLength)
+	{
+		for (int cont = 0; cont < headLength ; cont ++) if (path1 [cont] != path2 [cont]) return false;
+		return true;
+	}
+
+	/* A path as a sequence of link indexes. Paths are ordered by cost, and if equal, the ones with more links first (as in the JUNG-based implementation) */
+	private static final class Path implements Comparable<Path>
+	{
+		private final int [] links;
+		private final double cost;
+
+		private Path (int [] links , double [] linkCost)
+		{
+			this.links = links;
+			double cost = 0;
+			for (int a : links) cost += linkCost [a];
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo (Path o)
+		{
+			final int compareCost = Double.compare(cost , o.cost);
+			if (compareCost != 0) return compareCost;
+			return Integer.compare(o.links.length , links.length);
+		}
+
+		@Override
+		public boolean equals (Object o)
+		{
+			return o instanceof Path && Arrays.equals(links , ((Path) o).links);
+		}
+
+		@Override
+		public int hashCode ()
+		{
+			return Arrays.hashCode(links);
+		}
+	}
+
+	private final class PathConstraints
+	{
+		private final double maxLengthInKm;
+		private final int maxNumHops;
+		private final double maxPropDelayInMs;
+		private final double maxRouteCost;
+		private final double maxRouteCostFactorRespectToShortestPath;
+		private final double maxRouteCostRespectToShortestPath;
+
+		private PathConstraints (double maxLengthInKm , int maxNumHops , double maxPropDelayInMs , double maxRouteCost , double maxRouteCostFactorRespectToShortestPath , double maxRouteCostRespectToShortestPath)
+		{
+			this.maxLengthInKm = maxLengthInKm <= 0? Double.MAX_VALUE : maxLengthInKm;
+			this.maxNumHops = maxNumHops <= 0? Integer.MAX_VALUE : maxNumHops;
+			this.maxPropDelayInMs = maxPropDelayInMs <= 0? Double.MAX_VALUE : maxPropDelayInMs;
+			this.maxRouteCost = maxRouteCost <= 0? Double.MAX_VALUE : maxRouteCost;
+			this.maxRouteCostFactorRespectToShortestPath = maxRouteCostFactorRespectToShortestPath <= 0? Double.MAX_VALUE : maxRouteCostFactorRespectToShortestPath;
+			this.maxRouteCostRespectToShortestPath = maxRouteCostRespectToShortestPath <= 0? Double.MAX_VALUE : maxRouteCostRespectToShortestPath;
+		}
+
+		private boolean isAccepted (Path path)
+		{
+			if (maxNumHops != Integer.MAX_VALUE && path.links.length > maxNumHops) return false;
+			if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
+			double lengthInKm = 0;
+			double propDelayInMs = 0;
+			for (int a : path.links)
+			{
+				lengthInKm += links [a].getLengthInKm();
+				propDelayInMs += links [a].getPropagationDelayInMs();
+			}
+			return lengthInKm <= maxLengthInKm && propDelayInMs <= maxPropDelayInMs;
+		}
+
+		private boolean isAcceptedRespectToShortestPath (Path path , Path shortestPath)
+		{
+			if (maxRouteCost != Double.MAX_VALUE && path.cost > maxRouteCost) return false;
+			if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && path.cost > shortestPath.cost * maxRouteCostFactorRespectToShortestPath) return false;
+			return !(maxRouteCostRespectToShortestPath != Double.MAX_VALUE && path.cost > shortestPath.cost + maxRouteCostRespectToShortestPath);
+		}
+	}
+
+	/* The scratch space of the algorithms, one per thread and shared by all the graphs, so that it does not keep any graph alive. The arrays grow when used with a larger graph,
+	 * and only their first positions are used. The marks of the nodes reached and settled in a search, and of the nodes and links blocked, are valid if equal to the current
+	 * search and block numbers, so they are not cleared between searches, nor when changing the graph */
+	private static final class Workspace
+	{
+		private double [] dist = new double [0];
+		private int [] predecessorLink = new int [0];
+		private int [] reachedMark = new int [0];
+		private int [] settledMark = new int [0];
+		private int [] nodeBlockedMark = new int [0];
+		private int [] linkBlockedMark = new int [0];
+		private int [] heap = new int [0]; // binary min-heap of node indexes, by distance
+		private int [] heapPosition = new int [0];
+		private double [] potential = new double [0];
+		private int [] reversedLink = new int [0]; // -1 in all the positions, but while used
+		private boolean [] linkInUnion = new boolean [0]; // false in all the positions, but while used
+		private int [] pathBuffer = new int [0];
+		private int [] positionInPath = new int [0]; // -1 in all the positions, but while used
+		private int heapSize = 0;
+		private int searchNumber = 0;
+		private int blockNumber = 0;
+
+		private void ensureCapacity (int numNodes , int numLinks)
+		{
+			if (dist.length < numNodes)
+			{
+				final int N = Math.max(numNodes , 2 * dist.length);
+				dist = new double [N];
+				predecessorLink = new int [N];
+				reachedMark = new int [N];
+				settledMark = new int [N];
+				nodeBlockedMark = new int [N];
+				heap = new int [N];
+				heapPosition = new int [N];
+				potential = new double [N];
+				reversedLink = new int [N];
+				pathBuffer = new int [N];
+				positionInPath = new int [N];
+				Arrays.fill(reversedLink , -1);
+				Arrays.fill(positionInPath , -1);
+				searchNumber = 0;
+				Arrays.fill(linkBlockedMark , 0);
+				blockNumber = 0;
+			}
+			if (linkBlockedMark.length < numLinks)
+			{
+				final int E = Math.max(numLinks , 2 * linkBlockedMark.length);
+				linkBlockedMark = new int [E];
+				linkInUnion = new boolean [E];
+				Arrays.fill(nodeBlockedMark , 0);
+				blockNumber = 0;
+			}
+		}
+
+		private void startSearch ()
+		{
+			if (searchNumber == Integer.MAX_VALUE) { Arrays.fill(reachedMark , 0); Arrays.fill(settledMark , 0); searchNumber = 0; }
+			searchNumber ++;
+			heapSize = 0;
+		}
+
+		private void clearBlocks ()
+		{
+			if (blockNumber == Integer.MAX_VALUE) { Arrays.fill(nodeBlockedMark , 0); Arrays.fill(linkBlockedMark , 0); blockNumber = 0; }
+			blockNumber ++;
+		}
+
+		private void blockNode (int n) { nodeBlockedMark [n] = blockNumber; }
+		private void blockLink (int a) { linkBlockedMark [a] = blockNumber; }
+		private boolean isNodeBlocked (int n) { return nodeBlockedMark [n] == blockNumber; }
+		private boolean isLinkBlocked (int a) { return linkBlockedMark [a] == blockNumber; }
+		private boolean isSettled (int n) { return settledMark [n] == searchNumber; }
+		private boolean isHeapEmpty () { return heapSize == 0; }
+
+		/* Reaches node n with the given distance through the given link, if it was not reached before, or it improves its distance */
+		private void reach (int n , double distance , int link)
+		{
+			if (reachedMark [n] != searchNumber)
+			{
+				reachedMark [n] = searchNumber;
+				dist [n] = distance;
+				predecessorLink [n] = link;
+				heap [heapSize] = n;
+				heapPosition [n] = heapSize;
+				siftUp(heapSize ++);
+			}
+			else if (distance < dist [n])
+			{
+				dist [n] = distance;
+				predecessorLink [n] = link;
+				siftUp(heapPosition [n]);
+			}
+		}
+
+		private int pollHeap ()
+		{
+			final int n = heap [0];
+			settledMark [n] = searchNumber;
+			heapSize --;
+			if (heapSize > 0)
+			{
+				heap [0] = heap [heapSize];
+				heapPosition [heap [0]] = 0;
+				siftDown(0);
+			}
+			return n;
+		}
+
+		private void siftUp (int position)
+		{
+			final int n = heap [position];
+			while (position > 0)
+			{
+				final int parent = (position - 1) / 2;
+				if (dist [heap [parent]] <= dist [n]) break;
+				heap [position] = heap [parent];
+				heapPosition [heap [position]] = position;
+				position = parent;
+			}
+			heap [position] = n;
+			heapPosition [n] = position;
+		}
+
+		private void siftDown (int position)
+		{
+			final int n = heap [position];
+			while (true)
+			{
+				int child = 2 * position + 1;
+				if (child >= heapSize) break;
+				if (child + 1 < heapSize && dist [heap [child + 1]] < dist [heap [child]]) child ++;
+				if (dist [n] <= dist [heap [child]]) break;
+				heap [position] = heap [child];
+				heapPosition [heap [position]] = position;
+				position = child;
+			}
+			heap [position] = n;
+			heapPosition [n] = position;
+		}
+	}
+
+	/* The graphs of the layers of a design, for its current state */
+	private static final class LayerGraphs
+	{
+		private final Map<NetworkLayer,CsrGraph> graphs = new HashMap<> ();
+
+		private synchronized CsrGraph get (NetPlan netPlan , NetworkLayer layer)
+		{
+			final long counter = netPlan.getNonAttributeModificationCounter();
+			final CsrGraph graph = graphs.get(layer);
+			if (graph != null && graph.nonAttributeModificationCounter == counter) return graph;
+			graphs.values().removeIf(g -> g.nonAttributeModificationCounter != counter);
+			final CsrGraph newGraph = new CsrGraph(netPlan.getNodes() , netPlan.getLinks(layer) , counter);
+			graphs.put(layer , newGraph);
+			return newGraph;
+		}
+	}
+}
@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+
+/**
+ * <p>Evaluates the state of a network in each failure state: no failure (optional), each single SRG failure, and each double SRG failure (optional),
+ * as enumerated by {@link SRGUtils#enumerateFailureStates(Collection, boolean, boolean)}. For each failure state, the SRGs are set as down,
+ * a reaction to the failure (e.g. a recovery algorithm) is applied, and an observer is called to collect the metrics of interest.</p>
+ *
+ * <p>The failure states are not stored: they are numbered, and generated when evaluated. They are evaluated in parallel by several workers. Each worker has
+ * a copy of the design. After each failure state, the copy is restored to the initial state by rolling back the changes made in it
+ * (see {@link NetPlan#beginTransaction()}), instead of making a new copy. If the reaction makes changes that cannot be rolled back, the rollback fails,
+ * and the worker makes a new copy instead. The journal only records the changes made through the methods of the design: a reaction that modifies the
+ * objects returned by the getters (e.g. a map of attributes, or a list of links) must be declared as not reversible
+ * with {@link #setReactionReversible(boolean)}, so that the worker makes a new copy after each failure state where it is applied.</p>
+ *
+ * <p>The observer is called from the worker threads, so it must be thread-safe. {@link WorstCaseValue} can be used to accumulate worst case metrics
+ * without locks, and {@code java.util.concurrent.atomic.DoubleAdder} for sums (e.g. availabilities).</p>
+ *
+ * @since 0.6.5
+ */
+public class FailureStateEvaluator
+{
+	/**
+	 * <p>Reaction of the network to a failure state. Each worker uses its own object.</p>
+	 */
+	public interface IFailureStateReaction
+	{
+		/**
+		 * <p>Applies the reaction to a failure state.</p>
+		 *
+		 * @param netPlan Copy of the design, where the SRGs of the failure state are down
+		 * @param failedSrgs SRGs of the failure state (in the copy)
+		 */
+		void react (NetPlan netPlan , SortedSet<SharedRiskGroup> failedSrgs);
+	}
+
+	/**
+	 * <p>Observer of the state of the network in each failure state, after the reaction. It is called from several threads at the same time.</p>
+	 */
+	public interface IFailureStateObserver
+	{
+		/**
+		 * <p>Observes the state of the network in a failure state. The design should not be modified.</p>
+		 *
+		 * @param netPlan Copy of the design, after the reaction
+		 * @param failureStateIndex Index of the failure state (see {@link FailureStateEvaluator#getFailureState(long)})
+		 * @param failedSrgs SRGs of the failure state (in the copy)
+		 * @param probability Probability of the failure state
+		 */
+		void observe (NetPlan netPlan , long failureStateIndex , SortedSet<SharedRiskGroup> failedSrgs , double probability);
+	}
+
+	private final NetPlan netPlan;
+	private final List<SharedRiskGroup> srgs;
+	private final boolean considerNoFailureState;
+	private final boolean considerDoubleFailureStates;
+	private final double [] availability; // per SRG
+	private final double probabilityNoFailure; // product of the non-zero availabilities
+	private final int numSrgsZeroAvailability;
+	private boolean reactionReversible = true;
+
+	/**
+	 * <p>Creates the evaluator of the failure states of the given SRGs.</p>
+	 *
+	 * @param netPlan Network design
+	 * @param srgs SRGs (in the given order, the failure states are numbered as in {@link SRGUtils#enumerateFailureStates(Collection, boolean, boolean)})
+	 * @param considerNoFailureState Flag to indicate whether or not no failure state is included
+	 * @param considerDoubleFailureStates Flag to indicate whether or not double failure states are included
+	 */
+	public FailureStateEvaluator (NetPlan netPlan , Collection<SharedRiskGroup> srgs , boolean considerNoFailureState , boolean considerDoubleFailureStates)
+	{
+		this.netPlan = netPlan;
+		this.srgs = new ArrayList<> (srgs);
+		this.considerNoFailureState = considerNoFailureState;
+		this.considerDoubleFailureStates = considerDoubleFailureStates;
+		this.availability = new double [this.srgs.size()];
+		double probabilityNoFailure = 1;
+		int numSrgsZeroAvailability = 0;
+		for (int cont = 0; cont < availability.length ; cont ++)
+		{
+			final SharedRiskGroup srg = this.srgs.get(cont);
+			if (srg.getNetPlan() != netPlan) throw new Net2PlanException ("The SRGs must be in the design");
+			availability [cont] = srg.getAvailability();
+			if (availability [cont] < 0 || availability [cont] > 1) throw new Net2PlanException ("Availability must be in range [0, 1]");
+			if (availability [cont] == 0) numSrgsZeroAvailability ++; else probabilityNoFailure *= availability [cont];
+		}
+		this.probabilityNoFailure = probabilityNoFailure;
+		this.numSrgsZeroAvailability = numSrgsZeroAvailability;
+	}
+
+	/**
+	 * <p>Indicates whether the changes made by the reaction can be reverted rolling back the transaction in the copy of the design. This is the case
+	 * if the reaction modifies the design only through its public methods, and not the objects returned by them. If {@code true} (the default), the worker
+	 * rolls back the changes after each failure state, and makes a new copy only if the rollback fails. If {@code false}, the worker always makes a new copy
+	 * of the design after each failure state where a reaction is applied.</p>
+	 *
+	 * @param reactionReversible Flag to indicate whether or not the reaction is reversible
+	 */
+	public void setReactionReversible (boolean reactionReversible)
+	{
+		this.reactionReversible = reactionReversible;
+	}
+
+	/**
+	 * <p>Returns the number of failure states.</p>
+	 *
+	 * @return The number of failure states
+	 */
+	public long getNumberOfFailureStates ()
+	{
+		final long F = srgs.size();
+		return (considerNoFailureState? 1 : 0) + F + (considerDoubleFailureStates? F * (F - 1) / 2 : 0);
+	}
+
+	/**
+	 * <p>Returns the SRGs failing in a failure state.</p>
+	 *
+	 * @param failureStateIndex Index of the failure state
+	 * @return The SRGs (in the design)
+	 */
+	public SortedSet<SharedRiskGroup> getFailureState (long failureStateIndex)
+	{
+		final SortedSet<SharedRiskGroup> res = new TreeSet<> ();
+		for (int srgPosition : getFailedSrgPositions(failureStateIndex)) res.add(srgs.get(srgPosition));
+		return res;
+	}
+
+	/**
+	 * <p>Returns the probability of a failure state, as {@link SRGUtils#computeStateProbabilities(cern.colt.matrix.tdouble.DoubleMatrix2D, cern.colt.matrix.tdouble.DoubleMatrix1D)}:
+	 * the probability that the SRGs in the failure state are down, and the rest are up.</p>
+	 *
+	 * @param failureStateIndex Index of the failure state
+	 * @return The probability
+	 */
+	public double getFailureStateProbability (long failureStateIndex)
+	{
+		final int [] failedSrgPositions = getFailedSrgPositions(failureStateIndex);
+		int numFailedSrgsZeroAvailability = 0;
+		double res = probabilityNoFailure;
+		for (int srgPosition : failedSrgPositions)
+		{
+			if (availability [srgPosition] == 0) numFailedSrgsZeroAvailability ++; else res /= availability [srgPosition];
+			res *= 1 - availability [srgPosition];
+		}
+		return numFailedSrgsZeroAvailability == numSrgsZeroAvailability? res : 0;
+	}
+
+	/**
+	 * <p>Returns the probability of the failure states that are not enumerated (e.g. triple failures).</p>
+	 *
+	 * @return One minus the sum of the probabilities of the failure states
+	 */
+	public double getProbabilityOfNonEnumeratedFailureStates ()
+	{
+		double res = 1;
+		for (long index = 0; index < getNumberOfFailureStates() ; index ++) res -= getFailureStateProbability(index);
+		return Math.max(0, res);
+	}
+
+	/**
+	 * <p>Evaluates all the failure states, and waits until all of them are finished. If a reaction or the observer throws an exception, the evaluation
+	 * stops, and the exception is thrown.</p>
+	 *
+	 * @param numThreads Number of workers (each one with a copy of the design). With more than one, the reactions and the observer must be thread-safe
+	 * @param reactionPerWorker Creates the reaction to the failure states of each worker (called once per worker, before starting). If {@code null}, there is no reaction
+	 * @param observer Observer of the network state in each failure state
+	 */
+	public void evaluate (int numThreads , Supplier<? extends IFailureStateReaction> reactionPerWorker , IFailureStateObserver observer)
+	{
+		if (numThreads <= 0) throw new Net2PlanException ("The number of threads must be greater than zero");
+		final long numFailureStates = getNumberOfFailureStates();
+		final int numWorkers = (int) Math.max(1, Math.min(numThreads, numFailureStates));
+		final AtomicLong nextFailureState = new AtomicLong ();
+		final AtomicBoolean stop = new AtomicBoolean ();
+
+		/* the copies are made before starting, since the design is not thread-safe */
+		final List<Callable<Void>> workers = new ArrayList<> (numWorkers);
+		for (int cont = 0; cont < numWorkers ; cont ++)
+		{
+			final NetPlan initialCopy = netPlan.copy();
+			final IFailureStateReaction reaction = reactionPerWorker == null? null : reactionPerWorker.get();
+			workers.add(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					NetPlan replica = initialCopy;
+					try
+					{
+						while (!stop.get())
+						{
+							final long failureStateIndex = nextFailureState.getAndIncrement();
+							if (failureStateIndex >= numFailureStates) break;
+							replica = evaluateFailureState(replica, failureStateIndex, reaction, observer);
+						}
+					}
+					catch (RuntimeException | Error e)
+					{
+						stop.set(true);
+						throw e;
+					}
+					return null;
+				}
+			});
+		}
+
+		final ForkJoinPool pool = new ForkJoinPool(numWorkers);
+		final AtomicReference<Throwable> firstFailure = new AtomicReference<> ();
+		try
+		{
+			for (Future<Void> future : pool.invokeAll(workers))
+			{
+				try { future.get(); }
+				catch (ExecutionException e) { firstFailure.compareAndSet(null, e.getCause()); }
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		final Throwable failure = firstFailure.get();
+		if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+		if (failure instanceof Error) throw (Error) failure;
+		if (failure != null) throw new RuntimeException(failure);
+	}
+
+	/* Sets the failure state in the copy, reacts, observes, and restores the copy. Returns the copy to use in the next failure state */
+	private NetPlan evaluateFailureState (NetPlan replica , long failureStateIndex , IFailureStateReaction reaction , IFailureStateObserver observer)
+	{
+		final SortedSet<SharedRiskGroup> failedSrgs = new TreeSet<> ();
+		for (int srgPosition : getFailedSrgPositions(failureStateIndex))
+			failedSrgs.add(replica.getSRGFromId(srgs.get(srgPosition).getId()));
+		replica.beginTransaction();
+		try
+		{
+			for (SharedRiskGroup srg : failedSrgs) srg.setAsDown();
+			if (reaction != null) reaction.react(replica, failedSrgs);
+			observer.observe(replica, failureStateIndex, failedSrgs, getFailureStateProbability(failureStateIndex));
+		}
+		finally
+		{
+			boolean restored = reaction == null || reactionReversible;
+			if (restored)
+			{
+				try { replica.rollback(); }
+				catch (Net2PlanException e) { restored = false; /* the reaction made changes that cannot be rolled back */ }
+			}
+			if (!restored) { synchronized (netPlan) { replica = netPlan.copy(); } }
+		}
+		return replica;
+	}
+
+	/* Positions in the SRG list of the SRGs in a failure state. The order is: no failure, single failures, and double failures (i < j) */
+	private int [] getFailedSrgPositions (long failureStateIndex)
+	{
+		if (failureStateIndex < 0 || failureStateIndex >= getNumberOfFailureStates()) throw new Net2PlanException ("Wrong failure state index");
+		long index = failureStateIndex;
+		if (considerNoFailureState)
+		{
+			if (index == 0) return new int [0];
+			index --;
+		}
+		final int F = srgs.size();
+		if (index < F) return new int [] { (int) index };
+		index -= F;
+		for (int i = 0; i < F ; i ++)
+		{
+			final int numPairsFirstSrgI = F - 1 - i;
+			if (index < numPairsFirstSrgI) return new int [] { i , i + 1 + (int) index };
+			index -= numPairsFirstSrgI;
+		}
+		throw new RuntimeException ("Bad");
+	}
+
+	/**
+	 * <p>Worst case (maximum) value of a metric among the failure states, the number of failure states where it is reached, and the first of them.
+	 * It can be updated from several threads at the same time, without locks.</p>
+	 */
+	public static final class WorstCaseValue
+	{
+		private final AtomicReference<Entry> entry = new AtomicReference<> (new Entry(0, 0, -1));
+
+		/**
+		 * <p>Updates the worst case with the value of the metric in a failure state. The values equal to the worst case (including the initial
+		 * worst case, zero) increase the number of failure states where it is reached.</p>
+		 *
+		 * @param value Value of the metric
+		 * @param failureStateIndex Index of the failure state
+		 */
+		public void update (double value , long failureStateIndex)
+		{
+			while (true)
+			{
+				final Entry current = entry.get();
+				final Entry updated;
+				if (value > current.value) updated = new Entry(value, 1, failureStateIndex);
+				else if (value == current.value) updated = new Entry(value, current.numFailureStates + 1, current.firstFailureStateIndex == -1? failureStateIndex : Math.min(current.firstFailureStateIndex, failureStateIndex));
+				else return;
+				if (entry.compareAndSet(current, updated)) return;
+			}
+		}
+
+		/**
+		 * <p>Returns the worst case value (zero if no value is larger).</p>
+		 *
+		 * @return The value
+		 */
+		public double getValue () { return entry.get().value; }
+
+		/**
+		 * <p>Returns the number of failure states where the worst case value is reached.</p>
+		 *
+		 * @return The number of failure states
+		 */
+		public long getNumberOfFailureStates () { return entry.get().numFailureStates; }
+
+		/**
+		 * <p>Returns the index of the first failure state where the worst case value is reached.</p>
+		 *
+		 * @return The failure state index, or -1 if there is none
+		 */
+		public long getFirstFailureStateIndex () { return entry.get().firstFailureStateIndex; }
+
+		private static final class Entry
+		{
+			private final double value;
+			private final long numFailureStates;
+			private final long firstFailureStateIndex;
+
+			private Entry (double value , long numFailureStates , long firstFailureStateIndex)
+			{
+				this.value = value;
+				this.numFailureStates = numFailureStates;
+				this.firstFailureStateIndex = firstFailureStateIndex;
+			}
+		}
+	}
+}
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+/**
+ * <p>Betweenness centrality of the nodes and links of a directed graph, computed with Brandes' algorithm: one shortest path search per source node
+ * (Dijkstra's algorithm with the given link costs), accumulating the dependencies of the source on each node and link. The betweenness of a node is the sum,
+ * for each node pair where the node is not an end node, of the fraction of the shortest paths of the pair that traverse the node, and the betweenness
+ * of a link is the same sum for all the node pairs.</p>
+ *
+ * <p>The source nodes are partitioned among several threads, each one with its own accumulators, merged at the end. The partition and the merge
+ * do not depend on the thread scheduling, so the results are the same in every run with the same parallelism.</p>
+ *
+ * <p>In large graphs, the betweenness can be estimated from a uniform sample of source nodes, scaling the accumulated dependencies (Brandes and Pich).
+ * The number of sampled source nodes is chosen, by Hoeffding's inequality, so that, with probability at least {@code 1 - failureProbability}, the error
+ * of every node and link is below {@code maximumError * N(N-1)}, where {@code N(N-1)} bounds the betweenness of any node or link. This number
+ * depends on the size of the graph only logarithmically: e.g. with a maximum error of 0.05 and a failure probability of 0.1, some 2800 source
+ * nodes are enough in a graph with 10000 nodes and 40000 links. If it is not lower than the number of nodes, the betweenness is computed exactly.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * CsrGraph graph = CsrGraph.getFromLayer(netPlan);
+ * GraphBetweenness betweenness = new GraphBetweenness(graph, graph.getLinkCosts(null));
+ * betweenness.computeApproximate(0.05, 0.1, 1L);
+ * DoubleMatrix1D nodeBetweenness = betweenness.getNodeBetweenness();
+ * </pre>
+ *
+ * @since 0.6.5
+ */
+public final class GraphBetweenness
+{
+	private final int N;
+	private final int E;
+	private final int [] outStart; // per node, the outgoing links are outStart [n] ... outStart [n+1]-1, as in the graph
+	private final int [] destinationIndex; // per link
+	private final double [] linkCost;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private DoubleMatrix1D nodeBetweenness;
+	private DoubleMatrix1D linkBetweenness;
+	private int numberOfSourceNodes;
+
+	/**
+	 * <p>Default constructor.</p>
+	 *
+	 * @param graph Graph
+	 * @param linkCost Cost per link index in the graph (see {@link CsrGraph#getLinkCosts(java.util.Map)}). Links with cost {@code Double.MAX_VALUE} are not used
+	 */
+	public GraphBetweenness (CsrGraph graph , double [] linkCost)
+	{
+		this.N = graph.getNumberOfNodes();
+		this.E = graph.getNumberOfLinks();
+		if (linkCost.length != E) throw new Net2PlanException ("Wrong array size");
+		for (double cost : linkCost) if (cost < 0) throw new Net2PlanException ("Link costs must be non-negative");
+		this.linkCost = Arrays.copyOf(linkCost , E);
+		this.outStart = new int [N + 1];
+		this.destinationIndex = new int [E];
+		for (int a = 0; a < E ; a ++)
+		{
+			outStart [graph.getNodeIndex(graph.getLink(a).getOriginNode()) + 1] ++;
+			destinationIndex [a] = graph.getNodeIndex(graph.getLink(a).getDestinationNode());
+		}
+		for (int n = 0; n < N ; n ++) outStart [n + 1] += outStart [n];
+	}
+
+	/**
+	 * <p>Sets the number of threads used in the computations. By default, the number of available processors.</p>
+	 *
+	 * @param parallelism Number of threads (at least one)
+	 */
+	public void setParallelism (int parallelism)
+	{
+		if (parallelism < 1) throw new Net2PlanException ("The parallelism must be at least one");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * <p>Computes the exact betweenness, with all the nodes as source nodes.</p>
+	 */
+	public void computeExact ()
+	{
+		final int [] sources = new int [N];
+		for (int n = 0; n < N ; n ++) sources [n] = n;
+		compute(sources , 1.0);
+	}
+
+	/**
+	 * <p>Estimates the betweenness from a uniform sample of source nodes (without replacement), whose size is given by {@link #getNumberOfSampledSourceNodes(int, int, double, double)}.
+	 * If the sample would include all the nodes, the betweenness is computed exactly.</p>
+	 *
+	 * @param maximumError Maximum error, as a fraction of {@code N(N-1)} (between zero and one)
+	 * @param failureProbability Maximum probability that the error of some node or link exceeds the maximum error (between zero and one)
+	 * @param seed Seed of the random number generator used to sample the source nodes
+	 */
+	public void computeApproximate (double maximumError , double failureProbability , long seed)
+	{
+		final int numSamples = getNumberOfSampledSourceNodes(N , E , maximumError , failureProbability);
+		if (numSamples >= N) { computeExact(); return; }
+		final int [] nodes = new int [N];
+		for (int n = 0; n < N ; n ++) nodes [n] = n;
+		final Random rng = new Random(seed);
+		for (int cont = 0; cont < numSamples ; cont ++)
+		{
+			final int chosen = cont + rng.nextInt(N - cont);
+			final int aux = nodes [cont]; nodes [cont] = nodes [chosen]; nodes [chosen] = aux;
+		}
+		final int [] sources = Arrays.copyOf(nodes , numSamples);
+		Arrays.sort(sources);
+		compute(sources , (double) N / numSamples);
+	}
+
+	/**
+	 * <p>Returns the number of source nodes to sample, so that with probability at least {@code 1 - failureProbability}, the error in the betweenness
+	 * of all the nodes and links is below {@code maximumError * N(N-1)}: {@code ln(2(N+E)/failureProbability) / (2 maximumError^2)}, rounded up.</p>
+	 *
+	 * @param N Number of nodes
+	 * @param E Number of links
+	 * @param maximumError Maximum error, as a fraction of {@code N(N-1)} (between zero and one)
+	 * @param failureProbability Maximum probability that the error of some node or link exceeds the maximum error (between zero and one)
+	 * @return The number of source nodes (it may be higher than the number of nodes)
+	 */
+	public static int getNumberOfSampledSourceNodes (int N , int E , double maximumError , double failureProbability)
+	{
+		if (maximumError <= 0 || maximumError >= 1) throw new Net2PlanException ("The maximum error must be between zero and one");
+		if (failureProbability <= 0 || failureProbability >= 1) throw new Net2PlanException ("The failure probability must be between zero and one");
+		final double numSamples = Math.ceil(Math.log(2.0 * (N + E) / failureProbability) / (2 * maximumError * maximumError));
+		return numSamples >= Integer.MAX_VALUE? Integer.MAX_VALUE : (int) numSamples;
+	}
+
+	/**
+	 * <p>Returns the betweenness of each node, in the order of the node indexes in the graph, computed in the last call to {@link #computeExact()} or
+	 * {@link #computeApproximate(double, double, long)}. If none was called, the exact betweenness is computed.</p>
+	 *
+	 * @return The betweenness per node
+	 */
+	public DoubleMatrix1D getNodeBetweenness ()
+	{
+		if (nodeBetweenness == null) computeExact();
+		return nodeBetweenness;
+	}
+
+	/**
+	 * <p>Returns the betweenness of each link, in the order of the link indexes in the graph, computed in the last call to {@link #computeExact()} or
+	 * {@link #computeApproximate(double, double, long)}. If none was called, the exact betweenness is computed.</p>
+	 *
+	 * @return The betweenness per link
+	 */
+	public DoubleMatrix1D getLinkBetweenness ()
+	{
+		if (linkBetweenness == null) computeExact();
+		return linkBetweenness;
+	}
+
+	/**
+	 * <p>Returns the number of source nodes used in the last computation (the number of nodes, if it was exact).</p>
+	 *
+	 * @return The number of source nodes
+	 */
+	public int getNumberOfSourceNodes ()
+	{
+		return numberOfSourceNodes;
+	}
+
+	/* Accumulates the dependencies of the given sources, multiplied by the scale. Worker w takes the sources w, w+W, w+2W..., and the accumulators are merged in worker order */
+	private void compute (final int [] sources , double scale)
+	{
+		final int numWorkers = Math.max(1 , Math.min(parallelism , sources.length));
+		final List<Callable<Accumulator>> workers = new ArrayList<> (numWorkers);
+		for (int cont = 0; cont < numWorkers ; cont ++)
+		{
+			final int workerIndex = cont;
+			workers.add(new Callable<Accumulator>()
+			{
+				@Override
+				public Accumulator call()
+				{
+					final Accumulator accumulator = new Accumulator();
+					for (int s = workerIndex; s < sources.length ; s += numWorkers) accumulator.accumulate(sources [s]);
+					return accumulator;
+				}
+			});
+		}
+
+		final List<Accumulator> accumulators = new ArrayList<> (numWorkers);
+		if (numWorkers == 1)
+		{
+			try { accumulators.add(workers.get(0).call()); }
+			catch (Exception e) { throw e instanceof RuntimeException? (RuntimeException) e : new RuntimeException(e); }
+		}
+		else
+		{
+			final ForkJoinPool pool = new ForkJoinPool(numWorkers);
+			try
+			{
+				for (Future<Accumulator> future : pool.invokeAll(workers)) accumulators.add(future.get());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			catch (ExecutionException e)
+			{
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+				if (e.getCause() instanceof Error) throw (Error) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+
+		final double [] nodeSum = accumulators.get(0).nodeDependency;
+		final double [] linkSum = accumulators.get(0).linkDependency;
+		for (int cont = 1; cont < accumulators.size() ; cont ++)
+		{
+			final Accumulator accumulator = accumulators.get(cont);
+			for (int n = 0; n < N ; n ++) nodeSum [n] += accumulator.nodeDependency [n];
+			for (int a = 0; a < E ; a ++) linkSum [a] += accumulator.linkDependency [a];
+		}
+		if (scale != 1.0)
+		{
+			for (int n = 0; n < N ; n ++) nodeSum [n] *= scale;
+			for (int a = 0; a < E ; a ++) linkSum [a] *= scale;
+		}
+		this.nodeBetweenness = DoubleFactory1D.dense.make(nodeSum);
+		this.linkBetweenness = DoubleFactory1D.dense.make(linkSum);
+		this.numberOfSourceNodes = sources.length;
+	}
+
+	/* The accumulated dependencies of the sources of one worker, and its scratch space for the shortest path searches */
+	private final class Accumulator
+	{
+		private final double [] nodeDependency = new double [N];
+		private final double [] linkDependency = new double [E];
+		private final double [] dist = new double [N];
+		private final double [] numShortestPaths = new double [N];
+		private final double [] dependency = new double [N];
+		private final int [] settledOrder = new int [N]; // nodes in the order they are settled
+		private final int [] settledPosition = new int [N]; // per node, position in settledOrder (-1 if not settled)
+		private final int [] heap = new int [N]; // binary min-heap of node indexes, by distance
+		private final int [] heapPosition = new int [N]; // per node, position in the heap (-1 if not reached)
+		private int heapSize;
+
+		private Accumulator ()
+		{
+			Arrays.fill(settledPosition , -1);
+			Arrays.fill(heapPosition , -1);
+		}
+
+		/* Brandes' algorithm from one source node. A link a = (v,w) is in a shortest path if dist [w] = dist [v] + cost, and v was settled before w (so links of cost zero
+		 * between nodes at the same distance are counted once, in the direction of the search) */
+		private void accumulate (int source)
+		{
+			int numSettled = 0;
+			heapSize = 0;
+			dist [source] = 0;
+			numShortestPaths [source] = 1;
+			insert(source);
+			while (heapSize > 0)
+			{
+				final int v = poll();
+				settledPosition [v] = numSettled;
+				settledOrder [numSettled ++] = v;
+				dependency [v] = 0;
+				for (int a = outStart [v]; a < outStart [v + 1] ; a ++)
+				{
+					if (linkCost [a] == Double.MAX_VALUE) continue;
+					final int w = destinationIndex [a];
+					if (settledPosition [w] != -1) continue;
+					final double distW = dist [v] + linkCost [a];
+					if (heapPosition [w] == -1) { dist [w] = distW; numShortestPaths [w] = numShortestPaths [v]; insert(w); }
+					else if (distW < dist [w]) { dist [w] = distW; numShortestPaths [w] = numShortestPaths [v]; siftUp(heapPosition [w]); }
+					else if (distW == dist [w]) numShortestPaths [w] += numShortestPaths [v];
+				}
+			}
+
+			for (int position = numSettled - 1; position >= 0 ; position --)
+			{
+				final int v = settledOrder [position];
+				for (int a = outStart [v]; a < outStart [v + 1] ; a ++)
+				{
+					if (linkCost [a] == Double.MAX_VALUE) continue;
+					final int w = destinationIndex [a];
+					if (settledPosition [w] <= position || dist [w] != dist [v] + linkCost [a]) continue;
+					final double linkDependencyThisSource = numShortestPaths [v] / numShortestPaths [w] * (1 + dependency [w]);
+					linkDependency [a] += linkDependencyThisSource;
+					dependency [v] += linkDependencyThisSource;
+				}
+				if (v != source) nodeDependency [v] += dependency [v];
+			}
+
+			for (int position = 0; position < numSettled ; position ++)
+			{
+				final int v = settledOrder [position];
+				settledPosition [v] = -1;
+				heapPosition [v] = -1;
+			}
+		}
+
+		private void insert (int n)
+		{
+			heap [heapSize] = n;
+			heapPosition [n] = heapSize;
+			siftUp(heapSize ++);
+		}
+
+		private int poll ()
+		{
+			final int n = heap [0];
+			heapSize --;
+			if (heapSize > 0)
+			{
+				heap [0] = heap [heapSize];
+				heapPosition [heap [0]] = 0;
+				siftDown(0);
+			}
+			return n;
+		}
+
+		private void siftUp (int position)
+		{
+			final int n = heap [position];
+			while (position > 0)
+			{
+				final int parent = (position - 1) / 2;
+				if (dist [heap [parent]] <= dist [n]) break;
+				heap [position] = heap [parent];
+				heapPosition [heap [position]] = position;
+				position = parent;
+			}
+			heap [position] = n;
+			heapPosition [n] = position;
+		}
+
+		private void siftDown (int position)
+		{
+			final int n = heap [position];
+			while (true)
+			{
+				int child = 2 * position + 1;
+				if (child >= heapSize) break;
+				if (child + 1 < heapSize && dist [heap [child + 1]] < dist [heap [child]]) child ++;
+				if (dist [n] <= dist [heap [child]]) break;
+				heap [position] = heap [child];
+				heapPosition [heap [position]] = position;
+				position = child;
+			}
+			heap [position] = n;
+			heapPosition [n] = position;
+		}
+	}
+}
@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * <p>Link and node connectivity of a directed graph, between node pairs and for the whole graph, computed with a push-relabel maximum flow algorithm
+ * on primitive arrays, where each link has capacity one (then, parallel links add capacity). The flow networks are built once, and reused in all the maximum flows.</p>
+ *
+ * <ul>
+ * <li>Link connectivity between two nodes: maximum number of link-disjoint paths from the first to the second one, that is, the size of the minimum link cut.
+ * If the graph is symmetric (the same number of links in both directions between each node pair, as in a network of bidirectional links),
+ * the values between all the node pairs are obtained from a Gomory-Hu equivalent flow tree (Gusfield's algorithm), with {@code N-1} maximum flows.
+ * Otherwise, the connectivity of the graph needs {@code 2(N-1)} maximum flows (from and to a given node), and the values of all the node pairs, {@code N(N-1)}.</li>
+ * <li>Node connectivity between two nodes: maximum number of paths from the first to the second one that do not share intermediate nodes (then, the links
+ * between both nodes count as paths). The maximum flows are computed in a graph where each node is split in an input and an output node, joined by a link
+ * of capacity one. The connectivity of the graph is computed with Even's algorithm: if it is {@code k}, the node pairs with one of {@code k+1} nodes
+ * are enough, so for small {@code k} the number of maximum flows is linear in the number of nodes. The values of all the node pairs need {@code N(N-1)} maximum flows.</li>
+ * </ul>
+ *
+ * <p>The matrices of values per node pair have one row and column per node, in the order of the nodes in the graph (see {@link CsrGraph#getNodeIndex(Node)}),
+ * and are kept after they are first computed. Objects of this class are not thread-safe.</p>
+ *
+ * @since 0.6.5
+ */
+public final class GraphConnectivity
+{
+	private final CsrGraph graph;
+	private final int N;
+	private final boolean isSymmetric;
+	private final PushRelabelMaxFlow linkNetwork;
+	private PushRelabelMaxFlow nodeSplitNetwork;
+	private int [] flowTreeParent;
+	private int [] flowTreeValue;
+	private DoubleMatrix2D linkConnectivityMatrix;
+	private DoubleMatrix2D nodeConnectivityMatrix;
+	private int nodeConnectivity = -1;
+
+	/**
+	 * <p>Default constructor.</p>
+	 *
+	 * @param graph Graph
+	 */
+	public GraphConnectivity (CsrGraph graph)
+	{
+		this.graph = graph;
+		this.N = graph.getNumberOfNodes();
+		final int E = graph.getNumberOfLinks();
+		final int [] origin = new int [E];
+		final int [] destination = new int [E];
+		final Map<Long,Integer> multiplicity = new HashMap<> ();
+		for (int e = 0; e < E ; e ++)
+		{
+			origin [e] = graph.getNodeIndex(graph.getLink(e).getOriginNode());
+			destination [e] = graph.getNodeIndex(graph.getLink(e).getDestinationNode());
+			if (origin [e] != destination [e]) multiplicity.merge((long) origin [e] * N + destination [e] , 1 , Integer::sum);
+		}
+		boolean symmetric = true;
+		for (Map.Entry<Long,Integer> entry : multiplicity.entrySet())
+		{
+			final long reverseKey = (entry.getKey() % N) * N + entry.getKey() / N;
+			if (!entry.getValue().equals(multiplicity.get(reverseKey))) { symmetric = false; break; }
+		}
+		this.isSymmetric = symmetric;
+		final int [] capacity = new int [E];
+		Arrays.fill(capacity , 1);
+		this.linkNetwork = new PushRelabelMaxFlow(N , origin , destination , capacity , E);
+	}
+
+	/**
+	 * <p>Indicates whether the graph is symmetric: it has the same number of links from each node to another, than in the opposite direction.</p>
+	 *
+	 * @return {@code true} if the graph is symmetric, {@code false} otherwise
+	 */
+	public boolean isSymmetric ()
+	{
+		return isSymmetric;
+	}
+
+	/**
+	 * <p>Returns the link connectivity between two nodes: the maximum number of link-disjoint paths from the origin to the destination node.</p>
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return The link connectivity (zero if both nodes are the same)
+	 */
+	public int getLinkConnectivity (Node originNode , Node destinationNode)
+	{
+		final int s = getIndex(originNode);
+		final int t = getIndex(destinationNode);
+		if (linkConnectivityMatrix != null) return (int) linkConnectivityMatrix.getQuick(s , t);
+		return s == t? 0 : linkNetwork.maxFlow(s , t);
+	}
+
+	/**
+	 * <p>Returns the node connectivity between two nodes: the maximum number of paths from the origin to the destination node without intermediate nodes in common.</p>
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return The node connectivity (zero if both nodes are the same)
+	 */
+	public int getNodeConnectivity (Node originNode , Node destinationNode)
+	{
+		final int s = getIndex(originNode);
+		final int t = getIndex(destinationNode);
+		if (nodeConnectivityMatrix != null) return (int) nodeConnectivityMatrix.getQuick(s , t);
+		return s == t? 0 : getNodeConnectivity(s , t);
+	}
+
+	/**
+	 * <p>Returns the link connectivity of the graph: the minimum link connectivity among all the node pairs (zero if the graph has less than two nodes).</p>
+	 *
+	 * @return The link connectivity
+	 */
+	public int getLinkConnectivity ()
+	{
+		if (N < 2) return 0;
+		if (isSymmetric)
+		{
+			computeFlowTree();
+			int k = Integer.MAX_VALUE;
+			for (int n = 1; n < N ; n ++) k = Math.min(k , flowTreeValue [n]);
+			return k;
+		}
+
+		/* Any minimum cut separates node 0 from some other node, or some node from node 0 */
+		int k = Integer.MAX_VALUE;
+		for (int n = 1; n < N && k > 0 ; n ++)
+		{
+			k = Math.min(k , linkNetwork.maxFlow(0 , n));
+			if (k > 0) k = Math.min(k , linkNetwork.maxFlow(n , 0));
+		}
+		return k;
+	}
+
+	/**
+	 * <p>Returns the node connectivity of the graph: the minimum node connectivity among all the node pairs (zero if the graph has less than two nodes).</p>
+	 *
+	 * @return The node connectivity
+	 */
+	public int getNodeConnectivity ()
+	{
+		if (N < 2) return 0;
+		if (nodeConnectivity >= 0) return nodeConnectivity;
+
+		/* Even's algorithm: a node cut of k nodes leaves out at least one of any k+1 nodes, and the connectivity of a node pair with that node is at most k */
+		int k = Integer.MAX_VALUE;
+		for (int i = 0; i < N && i <= k ; i ++)
+		{
+			for (int j = i + 1; j < N && k > 0 ; j ++)
+			{
+				k = Math.min(k , getNodeConnectivity(i , j));
+				if (k > 0) k = Math.min(k , getNodeConnectivity(j , i));
+			}
+			if (k == 0) break;
+		}
+		this.nodeConnectivity = k == Integer.MAX_VALUE? 0 : k;
+		return nodeConnectivity;
+	}
+
+	/**
+	 * <p>Returns the link connectivity between each node pair, with zeros in the diagonal. If the graph is symmetric, it is obtained from a
+	 * Gomory-Hu equivalent flow tree, computed with {@code N-1} maximum flows.</p>
+	 *
+	 * @return The link connectivity per node pair
+	 */
+	public DoubleMatrix2D getLinkConnectivityMatrix ()
+	{
+		if (linkConnectivityMatrix != null) return linkConnectivityMatrix;
+		final DoubleMatrix2D matrix = DoubleFactory2D.dense.make(N , N);
+		if (isSymmetric)
+		{
+			/* The connectivity between two nodes is the minimum value in the path between them in the tree */
+			computeFlowTree();
+			final int [][] neighbors = new int [N][];
+			final int [] numNeighbors = new int [N];
+			for (int n = 1; n < N ; n ++) { numNeighbors [n] ++; numNeighbors [flowTreeParent [n]] ++; }
+			for (int n = 0; n < N ; n ++) { neighbors [n] = new int [numNeighbors [n]]; numNeighbors [n] = 0; }
+			for (int n = 1; n < N ; n ++) { final int p = flowTreeParent [n]; neighbors [n][numNeighbors [n] ++] = p; neighbors [p][numNeighbors [p] ++] = n; }
+			final int [] stack = new int [N];
+			final int [] minValue = new int [N];
+			final boolean [] visited = new boolean [N];
+			for (int s = 0; s < N ; s ++)
+			{
+				Arrays.fill(visited , false);
+				int stackSize = 0;
+				stack [stackSize ++] = s; visited [s] = true; minValue [s] = Integer.MAX_VALUE;
+				while (stackSize > 0)
+				{
+					final int u = stack [-- stackSize];
+					for (int v : neighbors [u])
+					{
+						if (visited [v]) continue;
+						visited [v] = true;
+						minValue [v] = Math.min(minValue [u] , v == flowTreeParent [u]? flowTreeValue [u] : flowTreeValue [v]);
+						matrix.setQuick(s , v , minValue [v]);
+						stack [stackSize ++] = v;
+					}
+				}
+			}
+		}
+		else
+		{
+			for (int s = 0; s < N ; s ++)
+				for (int t = 0; t < N ; t ++)
+					if (s != t) matrix.setQuick(s , t , linkNetwork.maxFlow(s , t));
+		}
+		this.linkConnectivityMatrix = matrix;
+		return matrix;
+	}
+
+	/**
+	 * <p>Returns the node connectivity between each node pair, with zeros in the diagonal. It is computed with {@code N(N-1)} maximum flows.</p>
+	 *
+	 * @return The node connectivity per node pair
+	 */
+	public DoubleMatrix2D getNodeConnectivityMatrix ()
+	{
+		if (nodeConnectivityMatrix != null) return nodeConnectivityMatrix;
+		final DoubleMatrix2D matrix = DoubleFactory2D.dense.make(N , N);
+		for (int s = 0; s < N ; s ++)
+			for (int t = 0; t < N ; t ++)
+				if (s != t) matrix.setQuick(s , t , getNodeConnectivity(s , t));
+		this.nodeConnectivityMatrix = matrix;
+		return matrix;
+	}
+
+	private int getIndex (Node node)
+	{
+		final int index = graph.getNodeIndex(node);
+		if (index == -1) throw new Net2PlanException ("Node " + node + " is not in the graph");
+		return index;
+	}
+
+	/* In the network with split nodes, node n is the input of node n, and node N+n its output */
+	private int getNodeConnectivity (int s , int t)
+	{
+		if (nodeSplitNetwork == null)
+		{
+			final int E = graph.getNumberOfLinks();
+			final int [] origin = new int [N + E];
+			final int [] destination = new int [N + E];
+			final int [] capacity = new int [N + E];
+			Arrays.fill(capacity , 1);
+			for (int n = 0; n < N ; n ++) { origin [n] = n; destination [n] = N + n; }
+			for (int e = 0; e < E ; e ++)
+			{
+				origin [N + e] = N + graph.getNodeIndex(graph.getLink(e).getOriginNode());
+				destination [N + e] = graph.getNodeIndex(graph.getLink(e).getDestinationNode());
+			}
+			this.nodeSplitNetwork = new PushRelabelMaxFlow(2 * N , origin , destination , capacity , N + E);
+		}
+		return nodeSplitNetwork.maxFlow(N + s , t);
+	}
+
+	/* Gusfield's algorithm: an equivalent flow tree, where the minimum cut between two nodes is the minimum value in the path between them */
+	private void computeFlowTree ()
+	{
+		if (flowTreeParent != null) return;
+		final int [] parent = new int [N];
+		final int [] value = new int [N];
+		final boolean [] sourceSide = new boolean [N];
+		for (int s = 1; s < N ; s ++)
+		{
+			final int t = parent [s];
+			value [s] = linkNetwork.maxFlow(s , t);
+			linkNetwork.getSourceSideOfMinimumCut(t , sourceSide);
+			for (int i = s + 1; i < N ; i ++)
+				if (sourceSide [i] && parent [i] == t) parent [i] = s;
+		}
+		this.flowTreeParent = parent;
+		this.flowTreeValue = value;
+	}
+
+	/* Maximum flow with the preflow phase of the push-relabel algorithm (FIFO selection, gap and global relabeling heuristics). Only the value of the flow, and the
+	 * minimum cut, are needed, so the preflow is not converted into a flow */
+	private static final class PushRelabelMaxFlow
+	{
+		private final int n;
+		private final int [] arcStart; // per node, arcs arcStart [u] ... arcStart [u+1]-1 leave node u
+		private final int [] head; // per arc
+		private final int [] reverse; // per arc, the opposite arc
+		private final int [] capacity; // per arc
+		private final int [] residual;
+		private final int [] height;
+		private final int [] excess;
+		private final int [] current;
+		private final int [] numNodesWithHeight;
+		private final int [] queue;
+		private final boolean [] inQueue;
+		private int queueHead, queueSize;
+		private int relabelsSinceGlobalRelabel;
+
+		private PushRelabelMaxFlow (int n , int [] origin , int [] destination , int [] arcCapacity , int numArcs)
+		{
+			this.n = n;
+			this.arcStart = new int [n + 1];
+			for (int a = 0; a < numArcs ; a ++) { arcStart [origin [a] + 1] ++; arcStart [destination [a] + 1] ++; }
+			for (int u = 0; u < n ; u ++) arcStart [u + 1] += arcStart [u];
+			final int A = 2 * numArcs;
+			this.head = new int [A];
+			this.reverse = new int [A];
+			this.capacity = new int [A];
+			final int [] next = Arrays.copyOf(arcStart , n);
+			for (int a = 0; a < numArcs ; a ++)
+			{
+				final int forward = next [origin [a]] ++;
+				final int backward = next [destination [a]] ++;
+				head [forward] = destination [a]; capacity [forward] = arcCapacity [a]; reverse [forward] = backward;
+				head [backward] = origin [a]; capacity [backward] = 0; reverse [backward] = forward;
+			}
+			this.residual = new int [A];
+			this.height = new int [n];
+			this.excess = new int [n];
+			this.current = new int [n];
+			this.numNodesWithHeight = new int [n + 1];
+			this.queue = new int [n];
+			this.inQueue = new boolean [n];
+		}
+
+		private int maxFlow (int s , int t)
+		{
+			System.arraycopy(capacity , 0 , residual , 0 , residual.length);
+			Arrays.fill(excess , 0);
+			Arrays.fill(inQueue , false);
+			queueHead = 0; queueSize = 0;
+			globalRelabel(s , t);
+			for (int a = arcStart [s]; a < arcStart [s + 1] ; a ++)
+			{
+				final int c = residual [a];
+				if (c == 0) continue;
+				residual [a] = 0; residual [reverse [a]] += c;
+				excess [head [a]] += c; excess [s] -= c;
+			}
+			for (int u = 0; u < n ; u ++) if (u != s && u != t && excess [u] > 0 && height [u] < n) enqueue(u);
+
+			while (queueSize > 0)
+			{
+				final int u = queue [queueHead];
+				queueHead = (queueHead + 1) % n; queueSize --; inQueue [u] = false;
+				discharge(u , s , t);
+				if (relabelsSinceGlobalRelabel > n)
+				{
+					globalRelabel(s , t);
+					for (int v = 0; v < n ; v ++) if (!inQueue [v] && v != s && v != t && excess [v] > 0 && height [v] < n) enqueue(v);
+				}
+			}
+			return excess [t];
+		}
+
+		/* After a maximum flow to t, the nodes that cannot reach t in the residual network: the source side of a minimum cut */
+		private void getSourceSideOfMinimumCut (int t , boolean [] sourceSide)
+		{
+			Arrays.fill(sourceSide , true);
+			sourceSide [t] = false;
+			int first = 0, last = 0;
+			queue [last ++] = t;
+			while (first < last)
+			{
+				final int v = queue [first ++];
+				for (int a = arcStart [v]; a < arcStart [v + 1] ; a ++)
+				{
+					final int u = head [a];
+					if (!sourceSide [u] || residual [reverse [a]] == 0) continue;
+					sourceSide [u] = false;
+					queue [last ++] = u;
+				}
+			}
+		}
+
+		private void discharge (int u , int s , int t)
+		{
+			while (excess [u] > 0 && height [u] < n)
+			{
+				if (current [u] == arcStart [u + 1]) { relabel(u); continue; }
+				final int a = current [u];
+				final int v = head [a];
+				if (residual [a] > 0 && height [u] == height [v] + 1)
+				{
+					final int delta = Math.min(excess [u] , residual [a]);
+					residual [a] -= delta; residual [reverse [a]] += delta;
+					excess [u] -= delta; excess [v] += delta;
+					if (v != s && v != t && !inQueue [v] && height [v] < n) enqueue(v);
+					if (residual [a] == 0) current [u] ++;
+				}
+				else current [u] ++;
+			}
+		}
+
+		private void relabel (int u)
+		{
+			final int oldHeight = height [u];
+			int newHeight = n;
+			for (int a = arcStart [u]; a < arcStart [u + 1] ; a ++)
+				if (residual [a] > 0) newHeight = Math.min(newHeight , height [head [a]] + 1);
+			height [u] = newHeight;
+			current [u] = arcStart [u];
+			relabelsSinceGlobalRelabel ++;
+			numNodesWithHeight [oldHeight] --;
+			if (newHeight < n) numNodesWithHeight [newHeight] ++;
+
+			/* Gap: the nodes above an empty height cannot reach the sink */
+			if (numNodesWithHeight [oldHeight] == 0 && oldHeight < n)
+				for (int v = 0; v < n ; v ++)
+					if (height [v] > oldHeight && height [v] < n) { numNodesWithHeight [height [v]] --; height [v] = n; }
+		}
+
+		/* Exact distances to the sink in the residual network (n if it is not reachable) */
+		private void globalRelabel (int s , int t)
+		{
+			Arrays.fill(height , n);
+			Arrays.fill(numNodesWithHeight , 0);
+			height [t] = 0;
+			final int [] bfsQueue = current; // reset below
+			int first = 0, last = 0;
+			bfsQueue [last ++] = t;
+			while (first < last)
+			{
+				final int v = bfsQueue [first ++];
+				numNodesWithHeight [height [v]] ++;
+				for (int a = arcStart [v]; a < arcStart [v + 1] ; a ++)
+				{
+					final int u = head [a];
+					if (u == s || height [u] < n || residual [reverse [a]] == 0) continue;
+					height [u] = height [v] + 1;
+					bfsQueue [last ++] = u;
+				}
+			}
+			for (int u = 0; u < n ; u ++) current [u] = arcStart [u];
+			relabelsSinceGlobalRelabel = 0;
+		}
+
+		private void enqueue (int u)
+		{
+			queue [(queueHead + queueSize) % n] = u;
+			queueSize ++;
+			inQueue [u] = true;
+		}
+	}
+}
@@ -25,12 +25,10 @@ import com.net2plan.libraries.GraphUtils.JUNGUtils;
 import com.net2plan.utils.CollectionUtils;
 import com.net2plan.utils.Constants;
 import com.net2plan.utils.DoubleUtils;
-import edu.uci.ics.jung.algorithms.scoring.BetweennessCentrality;
 import edu.uci.ics.jung.graph.DirectedGraph;
 import edu.uci.ics.jung.graph.Graph;
 import org.apache.commons.collections15.Transformer;
 import org.jgrapht.alg.connectivity.GabowStrongConnectivityInspector;
-import org.jgrapht.alg.flow.EdmondsKarpMFImpl;
 import org.jgrapht.graph.DefaultDirectedGraph;
 
 import java.util.*;
@@ -49,6 +47,7 @@ import java.util.*;
 @SuppressWarnings("unchecked")
 public class GraphTheoryMetrics
 {
+	private static final double BETWEENESS_CENTRALITY_FAILURE_PROBABILITY = 0.1;
 	private final List<Node> nodes;
 	private final List<Link> linkMap;
 	private SortedMap<Link, Double> costMap;
@@ -66,7 +65,9 @@ public class GraphTheoryMetrics
 	
 	private DoubleMatrix1D linkBetweenessCentrality;
 	private DoubleMatrix1D nodeBetweenessCentrality;
+	private double betweenessCentralityMaximumError;
 	private DoubleMatrix1D outNodeDegree;
+	private GraphConnectivity graphConnectivity;
 
 	/**
 	 * Default constructor
@@ -92,20 +93,24 @@ public class GraphTheoryMetrics
 		nev = null;
 		nodeBetweenessCentrality = null;
 		outNodeDegree = null;
+		graphConnectivity = null;
 
 		configureLinkCostMap(linkCostMap);
 	}
 
-	private void computeBetweenessCentrality()
+	private void computeBetweenessCentrality(double maximumError)
 	{
-		Graph<Node, Link> aux_graph = getGraph_JUNG();
-		BetweennessCentrality bc = new BetweennessCentrality(aux_graph, getCostTransformer());			
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, linkMap);
+		final GraphBetweenness bc = new GraphBetweenness(graph, graph.getLinkCosts(costMap));
+		if (maximumError != 0) bc.computeApproximate(maximumError, BETWEENESS_CENTRALITY_FAILURE_PROBABILITY, 1L);
+		else bc.computeExact();
 
 		nodeBetweenessCentrality = DoubleFactory1D.dense.make (N);
-		for (Node node : this.nodes) nodeBetweenessCentrality.set(node.getIndex () , bc.getVertexScore(node));
+		for (int n = 0; n < N; n++) nodeBetweenessCentrality.set(graph.getNode(n).getIndex (), bc.getNodeBetweenness().get(n));
 
 		linkBetweenessCentrality = DoubleFactory1D.dense.make (E);
-		for (Link link : linkMap) linkBetweenessCentrality.set(link.getIndex (), bc.getEdgeScore(link));
+		for (int e = 0; e < E; e++) linkBetweenessCentrality.set(graph.getLink(e).getIndex (), bc.getLinkBetweenness().get(e));
+		betweenessCentralityMaximumError = maximumError;
 	}
 	
 	private void computeSPDistanceMetrics()
@@ -205,7 +210,9 @@ public class GraphTheoryMetrics
 		averageSPLength = -1;
 		diameter = -1;
 		heterogeneity = -1;
+		linkBetweenessCentrality = null;
 		nev = null;
+		nodeBetweenessCentrality = null;
 	}
 
 	/**
@@ -475,6 +482,12 @@ public class GraphTheoryMetrics
 		return graph_jgrapht;
 	}
 
+	private GraphConnectivity getGraphConnectivity()
+	{
+		if (graphConnectivity == null) graphConnectivity = new GraphConnectivity(CsrGraph.create(nodes , linkMap));
+		return graphConnectivity;
+	}
+
 	private Graph<Node, Link> getGraph_JUNG()
 	{
 		if (graph_jung == null) graph_jung = JUNGUtils.getGraphFromLinkMap(nodes , linkMap);
@@ -565,13 +578,30 @@ public class GraphTheoryMetrics
 	 * centrality of a link is equal to the number of node-pair shortest paths which traverses
 	 * the link.</p>
 	 *
-	 * <p>Internally it makes use of the Brandes' algorithm.</p>
+	 * <p>Internally it makes use of the Brandes' algorithm, with the source nodes distributed among the available processors (see {@link GraphBetweenness}).</p>
 	 *
 	 * @return Betweeness centrality of each link
 	 */
 	public DoubleMatrix1D getLinkBetweenessCentrality()
 	{
-		if (linkBetweenessCentrality == null) computeBetweenessCentrality();
+		if (linkBetweenessCentrality == null || betweenessCentralityMaximumError != 0) computeBetweenessCentrality(0);
+
+		return linkBetweenessCentrality;
+	}
+
+	/**
+	 * <p>Returns an estimation of the betweeness centrality of each link, from the shortest paths of a random sample of origin nodes.
+	 * With probability 0.9, the error of every node and link is below {@code maximumError * N(N-1)}, and the sample size grows
+	 * with the logarithm of the network size (see {@link GraphBetweenness#computeApproximate(double, double, long)}). The sample
+	 * is the same in every call, so the results are repeatable. If the sample would contain all the nodes, the exact value is returned.</p>
+	 *
+	 * @param maximumError Maximum error, as a fraction of {@code N(N-1)} (between zero and one)
+	 * @return Estimated betweeness centrality of each link
+	 * @since 0.6.5
+	 */
+	public DoubleMatrix1D getLinkBetweenessCentrality(double maximumError)
+	{
+		if (linkBetweenessCentrality == null || betweenessCentralityMaximumError != maximumError) computeBetweenessCentrality(maximumError);
 
 		return linkBetweenessCentrality;
 	}
@@ -580,8 +610,9 @@ public class GraphTheoryMetrics
 	 * <p>Returns the link connectivity. The link connectivity is equal to the smallest
 	 * number of link-disjoint paths between each node pair.</p>
 	 *
-	 * <p>Internally it makes use of the Edmonds-Karp algorithm to compute the maximum
-	 * flow between each node pair, assuming a link capacity equal to one for every link.</p>
+	 * <p>Internally it makes use of a push-relabel algorithm to compute the maximum
+	 * flow between node pairs, assuming a link capacity equal to one for every link (see {@link GraphConnectivity}).
+	 * If the graph is symmetric, {@code N-1} maximum flows are computed, and {@code 2(N-1)} otherwise.</p>
 	 *
 	 * @return Link connectivity
 	 */
@@ -589,24 +620,19 @@ public class GraphTheoryMetrics
 	{
 		if (E == 0) return 0;
 
-		DefaultDirectedGraph<Node, Link> graph = getGraph_JGraphT();
-        EdmondsKarpMFImpl<Node, Node> ek = new EdmondsKarpMFImpl(graph);
-		int k = Integer.MAX_VALUE;
-
-		for (Node originNode : nodes)
-		{
-			for (Node destinationNode : nodes)
-			{
-				if (originNode.equals(destinationNode)) continue;
-
-				ek.calculateMaximumFlow(originNode, destinationNode);
-				k = Math.min(k, new Double(ek.getMaximumFlowValue()).intValue());
-
-				if (k == 0) break;
-			}
-		}
+		return getGraphConnectivity().getLinkConnectivity();
+	}
 
-		return k == Integer.MAX_VALUE ? 0 : k;
+	/**
+	 * <p>Returns the link connectivity between each node pair (number of link-disjoint paths), where rows and
+	 * columns follow the order of the nodes given in the constructor (see {@link GraphConnectivity#getLinkConnectivityMatrix()}).</p>
+	 *
+	 * @return Link connectivity per node pair
+	 * @since 0.6.5
+	 */
+	public DoubleMatrix2D getLinkConnectivityMatrix()
+	{
+		return getGraphConnectivity().getLinkConnectivityMatrix();
 	}
 	
 	/**
@@ -625,13 +651,28 @@ public class GraphTheoryMetrics
 	 * centrality of a node is equal to the number of node-pair shortest paths which traverses
 	 * the node.</p>
 	 *
-	 * <p>Internally it makes use of the Brandes' algorithm.</p>
+	 * <p>Internally it makes use of the Brandes' algorithm, with the source nodes distributed among the available processors (see {@link GraphBetweenness}).</p>
 	 *
 	 * @return Betweeness centrality of each node
 	 */
 	public DoubleMatrix1D getNodeBetweenessCentrality()
 	{
-		if (nodeBetweenessCentrality == null) computeBetweenessCentrality();
+		if (nodeBetweenessCentrality == null || betweenessCentralityMaximumError != 0) computeBetweenessCentrality(0);
+
+		return nodeBetweenessCentrality;
+	}
+
+	/**
+	 * <p>Returns an estimation of the betweeness centrality of each node, from the shortest paths of a random sample of origin nodes
+	 * (see {@link #getLinkBetweenessCentrality(double)}). It is intended for large networks, where the exact computation is too slow for interactive use.</p>
+	 *
+	 * @param maximumError Maximum error, as a fraction of {@code N(N-1)} (between zero and one)
+	 * @return Estimated betweeness centrality of each node
+	 * @since 0.6.5
+	 */
+	public DoubleMatrix1D getNodeBetweenessCentrality(double maximumError)
+	{
+		if (nodeBetweenessCentrality == null || betweenessCentralityMaximumError != maximumError) computeBetweenessCentrality(maximumError);
 
 		return nodeBetweenessCentrality;
 	}
@@ -640,8 +681,9 @@ public class GraphTheoryMetrics
 	 * Returns the node connectivity. The node connectivity is equal to the smallest
 	 * number of node-disjoint paths between each node pair.
 	 *
-	 * <p>Internally it makes use of the (modified) Edmonds-Karp algorithm to compute the maximum
-	 * flow between each node pair, assuming a link capacity equal to one for every link.</p>
+	 * <p>Internally it makes use of a push-relabel algorithm to compute the maximum
+	 * flow between node pairs, assuming a capacity equal to one for every link and node, and Even's algorithm
+	 * to reduce the number of node pairs evaluated (see {@link GraphConnectivity}).</p>
 	 *
 	 * @return Node connectivity
 	 */
@@ -649,25 +691,19 @@ public class GraphTheoryMetrics
 	{
 		if (E == 0) return 0;
 		
-		DefaultDirectedGraph<Node, Link> graph = getGraph_JGraphT();
-		int k = Integer.MAX_VALUE;
-
-		for (Node originNode : nodes)
-		{
-			for (Node destinationNode : nodes)
-			{
-				if (originNode.equals(destinationNode)) continue;
-				
-				DefaultDirectedGraph<Node, Link> auxGraph = (DefaultDirectedGraph<Node, Link>) JGraphTUtils.buildAuxiliaryNodeDisjointGraph(graph, originNode, destinationNode);
-                EdmondsKarpMFImpl<Node, Node> ek = new EdmondsKarpMFImpl(auxGraph);
-				ek.calculateMaximumFlow(originNode, destinationNode);
-				k = Math.min(k, new Double(ek.getMaximumFlowValue()).intValue());
-
-				if (k == 0) break;
-			}
-		}
+		return getGraphConnectivity().getNodeConnectivity();
+	}
 
-		return k == Integer.MAX_VALUE ? 0 : k;
+	/**
+	 * <p>Returns the node connectivity between each node pair (number of node-disjoint paths), where rows and
+	 * columns follow the order of the nodes given in the constructor (see {@link GraphConnectivity#getNodeConnectivityMatrix()}).</p>
+	 *
+	 * @return Node connectivity per node pair
+	 * @since 0.6.5
+	 */
+	public DoubleMatrix2D getNodeConnectivityMatrix()
+	{
+		return getGraphConnectivity().getNodeConnectivityMatrix();
 	}
 
 	/**
@@ -812,21 +812,8 @@ public class GraphUtils
 	 * @return All loopless shortest paths */
 	public static List<List<Link>> getAllLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, SortedMap<Link, Double> linkCostMap)
 	{
-		final List<Link> filteredLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredLinks);
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, nev)
-		{
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				return Math.abs(candidate.getPathWeight() - shortestPath.getPathWeight()) < 1E-10;
-			}
-		};
-
-		List<List<Link>> pathList = paths.getPaths(originNode, destinationNode, Integer.MAX_VALUE);
-		return pathList;
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, links);
+		return graph.getKLooplessShortestPaths(graph.getLinkCosts(linkCostMap), originNode, destinationNode, Integer.MAX_VALUE, -1, -1, -1, -1, -1, 1E-10);
 	}
 
 	/** @param nodes List of nodes
@@ -845,14 +832,11 @@ public class GraphUtils
 			for (Link e : links)
 				linkSpareCapacityMap.put(e, Math.max(0, e.getCapacity() - e.getOccupiedCapacity()));
 		}
-		final SortedMap<Link,Double> auxMapLinkCost = linkSpareCapacityMap;
-		final List<Link> validLinks = linkCostMap == null? links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal).collect(Collectors.toList()) : 
-			links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal && linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, validLinks);
-		if (!graph.containsVertex(originNode)) return new LinkedList<Link>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<Link>();
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		return JUNGUtils.getShortestPath(graph, nev, originNode, destinationNode);
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, links);
+		final double [] linkCost = graph.getLinkCosts(linkCostMap);
+		for (int a = 0; a < linkCost.length; a++)
+			if (linkSpareCapacityMap.get(graph.getLink(a)) < capacityGoal) linkCost [a] = Double.MAX_VALUE;
+		return graph.getShortestPath(linkCost, originNode, destinationNode);
 	}
 
 	
@@ -872,49 +856,8 @@ public class GraphUtils
 	 * @return K-shortest paths */
 	public static List<List<Link>> getKLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
 	{
-		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
-		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
-		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
-		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
-		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
-		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
-
-		final List<Link> filteredListLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredListLinks);
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, 
-				JUNGUtils.getEdgeWeightTransformer(linkCostMap), 
-				K, maxNumHops, maxLengthInKm, maxPropDelayInMs, maxRouteCost, 
-				maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath)
-		{
-			@Override
-			public boolean acceptPath(GraphPath<Link> candidate)
-			{
-				if (maxNumHops != Integer.MAX_VALUE && candidate.getPathLength() > maxNumHops) return false;
-
-				if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
-
-				double pathLengthInKm = 0;
-				double pathPropDelayInMs = 0;
-				for (Link link : candidate.getPath())
-				{
-					pathLengthInKm += link.getLengthInKm();
-					pathPropDelayInMs += link.getPropagationDelayInMs();
-				}
-
-				return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
-			}
-
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				if (maxRouteCost != Double.MAX_VALUE && candidate.getPathWeight() > maxRouteCost) { return false; }
-
-				if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() * maxRouteCostFactorRespectToShortestPath) { return false; }
-
-				return !(maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() + maxRouteCostRespectToShortestPath);
-			}
-		};
-		return paths.getPaths(originNode, destinationNode, K);
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, links);
+		return graph.getKLooplessShortestPaths(graph.getLinkCosts(linkCostMap), originNode, destinationNode, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
 	}
 
 	/** Returns the K minimum cost service chains between two nodes (summing costs of links and resources traversed), traversing a given set of resource types, satisfying some user-defined constraints.
@@ -1108,11 +1051,8 @@ public class GraphUtils
 	 * @return Shortest pair of link-disjoint paths */
 	public static List<List<Link>> getTwoLinkDisjointPaths(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final List<List<Link>> linkDisjointSPs = JUNGUtils.getTwoLinkDisjointPaths(graph, nev, originNode, destinationNode);
-		return linkDisjointSPs;
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, links);
+		return graph.getTwoLinkDisjointPaths(graph.getLinkCosts(linkCostMap), originNode, destinationNode);
 	}
 
 	/** Returns the shortest pair of node-disjoint paths, where each item represents a path. 
@@ -1392,6 +1332,26 @@ public class GraphUtils
 	 * @return See description above
 	 */
 	public static Quintuple<DoubleMatrix1D, RoutingCycleType,  Double , Double , Double> computeRoutingFundamentalVector(SortedMap<Link,Double> frs , SortedMap<Node,SortedSet<Link>> outFrs , Node ingressNode , Node egressNode)
+	{
+		/* Loopless forwarding rules (the usual case) are solved in linear time, without the linear system */
+		if (egressNode != null && ingressNode != egressNode)
+		{
+			final ForwardingRulesDag dag = ForwardingRulesDag.create(frs);
+			if (dag != null) return dag.computeRoutingFundamentalVector(ingressNode, egressNode);
+		}
+		return computeRoutingFundamentalVectorSolvingLinearSystem(frs, outFrs, ingressNode, egressNode);
+	}
+
+	/**
+	 * <p>Computes the same as {@link #computeRoutingFundamentalVector(SortedMap, SortedMap, Node, Node)}, solving the linear system of the fundamental matrix.
+	 * This is valid also for forwarding rules with cycles.</p>
+	 * @param frs the forwarding rules applicable
+	 * @param outFrs output forwarding rule
+	 * @param ingressNode the ingress node
+	 * @param egressNode the egress node
+	 * @return See {@link #computeRoutingFundamentalVector(SortedMap, SortedMap, Node, Node)}
+	 */
+	public static Quintuple<DoubleMatrix1D, RoutingCycleType,  Double , Double , Double> computeRoutingFundamentalVectorSolvingLinearSystem(SortedMap<Link,Double> frs , SortedMap<Node,SortedSet<Link>> outFrs , Node ingressNode , Node egressNode)
 	{
 		final int N = ingressNode.getNetPlan ().getNumberOfNodes();
 		DoubleMatrix2D eyeMinusQ_nn = new SparseCCDoubleMatrix2D (N,N);
@@ -1418,6 +1378,142 @@ public class GraphUtils
 		return Quintuple.of(Mv, routingCycleType , s_n , wcProp , wcLength);
 	}
 
+	/**
+	 * <p>The graph formed by the links with non-zero forwarding rules, when it has no cycles, with its nodes in topological order. With it,
+	 * the routing of a hop-by-hop demand (see {@link GraphUtils#computeRoutingFundamentalVector(SortedMap, SortedMap, Node, Node)}) is computed
+	 * in linear time in the number of forwarding rules, pushing the traffic along the topological order: the linear system of the fundamental
+	 * matrix is only needed when the forwarding rules have cycles. The same object can be used for all the demands with the same forwarding
+	 * rules (e.g. the demands to the same egress node, with destination-based routing as in OSPF).</p>
+	 *
+	 * @since 0.6.5
+	 */
+	public static class ForwardingRulesDag
+	{
+		private final int numNodesNetPlan;
+		private final Node [] nodesInTopologicalOrder;
+		private final Map<Node,Integer> positionInTopologicalOrder;
+		private final Link [][] outLinks; // per position in the topological order
+		private final double [][] outSplittingFactors;
+
+		private ForwardingRulesDag (int numNodesNetPlan , Node [] nodesInTopologicalOrder , Map<Node,Integer> positionInTopologicalOrder , Link [][] outLinks , double [][] outSplittingFactors)
+		{
+			this.numNodesNetPlan = numNodesNetPlan;
+			this.nodesInTopologicalOrder = nodesInTopologicalOrder;
+			this.positionInTopologicalOrder = positionInTopologicalOrder;
+			this.outLinks = outLinks;
+			this.outSplittingFactors = outSplittingFactors;
+		}
+
+		/**
+		 * <p>Creates the graph of the given forwarding rules (the rules with zero splitting factor are ignored).</p>
+		 * @param frs the forwarding rules (links and splitting factors)
+		 * @return the graph, or {@code null} if the forwarding rules have cycles
+		 */
+		public static ForwardingRulesDag create (SortedMap<Link,Double> frs)
+		{
+			final Map<Node,List<Link>> outLinksPerNode = new HashMap<> ();
+			final Map<Node,Integer> inDegree = new HashMap<> ();
+			int numNodesNetPlan = 0;
+			for (Entry<Link,Double> fr : frs.entrySet())
+			{
+				if (fr.getValue() == 0) continue;
+				final Link e = fr.getKey();
+				numNodesNetPlan = e.getNetPlan().getNumberOfNodes();
+				List<Link> outLinksThisNode = outLinksPerNode.get(e.getOriginNode());
+				if (outLinksThisNode == null) { outLinksThisNode = new ArrayList<> (2); outLinksPerNode.put(e.getOriginNode(), outLinksThisNode); }
+				outLinksThisNode.add(e);
+				if (!inDegree.containsKey(e.getOriginNode())) inDegree.put(e.getOriginNode(), 0);
+				final Integer inDegreeDestination = inDegree.get(e.getDestinationNode());
+				inDegree.put(e.getDestinationNode(), inDegreeDestination == null? 1 : inDegreeDestination + 1);
+			}
+
+			/* Kahn's algorithm */
+			final Node [] order = new Node [inDegree.size()];
+			int numNodesInOrder = 0;
+			for (Entry<Node,Integer> entry : inDegree.entrySet()) if (entry.getValue() == 0) order [numNodesInOrder ++] = entry.getKey();
+			for (int cont = 0; cont < numNodesInOrder ; cont ++)
+			{
+				final List<Link> outLinksThisNode = outLinksPerNode.get(order [cont]);
+				if (outLinksThisNode == null) continue;
+				for (Link e : outLinksThisNode)
+				{
+					final int newInDegree = inDegree.get(e.getDestinationNode()) - 1;
+					inDegree.put(e.getDestinationNode(), newInDegree);
+					if (newInDegree == 0) order [numNodesInOrder ++] = e.getDestinationNode();
+				}
+			}
+			if (numNodesInOrder != order.length) return null; // some nodes are in cycles
+
+			final Map<Node,Integer> position = new HashMap<> ();
+			final Link [][] outLinks = new Link [order.length][];
+			final double [][] outSplittingFactors = new double [order.length][];
+			for (int cont = 0; cont < order.length ; cont ++)
+			{
+				position.put(order [cont], cont);
+				final List<Link> outLinksThisNode = outLinksPerNode.get(order [cont]);
+				outLinks [cont] = outLinksThisNode == null? new Link [0] : outLinksThisNode.toArray(new Link [outLinksThisNode.size()]);
+				outSplittingFactors [cont] = new double [outLinks [cont].length];
+				for (int contLink = 0; contLink < outLinks [cont].length ; contLink ++) outSplittingFactors [cont][contLink] = frs.get(outLinks [cont][contLink]);
+			}
+			return new ForwardingRulesDag(numNodesNetPlan, order, position, outLinks, outSplittingFactors);
+		}
+
+		/**
+		 * <p>Computes the routing of a demand with these forwarding rules, as {@link GraphUtils#computeRoutingFundamentalVector(SortedMap, SortedMap, Node, Node)}.
+		 * The routing is loopless if the traffic reaches the egress node, and the egress node does not forward traffic, and has open cycles otherwise.</p>
+		 * @param ingressNode the ingress node
+		 * @param egressNode the egress node (different from the ingress node)
+		 * @return See {@link GraphUtils#computeRoutingFundamentalVector(SortedMap, SortedMap, Node, Node)}
+		 */
+		public Quintuple<DoubleMatrix1D, RoutingCycleType,  Double , Double , Double> computeRoutingFundamentalVector (Node ingressNode , Node egressNode)
+		{
+			final DoubleMatrix1D M = DoubleFactory1D.sparse.make(Math.max(numNodesNetPlan , ingressNode.getNetPlan().getNumberOfNodes()));
+			M.set(ingressNode.getIndex(), 1.0);
+			final Integer ingressPosition = positionInTopologicalOrder.get(ingressNode);
+			final Integer egressPosition = positionInTopologicalOrder.get(egressNode);
+			double s_egressNode = 1;
+			if (egressPosition != null) for (double splitFactor : outSplittingFactors [egressPosition]) s_egressNode -= splitFactor;
+			if (ingressPosition == null) return Quintuple.of(M, RoutingCycleType.OPEN_CYCLES, s_egressNode, Double.MAX_VALUE, Double.MAX_VALUE);
+
+			/* traffic, and worst case latency and length from the ingress node (NaN if not reached), per position in the topological order */
+			final int numPositions = nodesInTopologicalOrder.length - ingressPosition;
+			final double [] traffic = new double [numPositions];
+			final double [] worstLatencyMs = new double [numPositions];
+			final double [] worstLengthKm = new double [numPositions];
+			Arrays.fill(worstLatencyMs, Double.NaN);
+			Arrays.fill(worstLengthKm, Double.NaN);
+			traffic [0] = 1.0;
+			worstLatencyMs [0] = 0;
+			worstLengthKm [0] = 0;
+			for (int pos = 0; pos < numPositions ; pos ++)
+			{
+				if (traffic [pos] == 0) continue;
+				final int orderPosition = ingressPosition + pos;
+				if (pos > 0) M.set(nodesInTopologicalOrder [orderPosition].getIndex(), traffic [pos]);
+				final boolean isEgress = egressPosition != null && orderPosition == egressPosition;
+				final Link [] outLinksThisNode = outLinks [orderPosition];
+				for (int contLink = 0; contLink < outLinksThisNode.length ; contLink ++)
+				{
+					final Link e = outLinksThisNode [contLink];
+					final int nextPos = positionInTopologicalOrder.get(e.getDestinationNode()) - ingressPosition;
+					traffic [nextPos] += traffic [pos] * outSplittingFactors [orderPosition][contLink];
+					if (isEgress) continue; // the worst case paths end in the egress node
+					final double latency = worstLatencyMs [pos] + e.getPropagationDelayInMs();
+					final double length = worstLengthKm [pos] + e.getLengthInKm();
+					if (Double.isNaN(worstLatencyMs [nextPos]) || latency > worstLatencyMs [nextPos]) worstLatencyMs [nextPos] = latency;
+					if (Double.isNaN(worstLengthKm [nextPos]) || length > worstLengthKm [nextPos]) worstLengthKm [nextPos] = length;
+				}
+			}
+
+			/* traffic not reaching the egress node, or forwarded by the egress node: no worst case values (as computeWorstCasePropagationDelayAndLengthInKmMsForLoopLess) */
+			final boolean egressReached = egressPosition != null && egressPosition >= ingressPosition && !Double.isNaN(worstLatencyMs [egressPosition - ingressPosition]);
+			final boolean egressForwardsTraffic = egressPosition != null && outLinks [egressPosition].length > 0;
+			if (!egressReached || egressForwardsTraffic)
+				return Quintuple.of(M, RoutingCycleType.OPEN_CYCLES, s_egressNode, Double.MAX_VALUE, Double.MAX_VALUE);
+			return Quintuple.of(M, RoutingCycleType.LOOPLESS, s_egressNode, worstLatencyMs [egressPosition - ingressPosition], worstLengthKm [egressPosition - ingressPosition]);
+		}
+	}
+
 	
 	/** <p>Given a list of Network Element, it computes the node-network element incoming incidence matrix. This is a matrix with as many rows as nodes, and as many columns as network elements. Position (<i>n</i>, <i>e</i>) has a 1 if element <i>e</i> (<i>e = 0</i> refers to the first element n {@code elements}, <i>e = 1</i> refers to the second one, and so on) is terminated in node <i>n</i> (<i>n = 0</i> refers to the first node in {@code nodes}, <i>n = 1</i> refers to the second one, and so on), and 0 otherwise.</p>
 	 * 
@@ -1487,14 +1583,8 @@ public class GraphUtils
 	 * @return Sequence of links in the shortest path (empty, if destination not reachable from origin) */
 	public static List<Link> getShortestPath(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		if (!graph.containsVertex(originNode)) return new LinkedList<>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<>();
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final DijkstraShortestPath<Node, Link> dsp = new DijkstraShortestPath<Node, Link>(graph, nev);
-		final List<Link> path = dsp.getPath(originNode, destinationNode);
-		return path;
+		final CsrGraph graph = CsrGraph.getFromCollections(nodes, links);
+		return graph.getShortestPath(graph.getLinkCosts(linkCostMap), originNode, destinationNode);
 	}
 
 	
@@ -2561,6 +2651,23 @@ public class GraphUtils
 			return path;
 		}
 
+		/** Returns the K-loopless shortest paths between two nodes using Yen's algorithm. If only <i>n</i> shortest path are found (n&lt;K), those are returned.
+		 *
+		 * @param <V> Vertex type
+		 * @param <E> Edge type
+		 * @param graph Graph representing the network
+		 * @param nev Object responsible for returning weights for edges
+		 * @param originNodeId Origin node
+		 * @param destinationNodeId Destination node
+		 * @param K Desired number of paths
+		 * @return K-shortest paths
+		 * @since 0.6.5 */
+		public static <V, E> List<List<E>> getKLooplessShortestPaths(Graph<V, E> graph, Transformer<E, Double> nev, V originNodeId, V destinationNodeId, int K)
+		{
+			if (nev == null) nev = getEdgeWeightTransformer(null);
+			return new YenAlgorithm<V, E>(graph, nev).getPaths(originNodeId, destinationNodeId, K);
+		}
+
 		/** Obtains a transformer for returning link weight from link identifier.
 		 * 
 		 * @param <E> Edge type
@@ -44,7 +44,8 @@ import edu.uci.ics.jung.algorithms.shortestpath.DijkstraDistance;
 import edu.uci.ics.jung.graph.Graph;
 
 /**
- * Class for destination-based routing (IP-like).
+ * Class for destination-based routing (IP-like). For evaluating many link weight settings, or link weight changes,
+ * see {@link IncrementalECMPRouting}, which updates the OSPF/ECMP routing incrementally.
  *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  */
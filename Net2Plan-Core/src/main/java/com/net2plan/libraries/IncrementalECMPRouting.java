@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * <p>OSPF/ECMP routing of the traffic of a layer, for a link weight setting, that is updated incrementally when the link weights change.
+ * It computes the same routing as {@link IPUtils#computeCarriedTrafficFromIGPWeights(NetPlan, DoubleMatrix1D, NetworkLayer...)}, but keeps
+ * the shortest path distances to each destination node between changes. When the weight of a link changes (or the link goes down or up), only the
+ * destinations whose shortest path graph is affected are updated, and only in the nodes whose distance changes (as in the dynamic shortest path
+ * algorithm of Ramalingam and Reps). This is useful for the algorithms that evaluate many weight settings differing in a few links
+ * (e.g. local search heuristics for the OSPF weight optimization), or that react to link failures.</p>
+ *
+ * <p>The object works on a copy of the information in the design when it was created (nodes, links, and offered traffic of the demands): later changes
+ * in the design are not seen. The forwarding rules in the design are only changed when calling {@link #setForwardingRulesInNetPlan()}.</p>
+ *
+ * <p>A link weight of {@code Double.MAX_VALUE} means that the link is not used (as returned by {@link IPUtils#getLinkWeight(Link)} for links that are down).</p>
+ *
+ * <p>Reference: {@code G. Ramalingam, T. Reps, "An incremental algorithm for a generalization of the shortest-path problem," Journal of Algorithms, vol. 21, no. 2, 1996}</p>
+ *
+ * @since 0.6.5
+ */
+public class IncrementalECMPRouting
+{
+	private static final double PRECISION = 1E-10; // equal cost paths (the same tolerance as in IPUtils)
+
+	private final NetPlan netPlan;
+	private final NetworkLayer layer;
+	private final List<Node> nodes;
+	private final List<Link> links;
+	private final int N;
+	private final int [] originIndex; // per link
+	private final int [] destinationIndex; // per link
+	private final int [][] outLinks; // per node, indexes of the outgoing links
+	private final int [][] inLinks; // per node, indexes of the incoming links
+	private final double [] weights; // per link
+	private final double [] demandOfferedTraffic; // per demand
+	private final double [][] offeredTraffic; // [ingress node][egress node]
+	private final double [][] distance; // [destination node][node], Double.MAX_VALUE if the destination is not reachable
+	private double [] carriedTraffic; // per link
+
+	/**
+	 * <p>Computes the OSPF/ECMP routing of the demands in the given layer, for the given link weights.</p>
+	 *
+	 * @param netPlan Network design
+	 * @param linkWeightVector Weight per link. If {@code null}, the weights in the design (see {@link IPUtils#getLinkWeightVector(NetPlan, NetworkLayer...)})
+	 * @param optionalLayer Network layer (optional)
+	 */
+	public IncrementalECMPRouting (NetPlan netPlan , DoubleMatrix1D linkWeightVector , NetworkLayer ... optionalLayer)
+	{
+		this.netPlan = netPlan;
+		this.layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer);
+		if (linkWeightVector == null) linkWeightVector = IPUtils.getLinkWeightVector(netPlan, layer);
+		this.nodes = netPlan.getNodes();
+		this.links = netPlan.getLinks(layer);
+		if (linkWeightVector.size() != links.size()) throw new Net2PlanException ("Wrong array size");
+		this.N = nodes.size();
+		final int E = links.size();
+
+		this.originIndex = new int [E];
+		this.destinationIndex = new int [E];
+		final int [] numOutLinks = new int [N];
+		final int [] numInLinks = new int [N];
+		for (Link e : links)
+		{
+			originIndex [e.getIndex()] = e.getOriginNode().getIndex();
+			destinationIndex [e.getIndex()] = e.getDestinationNode().getIndex();
+			numOutLinks [originIndex [e.getIndex()]] ++;
+			numInLinks [destinationIndex [e.getIndex()]] ++;
+		}
+		this.outLinks = new int [N][];
+		this.inLinks = new int [N][];
+		for (int n = 0; n < N ; n ++) { outLinks [n] = new int [numOutLinks [n]]; inLinks [n] = new int [numInLinks [n]]; }
+		Arrays.fill(numOutLinks, 0);
+		Arrays.fill(numInLinks, 0);
+		for (int e = 0; e < E ; e ++)
+		{
+			outLinks [originIndex [e]][numOutLinks [originIndex [e]] ++] = e;
+			inLinks [destinationIndex [e]][numInLinks [destinationIndex [e]] ++] = e;
+		}
+
+		this.demandOfferedTraffic = new double [netPlan.getNumberOfDemands(layer)];
+		this.offeredTraffic = new double [N][N];
+		for (Demand d : netPlan.getDemands(layer))
+		{
+			demandOfferedTraffic [d.getIndex()] = d.getOfferedTraffic();
+			offeredTraffic [d.getIngressNode().getIndex()][d.getEgressNode().getIndex()] += d.getOfferedTraffic();
+		}
+
+		this.weights = new double [E];
+		for (int e = 0; e < E ; e ++) weights [e] = checkWeight(linkWeightVector.get(e));
+		this.distance = new double [N][];
+		recomputeAll();
+	}
+
+	/**
+	 * <p>Returns the current weight of a link.</p>
+	 *
+	 * @param link Link
+	 * @return The weight
+	 */
+	public double getLinkWeight (Link link)
+	{
+		return weights [checkLink(link)];
+	}
+
+	/**
+	 * <p>Returns the carried traffic per link, with the current link weights.</p>
+	 *
+	 * @return The carried traffic per link (a copy)
+	 */
+	public DoubleMatrix1D getCarriedTrafficPerLink ()
+	{
+		final DoubleMatrix1D res = DoubleFactory1D.dense.make(links.size());
+		for (int e = 0; e < links.size() ; e ++) res.set(e, carriedTraffic [e] < PRECISION? 0 : carriedTraffic [e]);
+		return res;
+	}
+
+	/**
+	 * <p>Returns the length of the shortest path between two nodes, with the current link weights.</p>
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return The length, or {@code Double.MAX_VALUE} if the destination node is not reachable
+	 */
+	public double getShortestPathDistance (Node originNode , Node destinationNode)
+	{
+		return distance [destinationNode.getIndex()][originNode.getIndex()];
+	}
+
+	/**
+	 * <p>Returns the routing table matrix with the current link weights, as {@link IPUtils#computeECMPRoutingTableMatrix_fte(List, List, DoubleMatrix1D)}.</p>
+	 *
+	 * @return Destination-based routing in the form <i>f<sub>te</sub></i>
+	 */
+	public DoubleMatrix2D getRoutingTableMatrix_fte ()
+	{
+		final DoubleMatrix2D f_te = DoubleFactory2D.sparse.make(N, links.size());
+		for (int t = 0; t < N ; t ++)
+			for (int n = 0; n < N ; n ++)
+			{
+				if (n == t) continue;
+				final int numShortestPathLinks = getNumShortestPathOutLinks(t, n);
+				if (numShortestPathLinks == 0) continue;
+				for (int e : outLinks [n]) if (isShortestPathLink(t, e)) f_te.set(t, e, 1.0 / numShortestPathLinks);
+			}
+		return f_te;
+	}
+
+	/**
+	 * <p>Sets the forwarding rules of the hop-by-hop routed demands of the layer in the design, according to the current link weights.
+	 * The link weights stored in the design are not changed.</p>
+	 */
+	public void setForwardingRulesInNetPlan ()
+	{
+		final List<Demand> demands = netPlan.getDemands(layer);
+		final DoubleMatrix2D f_de = GraphUtils.convert_fte2fde(demands.size(), new TreeSet<> (demands), getRoutingTableMatrix_fte());
+		netPlan.setForwardingRules(f_de, new HashSet<> (netPlan.getDemandsHopByHopRouted(layer)), layer);
+	}
+
+	/**
+	 * <p>Changes the weight of a link, updating the routing.</p>
+	 *
+	 * @param link Link
+	 * @param weight New weight (strictly positive). {@code Double.MAX_VALUE} means that the link is not used (e.g. it is down)
+	 */
+	public void setLinkWeight (Link link , double weight)
+	{
+		applyLinkWeight(checkLink(link), checkWeight(weight), null);
+	}
+
+	/**
+	 * <p>Changes the weights of all the links, updating the routing. If only a few weights change, the routing is updated incrementally,
+	 * link by link, and otherwise it is recomputed.</p>
+	 *
+	 * @param linkWeightVector Weight per link
+	 */
+	public void setLinkWeights (DoubleMatrix1D linkWeightVector)
+	{
+		if (linkWeightVector.size() != links.size()) throw new Net2PlanException ("Wrong array size");
+		int numChanges = 0;
+		for (int e = 0; e < links.size() ; e ++) if (checkWeight(linkWeightVector.get(e)) != weights [e]) numChanges ++;
+		if (numChanges == 0) return;
+		if (numChanges > Math.max(1, links.size() / 10))
+		{
+			for (int e = 0; e < links.size() ; e ++) weights [e] = linkWeightVector.get(e);
+			recomputeAll();
+		}
+		else
+			for (int e = 0; e < links.size() ; e ++) if (linkWeightVector.get(e) != weights [e]) applyLinkWeight(e, linkWeightVector.get(e), null);
+	}
+
+	/**
+	 * <p>Returns the carried traffic per link that would result from changing the weight of a link. The current routing is not changed.</p>
+	 *
+	 * @param link Link
+	 * @param weight New weight (strictly positive). {@code Double.MAX_VALUE} means that the link is not used (e.g. it is down)
+	 * @return The carried traffic per link with the new weight
+	 */
+	public DoubleMatrix1D evaluateLinkWeightChange (Link link , double weight)
+	{
+		final int e = checkLink(link);
+		checkWeight(weight);
+		final double previousWeight = weights [e];
+		if (previousWeight == weight) return getCarriedTrafficPerLink();
+		final double [] previousCarriedTraffic = Arrays.copyOf(carriedTraffic, carriedTraffic.length);
+		final double [][] previousDistances = new double [N][];
+		applyLinkWeight(e, weight, previousDistances);
+		final DoubleMatrix1D res = getCarriedTrafficPerLink();
+		weights [e] = previousWeight;
+		for (int t = 0; t < N ; t ++) if (previousDistances [t] != null) distance [t] = previousDistances [t];
+		carriedTraffic = previousCarriedTraffic;
+		return res;
+	}
+
+	/**
+	 * <p>Changes the offered traffic of a demand, updating the carried traffic. The demand offered traffic in the design is not changed.</p>
+	 *
+	 * @param demand Demand (of the layer)
+	 * @param offeredTraffic New offered traffic
+	 */
+	public void setDemandOfferedTraffic (Demand demand , double offeredTraffic)
+	{
+		if (demand.getLayer() != layer || demand.getIndex() >= demandOfferedTraffic.length) throw new Net2PlanException ("The demand is not in the layer");
+		if (offeredTraffic < 0) throw new Net2PlanException ("Offered traffic must be greater or equal than zero");
+		final int s = demand.getIngressNode().getIndex();
+		final int t = demand.getEgressNode().getIndex();
+		addCarriedTraffic(t, -1);
+		this.offeredTraffic [s][t] += offeredTraffic - demandOfferedTraffic [demand.getIndex()];
+		this.demandOfferedTraffic [demand.getIndex()] = offeredTraffic;
+		addCarriedTraffic(t, 1);
+	}
+
+	/* Applies the new weight, updating the destinations affected. If previousDistances is not null, the distances of the affected destinations
+	 * before the change are stored there */
+	private void applyLinkWeight (int e , double newWeight , double [][] previousDistances)
+	{
+		final double oldWeight = weights [e];
+		if (oldWeight == newWeight) return;
+		final boolean [] affectedDestinations = new boolean [N];
+		for (int t = 0; t < N ; t ++)
+		{
+			affectedDestinations [t] = isDestinationAffected(t, e, oldWeight, newWeight);
+			if (affectedDestinations [t]) addCarriedTraffic(t, -1); // with the old weight
+		}
+		weights [e] = newWeight;
+		for (int t = 0; t < N ; t ++)
+		{
+			if (!affectedDestinations [t]) continue;
+			if (previousDistances != null) previousDistances [t] = Arrays.copyOf(distance [t], N);
+			if (newWeight < oldWeight) updateDistancesAfterDecrease(t, e); else updateDistancesAfterIncrease(t, e);
+			addCarriedTraffic(t, 1);
+		}
+	}
+
+	/* The shortest path graph to t changes if the link was in it and the weight increases, or if the link becomes a shortest path link */
+	private boolean isDestinationAffected (int t , int e , double oldWeight , double newWeight)
+	{
+		final double [] d = distance [t];
+		final int a = originIndex [e];
+		final int b = destinationIndex [e];
+		if (d [b] == Double.MAX_VALUE || a == t) return false;
+		if (newWeight < oldWeight) return d [a] == Double.MAX_VALUE || newWeight + d [b] < d [a] + PRECISION;
+		return oldWeight != Double.MAX_VALUE && isShortestPathLink(t, e);
+	}
+
+	/* The distances can only decrease: propagated backwards from the link origin, to the nodes whose distance improves */
+	private void updateDistancesAfterDecrease (int t , int e)
+	{
+		final double [] d = distance [t];
+		final int a = originIndex [e];
+		final double newDistanceA = weights [e] + d [destinationIndex [e]];
+		if (newDistanceA >= d [a] - PRECISION) return; // a new equal cost path: the distances do not change
+		d [a] = newDistanceA;
+		final PriorityQueue<NodeAndDistance> queue = new PriorityQueue<> ();
+		queue.add(new NodeAndDistance(a, newDistanceA));
+		while (!queue.isEmpty())
+		{
+			final NodeAndDistance current = queue.poll();
+			if (current.distance > d [current.node]) continue; // outdated entry
+			for (int f : inLinks [current.node])
+			{
+				if (weights [f] == Double.MAX_VALUE) continue;
+				final int y = originIndex [f];
+				final double distanceThroughF = weights [f] + d [current.node];
+				if (distanceThroughF < d [y] - PRECISION) { d [y] = distanceThroughF; queue.add(new NodeAndDistance(y, distanceThroughF)); }
+			}
+		}
+	}
+
+	/* The distances can only increase, and only in the nodes all whose shortest paths to t traverse the link: these nodes are found
+	 * backwards from the link origin, and then their distances are recomputed with Dijkstra, from the distances of the other nodes */
+	private void updateDistancesAfterIncrease (int t , int e)
+	{
+		final double [] d = distance [t];
+		final boolean [] affected = new boolean [N];
+		final Deque<Integer> pending = new ArrayDeque<> ();
+		final int a = originIndex [e];
+		if (!hasShortestPathOutLinkToNonAffectedNode(t, a, affected)) { affected [a] = true; pending.push(a); }
+		while (!pending.isEmpty())
+		{
+			final int x = pending.pop();
+			for (int f : inLinks [x])
+			{
+				final int y = originIndex [f];
+				if (affected [y] || y == t || !isShortestPathLink(t, f)) continue;
+				if (!hasShortestPathOutLinkToNonAffectedNode(t, y, affected)) { affected [y] = true; pending.push(y); }
+			}
+		}
+
+		final PriorityQueue<NodeAndDistance> queue = new PriorityQueue<> ();
+		for (int x = 0; x < N ; x ++)
+		{
+			if (!affected [x]) continue;
+			double bestDistance = Double.MAX_VALUE;
+			for (int g : outLinks [x])
+			{
+				final int z = destinationIndex [g];
+				if (affected [z] || weights [g] == Double.MAX_VALUE || d [z] == Double.MAX_VALUE) continue;
+				bestDistance = Math.min(bestDistance, weights [g] + d [z]);
+			}
+			d [x] = bestDistance;
+			if (bestDistance != Double.MAX_VALUE) queue.add(new NodeAndDistance(x, bestDistance));
+		}
+		while (!queue.isEmpty())
+		{
+			final NodeAndDistance current = queue.poll();
+			if (current.distance > d [current.node]) continue; // outdated entry
+			for (int f : inLinks [current.node])
+			{
+				final int y = originIndex [f];
+				if (!affected [y] || weights [f] == Double.MAX_VALUE) continue;
+				final double distanceThroughF = weights [f] + d [current.node];
+				if (distanceThroughF < d [y]) { d [y] = distanceThroughF; queue.add(new NodeAndDistance(y, distanceThroughF)); }
+			}
+		}
+	}
+
+	private boolean hasShortestPathOutLinkToNonAffectedNode (int t , int n , boolean [] affected)
+	{
+		for (int g : outLinks [n]) if (!affected [destinationIndex [g]] && isShortestPathLink(t, g)) return true;
+		return false;
+	}
+
+	private boolean isShortestPathLink (int t , int e)
+	{
+		final double [] d = distance [t];
+		final double distanceB = d [destinationIndex [e]];
+		final double distanceA = d [originIndex [e]];
+		if (weights [e] == Double.MAX_VALUE || distanceB == Double.MAX_VALUE || distanceA == Double.MAX_VALUE) return false;
+		return Math.abs(distanceA - (weights [e] + distanceB)) < PRECISION;
+	}
+
+	private int getNumShortestPathOutLinks (int t , int n)
+	{
+		int res = 0;
+		for (int e : outLinks [n]) if (isShortestPathLink(t, e)) res ++;
+		return res;
+	}
+
+	/* Adds (sign 1) or subtracts (sign -1) the traffic to destination t, routed with the current distances and weights, to the link carried traffic.
+	 * The traffic is pushed from the nodes farther to t, equally split among the shortest path links */
+	private void addCarriedTraffic (int t , double sign)
+	{
+		final double [] d = distance [t];
+		final double [] trafficInNode = new double [N];
+		int numNodesWithTraffic = 0;
+		for (int n = 0; n < N ; n ++)
+		{
+			trafficInNode [n] = offeredTraffic [n][t];
+			if (trafficInNode [n] > 0) numNodesWithTraffic ++;
+		}
+		if (numNodesWithTraffic == 0) return;
+		final Integer [] nodesByDecreasingDistance = new Integer [N];
+		int numReachableNodes = 0;
+		for (int n = 0; n < N ; n ++) if (n != t && d [n] != Double.MAX_VALUE) nodesByDecreasingDistance [numReachableNodes ++] = n;
+		Arrays.sort(nodesByDecreasingDistance, 0, numReachableNodes, (n1, n2) -> Double.compare(d [n2], d [n1]));
+		for (int cont = 0; cont < numReachableNodes ; cont ++)
+		{
+			final int n = nodesByDecreasingDistance [cont];
+			if (trafficInNode [n] == 0) continue;
+			final double trafficPerLink = trafficInNode [n] / getNumShortestPathOutLinks(t, n);
+			for (int e : outLinks [n])
+			{
+				if (!isShortestPathLink(t, e)) continue;
+				carriedTraffic [e] += sign * trafficPerLink;
+				trafficInNode [destinationIndex [e]] += trafficPerLink;
+			}
+		}
+	}
+
+	private void recomputeAll ()
+	{
+		this.carriedTraffic = new double [links.size()];
+		for (int t = 0; t < N ; t ++)
+		{
+			distance [t] = computeDistancesToDestination(t);
+			addCarriedTraffic(t, 1);
+		}
+	}
+
+	/* Dijkstra from the destination node, on the reversed links */
+	private double [] computeDistancesToDestination (int t)
+	{
+		final double [] d = new double [N];
+		Arrays.fill(d, Double.MAX_VALUE);
+		d [t] = 0;
+		final PriorityQueue<NodeAndDistance> queue = new PriorityQueue<> ();
+		queue.add(new NodeAndDistance(t, 0));
+		while (!queue.isEmpty())
+		{
+			final NodeAndDistance current = queue.poll();
+			if (current.distance > d [current.node]) continue; // outdated entry
+			for (int f : inLinks [current.node])
+			{
+				if (weights [f] == Double.MAX_VALUE) continue;
+				final int y = originIndex [f];
+				final double distanceThroughF = weights [f] + d [current.node];
+				if (distanceThroughF < d [y]) { d [y] = distanceThroughF; queue.add(new NodeAndDistance(y, distanceThroughF)); }
+			}
+		}
+		return d;
+	}
+
+	private int checkLink (Link link)
+	{
+		if (link.getLayer() != layer || link.getIndex() >= links.size() || links.get(link.getIndex()) != link) throw new Net2PlanException ("The link is not in the layer");
+		return link.getIndex();
+	}
+
+	private static double checkWeight (double weight)
+	{
+		if (!(weight > 0)) throw new Net2PlanException ("Link weights must be strictly possitive");
+		return weight;
+	}
+
+	private static class NodeAndDistance implements Comparable<NodeAndDistance>
+	{
+		private final int node;
+		private final double distance;
+
+		private NodeAndDistance (int node , double distance)
+		{
+			this.node = node;
+			this.distance = distance;
+		}
+
+		@Override
+		public int compareTo (NodeAndDistance o)
+		{
+			return Double.compare(distance, o.distance);
+		}
+	}
+}
@@ -176,7 +176,8 @@ public class SRGUtils
 	}
 	
 	/**
-	 * Returns the set of SRGs going down on each failure state.
+	 * Returns the set of SRGs going down on each failure state. All the failure states are created at once: for evaluating
+	 * many failure states, see {@link FailureStateEvaluator}, which creates each failure state when it is evaluated.
 	 * 
 	 * @param srgs SRGs
 	 * @param considerNoFailureState Flag to indicate whether or not no failure state is included
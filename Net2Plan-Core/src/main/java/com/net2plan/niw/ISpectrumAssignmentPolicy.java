@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package com.net2plan.niw;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+/** A policy to choose the optical slots of a lightpath, among the ranges of contiguous slots where it could be allocated.
+ * Used in {@link OpticalSpectrumManager#spectrumAssignment(ISpectrumAssignmentPolicy, OsmLightpathOccupationInfo, int, java.util.Optional, SortedSet)}.
+ * The default policies are: first-fit, last-fit, exact-fit and minimum fragmentation entropy
+ */
+public interface ISpectrumAssignmentPolicy
+{
+	/** Chooses the range of optical slots to assign to a lightpath
+	 * @param osm the spectrum manager, with the current occupation
+	 * @param lpOccupation the occupation information of the lightpath (fibers and directionless modules)
+	 * @param numContiguousSlots the number of contiguous optical slots of the lightpath
+	 * @param validInitialSlots the initial slots of the ranges where the lightpath can be allocated (not empty)
+	 * @return the initial slot of the range chosen, one of validInitialSlots
+	 */
+	public abstract int chooseInitialSlot (OpticalSpectrumManager osm , OsmLightpathOccupationInfo lpOccupation , int numContiguousSlots , SortedSet<Integer> validInitialSlots);
+
+	/** Returns a short name of the policy
+	 * @return see above
+	 */
+	public abstract String getShortName ();
+
+	/** The first-fit policy: the range with the lowest slots */
+	public final static ISpectrumAssignmentPolicy FIRSTFIT = new ISpectrumAssignmentPolicy()
+	{
+		@Override
+		public int chooseInitialSlot(OpticalSpectrumManager osm, OsmLightpathOccupationInfo lpOccupation, int numContiguousSlots, SortedSet<Integer> validInitialSlots) { return validInitialSlots.first(); }
+		@Override
+		public String getShortName() { return "First-fit"; }
+	};
+
+	/** The last-fit policy: the range with the highest slots */
+	public final static ISpectrumAssignmentPolicy LASTFIT = new ISpectrumAssignmentPolicy()
+	{
+		@Override
+		public int chooseInitialSlot(OpticalSpectrumManager osm, OsmLightpathOccupationInfo lpOccupation, int numContiguousSlots, SortedSet<Integer> validInitialSlots) { return validInitialSlots.last(); }
+		@Override
+		public String getShortName() { return "Last-fit"; }
+	};
+
+	/** The exact-fit policy: the range in the smallest block of contiguous slots available in all the path (a block of the same size as the lightpath if any),
+	 * and the lowest slots if more than one. See {@link OpticalSpectrumManager#getAvailableBlockSize(OsmLightpathOccupationInfo, int)} */
+	public final static ISpectrumAssignmentPolicy EXACTFIT = new ISpectrumAssignmentPolicy()
+	{
+		@Override
+		public int chooseInitialSlot(OpticalSpectrumManager osm, OsmLightpathOccupationInfo lpOccupation, int numContiguousSlots, SortedSet<Integer> validInitialSlots) { return osm.chooseInitialSlotExactFit(lpOccupation, validInitialSlots); }
+		@Override
+		public String getShortName() { return "Exact-fit"; }
+	};
+
+	/** The minimum fragmentation policy: the range that minimizes the increase in the fragmentation entropy, summed in the fibers of the legitimate signal,
+	 * and the lowest slots if more than one. See {@link OpticalSpectrumManager#getFragmentationEntropy(WFiber)} */
+	public final static ISpectrumAssignmentPolicy MINIMUMFRAGMENTATIONENTROPY = new ISpectrumAssignmentPolicy()
+	{
+		@Override
+		public int chooseInitialSlot(OpticalSpectrumManager osm, OsmLightpathOccupationInfo lpOccupation, int numContiguousSlots, SortedSet<Integer> validInitialSlots) { return osm.chooseInitialSlotMinimumFragmentationEntropy(lpOccupation, numContiguousSlots, validInitialSlots); }
+		@Override
+		public String getShortName() { return "Min-entropy"; }
+	};
+
+	public final static List<ISpectrumAssignmentPolicy> availableRepresentatives = Arrays.asList(FIRSTFIT , LASTFIT , EXACTFIT , MINIMUMFRAGMENTATIONENTROPY);
+}
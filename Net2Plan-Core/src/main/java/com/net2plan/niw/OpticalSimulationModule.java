@@ -8,12 +8,18 @@ package com.net2plan.niw;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.stream.IntStream;
+import java.util.TreeSet;
+import java.util.function.Predicate;
 
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.utils.Pair;
@@ -96,6 +102,48 @@ public class OpticalSimulationModule
 	final private SortedMap<WFiber,SortedMap<WLightpath,SortedMap<Integer , Pair<LpSignalState,LpSignalState>>>> perFiberPerLpPerOla_valInputOutputOla = new TreeMap<> ();
 	final private SortedMap<WFiber,SortedMap<WLightpath,Optional<LpSignalState>>> perFiberPerLp_valInputBooster = new TreeMap<> ();
 	final private SortedMap<WFiber,SortedMap<WLightpath,Optional<LpSignalState>>> perFiberPerLp_valOutputPreamplifier = new TreeMap<> ();
+	/* Hash based, since removed elements cannot be compared, and then cannot be searched in the sorted maps */
+	final private Map<WFiber,FiberLineInfo> perFiberLineInfo = new HashMap<> ();
+	final private Map<WLightpath,List<WFiber>> perLpSeqFibersEvaluated = new HashMap<> ();
+
+	/* The parameters of a fiber and its amplifiers, read once from the fiber attributes. Amplifiers are arrays {gain_dB, cdCompensation_psPerNm, pmdSquared_ps2, noiseFigure_dB} */
+	private static final class FiberLineInfo
+	{
+		private final double attenuation_dbPerKm;
+		private final double cd_psPerNmKm;
+		private final double pmdSquared_ps2PerKm;
+		private final double [] olaPosition_km;
+		private final double [] spanLength_km; // from the start or the previous OLA to each OLA, and from the last OLA (or the start) to the fiber end
+		private final double [][] olas;
+		private final double [] booster; // null if none
+		private final double [] preamplifier; // null if none
+
+		private FiberLineInfo (WFiber fiber)
+		{
+			this.attenuation_dbPerKm = fiber.getAttenuationCoefficient_dbPerKm();
+			this.cd_psPerNmKm = fiber.getChromaticDispersionCoeff_psPerNmKm();
+			this.pmdSquared_ps2PerKm = Math.pow(fiber.getPmdLinkDesignValueCoeff_psPerSqrtKm() , 2);
+			final List<OpticalAmplifierInfo> olasInfo = fiber.getOpticalLineAmplifiersInfo();
+			final int numOlas = olasInfo.size();
+			this.olaPosition_km = new double [numOlas];
+			this.spanLength_km = new double [numOlas + 1];
+			this.olas = new double [numOlas][];
+			for (int contOla = 0; contOla < numOlas ; contOla ++)
+			{
+				olaPosition_km [contOla] = olasInfo.get(contOla).getOlaPositionInKm().get();
+				spanLength_km [contOla] = olaPosition_km [contOla] - (contOla == 0? 0 : olaPosition_km [contOla-1]);
+				assert spanLength_km [contOla] >= 0;
+				olas [contOla] = getAmplifierParameters(olasInfo.get(contOla));
+			}
+			spanLength_km [numOlas] = fiber.getLengthInKm() - (numOlas == 0? 0 : olaPosition_km [numOlas-1]);
+			this.booster = fiber.getOriginBoosterAmplifierInfo().map(oa->getAmplifierParameters(oa)).orElse(null);
+			this.preamplifier = fiber.getDestinationPreAmplifierInfo().map(oa->getAmplifierParameters(oa)).orElse(null);
+		}
+		private static double [] getAmplifierParameters (OpticalAmplifierInfo oa)
+		{
+			return new double [] { oa.getGainDb() , oa.getCdCompensationPsPerNm() , Math.pow(oa.getPmdPs() , 2) , oa.getNoiseFigureDb() };
+		}
+	}
 	
 	public OpticalSimulationModule (WNet wNet) 
 	{
@@ -128,122 +176,139 @@ public class OpticalSimulationModule
         return addedOSNRThisOA_linear;
     }
 
+    /** Recomputes the performance information of all the lightpaths and fibers in the network, reading again all the fiber, amplifier
+     * and lightpath parameters
+     * @return this object
+     */
     public OpticalSimulationModule updateAllPerformanceInfo ()
     {
-    	System.out.println("Update all performance info");
+   	 perLpPerMetric_valAtDropTransponderEnd.clear();
+   	 perFiberPerLp_valStartAfterBoosterEndBeforePreampl.clear();
+   	 perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.clear();
+   	 perFiberPerLpPerOla_valInputOutputOla.clear();
+   	 perFiberPerLp_valInputBooster.clear();
+   	 perFiberPerLp_valOutputPreamplifier.clear();
+   	 perFiberLineInfo.clear();
+   	 perLpSeqFibersEvaluated.clear();
    	 for (WFiber e : wNet.getFibers())
-   	 {
-   		 perFiberPerLp_valStartAfterBoosterEndBeforePreampl.put(e, new TreeMap<> ());
-   		 perFiberPerLpPerOla_valInputOutputOla.put(e, new TreeMap <> ());
-   		perFiberPerLp_valInputBooster.put(e , new TreeMap<> ());
-   		perFiberPerLp_valOutputPreamplifier.put(e , new TreeMap<> ());
-   		 for (WLightpath lp : e.getTraversingLps())
-   			perFiberPerLpPerOla_valInputOutputOla.get(e).put(lp, new TreeMap<> ());
-   	 }
+   		 perFiberLineInfo.put(e, new FiberLineInfo(e));
    	 for (WLightpath lp : wNet.getLightpaths())
+   		 updateLightpathInfo(lp);
+   	 
+   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().equals(getPerLpInfo (perFiberPerLpPerOla_valInputOutputOla , e).keySet()));
+   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().stream().allMatch(lp->perFiberPerLpPerOla_valInputOutputOla.get(e).get(lp).size() == e.getNumberOfOpticalLineAmplifiersTraversed()));
+   	 
+   	 for (WFiber fiber : wNet.getFibers())
+   		 updateFiberTotalPowerInfo(fiber);
+   	 
+   	 return this;
+    }
+
+    /** Updates the performance information after changes in some lightpaths and fibers, recomputing only what depends on them: the
+     * lightpaths given, the lightpaths traversing the fibers given, and the total power in the fibers traversed by any of them before or after the changes.
+     * Lightpaths are modified when they are added, removed, rerouted, or their optical slots, injection power or directionless modules change. Fibers are modified
+     * when they are added, removed, or their length, coefficients or amplifiers change. Changes in the OADM architecture of the nodes require calling
+     * {@link #updateAllPerformanceInfo()}
+     * @param lpsAddedModifiedOrRemoved see above
+     * @param fibersAddedModifiedOrRemoved see above
+     * @return this object
+     */
+    public OpticalSimulationModule updatePerformanceInfo (Collection<WLightpath> lpsAddedModifiedOrRemoved , Collection<WFiber> fibersAddedModifiedOrRemoved)
+    {
+   	 final SortedSet<WFiber> fibersToUpdateTotalPower = new TreeSet<> ();
+   	 
+   	 /* First remove the information of removed elements, that cannot be searched in the sorted maps */
+   	 boolean someLpRemoved = false;
+   	 for (Iterator<Entry<WLightpath,List<WFiber>>> it = perLpSeqFibersEvaluated.entrySet().iterator(); it.hasNext() ; )
    	 {
-   		 final int numOpticalSlots = lp.getOpticalSlotIds().size();
-   		 final double centralFrequency_hz = 1e12 * lp.getCentralFrequencyThz();
-   		 Optional<Pair<LpSignalState,LpSignalState>> previousFiberInfo = Optional.empty();
-   		 final List<WFiber> lpSeqFibers = lp.getSeqFibers();
-   		 for (int contFiber = 0; contFiber < lpSeqFibers.size() ; contFiber ++)
+   		 final Entry<WLightpath,List<WFiber>> entry = it.next();
+   		 if (!entry.getKey().wasRemoved()) continue;
+   		 for (WFiber e : entry.getValue())
    		 {
-   			 final WFiber fiber = lpSeqFibers.get(contFiber);
-   	   		 final boolean firstFiber = contFiber == 0;
-   			 final Pair<LpSignalState,LpSignalState> infoToAdd = Pair.of(new LpSignalState(), new LpSignalState());
-   			 final SortedMap<Integer , Pair<LpSignalState,LpSignalState>> infoToAddPerOla = new TreeMap<> ();
-   			 perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).put(lp, infoToAdd);
-   			 perFiberPerLpPerOla_valInputOutputOla.get(fiber).put(lp, infoToAddPerOla);
-   			
-   			 final IOadmArchitecture oadm_a = fiber.getA().getOpticalSwitchingArchitecture();
-   			 final LpSignalState state_startFiberBeforeBooster;
-   			 final WFiber previousFiber = contFiber == 0? null : lpSeqFibers.get(contFiber-1);
-   			 if (firstFiber)
-   				state_startFiberBeforeBooster = oadm_a.getOutLpStateForAddedLp(new LpSignalState(lp.getAddTransponderInjectionPower_dBm() , 0.0, 0.0, Double.MAX_VALUE), lp.getDirectionlessAddModuleIndexInOrigin(), lp.getSeqFibers().get(0) , numOpticalSlots);
-   			 else
-   			 {
-   				 final LpSignalState beforePreviousFiberEndPreampl = previousFiberInfo.get().getSecond();
-   				 final LpSignalState afterPreviousFiberEndPreampl = previousFiber.getDestinationPreAmplifierInfo().isPresent()? 
-   						getStateAfterOpticalAmplifier (centralFrequency_hz , beforePreviousFiberEndPreampl , previousFiber.getDestinationPreAmplifierInfo().get()) : 
-   							beforePreviousFiberEndPreampl.getCopy();
-				state_startFiberBeforeBooster = oadm_a.getOutLpStateForExpressLp(afterPreviousFiberEndPreampl, previousFiber, fiber , numOpticalSlots);
-   			 }
-   			 final Optional<OpticalAmplifierInfo> boosterAmplifierInfo = fiber.getOriginBoosterAmplifierInfo();
-   			 perFiberPerLp_valInputBooster.get(fiber).put(lp, boosterAmplifierInfo.isPresent()? Optional.of(state_startFiberBeforeBooster) : Optional.empty());
-   			 final LpSignalState state_startFiberAfterBooster = boosterAmplifierInfo.isPresent()? 
-	   						getStateAfterOpticalAmplifier (centralFrequency_hz , state_startFiberBeforeBooster , boosterAmplifierInfo.get()) : 
-	   							state_startFiberBeforeBooster.getCopy();
-	   		infoToAdd.setFirst(state_startFiberAfterBooster);
-			 LpSignalState stateOutputLastOlaOrInitialOadmAfterBooster = state_startFiberAfterBooster;
-			 final List<OpticalAmplifierInfo> olasTraversed = fiber.getOpticalLineAmplifiersInfo();
-			 final int numOlas = olasTraversed.size();
-			 for (int contOla = 0; contOla < numOlas ; contOla ++)
-			 {
-				 final OpticalAmplifierInfo thisOla = olasTraversed.get(contOla);
-				 final double distFromLastOlaOrInitialOadm_km = thisOla.getOlaPositionInKm().get() - (contOla == 0? 0 : olasTraversed.get(contOla-1).getOlaPositionInKm().get());
-				 assert distFromLastOlaOrInitialOadm_km >= 0;
-				 final LpSignalState stateBeforeTheOla = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
-				 final LpSignalState stateAfterTheOla = getStateAfterOpticalAmplifier(centralFrequency_hz, stateBeforeTheOla, thisOla);
-				 final Pair<LpSignalState,LpSignalState> infoThisOla = Pair.of(stateBeforeTheOla, stateAfterTheOla);
-				infoToAddPerOla.put(contOla, infoThisOla);
-				stateOutputLastOlaOrInitialOadmAfterBooster = stateAfterTheOla;
-			 }
-			 final double distFromLastOlaOrInitialOadm_km = fiber.getLengthInKm() - (numOlas == 0? 0 : olasTraversed.get(numOlas-1).getOlaPositionInKm().get());
-			 final LpSignalState stateAtTheEndOfFiberBeforePreamplifier = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
-   			 infoToAdd.setSecond(stateAtTheEndOfFiberBeforePreamplifier);
-   			 final Optional<OpticalAmplifierInfo> preamlInfo = fiber.getDestinationPreAmplifierInfo();
-   			 final LpSignalState state_afterPreampl = preamlInfo.isPresent()? 
-						getStateAfterOpticalAmplifier (centralFrequency_hz , stateAtTheEndOfFiberBeforePreamplifier , fiber.getDestinationPreAmplifierInfo().get()) : 
-							stateAtTheEndOfFiberBeforePreamplifier.getCopy();
-   			 this.perFiberPerLp_valOutputPreamplifier.get(fiber).put(lp, preamlInfo.isPresent()? Optional.of(state_afterPreampl) : Optional.empty());
-   			 previousFiberInfo = Optional.of(infoToAdd);
+   			 if (e.wasRemoved()) continue;
+   			 removePerLpInfoInFiber(e, lp->lp.wasRemoved());
+   			 fibersToUpdateTotalPower.add(e);
    		 }
+   		 someLpRemoved = true;
+   		 it.remove();
    	 }
-   	 
-   	 assert perFiberPerLpPerOla_valInputOutputOla.keySet().containsAll(wNet.getFibers());
-   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().equals(perFiberPerLpPerOla_valInputOutputOla.get(e).keySet()));
-   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().stream().allMatch(lp->perFiberPerLpPerOla_valInputOutputOla.get(e).get(lp).size() == e.getNumberOfOpticalLineAmplifiersTraversed()));
-   	 
-   	 /* Update the per lp information at add and end */
-   	 for (WLightpath lp : wNet.getLightpaths())
+   	 if (someLpRemoved) perLpPerMetric_valAtDropTransponderEnd.keySet().removeIf(lp->lp.wasRemoved());
+   	 if (perFiberLineInfo.keySet().removeIf(e->e.wasRemoved()))
    	 {
-   		 final double centralFrequency_hz = 1e12 * lp.getCentralFrequencyThz();
-   		 final WFiber lastFiber = lp.getSeqFibers().get(lp.getSeqFibers().size()-1);
-   		 final WNode lastOadm = lastFiber.getB();
-   		 final LpSignalState state_beforePreamplLastFiber = perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(lastFiber).get(lp).getSecond();
-		 final LpSignalState state_afterPreamplLastFiber = lastFiber.getDestinationPreAmplifierInfo().isPresent()? 
-						getStateAfterOpticalAmplifier (centralFrequency_hz , state_beforePreamplLastFiber , lastFiber.getDestinationPreAmplifierInfo().get()) : 
-							state_beforePreamplLastFiber.getCopy();
-		final LpSignalState state_afterOadm = lastOadm.getOpticalSwitchingArchitecture().getOutLpStateForDroppedLp(state_afterPreamplLastFiber, lastFiber, lp.getDirectionlessDropModuleIndexInDestination());
-   		 perLpPerMetric_valAtDropTransponderEnd.put(lp, state_afterOadm);
+   		 for (SortedMap<WFiber,?> perFiberMap : Arrays.asList(perFiberPerLp_valStartAfterBoosterEndBeforePreampl , perFiberTotalPower_valStartEndAndAtEachOlaInputOutput , perFiberPerLpPerOla_valInputOutputOla , perFiberPerLp_valInputBooster , perFiberPerLp_valOutputPreamplifier))
+   			 perFiberMap.keySet().removeIf(e->e.wasRemoved());
    	 }
+
+   	 /* The fibers with new parameters, and then all their lightpaths */
+   	 final SortedSet<WLightpath> lpsToUpdate = new TreeSet<> ();
+   	 for (WFiber e : fibersAddedModifiedOrRemoved)
+   	 {
+   		 if (e.wasRemoved()) continue;
+   		 perFiberLineInfo.put(e, new FiberLineInfo(e));
+   		 lpsToUpdate.addAll(e.getTraversingLps());
+   		 fibersToUpdateTotalPower.add(e);
+   	 }
+   	 for (WLightpath lp : lpsAddedModifiedOrRemoved)
+   		 if (!lp.wasRemoved()) lpsToUpdate.add(lp);
    	 
-   	 
-   	 /* Update the total power per fiber */
-   	 for (WFiber fiber : wNet.getFibers())
+   	 for (WLightpath lp : lpsToUpdate)
    	 {
-   		 final double powerAtStart_dBm = linear2dB(fiber.getTraversingLps().stream().map(lp->perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).get(lp).getFirst().getPower_dbm()).
-   				 mapToDouble (v->dB2linear(v)).sum ());
-   		 final double powerAtEnd_dBm = linear2dB(fiber.getTraversingLps().stream().map(lp->perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).get(lp).getSecond().getPower_dbm()).
-   				 mapToDouble (v->dB2linear(v)).sum ());
-   		 
-   		 final List<Double> powerInputOla_dBm = new ArrayList<> ();
-   		 final List<Double> powerOutputOla_dBm = new ArrayList<> ();
-   		 final List<OpticalAmplifierInfo> olas = fiber.getOpticalLineAmplifiersInfo();
-		 for (int contOla = 0; contOla < olas.size() ; contOla ++)
-		 {
-			 final double kmFromStartFiber = olas.get(contOla).getOlaPositionInKm().get();
-			 final double sumGainsTraversedAmplifiersBeforeThisOla_db = IntStream.range(0, contOla).mapToDouble(olaIndex -> olas.get(olaIndex).getGainDb()).sum();
-			 final double powerAtInputThisOla_dBm = powerAtStart_dBm - kmFromStartFiber * fiber.getAttenuationCoefficient_dbPerKm() + sumGainsTraversedAmplifiersBeforeThisOla_db;
-			 final double powerAtOutputThisOla_dBm = powerAtInputThisOla_dBm + olas.get(contOla).getGainDb();
-			 powerInputOla_dBm.add(powerAtInputThisOla_dBm);
-			 powerOutputOla_dBm.add(powerAtOutputThisOla_dBm);
-		 }
-   		 perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.put(fiber, Quadruple.of(powerAtStart_dBm, powerAtEnd_dBm , powerInputOla_dBm , powerOutputOla_dBm));
+   		 final List<WFiber> previousSeqFibers = perLpSeqFibersEvaluated.getOrDefault(lp , new ArrayList<> ());
+   		 for (WFiber e : previousSeqFibers)
+   		 {
+   			 if (e.wasRemoved()) continue;
+   			 removePerLpInfoInFiber(e, lpInFiber->lpInFiber.equals(lp));
+   			 fibersToUpdateTotalPower.add(e);
+   		 }
+   		 updateLightpathInfo(lp);
+   		 fibersToUpdateTotalPower.addAll(lp.getSeqFibers());
    	 }
    	 
+   	 for (WFiber e : fibersToUpdateTotalPower)
+   		 updateFiberTotalPowerInfo(e);
+   	 
    	 return this;
     }
+
+    /** Returns the signal performance at the receiver that a lightpath would have, if added with the given fibers, optical slots and directionless modules,
+     * without modifying the network or this object. The lightpath is supposed to use the transponder injection power given. Also returns, for each traversed fiber,
+     * the total power at the fiber start after the booster (if any) that the fiber would have with the lightpath added (see {@link #getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(WFiber)})
+     * @param lpOccupation the lightpath fibers, directionless modules and optical slots (should be present)
+     * @param injectionPower_dBm see above
+     * @return see above
+     */
+    public Pair<LpSignalState,SortedMap<WFiber,Double>> getOpticalPerformanceIfLightpathAdded (OsmLightpathOccupationInfo lpOccupation , double injectionPower_dBm)
+    {
+   	 if (!lpOccupation.getOccupiedSlotIds().isPresent() || lpOccupation.getOccupiedSlotIds().get().isEmpty()) throw new Net2PlanException ("The optical slots of the lightpath are needed");
+   	 final SortedSet<Integer> slotIds = lpOccupation.getOccupiedSlotIds().get();
+   	 final List<WFiber> seqFibers = lpOccupation.getSeqFibersLegitimateSignal();
+   	 final double centralFrequency_hz = 1e12 * (WNetConstants.CENTRALFREQUENCYOFOPTICALSLOTZERO_THZ + wNet.getWdmOpticalSlotSizeInGHz() * 1e-3 * (slotIds.first() + slotIds.last())/2.0);
+   	 final double [] powerAtFiberStartAfterBooster_dBm = new double [seqFibers.size()];
+   	 final LpSignalState stateAtReceiver = propagateSignal(seqFibers, slotIds.size(), centralFrequency_hz, injectionPower_dBm, 
+   			 lpOccupation.getDirectionlessAddModuleIndex(), lpOccupation.getDirectionlessDropModuleIndex(), null, powerAtFiberStartAfterBooster_dBm);
+   	 final SortedMap<WFiber,Double> totalPowerAtFiberStart_dBm = new TreeMap<> ();
+   	 for (int contFiber = 0; contFiber < seqFibers.size() ; contFiber ++)
+   	 {
+   		 final WFiber e = seqFibers.get(contFiber);
+   		 final double previousTotalPower_mw = perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.containsKey(e)? dB2linear(perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(e).getFirst()) : 0.0;
+   		 totalPowerAtFiberStart_dBm.put(e, linear2dB(previousTotalPower_mw + dB2linear(powerAtFiberStartAfterBooster_dBm [contFiber])));
+   	 }
+   	 return Pair.of(stateAtReceiver, totalPowerAtFiberStart_dBm);
+    }
+
+    /** Applies {@link #getOpticalPerformanceIfLightpathAdded(OsmLightpathOccupationInfo, double)} to each candidate lightpath, e.g. the candidate paths and slot ranges of
+     * a new lightpath. Each candidate is evaluated alone, as if it were the only one added. The network and this object are not modified
+     * @param lpOccupations see above
+     * @param injectionPower_dBm see above
+     * @return the results, in the same order as the candidates
+     */
+    public List<Pair<LpSignalState,SortedMap<WFiber,Double>>> getOpticalPerformanceIfEachLightpathAdded (List<OsmLightpathOccupationInfo> lpOccupations , double injectionPower_dBm)
+    {
+   	 final List<Pair<LpSignalState,SortedMap<WFiber,Double>>> res = new ArrayList<> (lpOccupations.size());
+   	 for (OsmLightpathOccupationInfo lpOccupation : lpOccupations)
+   		 res.add(getOpticalPerformanceIfLightpathAdded(lpOccupation, injectionPower_dBm));
+   	 return res;
+    }
         
 	public Optional<Double> getMaxtoMinPerPowerDensityRatioAmongTraversingLightpathsAtFiberInput_dB (WFiber fiber)
 	{
@@ -365,21 +430,135 @@ public class OpticalSimulationModule
 		return true;
     }
 
-    private static LpSignalState getStateAfterFiberKm (LpSignalState initialState , WFiber e , double kmOfFiberTraversed)
+    /* Recomputes and stores the information of the lightpath in all its fibers, and at the receiver */
+    private void updateLightpathInfo (WLightpath lp)
+    {
+   	 final List<WFiber> lpSeqFibers = lp.getSeqFibers();
+   	 final LpSignalState state_afterOadm = propagateSignal(lpSeqFibers, lp.getOpticalSlotIds().size(), 1e12 * lp.getCentralFrequencyThz(), lp.getAddTransponderInjectionPower_dBm(), 
+   			 lp.getDirectionlessAddModuleIndexInOrigin(), lp.getDirectionlessDropModuleIndexInDestination(), lp, new double [lpSeqFibers.size()]);
+   	 perLpPerMetric_valAtDropTransponderEnd.put(lp, state_afterOadm);
+   	 perLpSeqFibersEvaluated.put(lp, lpSeqFibers);
+    }
+
+    /* Recomputes the total power in the fiber ends and line amplifiers, from the power of the lightpaths traversing it */
+    private void updateFiberTotalPowerInfo (WFiber fiber)
+    {
+   	 final FiberLineInfo line = getFiberLineInfo(fiber);
+   	 double powerAtStart_mw = 0;
+   	 double powerAtEnd_mw = 0;
+   	 for (Pair<LpSignalState,LpSignalState> lpInfo : getPerLpInfo(perFiberPerLp_valStartAfterBoosterEndBeforePreampl , fiber).values())
+   	 {
+   		 powerAtStart_mw += dB2linear(lpInfo.getFirst().getPower_dbm());
+   		 powerAtEnd_mw += dB2linear(lpInfo.getSecond().getPower_dbm());
+   	 }
+   	 final double powerAtStart_dBm = linear2dB(powerAtStart_mw);
+   	 final List<Double> powerInputOla_dBm = new ArrayList<> (line.olas.length);
+   	 final List<Double> powerOutputOla_dBm = new ArrayList<> (line.olas.length);
+   	 double sumGainsTraversedAmplifiersBeforeThisOla_db = 0;
+   	 for (int contOla = 0; contOla < line.olas.length ; contOla ++)
+   	 {
+   		 final double powerAtInputThisOla_dBm = powerAtStart_dBm - line.olaPosition_km [contOla] * line.attenuation_dbPerKm + sumGainsTraversedAmplifiersBeforeThisOla_db;
+   		 final double powerAtOutputThisOla_dBm = powerAtInputThisOla_dBm + line.olas [contOla][0];
+   		 powerInputOla_dBm.add(powerAtInputThisOla_dBm);
+   		 powerOutputOla_dBm.add(powerAtOutputThisOla_dBm);
+   		 sumGainsTraversedAmplifiersBeforeThisOla_db += line.olas [contOla][0];
+   	 }
+   	 perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.put(fiber, Quadruple.of(powerAtStart_dBm, linear2dB(powerAtEnd_mw) , powerInputOla_dBm , powerOutputOla_dBm));
+    }
+
+    /* Propagates the signal of a lightpath from the transponder to the receiver, and returns the state at the receiver. The power after the booster in each fiber is 
+     * stored in the given array. If the lightpath is not null, the states at the fiber ends and at the amplifiers are stored in this object */
+    private LpSignalState propagateSignal (List<WFiber> seqFibers , int numOpticalSlots , double centralFrequency_hz , double injectionPower_dBm , 
+   		 Optional<Integer> addModuleIndex , Optional<Integer> dropModuleIndex , WLightpath lpToStoreOrNull , double [] powerAtFiberStartAfterBooster_dBm)
+    {
+   	 final boolean store = lpToStoreOrNull != null;
+   	 final double [] state = new double [4]; // power_dbm, cd_psPerNm, pmdSquared_ps2, osnrAt12_5GhzRefBw
+   	 LpSignalState state_afterPreviousFiberEndPreampl = null;
+   	 for (int contFiber = 0; contFiber < seqFibers.size() ; contFiber ++)
+   	 {
+   		 final WFiber fiber = seqFibers.get(contFiber);
+   		 final FiberLineInfo line = getFiberLineInfo(fiber);
+   		 final IOadmArchitecture oadm_a = fiber.getA().getOpticalSwitchingArchitecture();
+   		 final LpSignalState state_startFiberBeforeBooster = contFiber == 0? 
+   				 oadm_a.getOutLpStateForAddedLp(new LpSignalState(injectionPower_dBm , 0.0, 0.0, Double.MAX_VALUE), addModuleIndex, fiber , numOpticalSlots) :
+   					 oadm_a.getOutLpStateForExpressLp(state_afterPreviousFiberEndPreampl, seqFibers.get(contFiber-1), fiber , numOpticalSlots);
+   		 setState(state, state_startFiberBeforeBooster);
+   		 if (line.booster != null) traverseAmplifier(state, centralFrequency_hz, line.booster);
+   		 powerAtFiberStartAfterBooster_dBm [contFiber] = state [0];
+   		 final LpSignalState state_startFiberAfterBooster = store? toLpSignalState(state) : null;
+   		 final SortedMap<Integer , Pair<LpSignalState,LpSignalState>> infoToAddPerOla = store? new TreeMap<> () : null;
+   		 for (int contOla = 0; contOla < line.olas.length ; contOla ++)
+   		 {
+   			 traverseFiberKm(state, line, line.spanLength_km [contOla]);
+   			 final LpSignalState stateBeforeTheOla = store? toLpSignalState(state) : null;
+   			 traverseAmplifier(state, centralFrequency_hz, line.olas [contOla]);
+   			 if (store) infoToAddPerOla.put(contOla, Pair.of(stateBeforeTheOla, toLpSignalState(state)));
+   		 }
+   		 traverseFiberKm(state, line, line.spanLength_km [line.olas.length]);
+   		 final LpSignalState stateAtTheEndOfFiberBeforePreamplifier = toLpSignalState(state);
+   		 if (line.preamplifier != null) traverseAmplifier(state, centralFrequency_hz, line.preamplifier);
+   		 state_afterPreviousFiberEndPreampl = toLpSignalState(state);
+   		 if (store)
+   		 {
+   			 getPerLpInfo(perFiberPerLp_valInputBooster , fiber).put(lpToStoreOrNull, line.booster != null? Optional.of(state_startFiberBeforeBooster) : Optional.empty());
+   			 getPerLpInfo(perFiberPerLp_valStartAfterBoosterEndBeforePreampl , fiber).put(lpToStoreOrNull, Pair.of(state_startFiberAfterBooster, stateAtTheEndOfFiberBeforePreamplifier));
+   			 getPerLpInfo(perFiberPerLpPerOla_valInputOutputOla , fiber).put(lpToStoreOrNull, infoToAddPerOla);
+   			 getPerLpInfo(perFiberPerLp_valOutputPreamplifier , fiber).put(lpToStoreOrNull, line.preamplifier != null? Optional.of(state_afterPreviousFiberEndPreampl.getCopy()) : Optional.empty());
+   		 }
+   	 }
+   	 final WFiber lastFiber = seqFibers.get(seqFibers.size()-1);
+   	 return lastFiber.getB().getOpticalSwitchingArchitecture().getOutLpStateForDroppedLp(state_afterPreviousFiberEndPreampl, lastFiber, dropModuleIndex);
+    }
+
+    private FiberLineInfo getFiberLineInfo (WFiber fiber)
+    {
+   	 return perFiberLineInfo.computeIfAbsent(fiber, e->new FiberLineInfo(e));
+    }
+
+    private static <T> SortedMap<WLightpath,T> getPerLpInfo (SortedMap<WFiber,SortedMap<WLightpath,T>> perFiberPerLpInfo , WFiber fiber)
+    {
+   	 return perFiberPerLpInfo.computeIfAbsent(fiber, e->new TreeMap<> ());
+    }
+
+    private void removePerLpInfoInFiber (WFiber fiber , Predicate<WLightpath> lpsToRemove)
+    {
+   	 for (SortedMap<WLightpath,?> perLpInfo : Arrays.asList(getPerLpInfo(perFiberPerLp_valStartAfterBoosterEndBeforePreampl , fiber) , getPerLpInfo(perFiberPerLpPerOla_valInputOutputOla , fiber) , 
+   			 getPerLpInfo(perFiberPerLp_valInputBooster , fiber) , getPerLpInfo(perFiberPerLp_valOutputPreamplifier , fiber)))
+   		 perLpInfo.keySet().removeIf(lpsToRemove);
+    }
+
+    private static void setState (double [] state , LpSignalState lpState)
+    {
+   	 state [0] = lpState.getPower_dbm();
+   	 state [1] = lpState.getCd_psPerNm();
+   	 state [2] = lpState.getPmdSquared_ps2();
+   	 state [3] = lpState.getOsnrAt12_5GhzRefBw();
+    }
+    private static LpSignalState toLpSignalState (double [] state)
+    {
+   	 return new LpSignalState(state [0], state [1], state [2], state [3]);
+    }
+    private static void traverseFiberKm (double [] state , FiberLineInfo line , double kmOfFiberTraversed)
+    {
+   	 state [0] -= line.attenuation_dbPerKm * kmOfFiberTraversed;
+   	 state [1] += line.cd_psPerNmKm * kmOfFiberTraversed;
+   	 state [2] += line.pmdSquared_ps2PerKm * kmOfFiberTraversed;
+    }
+    private static void traverseAmplifier (double [] state , double centralFrequency_hz , double [] amplifier)
     {
-    	final double power_dbm = initialState.getPower_dbm() - e.getAttenuationCoefficient_dbPerKm() * kmOfFiberTraversed;
-    	final double cd_psPerNm = initialState.getCd_psPerNm() + e.getChromaticDispersionCoeff_psPerNmKm() * kmOfFiberTraversed;
-    	final double pmdSquared_ps2 = initialState.getPmdSquared_ps2() + Math.pow(e.getPmdLinkDesignValueCoeff_psPerSqrtKm() , 2) * kmOfFiberTraversed;
-    	return new LpSignalState(power_dbm, cd_psPerNm, pmdSquared_ps2, initialState.getOsnrAt12_5GhzRefBw());
+   	 final double osnrContributedByAmplifier_dB = linear2dB(osnrContributionEdfaRefBw12dot5GHz_linear(centralFrequency_hz, amplifier [3], state [0]));
+   	 state [0] += amplifier [0];
+   	 state [1] += amplifier [1];
+   	 state [2] += amplifier [2];
+   	 state [3] = osnrInDbUnitsAccummulation_dB (state [3] , osnrContributedByAmplifier_dB);
     }
-    private static LpSignalState getStateAfterOpticalAmplifier (double centralFrequency_hz , LpSignalState initialState , OpticalAmplifierInfo oa)
+    /* Same as osnrInDbUnitsAccummulation_dB(List), for two values */
+    private static double osnrInDbUnitsAccummulation_dB (double osnr1_dB , double osnr2_dB)
     {
-    	final double power_dbm = initialState.getPower_dbm() + oa.getGainDb();
-    	final double cd_psPerNm = initialState.getCd_psPerNm() + oa.getCdCompensationPsPerNm();
-    	final double pmdSquared_ps2 = initialState.getPmdSquared_ps2() + Math.pow(oa.getPmdPs() , 2);
-    	final double osnrContributedByAmplifier_dB = linear2dB(osnrContributionEdfaRefBw12dot5GHz_linear(centralFrequency_hz, oa.getNoiseFigureDb(), initialState.getPower_dbm()));
-    	final double osnrRefBw12_5_dB = osnrInDbUnitsAccummulation_dB (Arrays.asList(initialState.getOsnrAt12_5GhzRefBw() , osnrContributedByAmplifier_dB));
-    	return new LpSignalState(power_dbm, cd_psPerNm, pmdSquared_ps2, osnrRefBw12_5_dB);
+   	 double resDenom_linear = 0; 
+   	 if (osnr1_dB != Double.MAX_VALUE) resDenom_linear += 1.0 / dB2linear(osnr1_dB);
+   	 if (osnr2_dB != Double.MAX_VALUE) resDenom_linear += 1.0 / dB2linear(osnr2_dB);
+   	 return resDenom_linear == 0? Double.MIN_VALUE : linear2dB(1.0 / resDenom_linear);
     }
     
 }
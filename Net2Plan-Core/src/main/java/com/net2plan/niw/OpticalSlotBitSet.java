@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package com.net2plan.niw;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.net2plan.utils.Pair;
+
+/** A set of optical slot ids, packed in words of 64 slots. Slot ids can be negative: the word with index i contains the slots from 64*i to 64*i+63,
+ * and only the words between the lowest and the highest slot set so far are stored. Intersections, unions and searches of contiguous ranges of slots
+ * are made word by word. Used by {@link OpticalSpectrumManager} to store the occupation of fibers and directionless modules.
+ */
+final class OpticalSlotBitSet
+{
+	/** Returned by {@link #nextSetSlot(int)} when there are no more slots */
+	static final int NONE = Integer.MIN_VALUE;
+
+	private static final long [] NOWORDS = new long [0];
+
+	private int firstWordIndex; // index of the word in words [0]
+	private long [] words;
+
+	OpticalSlotBitSet ()
+	{
+		this.firstWordIndex = 0;
+		this.words = NOWORDS;
+	}
+
+	OpticalSlotBitSet (OpticalSlotBitSet other)
+	{
+		this.firstWordIndex = other.firstWordIndex;
+		this.words = other.words.length == 0? NOWORDS : Arrays.copyOf(other.words, other.words.length);
+	}
+
+	/** Creates the set with the given slots
+	 * @param slotIds see above
+	 * @return see above
+	 */
+	static OpticalSlotBitSet of (Collection<Integer> slotIds)
+	{
+		final OpticalSlotBitSet res = new OpticalSlotBitSet();
+		if (slotIds.isEmpty()) return res;
+		if (slotIds instanceof SortedSet) { final SortedSet<Integer> sorted = (SortedSet<Integer>) slotIds; res.ensureWords(sorted.first(), sorted.last()); }
+		for (int slotId : slotIds) res.set(slotId);
+		return res;
+	}
+
+	/** Creates the set with the slots in the given ranges (both extremes included), as returned by {@link WFiber#getValidOpticalSlotRanges()}
+	 * @param ranges see above
+	 * @return see above
+	 */
+	static OpticalSlotBitSet ofRanges (List<Pair<Integer,Integer>> ranges)
+	{
+		final OpticalSlotBitSet res = new OpticalSlotBitSet();
+		for (Pair<Integer,Integer> range : ranges) res.setRange(range.getFirst(), range.getSecond());
+		return res;
+	}
+
+	boolean get (int slotId)
+	{
+		final int pos = Math.floorDiv(slotId, 64) - firstWordIndex;
+		if (pos < 0 || pos >= words.length) return false;
+		return (words [pos] & (1L << slotId)) != 0;
+	}
+
+	void set (int slotId)
+	{
+		ensureWords(slotId, slotId);
+		words [Math.floorDiv(slotId, 64) - firstWordIndex] |= 1L << slotId;
+	}
+
+	void clear (int slotId)
+	{
+		final int pos = Math.floorDiv(slotId, 64) - firstWordIndex;
+		if (pos < 0 || pos >= words.length) return;
+		words [pos] &= ~(1L << slotId);
+	}
+
+	/** Sets the slots from firstSlotId to lastSlotId, both included
+	 * @param firstSlotId see above
+	 * @param lastSlotId see above
+	 */
+	void setRange (int firstSlotId , int lastSlotId)
+	{
+		if (lastSlotId < firstSlotId) return;
+		ensureWords(firstSlotId, lastSlotId);
+		final int firstPos = Math.floorDiv(firstSlotId, 64) - firstWordIndex;
+		final int lastPos = Math.floorDiv(lastSlotId, 64) - firstWordIndex;
+		final long firstMask = -1L << firstSlotId;
+		final long lastMask = -1L >>> (63 - (lastSlotId & 63));
+		if (firstPos == lastPos) { words [firstPos] |= firstMask & lastMask; return; }
+		words [firstPos] |= firstMask;
+		for (int pos = firstPos + 1; pos < lastPos ; pos ++) words [pos] = -1L;
+		words [lastPos] |= lastMask;
+	}
+
+	/** Removes all the slots lower than the given one
+	 * @param slotId see above
+	 */
+	void clearBelow (int slotId)
+	{
+		final int limitPos = Math.floorDiv(slotId, 64) - firstWordIndex;
+		for (int pos = 0; pos < Math.min(limitPos, words.length) ; pos ++) words [pos] = 0;
+		if (limitPos >= 0 && limitPos < words.length) words [limitPos] &= -1L << slotId;
+	}
+
+	boolean isEmpty ()
+	{
+		for (long word : words) if (word != 0) return false;
+		return true;
+	}
+
+	int cardinality ()
+	{
+		int res = 0;
+		for (long word : words) res += Long.bitCount(word);
+		return res;
+	}
+
+	/** Keeps only the slots that are also in the other set
+	 * @param other see above
+	 */
+	void and (OpticalSlotBitSet other)
+	{
+		for (int pos = 0; pos < words.length ; pos ++) words [pos] &= other.getWord(firstWordIndex + pos);
+	}
+
+	/** Removes the slots that are in the other set
+	 * @param other see above
+	 */
+	void andNot (OpticalSlotBitSet other)
+	{
+		for (int pos = 0; pos < words.length ; pos ++) words [pos] &= ~other.getWord(firstWordIndex + pos);
+	}
+
+	/** Removes the given slots
+	 * @param slotIds see above
+	 */
+	void andNot (Collection<Integer> slotIds)
+	{
+		for (int slotId : slotIds) clear(slotId);
+	}
+
+	/** Adds the slots in the other set
+	 * @param other see above
+	 */
+	void or (OpticalSlotBitSet other)
+	{
+		if (other.words.length == 0) return;
+		ensureWords(64 * other.firstWordIndex, 64 * (other.firstWordIndex + other.words.length - 1));
+		for (int pos = 0; pos < other.words.length ; pos ++) words [other.firstWordIndex + pos - firstWordIndex] |= other.words [pos];
+	}
+
+	/** Indicates if the set contains all the given slots
+	 * @param slotIds see above
+	 * @return see above
+	 */
+	boolean containsAll (Collection<Integer> slotIds)
+	{
+		for (int slotId : slotIds) if (!get(slotId)) return false;
+		return true;
+	}
+
+	/** Indicates if the set contains any of the given slots
+	 * @param slotIds see above
+	 * @return see above
+	 */
+	boolean containsAny (Collection<Integer> slotIds)
+	{
+		for (int slotId : slotIds) if (get(slotId)) return true;
+		return false;
+	}
+
+	/** Returns the lowest slot in the set that is equal or higher than the given one, or {@link #NONE} if there is none
+	 * @param fromSlotId see above
+	 * @return see above
+	 */
+	int nextSetSlot (int fromSlotId)
+	{
+		int pos = Math.floorDiv(fromSlotId, 64) - firstWordIndex;
+		long word;
+		if (words.length == 0 || pos >= words.length) return NONE;
+		if (pos < 0) { pos = 0; word = words [0]; }
+		else word = words [pos] & (-1L << fromSlotId);
+		while (true)
+		{
+			if (word != 0) return 64 * (firstWordIndex + pos) + Long.numberOfTrailingZeros(word);
+			if (++ pos == words.length) return NONE;
+			word = words [pos];
+		}
+	}
+
+	/** Returns the lowest slot that is not in the set and is equal or higher than the given one
+	 * @param fromSlotId see above
+	 * @return see above
+	 */
+	int nextClearSlot (int fromSlotId)
+	{
+		int pos = Math.floorDiv(fromSlotId, 64) - firstWordIndex;
+		if (pos < 0 || pos >= words.length) return fromSlotId;
+		long word = ~words [pos] & (-1L << fromSlotId);
+		while (true)
+		{
+			if (word != 0) return 64 * (firstWordIndex + pos) + Long.numberOfTrailingZeros(word);
+			if (++ pos == words.length) return 64 * (firstWordIndex + pos);
+			word = ~words [pos];
+		}
+	}
+
+	/** Returns the highest slot that is not in the set and is equal or lower than the given one
+	 * @param fromSlotId see above
+	 * @return see above
+	 */
+	int previousClearSlot (int fromSlotId)
+	{
+		int pos = Math.floorDiv(fromSlotId, 64) - firstWordIndex;
+		if (pos < 0 || pos >= words.length) return fromSlotId;
+		long word = ~words [pos] & (-1L >>> (63 - (fromSlotId & 63)));
+		while (true)
+		{
+			if (word != 0) return 64 * (firstWordIndex + pos) + 63 - Long.numberOfLeadingZeros(word);
+			if (-- pos < 0) return 64 * firstWordIndex - 1;
+			word = ~words [pos];
+		}
+	}
+
+	/** Returns the set of the slots s such that s, s+1, ..., s+numContiguousSlots-1 are all in this set, that is, the initial slots of the
+	 * ranges of contiguous slots of the given size. Computed with O(log numContiguousSlots) passes of shifts and intersections
+	 * @param numContiguousSlots see above
+	 * @return see above
+	 */
+	OpticalSlotBitSet getInitialSlotsOfContiguousRanges (int numContiguousSlots)
+	{
+		final OpticalSlotBitSet res = new OpticalSlotBitSet(this);
+		int rangeSize = 1; // the slots in res are the initial slots of ranges of this size
+		while (rangeSize < numContiguousSlots)
+		{
+			final int shift = Math.min(rangeSize, numContiguousSlots - rangeSize);
+			final long [] shifted = new long [res.words.length];
+			for (int pos = 0; pos < shifted.length ; pos ++) shifted [pos] = res.getWordShiftedDown(res.firstWordIndex + pos, shift);
+			for (int pos = 0; pos < shifted.length ; pos ++) res.words [pos] &= shifted [pos];
+			rangeSize += shift;
+		}
+		return res;
+	}
+
+	/** Returns the slots in the set, as a new sorted set
+	 * @return see above
+	 */
+	SortedSet<Integer> toSortedSet ()
+	{
+		final SortedSet<Integer> res = new TreeSet<> ();
+		for (int pos = 0; pos < words.length ; pos ++)
+		{
+			long word = words [pos];
+			while (word != 0)
+			{
+				res.add(64 * (firstWordIndex + pos) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public String toString () { return toSortedSet().toString(); }
+
+	private long getWord (int wordIndex)
+	{
+		final int pos = wordIndex - firstWordIndex;
+		return pos < 0 || pos >= words.length? 0 : words [pos];
+	}
+
+	/* The word of the given index, after moving all the slots "shift" positions down (the slot s+shift goes to the slot s) */
+	private long getWordShiftedDown (int wordIndex , int shift)
+	{
+		final int wordShift = shift >>> 6;
+		final int bitShift = shift & 63;
+		final long low = getWord(wordIndex + wordShift);
+		if (bitShift == 0) return low;
+		return (low >>> bitShift) | (getWord(wordIndex + wordShift + 1) << (64 - bitShift));
+	}
+
+	private void ensureWords (int minSlotId , int maxSlotId)
+	{
+		final int minWordIndex = Math.floorDiv(minSlotId, 64);
+		final int maxWordIndex = Math.floorDiv(maxSlotId, 64);
+		if (words.length == 0)
+		{
+			this.firstWordIndex = minWordIndex;
+			this.words = new long [maxWordIndex - minWordIndex + 1];
+			return;
+		}
+		final int newFirstWordIndex = Math.min(firstWordIndex, minWordIndex);
+		final int newLastWordIndex = Math.max(firstWordIndex + words.length - 1, maxWordIndex);
+		if (newFirstWordIndex == firstWordIndex && newLastWordIndex == firstWordIndex + words.length - 1) return;
+		final long [] newWords = new long [newLastWordIndex - newFirstWordIndex + 1];
+		System.arraycopy(words, 0, newWords, firstWordIndex - newFirstWordIndex, words.length);
+		this.firstWordIndex = newFirstWordIndex;
+		this.words = newWords;
+	}
+}
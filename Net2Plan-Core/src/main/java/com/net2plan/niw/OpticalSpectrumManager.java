@@ -12,11 +12,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
@@ -53,8 +50,11 @@ public class OpticalSpectrumManager
 	private class SlotOccupationManager <T>
 	{
 		final private Map<T,SortedMap<Integer,SortedSet<WLightpath>>> occupation_element_s_ll = new HashMap<> ();
+		/* The same occupation, as bitsets: the slots occupied by at least one lightpath, and by more than one (clashing) */
+		final private Map<T,OpticalSlotBitSet> occupiedSlots_element = new HashMap<> ();
+		final private Map<T,OpticalSlotBitSet> multipleOccupiedSlots_element = new HashMap<> ();
 		public SlotOccupationManager() {}
-		public void clear () { occupation_element_s_ll.clear();  }
+		public void clear () { occupation_element_s_ll.clear(); occupiedSlots_element.clear(); multipleOccupiedSlots_element.clear(); }
 		public Map<T,SortedMap<Integer,SortedSet<WLightpath>>> getFullPerElementOccupationMap () { return Collections.unmodifiableMap(occupation_element_s_ll); }
 		public SortedMap<Integer,SortedSet<WLightpath>> getOccupiedSlotIds (T element) 
 		{ 
@@ -70,50 +70,68 @@ public class OpticalSpectrumManager
 		}
 	    public SortedSet<Integer> getOccupiedOpticalSlotIds (T element)
 	    {
-			SortedMap<Integer,SortedSet<WLightpath>> occupiedSlotsPerLightpath = this.occupation_element_s_ll.get(element);
-			if(occupiedSlotsPerLightpath == null)
-				return new TreeSet<>();
-	    	return new TreeSet<> (occupiedSlotsPerLightpath.keySet());
+	    	return getOccupiedSlotsBitSet(element).toSortedSet();
+	    }
+	    /* The returned bitset must not be modified */
+	    public OpticalSlotBitSet getOccupiedSlotsBitSet (T element)
+	    {
+	    	final OpticalSlotBitSet res = occupiedSlots_element.get(element);
+	    	return res == null? EMPTYBITSET : res;
+	    }
+	    /* The returned bitset must not be modified */
+	    public OpticalSlotBitSet getMultipleOccupiedSlotsBitSet (T element)
+	    {
+	    	final OpticalSlotBitSet res = multipleOccupiedSlots_element.get(element);
+	    	return res == null? EMPTYBITSET : res;
 	    }
 	    public void allocateOccupation (T element , WLightpath lp , SortedSet<Integer> slotIds)
 	    {
 	    	if (slotIds.isEmpty()) return;
-	    	boolean clashesWithPreviousAllocations = false;
     		SortedMap<Integer,SortedSet<WLightpath>> thisElementInfo = this.occupation_element_s_ll.get(element);
     		if (thisElementInfo == null) { thisElementInfo = new TreeMap<> (); this.occupation_element_s_ll.put(element, thisElementInfo); }
+    		final OpticalSlotBitSet occupiedSlots = occupiedSlots_element.computeIfAbsent(element, e->new OpticalSlotBitSet());
     		for (int slotId : slotIds)
     		{
     			SortedSet<WLightpath> currentCollidingLps = thisElementInfo.get(slotId);
     			if (currentCollidingLps == null) { currentCollidingLps = new TreeSet<> (); thisElementInfo.put(slotId, currentCollidingLps); }
-    			if (!currentCollidingLps.isEmpty()) clashesWithPreviousAllocations = true;
     			currentCollidingLps.add(lp);
+    			if (currentCollidingLps.size() == 1) occupiedSlots.set(slotId);
+    			else if (currentCollidingLps.size() == 2) multipleOccupiedSlots_element.computeIfAbsent(element, e->new OpticalSlotBitSet()).set(slotId);
     		}
 	    }
 
-	    public void releaseOccupation (WLightpath lp , Collection<T> occupiedResources)
+	    public void releaseOccupation (WLightpath lp , SortedSet<Integer> slotIds , Collection<T> occupiedResources)
 	    {
 	    	if (occupiedResources == null) return;
-    		final SortedSet<Integer> slotIds = lp.getOpticalSlotIds();
 	    	for (T element : occupiedResources)
 	    	{
 	    		SortedMap<Integer,SortedSet<WLightpath>> thisFiberInfo = this.occupation_element_s_ll.get(element);
+	    		final OpticalSlotBitSet occupiedSlots = occupiedSlots_element.get(element);
+	    		final OpticalSlotBitSet multipleOccupiedSlots = multipleOccupiedSlots_element.get(element);
 	    		for (int slotId : slotIds)
 	    		{
 	    			final SortedSet<WLightpath> thisLpAndOthers = thisFiberInfo.get(slotId);
 	    			assert thisLpAndOthers != null;
 	    			assert thisLpAndOthers.contains(lp);
 	    			thisLpAndOthers.remove(lp);
+	    			if (thisLpAndOthers.size() == 1) multipleOccupiedSlots.clear(slotId);
 	    			if (thisLpAndOthers.isEmpty()) 
 	    			{
+	    				occupiedSlots.clear(slotId);
 	    				thisFiberInfo.remove(slotId);
-	    				if (thisFiberInfo.isEmpty()) this.occupation_element_s_ll.remove(element);
+	    				if (thisFiberInfo.isEmpty()) 
+	    				{
+	    					this.occupation_element_s_ll.remove(element);
+	    					this.occupiedSlots_element.remove(element);
+	    					this.multipleOccupiedSlots_element.remove(element);
+	    				}
 	    			}
 	    		}
 	    	}
 	    }
 	}
 
-	
+	private static final OpticalSlotBitSet EMPTYBITSET = new OpticalSlotBitSet();
 	
 	
 	private WNet wNet;
@@ -178,18 +196,7 @@ public class OpticalSpectrumManager
      */
     public SortedSet<Integer> getAvailableSlotIds (Collection<WFiber> wdmLinks , Optional<Pair<WNode,Integer>> addNodeDirectionlessBank , Optional<Pair<WNode,Integer>> dropNodeDirectionlessBank) 
     {
-    	checkSameWNet(wdmLinks);
-        if (wdmLinks.isEmpty()) throw new Net2PlanException ("No WDM links");
-        final Iterator<WFiber> itLink = wdmLinks.iterator();
-        final WFiber firstLink = itLink.next();
-        final SortedSet<Integer> validSlotIds = this.getIdleOpticalSlotIds(firstLink);
-        while (itLink.hasNext())
-            validSlotIds.retainAll(this.getIdleOpticalSlotIds(itLink.next()));
-        if (addNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedOpticalSlotIdsInDirectionlessAddModule(addNodeDirectionlessBank.get().getFirst() , addNodeDirectionlessBank.get().getSecond()));
-        if (dropNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedOpticalSlotIdsInDirectionlessDropModule(dropNodeDirectionlessBank.get().getFirst() , dropNodeDirectionlessBank.get().getSecond()));
-        return validSlotIds;
+        return getAvailableSlotsBitSet(wdmLinks, addNodeDirectionlessBank, dropNodeDirectionlessBank, false).toSortedSet();
     }
 
 	/** FA: Returns the set of the optical slots ids that are idle in ALL the fibers provided and also, if given, in the add and drop directionless modules, so they are not occupied by legitimate or waste signals
@@ -200,19 +207,7 @@ public class OpticalSpectrumManager
      */
     public SortedSet<Integer> getAvailableSlotIdsEmptyOrWithWaste (Collection<WFiber> wdmLinks , Optional<Pair<WNode,Integer>> addNodeDirectionlessBank , Optional<Pair<WNode,Integer>> dropNodeDirectionlessBank) 
     {
-    	checkSameWNet(wdmLinks);
-        if (wdmLinks.isEmpty()) throw new Net2PlanException ("No WDM links");
-        final Iterator<WFiber> itLink = wdmLinks.iterator();
-        final WFiber firstLink = itLink.next();
-
-        final SortedSet<Integer> validSlotIds = this.getOpticalSlotIdsEmptyOrWithWaste(firstLink);
-        while (itLink.hasNext())
-            validSlotIds.retainAll(this.getOpticalSlotIdsEmptyOrWithWaste(itLink.next()));
-        if (addNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(addNodeDirectionlessBank.get().getFirst() , addNodeDirectionlessBank.get().getSecond()));
-        if (dropNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(dropNodeDirectionlessBank.get().getFirst() , dropNodeDirectionlessBank.get().getSecond()));
-        return validSlotIds;
+        return getAvailableSlotsBitSet(wdmLinks, addNodeDirectionlessBank, dropNodeDirectionlessBank, true).toSortedSet();
     }
 
     
@@ -264,9 +259,9 @@ public class OpticalSpectrumManager
     public SortedSet<Integer> getOccupiedOpticalSlotIds (WFiber fiber)
     {
     	checkSameWNet(fiber);
-    	final SortedSet<Integer> res = legitimateSignal_perFiberOccupation.getOccupiedOpticalSlotIds(fiber);
-    	res.addAll(wasteSignal_perFiberOccupation.getOccupiedOpticalSlotIds(fiber));
-    	return res;
+    	final OpticalSlotBitSet res = new OpticalSlotBitSet(legitimateSignal_perFiberOccupation.getOccupiedSlotsBitSet(fiber));
+    	res.or(wasteSignal_perFiberOccupation.getOccupiedSlotsBitSet(fiber));
+    	return res.toSortedSet();
     }
 
     /** FA: Given a fiber, returns the set of optical slots occupied by at least one traversing lightpath in its legitimate signal path
@@ -307,19 +302,16 @@ public class OpticalSpectrumManager
         		return false;
         /* Fibers with waste spectrum are not occupied by legitimate signals */
         for (WFiber e : occupationInformation.getFibersWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_perFiberOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (this.legitimateSignal_perFiberOccupation.getOccupiedSlotsBitSet(e).containsAny(slotIds))
+        		return false;
         /* Dirless add modules with waste spectrum are not occupied by legitimate signals */
         for (Pair<WNode,Integer> e : occupationInformation.getAddDirectionlessModulesWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_directionlessAddOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (this.legitimateSignal_directionlessAddOccupation.getOccupiedSlotsBitSet(e).containsAny(slotIds))
+        		return false;
         /* Dirless drop modules with waste spectrum are not occupied by legitimate signals */
         for (Pair<WNode,Integer> e : occupationInformation.getDropDirectionlessModulesWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_directionlessDropOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (this.legitimateSignal_directionlessDropOccupation.getOccupiedSlotsBitSet(e).containsAny(slotIds))
+        		return false;
         return true;
     }
 
@@ -341,6 +333,7 @@ public class OpticalSpectrumManager
     	if (!occupationInformation.getOccupiedSlotIds().isPresent()) throw new Net2PlanException ("Please provide spectrum occupation"); 
     	final SortedSet<Integer> slotIds = occupationInformation.getOccupiedSlotIds().get();
     	if (slotIds.isEmpty()) return;
+    	this.lightpathsIncluded.put(lp, occupationInformation);
     	for (WFiber fiber : occupationInformation.getSeqFibersLegitimateSignal())
     		legitimateSignal_perFiberOccupation.allocateOccupation(fiber, lp, slotIds);
     	if (occupationInformation.getDirectionlessAddModule().isPresent())
@@ -361,16 +354,17 @@ public class OpticalSpectrumManager
     public void releaseOccupation (WLightpath lp)
     {
     	checkSameWNet(lp);
-    	final OsmLightpathOccupationInfo occup = this.lightpathsIncluded.get(lp);
+    	final OsmLightpathOccupationInfo occup = this.lightpathsIncluded.remove(lp);
     	if (occup == null) return;
-		legitimateSignal_perFiberOccupation.releaseOccupation(lp, occup.getSeqFibersLegitimateSignal()); 
+    	final SortedSet<Integer> slotIds = occup.getOccupiedSlotIds().get();
+		legitimateSignal_perFiberOccupation.releaseOccupation(lp, slotIds, occup.getSeqFibersLegitimateSignal()); 
     	if (occup.getDirectionlessAddModule().isPresent())
-    		legitimateSignal_directionlessAddOccupation.releaseOccupation(lp , Arrays.asList(occup.getDirectionlessAddModule().get()));
+    		legitimateSignal_directionlessAddOccupation.releaseOccupation(lp , slotIds, Arrays.asList(occup.getDirectionlessAddModule().get()));
     	if (occup.getDirectionlessDropModule().isPresent())
-    		legitimateSignal_directionlessDropOccupation.releaseOccupation(lp , Arrays.asList(occup.getDirectionlessDropModule().get()));
-		wasteSignal_perFiberOccupation.releaseOccupation(lp, occup.getFibersWithWasteSignal());
-		wasteSignal_directionlessAddOccupation.releaseOccupation(lp, occup.getAddDirectionlessModulesWithWasteSignal());
-		wasteSignal_directionlessDropOccupation.releaseOccupation(lp, occup.getDropDirectionlessModulesWithWasteSignal());
+    		legitimateSignal_directionlessDropOccupation.releaseOccupation(lp , slotIds, Arrays.asList(occup.getDirectionlessDropModule().get()));
+		wasteSignal_perFiberOccupation.releaseOccupation(lp, slotIds, occup.getFibersWithWasteSignal());
+		wasteSignal_directionlessAddOccupation.releaseOccupation(lp, slotIds, occup.getAddDirectionlessModulesWithWasteSignal());
+		wasteSignal_directionlessDropOccupation.releaseOccupation(lp, slotIds, occup.getDropDirectionlessModulesWithWasteSignal());
     }
 
 //    /** Searches for a first-fit assignment, where in each hop, one fiber is chosen. Given a set of hops (each hop with at least one fiber as an option),
@@ -577,34 +571,11 @@ public class OpticalSpectrumManager
         /* If a fiber is traversed more than once, there is no possible assignment */
         if (lpOccupation.isWithSelfClashing()) return Optional.empty();
 
-        /* Empty slots for legitimate fibers, and add/drop dirless modules  */
-        SortedSet<Integer> intersectionValidSlots = getAvailableSlotIds(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule());
-        /* Retain slots without legitimate signal in wasted fibers */
-        if (!lpOccupation.getFibersWithWasteSignal().isEmpty())
-        	intersectionValidSlots.retainAll(getAvailableSlotIdsEmptyOrWithWaste(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty()));
-        /* Remove slots with legitimate signal in any of the wasted add dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getAddDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(module.getFirst(), module.getSecond()));
-        /* Remove slots with legitimate signal in any of the wasted drop dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getDropDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(module.getFirst(), module.getSecond()));
-        /* Remove invalid slots below the mandated threshold */
-        if (minimumInitialSlotId.isPresent())
-        	intersectionValidSlots = intersectionValidSlots.tailSet(minimumInitialSlotId.get());
-        /* Remove forbiden slot ids */
-        intersectionValidSlots.removeAll(forbidenSlotIds);
-        if (intersectionValidSlots.size() < numContiguousSlotsRequired) return Optional.empty();
-
-        final LinkedList<Integer> lastXValidSlots = new LinkedList<> ();
-        for (int slotId : intersectionValidSlots)
-        {
-        	if (lastXValidSlots.size() >= numContiguousSlotsRequired) lastXValidSlots.remove(0);
-        	lastXValidSlots.add(slotId);
-        	if (lastXValidSlots.size() != numContiguousSlotsRequired) continue;
-        	if (lastXValidSlots.getLast() - lastXValidSlots.getFirst() == numContiguousSlotsRequired-1) 
-        		return Optional.of(new TreeSet<>(lastXValidSlots));
-        }
-        return Optional.empty();
+        final int initialSlot = getUsableSlotsBitSet(lpOccupation, minimumInitialSlotId, forbidenSlotIds).getInitialSlotsOfContiguousRanges(numContiguousSlotsRequired).nextSetSlot(Integer.MIN_VALUE);
+        if (initialSlot == OpticalSlotBitSet.NONE) return Optional.empty();
+        final SortedSet<Integer> res = new TreeSet<> ();
+        for (int cont = 0; cont < numContiguousSlotsRequired ; cont ++) res.add(initialSlot + cont);
+        return Optional.of(res);
     }
 
     
@@ -626,37 +597,135 @@ public class OpticalSpectrumManager
         /* If a fiber is traversed more than once, there is no possible assignment */
         if (lpOccupation.isWithSelfClashing()) return new TreeSet<> ();
 
-        /* Empty slots for legitimate fibers, and add/drop dirless modules  */
-        SortedSet<Integer> intersectionValidSlots = getAvailableSlotIds(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule());
-        /* Retain slots without legitimate signal in wasted fibers */
-        if (!lpOccupation.getFibersWithWasteSignal().isEmpty())
-        	intersectionValidSlots.retainAll(getAvailableSlotIdsEmptyOrWithWaste(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty()));
-        /* Remove slots with legitimate signal in any of the wasted add dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getAddDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(module.getFirst(), module.getSecond()));
-        /* Remove slots with legitimate signal in any of the wasted drop dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getDropDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(module.getFirst(), module.getSecond()));
-        /* Remove invalid slots below the mandated threshold */
-        if (minimumInitialSlotId.isPresent())
-        	intersectionValidSlots = intersectionValidSlots.tailSet(minimumInitialSlotId.get());
-        /* Remove the forbidden slots if any */
-        intersectionValidSlots.removeAll(forbidenSlotIds);
-        
-        if (intersectionValidSlots.size() < numContiguousSlotsRequired) return new TreeSet<> ();
-
-        final SortedSet<Integer> validFirstSlotsOfContiguousRanges = new TreeSet<> ();
-        
-        final LinkedList<Integer> lastXValidSlots = new LinkedList<> ();
-        for (int slotId : intersectionValidSlots)
-        {
-        	if (lastXValidSlots.size() >= numContiguousSlotsRequired) lastXValidSlots.remove(0);
-        	lastXValidSlots.add(slotId);
-        	if (lastXValidSlots.size() != numContiguousSlotsRequired) continue;
-        	if (lastXValidSlots.getLast() - lastXValidSlots.getFirst() == numContiguousSlotsRequired-1) 
-        		validFirstSlotsOfContiguousRanges.add(lastXValidSlots.getFirst());
-        }
-        return validFirstSlotsOfContiguousRanges;
+        return getUsableSlotsBitSet(lpOccupation, minimumInitialSlotId, forbidenSlotIds).getInitialSlotsOfContiguousRanges(numContiguousSlotsRequired).toSortedSet();
+    }
+
+    /** Searches for a spectrum assignment, choosing with the given policy among all the ranges of contiguous slots where the lightpath could be allocated
+     * (see {@link #spectrumAssignment_getAllPotentialFirstSlots(OsmLightpathOccupationInfo, int, Optional, SortedSet)}). With the first-fit policy,
+     * the result is the same as in {@link #spectrumAssignment_firstFit(OsmLightpathOccupationInfo, int, Optional, SortedSet)}
+     * @param policy see above
+     * @param lpOccupation see above
+     * @param numContiguousSlotsRequired see above
+     * @param minimumInitialSlotId see above
+     * @param forbidenSlotIds see above
+     * @return see above. If no range is found, Optional.empty is returned.
+     */
+    public Optional<SortedSet<Integer>> spectrumAssignment (ISpectrumAssignmentPolicy policy , OsmLightpathOccupationInfo lpOccupation , int numContiguousSlotsRequired , Optional<Integer> minimumInitialSlotId , SortedSet<Integer> forbidenSlotIds)
+    {
+    	if (policy == ISpectrumAssignmentPolicy.FIRSTFIT) return spectrumAssignment_firstFit(lpOccupation, numContiguousSlotsRequired, minimumInitialSlotId, forbidenSlotIds);
+    	final SortedSet<Integer> validInitialSlots = spectrumAssignment_getAllPotentialFirstSlots(lpOccupation, numContiguousSlotsRequired, minimumInitialSlotId, forbidenSlotIds);
+    	if (validInitialSlots.isEmpty()) return Optional.empty();
+    	final int initialSlot = policy.chooseInitialSlot(this, lpOccupation, numContiguousSlotsRequired, validInitialSlots);
+    	if (!validInitialSlots.contains(initialSlot)) throw new Net2PlanException ("The spectrum assignment policy " + policy.getShortName() + " chose a non-valid initial slot: " + initialSlot);
+        final SortedSet<Integer> res = new TreeSet<> ();
+        for (int cont = 0; cont < numContiguousSlotsRequired ; cont ++) res.add(initialSlot + cont);
+        return Optional.of(res);
+    }
+
+    /** Returns the fragmentation entropy of the idle optical slots in the fiber (valid and not occupied by legitimate or waste signals). If the idle slots
+     * form blocks of contiguous slots of sizes L_1, ..., L_k, and N is the number of valid slots, the entropy is the sum of -(L_i/N) ln(L_i/N).
+     * It is zero when the fiber is full, and higher when the idle spectrum is split in more blocks of similar size
+     * @param fiber see above
+     * @return see above
+     */
+    public double getFragmentationEntropy (WFiber fiber)
+    {
+    	checkSameWNet(fiber);
+    	final OpticalSlotBitSet idle = getIdleSlotsBitSet(fiber, false);
+    	final int numValidSlots = OpticalSlotBitSet.ofRanges(fiber.getValidOpticalSlotRanges()).cardinality();
+    	double res = 0;
+    	for (int blockStart = idle.nextSetSlot(Integer.MIN_VALUE); blockStart != OpticalSlotBitSet.NONE ; )
+    	{
+    		final int blockEnd = idle.nextClearSlot(blockStart);
+    		res += getFragmentationEntropyTerm(blockEnd - blockStart, numValidSlots);
+    		blockStart = idle.nextSetSlot(blockEnd);
+    	}
+    	return res;
+    }
+
+    /** Returns the increase in the fragmentation entropy of the fiber (see {@link #getFragmentationEntropy(WFiber)}), if the given range of optical slots is occupied.
+     * Only the block of idle slots containing the range changes, so this is computed without going through all the spectrum
+     * @param fiber see above
+     * @param initialSlot see above
+     * @param numContiguousSlots see above
+     * @return see above
+     */
+    public double getFragmentationEntropyIncrease (WFiber fiber , int initialSlot , int numContiguousSlots)
+    {
+    	checkSameWNet(fiber);
+    	final OpticalSlotBitSet idle = getIdleSlotsBitSet(fiber, false);
+    	if (idle.nextClearSlot(initialSlot) < initialSlot + numContiguousSlots) throw new Net2PlanException ("The optical slots are not idle in the fiber");
+    	return getFragmentationEntropyIncrease(idle, OpticalSlotBitSet.ofRanges(fiber.getValidOpticalSlotRanges()).cardinality(), initialSlot, numContiguousSlots);
+    }
+
+    /** Returns the size of the block of contiguous optical slots containing the given one, where all the slots are available for the lightpath,
+     * as in {@link #spectrumAssignment_getAllPotentialFirstSlots(OsmLightpathOccupationInfo, int, Optional, SortedSet)}. Returns zero if the slot is not available
+     * @param lpOccupation see above
+     * @param slotId see above
+     * @return see above
+     */
+    public int getAvailableBlockSize (OsmLightpathOccupationInfo lpOccupation , int slotId)
+    {
+    	final OpticalSlotBitSet usable = getUsableSlotsBitSet(lpOccupation, Optional.empty(), new TreeSet<> ());
+    	if (!usable.get(slotId)) return 0;
+    	return usable.nextClearSlot(slotId) - usable.previousClearSlot(slotId) - 1;
+    }
+
+    int chooseInitialSlotExactFit (OsmLightpathOccupationInfo lpOccupation , SortedSet<Integer> validInitialSlots)
+    {
+    	final OpticalSlotBitSet usable = getUsableSlotsBitSet(lpOccupation, Optional.empty(), new TreeSet<> ());
+    	int bestInitialSlot = validInitialSlots.first();
+    	int bestBlockSize = Integer.MAX_VALUE;
+    	int blockEnd = Integer.MIN_VALUE; // the block of the previous candidate, not recomputed for the candidates in the same block
+    	int blockSize = 0;
+    	for (int initialSlot : validInitialSlots)
+    	{
+    		if (initialSlot >= blockEnd)
+    		{
+    			blockEnd = usable.nextClearSlot(initialSlot);
+    			blockSize = blockEnd - usable.previousClearSlot(initialSlot) - 1;
+    		}
+    		if (blockSize < bestBlockSize) { bestBlockSize = blockSize; bestInitialSlot = initialSlot; }
+    	}
+    	return bestInitialSlot;
+    }
+
+    int chooseInitialSlotMinimumFragmentationEntropy (OsmLightpathOccupationInfo lpOccupation , int numContiguousSlots , SortedSet<Integer> validInitialSlots)
+    {
+    	final List<WFiber> fibers = lpOccupation.getSeqFibersLegitimateSignal();
+    	final OpticalSlotBitSet [] idle = new OpticalSlotBitSet [fibers.size()];
+    	final int [] numValidSlots = new int [fibers.size()];
+    	for (int cont = 0; cont < idle.length ; cont ++)
+    	{
+    		idle [cont] = getIdleSlotsBitSet(fibers.get(cont), false);
+    		numValidSlots [cont] = OpticalSlotBitSet.ofRanges(fibers.get(cont).getValidOpticalSlotRanges()).cardinality();
+    	}
+    	int bestInitialSlot = validInitialSlots.first();
+    	double bestIncrease = Double.MAX_VALUE;
+    	for (int initialSlot : validInitialSlots)
+    	{
+    		double increase = 0;
+    		for (int cont = 0; cont < idle.length ; cont ++)
+    			increase += getFragmentationEntropyIncrease(idle [cont], numValidSlots [cont], initialSlot, numContiguousSlots);
+    		if (increase < bestIncrease - 1e-12) { bestIncrease = increase; bestInitialSlot = initialSlot; }
+    	}
+    	return bestInitialSlot;
+    }
+
+    /* The range must be idle: the block of idle slots containing it is split in the slots before and after the range */
+    private static double getFragmentationEntropyIncrease (OpticalSlotBitSet idle , int numValidSlots , int initialSlot , int numContiguousSlots)
+    {
+    	final int blockStart = idle.previousClearSlot(initialSlot) + 1;
+    	final int blockEnd = idle.nextClearSlot(initialSlot + numContiguousSlots - 1);
+    	return getFragmentationEntropyTerm(initialSlot - blockStart, numValidSlots) + getFragmentationEntropyTerm(blockEnd - initialSlot - numContiguousSlots, numValidSlots)
+    			- getFragmentationEntropyTerm(blockEnd - blockStart, numValidSlots);
+    }
+
+    private static double getFragmentationEntropyTerm (int blockSize , int numValidSlots)
+    {
+    	if (blockSize <= 0) return 0;
+    	final double fraction = ((double) blockSize) / numValidSlots;
+    	return -fraction * Math.log(fraction);
     }
 
     /** Searches for a first-fit assignment for the two given paths, so optical slots can be different for each. 
@@ -897,41 +966,11 @@ public class OpticalSpectrumManager
     public boolean isSpectrumOccupationOk ()
     {
         for (WFiber e : legitimateSignal_perFiberOccupation.getElementsWithAtLeastOneSlotOccupied())
-        {
-            final SortedMap<Integer,SortedSet<WLightpath>> legitimate = legitimateSignal_perFiberOccupation.getOccupiedSlotIds(e);
-            final SortedMap<Integer,SortedSet<WLightpath>> waste = wasteSignal_perFiberOccupation.getOccupiedSlotIds(e);
-            for (Entry<Integer,SortedSet<WLightpath>> entryLegit : legitimate.entrySet())
-            {
-            	final int slot = entryLegit.getKey();
-            	final int numLegitLps = entryLegit.getValue().size();
-            	if (numLegitLps > 1) return false;
-            	if (numLegitLps == 1 && waste.getOrDefault(slot, new TreeSet<> ()).size() > 0) return false;
-            }
-        }
+            if (!getClashingSlotsBitSet(legitimateSignal_perFiberOccupation, wasteSignal_perFiberOccupation, e).isEmpty()) return false;
         for (Pair<WNode,Integer> e : legitimateSignal_directionlessAddOccupation.getElementsWithAtLeastOneSlotOccupied())
-        {
-            final SortedMap<Integer,SortedSet<WLightpath>> legitimate = legitimateSignal_directionlessAddOccupation.getOccupiedSlotIds(e);
-            final SortedMap<Integer,SortedSet<WLightpath>> waste = wasteSignal_directionlessAddOccupation.getOccupiedSlotIds(e);
-            for (Entry<Integer,SortedSet<WLightpath>> entryLegit : legitimate.entrySet())
-            {
-            	final int slot = entryLegit.getKey();
-            	final int numLegitLps = entryLegit.getValue().size();
-            	if (numLegitLps > 1) return false;
-            	if (numLegitLps == 1 && waste.getOrDefault(slot, new TreeSet<> ()).size() > 0) return false;
-            }
-        }
+            if (!getClashingSlotsBitSet(legitimateSignal_directionlessAddOccupation, wasteSignal_directionlessAddOccupation, e).isEmpty()) return false;
         for (Pair<WNode,Integer> e : legitimateSignal_directionlessDropOccupation.getElementsWithAtLeastOneSlotOccupied())
-        {
-            final SortedMap<Integer,SortedSet<WLightpath>> legitimate = legitimateSignal_directionlessDropOccupation.getOccupiedSlotIds(e);
-            final SortedMap<Integer,SortedSet<WLightpath>> waste = wasteSignal_directionlessDropOccupation.getOccupiedSlotIds(e);
-            for (Entry<Integer,SortedSet<WLightpath>> entryLegit : legitimate.entrySet())
-            {
-            	final int slot = entryLegit.getKey();
-            	final int numLegitLps = entryLegit.getValue().size();
-            	if (numLegitLps > 1) return false;
-            	if (numLegitLps == 1 && waste.getOrDefault(slot, new TreeSet<> ()).size() > 0) return false;
-            }
-        }
+            if (!getClashingSlotsBitSet(legitimateSignal_directionlessDropOccupation, wasteSignal_directionlessDropOccupation, e).isEmpty()) return false;
         return true;
     }
 
@@ -1000,9 +1039,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getIdleOpticalSlotIds (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		final SortedSet<Integer> res = wdmLink.getValidOpticalSlotIds();
-		res.removeAll(getOccupiedOpticalSlotIds(wdmLink));
-		return res;
+		return getIdleSlotsBitSet(wdmLink, false).toSortedSet();
 	}
 
 	/** FA: Returns the optical slots that are empty, or occupied just by waste signals, but not by a legitimate signal of a lightpath, in the given fiber
@@ -1012,9 +1049,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOpticalSlotIdsEmptyOrWithWaste (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		final SortedSet<Integer> res = wdmLink.getValidOpticalSlotIds();
-		res.removeAll(getOpticalSlotIdsWithLegitimateSignal(wdmLink));
-		return res;
+		return getIdleSlotsBitSet(wdmLink, true).toSortedSet();
 	}
 
 	/** FA: Returns the optical slots that are occupied (by waste or legitimate signals) in the given directionless add module
@@ -1025,9 +1060,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOccupiedOpticalSlotIdsInDirectionlessAddModule (WNode node , int directionlessModuleIndex)
 	{
 		checkSameWNet(node);
-		final SortedSet<Integer> res = new TreeSet<> (getOccupiedResourcesInDirectionlessAddModule(node, directionlessModuleIndex , OpticalSignalOccupationType.LEGITIMATESIGNAL).keySet());
-		res.addAll(getOccupiedResourcesInDirectionlessAddModule(node, directionlessModuleIndex , OpticalSignalOccupationType.WASTESIGNAL).keySet());
-		return res;
+		return getOccupiedSlotsBitSet(legitimateSignal_directionlessAddOccupation, wasteSignal_directionlessAddOccupation, Pair.of(node, directionlessModuleIndex)).toSortedSet();
 	}
 
 	/** FA: Returns the optical slots that are occupied by a legitimate signals in the given directionless add module
@@ -1038,7 +1071,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule (WNode node , int directionlessModuleIndex)
 	{
 		checkSameWNet(node);
-		return new TreeSet<> (getOccupiedResourcesInDirectionlessAddModule(node, directionlessModuleIndex , OpticalSignalOccupationType.LEGITIMATESIGNAL).keySet());
+		return legitimateSignal_directionlessAddOccupation.getOccupiedOpticalSlotIds(Pair.of(node, directionlessModuleIndex));
 	}
 
 	/** FA: Returns the optical slots that are occupied by a legitimate signals in the given directionless drop module
@@ -1049,7 +1082,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule (WNode node , int directionlessModuleIndex)
 	{
 		checkSameWNet(node);
-		return new TreeSet<> (getOccupiedResourcesInDirectionlessDropModule(node, directionlessModuleIndex , OpticalSignalOccupationType.LEGITIMATESIGNAL).keySet());
+		return legitimateSignal_directionlessDropOccupation.getOccupiedOpticalSlotIds(Pair.of(node, directionlessModuleIndex));
 	}
 
 	
@@ -1061,9 +1094,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOccupiedOpticalSlotIdsInDirectionlessDropModule (WNode node , int directionlessModuleIndex)
 	{
 		checkSameWNet(node);
-		final SortedSet<Integer> res = new TreeSet<> (getOccupiedResourcesInDirectionlessDropModule(node, directionlessModuleIndex , OpticalSignalOccupationType.LEGITIMATESIGNAL).keySet());
-		res.addAll(getOccupiedResourcesInDirectionlessDropModule(node, directionlessModuleIndex , OpticalSignalOccupationType.WASTESIGNAL).keySet());
-		return res;
+		return getOccupiedSlotsBitSet(legitimateSignal_directionlessDropOccupation, wasteSignal_directionlessDropOccupation, Pair.of(node, directionlessModuleIndex)).toSortedSet();
 	}
 
 
@@ -1074,18 +1105,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getClashingOpticalSlotIds (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		final SortedSet<Integer> res = new TreeSet<> ();
-		final SortedMap<Integer,SortedSet<WLightpath>> legitimate = getOccupiedResources (wdmLink , OpticalSignalOccupationType.LEGITIMATESIGNAL);
-		final SortedMap<Integer,SortedSet<WLightpath>> waste = getOccupiedResources (wdmLink , OpticalSignalOccupationType.WASTESIGNAL);
-		for (Entry<Integer,SortedSet<WLightpath>> entryOfLegitimateOccupation : legitimate.entrySet())
-		{
-			final int slotId = entryOfLegitimateOccupation.getKey();
-			if (entryOfLegitimateOccupation.getValue().isEmpty()) continue; 
-			if (entryOfLegitimateOccupation.getValue().size() > 1) { res.add(slotId); continue; }
-			if (!waste.getOrDefault(slotId, new TreeSet<> ()).isEmpty())
-				res.add(slotId);
-		}
-		return res;
+		return getClashingSlotsBitSet(legitimateSignal_perFiberOccupation, wasteSignal_perFiberOccupation, wdmLink).toSortedSet();
 	}
 
 	/** FA: Returns the optical slots where there is wavelength clashing in the directionless add module, i.e. a LEGITIMATE lightpath signal is occupying it, together with the waste or legitimate signal of this or other lightpath
@@ -1096,18 +1116,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getClashingOpticalSlotIdsInDirectionlessAddModule (WNode node , int addDirectionlessModule)
 	{
 		checkSameWNet(node);
-		final SortedSet<Integer> res = new TreeSet<> ();
-		final SortedMap<Integer,SortedSet<WLightpath>> legitimate = getOccupiedResourcesInDirectionlessAddModule (node , addDirectionlessModule , OpticalSignalOccupationType.LEGITIMATESIGNAL);
-		final SortedMap<Integer,SortedSet<WLightpath>> waste = getOccupiedResourcesInDirectionlessAddModule (node , addDirectionlessModule , OpticalSignalOccupationType.WASTESIGNAL);
-		for (Entry<Integer,SortedSet<WLightpath>> entryOfLegitimateOccupation : legitimate.entrySet())
-		{
-			final int slotId = entryOfLegitimateOccupation.getKey();
-			if (entryOfLegitimateOccupation.getValue().isEmpty()) continue; 
-			if (entryOfLegitimateOccupation.getValue().size() > 1) { res.add(slotId); continue; }
-			if (!waste.getOrDefault(slotId, new TreeSet<> ()).isEmpty())
-				res.add(slotId);
-		}
-		return res;
+		return getClashingSlotsBitSet(legitimateSignal_directionlessAddOccupation, wasteSignal_directionlessAddOccupation, Pair.of(node, addDirectionlessModule)).toSortedSet();
 	}
 
 	/** FA: Returns the optical slots where there is wavelength clashing in the directionless drop module, i.e. a LEGITIMATE lightpath signal is occupying it, together with the waste or legitimate signal of this or other lightpath
@@ -1118,18 +1127,7 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getClashingOpticalSlotIdsInDirectionlessDropModule (WNode node , int dropDirectionlessModule)
 	{
 		checkSameWNet(node);
-		final SortedSet<Integer> res = new TreeSet<> ();
-		final SortedMap<Integer,SortedSet<WLightpath>> legitimate = getOccupiedResourcesInDirectionlessDropModule (node , dropDirectionlessModule , OpticalSignalOccupationType.LEGITIMATESIGNAL);
-		final SortedMap<Integer,SortedSet<WLightpath>> waste = getOccupiedResourcesInDirectionlessDropModule (node , dropDirectionlessModule , OpticalSignalOccupationType.WASTESIGNAL);
-		for (Entry<Integer,SortedSet<WLightpath>> entryOfLegitimateOccupation : legitimate.entrySet())
-		{
-			final int slotId = entryOfLegitimateOccupation.getKey();
-			if (entryOfLegitimateOccupation.getValue().isEmpty()) continue; 
-			if (entryOfLegitimateOccupation.getValue().size() > 1) { res.add(slotId); continue; }
-			if (!waste.getOrDefault(slotId, new TreeSet<> ()).isEmpty())
-				res.add(slotId);
-		}
-		return res;
+		return getClashingSlotsBitSet(legitimateSignal_directionlessDropOccupation, wasteSignal_directionlessDropOccupation, Pair.of(node, dropDirectionlessModule)).toSortedSet();
 	}
 
 
@@ -1140,7 +1138,7 @@ public class OpticalSpectrumManager
 	public int getNumberOfClashingOpticalSlotIds (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		return getClashingOpticalSlotIds (wdmLink).size();
+		return getClashingSlotsBitSet(legitimateSignal_perFiberOccupation, wasteSignal_perFiberOccupation, wdmLink).cardinality();
 	}
 	
 	/** FA: Returns the optical slots that are usable (valid and idle, not occupied by waste or legitimate signals of any lightpath) in the given fiber
@@ -1150,16 +1148,8 @@ public class OpticalSpectrumManager
 	 */
 	public SortedSet<Integer> getIdleOpticalSlotRangesInitialSlots (WFiber wdmLink , int numContiguousSlots)
 	{
-		final SortedSet<Integer> idleSlots = getIdleOpticalSlotIds (wdmLink);
-		final SortedSet<Integer> res = new TreeSet<> ();
-		for (int s : idleSlots)
-		{
-			boolean ok = true;
-			for (int cont = 0; cont < numContiguousSlots ; cont ++)
-				if (!idleSlots.contains(s+cont)) { ok = false; break; }
-			if (ok) res.add(s);
-		}
-		return res;
+		checkSameWNet(wdmLink);
+		return getIdleSlotsBitSet(wdmLink, false).getInitialSlotsOfContiguousRanges(numContiguousSlots).toSortedSet();
 	}
 
 		
@@ -1171,7 +1161,7 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdle (WFiber wdmLink , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(wdmLink);
-		return getIdleOpticalSlotIds(wdmLink).containsAll(slotsIds);
+		return getIdleSlotsBitSet(wdmLink, false).containsAll(slotsIds);
 	}
 	
 	/** FA: Indicates if the optical slots are usable (valid and idle, not occupied by waste or legitimate optical signals of any lightpath) in the given add directionless module index
@@ -1183,7 +1173,7 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdleInAddDirectionlessModule (WNode node , int directionlessModuleIndex , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(node);
-		return getOccupiedOpticalSlotIdsInDirectionlessAddModule(node, directionlessModuleIndex).stream().allMatch(slot->!slotsIds.contains(slot));
+		return !getOccupiedSlotsBitSet(legitimateSignal_directionlessAddOccupation, wasteSignal_directionlessAddOccupation, Pair.of(node, directionlessModuleIndex)).containsAny(slotsIds);
 	}
 	
 	/** FA: Indicates if the optical slots are usable (valid and idle, not occupied by waste or legitimate optical signals of any lightpath) in the given drop directionless module index
@@ -1195,7 +1185,7 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdleInDropDirectionlessModule (WNode node , int directionlessModuleIndex , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(node);
-		return getOccupiedOpticalSlotIdsInDirectionlessDropModule(node, directionlessModuleIndex).stream().allMatch(slot->!slotsIds.contains(slot));
+		return !getOccupiedSlotsBitSet(legitimateSignal_directionlessDropOccupation, wasteSignal_directionlessDropOccupation, Pair.of(node, directionlessModuleIndex)).containsAny(slotsIds);
 	}
 	
 
@@ -1343,6 +1333,77 @@ public class OpticalSpectrumManager
 //    }
     
     
+    /* Slots valid in all the fibers, not occupied in any of them nor in the directionless modules (if given). If wasteIsAvailable, the slots occupied only by waste signals are available */
+    private OpticalSlotBitSet getAvailableSlotsBitSet (Collection<WFiber> wdmLinks , Optional<Pair<WNode,Integer>> addNodeDirectionlessBank , Optional<Pair<WNode,Integer>> dropNodeDirectionlessBank , boolean wasteIsAvailable)
+    {
+    	checkSameWNet(wdmLinks);
+        if (wdmLinks.isEmpty()) throw new Net2PlanException ("No WDM links");
+        OpticalSlotBitSet res = null;
+        for (WFiber e : wdmLinks)
+        {
+        	if (res == null) res = getIdleSlotsBitSet(e, wasteIsAvailable); else res.and(getIdleSlotsBitSet(e, wasteIsAvailable));
+        	if (res.isEmpty()) return res;
+        }
+        if (addNodeDirectionlessBank.isPresent())
+        {
+        	res.andNot(legitimateSignal_directionlessAddOccupation.getOccupiedSlotsBitSet(addNodeDirectionlessBank.get()));
+        	if (!wasteIsAvailable) res.andNot(wasteSignal_directionlessAddOccupation.getOccupiedSlotsBitSet(addNodeDirectionlessBank.get()));
+        }
+        if (dropNodeDirectionlessBank.isPresent())
+        {
+        	res.andNot(legitimateSignal_directionlessDropOccupation.getOccupiedSlotsBitSet(dropNodeDirectionlessBank.get()));
+        	if (!wasteIsAvailable) res.andNot(wasteSignal_directionlessDropOccupation.getOccupiedSlotsBitSet(dropNodeDirectionlessBank.get()));
+        }
+        return res;
+    }
+
+    /* Slots where the lightpath could be allocated (see spectrumAssignment_getAllPotentialFirstSlots), before looking for contiguous ranges */
+    private OpticalSlotBitSet getUsableSlotsBitSet (OsmLightpathOccupationInfo lpOccupation , Optional<Integer> minimumInitialSlotId , SortedSet<Integer> forbidenSlotIds)
+    {
+        /* Empty slots for legitimate fibers, and add/drop dirless modules  */
+    	final OpticalSlotBitSet res = getAvailableSlotsBitSet(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule() , false);
+        /* Retain slots without legitimate signal in wasted fibers */
+        if (!lpOccupation.getFibersWithWasteSignal().isEmpty())
+        	res.and(getAvailableSlotsBitSet(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty() , true));
+        /* Remove slots with legitimate signal in any of the wasted add dirless ports */
+        for (Pair<WNode,Integer> module : lpOccupation.getAddDirectionlessModulesWithWasteSignal())
+        	res.andNot(legitimateSignal_directionlessAddOccupation.getOccupiedSlotsBitSet(module));
+        /* Remove slots with legitimate signal in any of the wasted drop dirless ports */
+        for (Pair<WNode,Integer> module : lpOccupation.getDropDirectionlessModulesWithWasteSignal())
+        	res.andNot(legitimateSignal_directionlessDropOccupation.getOccupiedSlotsBitSet(module));
+        /* Remove invalid slots below the mandated threshold */
+        if (minimumInitialSlotId.isPresent()) res.clearBelow(minimumInitialSlotId.get());
+        /* Remove forbiden slot ids */
+        res.andNot(forbidenSlotIds);
+        return res;
+    }
+
+    /* Valid slots of the fiber, not occupied by legitimate signals, nor by waste signals unless wasteIsIdle */
+    private OpticalSlotBitSet getIdleSlotsBitSet (WFiber wdmLink , boolean wasteIsIdle)
+    {
+    	final OpticalSlotBitSet res = OpticalSlotBitSet.ofRanges(wdmLink.getValidOpticalSlotRanges());
+    	res.andNot(legitimateSignal_perFiberOccupation.getOccupiedSlotsBitSet(wdmLink));
+    	if (!wasteIsIdle) res.andNot(wasteSignal_perFiberOccupation.getOccupiedSlotsBitSet(wdmLink));
+    	return res;
+    }
+
+    /* Slots occupied by legitimate or waste signals in the element */
+    private <T> OpticalSlotBitSet getOccupiedSlotsBitSet (SlotOccupationManager<T> legitimate , SlotOccupationManager<T> waste , T element)
+    {
+    	final OpticalSlotBitSet res = new OpticalSlotBitSet(legitimate.getOccupiedSlotsBitSet(element));
+    	res.or(waste.getOccupiedSlotsBitSet(element));
+    	return res;
+    }
+
+    /* Slots with the legitimate signal of more than one lightpath, or the legitimate signal of one lightpath and the waste signal of any lightpath */
+    private <T> OpticalSlotBitSet getClashingSlotsBitSet (SlotOccupationManager<T> legitimate , SlotOccupationManager<T> waste , T element)
+    {
+    	final OpticalSlotBitSet res = new OpticalSlotBitSet(legitimate.getOccupiedSlotsBitSet(element));
+    	res.and(waste.getOccupiedSlotsBitSet(element));
+    	res.or(legitimate.getMultipleOccupiedSlotsBitSet(element));
+    	return res;
+    }
+
     private void checkSameWNet (WAbstractNetworkElement...abstractNetworkElements)
     {
    	 for (WAbstractNetworkElement e : abstractNetworkElements) if (e.getNetPlan() != this.wNet.getNetPlan()) throw new Net2PlanException ("Different wNet object");
@@ -170,7 +170,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public Optional<WLayerWdm> getWdmLayer()
 	{
-		return np.getNetworkLayers().stream().filter(e->e.getName().equals(WNetConstants.wdmLayerName)).map(e->new WLayerWdm(e)).findFirst();
+		return WNetElementsCache.getElements(this).wdmLayer;
 	}
 
 	/**
@@ -179,7 +179,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public Optional<WLayerIp> getIpLayer()
 	{
-		return np.getNetworkLayers().stream().filter(e->e.getName().equals(WNetConstants.ipLayerName)).map(e->new WLayerIp(e)).findFirst();
+		return WNetElementsCache.getElements(this).ipLayer;
 	}
 
 	/** Add a SRG, with no associated failing elements, a MTTR of 12 hours, and MTTF of 1 year of 365 days
@@ -203,7 +203,7 @@ public class WNet extends WAbstractNetworkElement
 	/** Returns the number of nodes in the design, sa returned by getNodes
 	 * @return see above
 	 */
-	public int getNumberOfNodes () { return (int) np.getNodes().stream().map(n -> new WNode(n)).filter(n -> !n.isVirtualNode()).count (); }
+	public int getNumberOfNodes () { return WNetElementsCache.getElements(this).nodes.size(); }
 	
 	/**
 	 * Returns the list of network nodes, in increasing order according to its id
@@ -211,7 +211,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WNode> getNodes()
 	{
-		return np.getNodes().stream().map(n -> new WNode(n)).filter(n -> !n.isVirtualNode()).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).nodes);
 	}
 
 	/**
@@ -220,8 +220,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WFiber> getFibers()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getLinks(getWdmLayer().get().getNe()).stream().map(n -> new WFiber(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).fibers);
 	}
 
 	/**
@@ -230,10 +229,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WLightpathRequest> getLightpathRequests()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getDemands(getWdmLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isLightpathRequest(); }).
-				map(n -> new WLightpathRequest(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).lightpathRequests);
 	}
 
 	/**
@@ -242,10 +238,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WLightpath> getLightpaths()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getRoutes(getWdmLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(n -> new WLightpath(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).lightpaths);
 	}
 
 	/**
@@ -254,10 +247,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WIpLink> getIpLinks()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getLinks(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpLink(); }).
-				map(n -> new WIpLink(n)).filter(e -> !e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).ipLinks);
 	}
 
 	/**
@@ -266,10 +256,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WServiceChainRequest> getServiceChainRequests()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getDemands(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isServiceChainRequest(); }).
-				map(n -> new WServiceChainRequest(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).serviceChainRequests);
 	}
 
 	/**
@@ -278,10 +265,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WIpUnicastDemand> getIpUnicastDemands ()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getDemands(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpUnicastDemand(); }).
-				map(n -> new WIpUnicastDemand(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).ipUnicastDemands);
 	}
 
 	/**
@@ -290,10 +274,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WServiceChain> getServiceChains()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getRoutes(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isServiceChain(); }).
-				map(n -> new WServiceChain(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).serviceChains);
 	}
 
 	/**
@@ -302,10 +283,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public List<WIpSourceRoutedConnection> getIpSourceRoutedConnections()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getRoutes(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpSourceRoutedConnection(); }).
-				map(n -> new WIpSourceRoutedConnection(n)).collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<> (WNetElementsCache.getElements(this).ipSourceRoutedConnections);
 	}
 
 	/**
@@ -1171,7 +1149,20 @@ public class WNet extends WAbstractNetworkElement
 		getSrgs().forEach(s->s.checkConsistency());
 	}
 
+	/** Returns the type of the NIW element associated to the given Net2Plan element, or empty if it is not associated to a NIW element
+	 * @param e see above
+	 * @return see above
+	 */
 	public Optional<WTYPE> getWType (NetworkElement e)
+	{
+		if (e.getNetPlan() != this.getNe()) return Optional.empty();
+		final WAbstractNetworkElement cachedWrapper = WNetElementsCache.getWrapperIfUpToDateOrNull(this, e);
+		if (cachedWrapper != null) return Optional.of (cachedWrapper.getWType());
+		return computeWType(e);
+	}
+
+	/* Classifies the element, without using the cached wrappers */
+	Optional<WTYPE> computeWType (NetworkElement e)
 	{
 		if (e.getNetPlan() != this.getNe()) return Optional.empty();
 		
@@ -1249,7 +1240,22 @@ public class WNet extends WAbstractNetworkElement
 		return Optional.empty();
 	}
 	
+	/** Returns the NIW element associated to the given Net2Plan element, or empty if it is not associated to a NIW element. Nodes, fibers, lightpaths,
+	 * lightpath requests, IP links, IP demands, IP source routed connections, service chains and service chain requests are always represented by the same object,
+	 * while they exist
+	 * @param e see above
+	 * @return see above
+	 */
 	public Optional<WAbstractNetworkElement> getWElement (NetworkElement e)
+	{
+		if (e.getNetPlan() != this.getNe()) return Optional.empty();
+		final WAbstractNetworkElement cachedWrapper = WNetElementsCache.getElements(this).wrappers.get(e);
+		if (cachedWrapper != null) return Optional.of (cachedWrapper);
+		return createWElement(e);
+	}
+
+	/* Creates a new wrapper for the element, without using the cached wrappers */
+	Optional<WAbstractNetworkElement> createWElement (NetworkElement e)
 	{
 		if (e.getNetPlan() != this.getNe()) return Optional.empty();
 		
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package com.net2plan.niw;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkElement;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.niw.WNetConstants.WTYPE;
+
+/** The NIW wrappers of the nodes, fibers, lightpaths, IP links, demands and service chains of a design, classified by type. It is stored in the NetPlan
+ * object (see {@link NetPlan#getDerivedInformation(Class, java.util.function.Supplier)}), so it is shared by all the WNet objects of the same design.
+ * The wrappers are classified again when the design changes in anything but attributes (see {@link NetPlan#getNonAttributeModificationCounter()}),
+ * reusing the wrappers of the elements that still exist with the same type: an element is always represented by the same wrapper object.
+ */
+final class WNetElementsCache
+{
+	/** The wrappers for a state of the design. Not modified after created */
+	static final class Elements
+	{
+		final List<WNode> nodes = new ArrayList<> (); // not including virtual nodes
+		final List<WFiber> fibers = new ArrayList<> ();
+		final List<WLightpathRequest> lightpathRequests = new ArrayList<> ();
+		final List<WLightpath> lightpaths = new ArrayList<> ();
+		final List<WIpLink> ipLinks = new ArrayList<> ();
+		final List<WServiceChainRequest> serviceChainRequests = new ArrayList<> ();
+		final List<WIpUnicastDemand> ipUnicastDemands = new ArrayList<> ();
+		final List<WServiceChain> serviceChains = new ArrayList<> ();
+		final List<WIpSourceRoutedConnection> ipSourceRoutedConnections = new ArrayList<> ();
+		final Optional<WLayerWdm> wdmLayer;
+		final Optional<WLayerIp> ipLayer;
+		/* The wrapper of each element above, including the virtual nodes. Network elements are equal only to themselves */
+		final Map<NetworkElement,WAbstractNetworkElement> wrappers = new HashMap<> ();
+
+		private Elements (WNet net , Elements previous)
+		{
+			final NetPlan np = net.getNe();
+			WLayerWdm wdmLayer = null;
+			WLayerIp ipLayer = null;
+			for (NetworkLayer layer : np.getNetworkLayers())
+			{
+				final WTYPE type = net.computeWType(layer).orElse(null);
+				if (type == WTYPE.WLayerWdm && wdmLayer == null) wdmLayer = (WLayerWdm) getWrapper(net, layer, type, previous);
+				if (type == WTYPE.WLayerIp && ipLayer == null) ipLayer = (WLayerIp) getWrapper(net, layer, type, previous);
+			}
+			this.wdmLayer = Optional.ofNullable(wdmLayer);
+			this.ipLayer = Optional.ofNullable(ipLayer);
+			for (Node n : np.getNodes())
+			{
+				final WNode node = (WNode) getWrapper(net, n, WTYPE.WNode, previous);
+				if (!node.isVirtualNode()) nodes.add(node);
+			}
+			if (wdmLayer != null)
+			{
+				for (Link e : np.getLinks(wdmLayer.getNe()))
+					fibers.add((WFiber) getWrapper(net, e, WTYPE.WFiber, previous));
+				for (Demand d : np.getDemands(wdmLayer.getNe()))
+					if (net.computeWType(d).orElse(null) == WTYPE.WLightpathRequest) lightpathRequests.add((WLightpathRequest) getWrapper(net, d, WTYPE.WLightpathRequest, previous));
+				for (Route r : np.getRoutes(wdmLayer.getNe()))
+					if (net.computeWType(r).orElse(null) == WTYPE.WLightpath) lightpaths.add((WLightpath) getWrapper(net, r, WTYPE.WLightpath, previous));
+			}
+			if (ipLayer != null)
+			{
+				for (Link e : np.getLinks(ipLayer.getNe()))
+					if (net.computeWType(e).orElse(null) == WTYPE.WIpLink) ipLinks.add((WIpLink) getWrapper(net, e, WTYPE.WIpLink, previous));
+				for (Demand d : np.getDemands(ipLayer.getNe()))
+				{
+					final WTYPE type = net.computeWType(d).orElse(null);
+					if (type == WTYPE.WServiceChainRequest) serviceChainRequests.add((WServiceChainRequest) getWrapper(net, d, type, previous));
+					else if (type == WTYPE.WIpUnicastDemand) ipUnicastDemands.add((WIpUnicastDemand) getWrapper(net, d, type, previous));
+				}
+				for (Route r : np.getRoutes(ipLayer.getNe()))
+				{
+					final WTYPE type = net.computeWType(r).orElse(null);
+					if (type == WTYPE.WServiceChain) serviceChains.add((WServiceChain) getWrapper(net, r, type, previous));
+					else if (type == WTYPE.WIpSourceRoutedConnection) ipSourceRoutedConnections.add((WIpSourceRoutedConnection) getWrapper(net, r, type, previous));
+				}
+			}
+		}
+
+		private WAbstractNetworkElement getWrapper (WNet net , NetworkElement e , WTYPE type , Elements previous)
+		{
+			final WAbstractNetworkElement previousWrapper = previous == null? null : previous.wrappers.get(e);
+			final WAbstractNetworkElement wrapper = previousWrapper != null && previousWrapper.getWType() == type? previousWrapper : net.createWElement(e).get();
+			assert wrapper.getWType() == type;
+			wrappers.put(e, wrapper);
+			return wrapper;
+		}
+	}
+
+	private Elements elements = null;
+	private long nonAttributeModificationCounter;
+	private boolean isUpdating = false;
+
+	/** Returns the wrappers of the elements of the design of the given WNet, classifying them again if the design changed
+	 * @param net see above
+	 * @return see above
+	 */
+	static Elements getElements (WNet net)
+	{
+		return net.getNe().getDerivedInformation(WNetElementsCache.class, WNetElementsCache::new).getElementsUpdated(net);
+	}
+
+	/** Returns the wrapper of the given element of the design of the given WNet, or null if it is not one of the elements classified here, or
+	 * if the design changed since they were classified. Does not classify them again, so it is always fast
+	 * @param net see above
+	 * @param e see above
+	 * @return see above
+	 */
+	static WAbstractNetworkElement getWrapperIfUpToDateOrNull (WNet net , NetworkElement e)
+	{
+		final WNetElementsCache cache = net.getNe().getDerivedInformation(WNetElementsCache.class, WNetElementsCache::new);
+		synchronized (cache)
+		{
+			if (cache.elements == null || cache.nonAttributeModificationCounter != net.getNe().getNonAttributeModificationCounter()) return null;
+			return cache.elements.wrappers.get(e);
+		}
+	}
+
+	private synchronized Elements getElementsUpdated (WNet net)
+	{
+		final long counter = net.getNe().getNonAttributeModificationCounter();
+		if (elements != null && counter == nonAttributeModificationCounter) return elements;
+		if (isUpdating) throw new Net2PlanException ("The NIW elements are already being classified");
+		isUpdating = true;
+		try
+		{
+			this.elements = new Elements(net, elements);
+			this.nonAttributeModificationCounter = counter;
+		} finally { isUpdating = false; }
+		return elements;
+	}
+}
@@ -13,6 +13,7 @@
 package com.net2plan.interfaces.networkDesign;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -25,7 +26,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,10 +38,14 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.collect.Sets;
+import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.GraphUtils.ClosedCycleRoutingException;
 import com.net2plan.utils.Constants.RoutingCycleType;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.Pair;
+import com.net2plan.utils.Quintuple;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
 
 public class DemandTest 
 {
@@ -372,6 +380,36 @@ public class DemandTest
 		np.checkCachesConsistency();*/
 	}
 
+	@Test
+	public void testForwardingRulesDag() 
+	{
+		final SortedMap<Link,Double> frs = new TreeMap<> ();
+		frs.put(link12, 0.5); frs.put(link13, 0.25); frs.put(link23, 1.0);
+		final SortedMap<Node,SortedSet<Link>> outFrs = new TreeMap<> ();
+		for (Link e : frs.keySet()) outFrs.computeIfAbsent(e.getOriginNode(), n -> new TreeSet<> ()).add(e);
+		final GraphUtils.ForwardingRulesDag dag = GraphUtils.ForwardingRulesDag.create(frs);
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> viaDag = dag.computeRoutingFundamentalVector(n1, n3);
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> viaSolver = GraphUtils.computeRoutingFundamentalVectorSolvingLinearSystem(frs, outFrs, n1, n3);
+		assertEquals (viaSolver.getSecond() , RoutingCycleType.LOOPLESS);
+		assertEquals (viaDag.getSecond() , viaSolver.getSecond());
+		for (Node n : np.getNodes()) assertEquals (viaDag.getFirst().get(n.getIndex()) , viaSolver.getFirst().get(n.getIndex()) , 1e-9);
+		assertEquals (viaDag.getFirst().get(n3.getIndex()) , 0.75 , 1e-9);
+		assertEquals (viaDag.getThird() , viaSolver.getThird() , 1e-9);
+		assertEquals (viaDag.getFourth() , viaSolver.getFourth() , 1e-9);
+		assertEquals (viaDag.getFifth() , viaSolver.getFifth() , 1e-9);
+
+		/* the egress node is not reached */
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> notReached = GraphUtils.ForwardingRulesDag.create(new TreeMap<> (Collections.singletonMap(link13, 1.0))).computeRoutingFundamentalVector(n1, n2);
+		assertEquals (notReached.getSecond() , RoutingCycleType.OPEN_CYCLES);
+		assertEquals (notReached.getFourth() , Double.MAX_VALUE , 0);
+
+		/* rules with cycles: no graph */
+		final Link link32 = np.addLink(n3,n2,100,100,1,null,lowerLayer);
+		frs.put(link32, 0.5);
+		assertNull (GraphUtils.ForwardingRulesDag.create(frs));
+		link32.remove();
+	}
+
 	@Test
 	public void testGetIngressNode() 
 	{
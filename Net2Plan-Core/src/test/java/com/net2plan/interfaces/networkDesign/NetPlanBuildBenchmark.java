@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Benchmark of the construction of a large design (by default 5000 nodes in a bidirectional ring with chords, and
+ * 500000 routes), followed by look-ups of all the elements by their identifier, and the removal of half of the routes.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code NetPlanBuildBenchmark [numNodes] [numRoutes]}.</p>
+ */
+public class NetPlanBuildBenchmark
+{
+	public static void main(String[] args)
+	{
+		final int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		final int numRoutes = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+			run(numNodes, numRoutes, rep == 0 ? " [warm-up]" : "");
+	}
+
+	private static void run(int numNodes, int numRoutes, String suffix)
+	{
+		final Random rng = new Random(1L);
+		final NetPlan np = new NetPlan();
+
+		long start = System.nanoTime();
+		final List<Node> nodes = new ArrayList<Node>(numNodes);
+		for (int n = 0; n < numNodes; n++) nodes.add(np.addNode(n, n, "n" + n, null));
+		final List<Link> clockwise = new ArrayList<Link>(numNodes);
+		for (int n = 0; n < numNodes; n++)
+		{
+			clockwise.add(np.addLink(nodes.get(n), nodes.get((n + 1) % numNodes), 1e6, 1, 200000, null));
+			np.addLink(nodes.get((n + 1) % numNodes), nodes.get(n), 1e6, 1, 200000, null);
+			np.addLink(nodes.get(n), nodes.get(rng.nextInt(numNodes)), 1e6, 1, 200000, null);
+		}
+		final double secondsTopology = (System.nanoTime() - start) / 1e9;
+
+		start = System.nanoTime();
+		final int numDemands = Math.max(1, numRoutes / 10);
+		final List<Route> routes = new ArrayList<Route>(numRoutes);
+		for (int d = 0; d < numDemands; d++)
+		{
+			final int origin = rng.nextInt(numNodes);
+			final int numHops = 1 + rng.nextInt(8);
+			final List<Link> path = new ArrayList<Link>(numHops);
+			for (int h = 0; h < numHops; h++) path.add(clockwise.get((origin + h) % numNodes));
+			final Demand demand = np.addDemand(nodes.get(origin), nodes.get((origin + numHops) % numNodes), 1, RoutingType.SOURCE_ROUTING, null);
+			for (int r = d; r < numRoutes; r += numDemands)
+				routes.add(np.addRoute(demand, 0.1, 0.1, path, null));
+		}
+		final double secondsRoutes = (System.nanoTime() - start) / 1e9;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (Route route : routes) if (np.getRouteFromId(route.getId()) == route) found++;
+		for (Node node : nodes) if (np.getNodeFromId(node.getId()) == node) found++;
+		final double secondsLookUps = (System.nanoTime() - start) / 1e9;
+		if (found != routes.size() + nodes.size()) throw new RuntimeException("Bad");
+
+		start = System.nanoTime();
+		for (int r = 0; r < routes.size(); r += 2) routes.get(r).remove();
+		final double secondsRemoval = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(String.format("%d nodes, %d links, %d routes: topology %.3f s, routes %.3f s, look-ups %.3f s, removal of half the routes %.3f s%s",
+				np.getNumberOfNodes(), np.getNumberOfLinks(), routes.size(), secondsTopology, secondsRoutes, secondsLookUps, secondsRemoval, suffix));
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Compares the addition of many routes one by one, with {@link NetPlan#addRoute(Demand, double, double, List, java.util.Map)}, with their addition
+ * in a {@link NetPlanBulkUpdate}, and the same for the change of their carried traffic. The design has by default 1000 nodes in a bidirectional ring with chords,
+ * and 100000 routes of up to eight hops in the ring, so each link is traversed by hundreds of routes.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code NetPlanBulkUpdateBenchmark [numNodes] [numRoutes]}.</p>
+ */
+public class NetPlanBulkUpdateBenchmark
+{
+	public static void main(String[] args)
+	{
+		final int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final int numRoutes = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+			run(numNodes, numRoutes, rep == 0 ? " [warm-up]" : "");
+	}
+
+	private static void run(int numNodes, int numRoutes, String suffix)
+	{
+		final Random rng = new Random(1L);
+		final NetPlan np = new NetPlan();
+		final List<Node> nodes = new ArrayList<Node>(numNodes);
+		for (int n = 0; n < numNodes; n++) nodes.add(np.addNode(n, n, "n" + n, null));
+		final List<Link> clockwise = new ArrayList<Link>(numNodes);
+		for (int n = 0; n < numNodes; n++)
+		{
+			clockwise.add(np.addLink(nodes.get(n), nodes.get((n + 1) % numNodes), 1e6, 1, 200000, null));
+			np.addLink(nodes.get((n + 1) % numNodes), nodes.get(n), 1e6, 1, 200000, null);
+		}
+		final int numDemands = Math.max(1, numRoutes / 10);
+		final List<Demand> demands = new ArrayList<Demand>(numRoutes);
+		final List<List<Link>> paths = new ArrayList<List<Link>>(numRoutes);
+		for (int d = 0; d < numDemands; d++)
+		{
+			final int origin = rng.nextInt(numNodes);
+			final int numHops = 1 + rng.nextInt(8);
+			final List<Link> path = new ArrayList<Link>(numHops);
+			for (int h = 0; h < numHops; h++) path.add(clockwise.get((origin + h) % numNodes));
+			final Demand demand = np.addDemand(nodes.get(origin), nodes.get((origin + numHops) % numNodes), 1, RoutingType.SOURCE_ROUTING, null);
+			for (int r = d; r < numRoutes; r += numDemands) { demands.add(demand); paths.add(path); }
+		}
+		final double [] carriedTraffics = new double [demands.size()];
+		for (int r = 0; r < carriedTraffics.length; r++) carriedTraffics [r] = rng.nextDouble();
+		final NetPlan npBulk = np.copy();
+
+		long start = System.nanoTime();
+		for (int r = 0; r < demands.size(); r++) np.addRoute(demands.get(r), 0.1, 0.1, paths.get(r), null);
+		final double secondsAddOneByOne = (System.nanoTime() - start) / 1e9;
+		start = System.nanoTime();
+		for (Route route : np.getRoutes()) route.setCarriedTraffic(carriedTraffics [route.getIndex()], carriedTraffics [route.getIndex()]);
+		final double secondsTrafficOneByOne = (System.nanoTime() - start) / 1e9;
+
+		final List<Demand> demandsBulk = new ArrayList<Demand>(demands.size());
+		final List<List<Link>> pathsBulk = new ArrayList<List<Link>>(paths.size());
+		for (int r = 0; r < demands.size(); r++)
+		{
+			demandsBulk.add(npBulk.getDemand(demands.get(r).getIndex()));
+			final List<Link> path = new ArrayList<Link>(paths.get(r).size());
+			for (Link e : paths.get(r)) path.add(npBulk.getLink(e.getIndex()));
+			pathsBulk.add(path);
+		}
+		final double [] initialTraffics = new double [demands.size()];
+		Arrays.fill(initialTraffics, 0.1);
+		start = System.nanoTime();
+		npBulk.bulk().addRoutes(demandsBulk, initialTraffics, null, pathsBulk).commit();
+		final double secondsAddBulk = (System.nanoTime() - start) / 1e9;
+		start = System.nanoTime();
+		npBulk.bulk().setCarriedTraffic(carriedTraffics, null).commit();
+		final double secondsTrafficBulk = (System.nanoTime() - start) / 1e9;
+
+		if (!np.getVectorLinkOccupiedCapacity().equals(npBulk.getVectorLinkOccupiedCapacity())) throw new RuntimeException("Bad");
+		System.out.println(String.format("%d nodes, %d links, %d routes: add routes one by one %.3f s, in bulk %.3f s; set carried traffic one by one %.3f s, in bulk %.3f s%s",
+				np.getNumberOfNodes(), np.getNumberOfLinks(), np.getNumberOfRoutes(), secondsAddOneByOne, secondsAddBulk, secondsTrafficOneByOne, secondsTrafficBulk, suffix));
+	}
+}
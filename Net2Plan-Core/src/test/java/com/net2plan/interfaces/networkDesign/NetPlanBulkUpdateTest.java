@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+public class NetPlanBulkUpdateTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3;
+	private Link link12, link23, link13;
+	private Demand d13, d12;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		n1 = np.addNode(0, 0, "node1", null);
+		n2 = np.addNode(1, 0, "node2", null);
+		n3 = np.addNode(2, 0, "node3", null);
+		link12 = np.addLink(n1, n2, 100, 100, 1, null);
+		link23 = np.addLink(n2, n3, 100, 100, 1, null);
+		link13 = np.addLink(n1, n3, 100, 100, 1, null);
+		d13 = np.addDemand(n1, n3, 10, RoutingType.SOURCE_ROUTING, null);
+		d12 = np.addDemand(n1, n2, 10, RoutingType.SOURCE_ROUTING, null);
+	}
+
+	@Test
+	public void testBulkGivesTheSameDesignAsOneByOne()
+	{
+		final NetPlan oneByOne = np.copy();
+		oneByOne.addRoute(oneByOne.getDemand(0), 4, 5, Arrays.asList(oneByOne.getLink(0), oneByOne.getLink(1)), null);
+		oneByOne.addRoute(oneByOne.getDemand(0), 6, 6, Collections.singletonList(oneByOne.getLink(2)), null);
+		oneByOne.addRoute(oneByOne.getDemand(1), 3, 3, Collections.singletonList(oneByOne.getLink(0)), null);
+		oneByOne.addLink(oneByOne.getNode(2), oneByOne.getNode(0), 10, 100, 1, null);
+		oneByOne.getRoute(1).setCarriedTraffic(2, 2);
+
+		final NetPlanBulkUpdate bulk = np.bulk();
+		bulk.addRoutes(Arrays.asList(d13, d13), new double [] { 4, 6 }, new double [] { 5, 6 }, Arrays.asList(Arrays.asList(link12, link23), Collections.singletonList(link13)));
+		bulk.addRoute(d12, 3, 3, Collections.singletonList(link12));
+		bulk.addLink(n3, n1, 10, 100, 1);
+		assertEquals(3, bulk.commit().getAddedRoutes().size());
+		assertEquals(1, bulk.getAddedLinks().size());
+		np.bulk().setCarriedTraffic(new double [] { 4, 2, 3 }, new double [] { 5, 2, 3 }).commit();
+
+		assertEquals(oneByOne.getVectorLinkCarriedTraffic(), np.getVectorLinkCarriedTraffic());
+		assertEquals(oneByOne.getVectorLinkOccupiedCapacity(), np.getVectorLinkOccupiedCapacity());
+		assertEquals(oneByOne.getVectorDemandCarriedTraffic(), np.getVectorDemandCarriedTraffic());
+		assertEquals(7.0, link12.getCarriedTraffic(), 0);
+		assertEquals(8.0, link12.getOccupiedCapacity(), 0);
+		assertEquals(6.0, d13.getCarriedTraffic(), 0);
+		assertEquals(2, link12.getTraversingRoutes().size());
+		assertEquals(2, d13.getRoutes().size());
+		np.checkCachesConsistency();
+	}
+
+	@Test
+	public void testNothingIsChangedIfAStagedChangeIsNotValid()
+	{
+		final NetPlanBulkUpdate bulk = np.bulk();
+		bulk.addLink(n3, n1, 10, 100, 1);
+		bulk.addRoute(d13, 1, 1, Collections.singletonList(link13));
+		bulk.addRoute(d13, 1, 1, Collections.singletonList(link12));
+		try
+		{
+			bulk.commit();
+			fail();
+		} catch (Net2PlanException e) { }
+		assertEquals(3, np.getNumberOfLinks());
+		assertEquals(0, np.getNumberOfRoutes());
+		assertEquals(0.0, link13.getCarriedTraffic(), 0);
+
+		final NetPlanBulkUpdate negativeTraffic = np.bulk().addRoute(d13, -1, 1, Collections.singletonList(link13));
+		try
+		{
+			negativeTraffic.commit();
+			fail();
+		} catch (Net2PlanException e) { }
+		assertEquals(0, np.getNumberOfRoutes());
+	}
+
+	@Test
+	public void testCommitOnlyOnce()
+	{
+		final NetPlanBulkUpdate bulk = np.bulk().addRoute(d13, 1, 1, Collections.singletonList(link13));
+		bulk.commit();
+		try
+		{
+			bulk.addRoute(d13, 1, 1, Collections.singletonList(link13));
+			fail();
+		} catch (Net2PlanException e) { }
+		try
+		{
+			bulk.commit();
+			fail();
+		} catch (Net2PlanException e) { }
+		assertEquals(1, np.getNumberOfRoutes());
+	}
+
+	@Test
+	public void testRollbackOfBulkUpdate()
+	{
+		np.addRoute(d13, 1, 1, Collections.singletonList(link13), null);
+		np.beginTransaction();
+		np.bulk().addRoute(d13, 4, 4, Arrays.asList(link12, link23)).commit();
+		np.bulk().setCarriedTraffic(new double [] { 5, 6 }, null).commit();
+		assertEquals(11.0, d13.getCarriedTraffic(), 0);
+		np.rollback();
+		assertEquals(1, np.getNumberOfRoutes());
+		assertEquals(1.0, d13.getCarriedTraffic(), 0);
+		assertEquals(0.0, link12.getCarriedTraffic(), 0);
+		assertTrue(link12.getTraversingRoutes().isEmpty());
+		np.checkCachesConsistency();
+	}
+
+	@Test
+	public void testAddRoutesFromCandidatePathList()
+	{
+		np.addRoutesFromCandidatePathList(np.computeUnicastCandidatePathList(null, 2, -1, -1, -1, -1, -1, -1, null));
+		assertEquals(2, d13.getRoutes().size());
+		assertEquals(1, d12.getRoutes().size());
+		assertEquals(0.0, d13.getCarriedTraffic(), 0);
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Benchmark of the saving and loading of a large design (by default 2000 nodes in a bidirectional ring with chords, and
+ * 200000 routes with attributes), in the XML format, and in the binary format with and without compression.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code NetPlanFileFormatBenchmark [numNodes] [numRoutes]}.</p>
+ */
+public class NetPlanFileFormatBenchmark
+{
+	public static void main(String[] args)
+	{
+		final int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final int numRoutes = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		final NetPlan np = createDesign(numNodes, numRoutes);
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+		{
+			final String suffix = rep == 0 ? " [warm-up]" : "";
+			run(np, "XML", 0, suffix);
+			run(np, "binary", 1, suffix);
+			run(np, "binary (compressed)", 2, suffix);
+		}
+	}
+
+	private static void run(NetPlan np, String formatName, int format, String suffix)
+	{
+		final ByteArrayOutputStream os = new ByteArrayOutputStream(1 << 24);
+		long start = System.nanoTime();
+		if (format == 0) np.saveToOutputStream(os);
+		else np.saveToBinaryOutputStream(os, format == 2);
+		final double secondsSave = (System.nanoTime() - start) / 1e9;
+
+		start = System.nanoTime();
+		final NetPlan readNp = new NetPlan(new ByteArrayInputStream(os.toByteArray()));
+		final double secondsLoad = (System.nanoTime() - start) / 1e9;
+		if (readNp.getNumberOfRoutes() != np.getNumberOfRoutes()) throw new RuntimeException("Bad");
+
+		System.out.println(String.format("%s: %.1f MB, save %.3f s (%.1f MB/s), load %.3f s (%.1f MB/s)%s", formatName, os.size() / 1e6,
+				secondsSave, os.size() / 1e6 / secondsSave, secondsLoad, os.size() / 1e6 / secondsLoad, suffix));
+	}
+
+	private static NetPlan createDesign(int numNodes, int numRoutes)
+	{
+		final Random rng = new Random(1L);
+		final NetPlan np = new NetPlan();
+		final List<Node> nodes = new ArrayList<Node>(numNodes);
+		for (int n = 0; n < numNodes; n++) nodes.add(np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null));
+		final List<Link> clockwise = new ArrayList<Link>(numNodes);
+		for (int n = 0; n < numNodes; n++)
+		{
+			clockwise.add(np.addLink(nodes.get(n), nodes.get((n + 1) % numNodes), 1e6, 1 + rng.nextDouble(), 200000, null));
+			np.addLink(nodes.get((n + 1) % numNodes), nodes.get(n), 1e6, 1 + rng.nextDouble(), 200000, null);
+			np.addLink(nodes.get(n), nodes.get(rng.nextInt(numNodes)), 1e6, 1 + rng.nextDouble(), 200000, null);
+		}
+		final int numDemands = Math.max(1, numRoutes / 10);
+		for (int d = 0; d < numDemands; d++)
+		{
+			final int origin = rng.nextInt(numNodes);
+			final int numHops = 1 + rng.nextInt(8);
+			final List<Link> path = new ArrayList<Link>(numHops);
+			for (int h = 0; h < numHops; h++) path.add(clockwise.get((origin + h) % numNodes));
+			final Demand demand = np.addDemand(nodes.get(origin), nodes.get((origin + numHops) % numNodes), rng.nextDouble(), RoutingType.SOURCE_ROUTING, null);
+			demand.setAttribute("serviceClass", "class" + rng.nextInt(4));
+			for (int r = d; r < numRoutes; r += numDemands)
+				np.addRoute(demand, rng.nextDouble(), rng.nextDouble(), path, null).setAttribute("protectionType", rng.nextBoolean() ? "1+1" : "none");
+		}
+		return np;
+	}
+}
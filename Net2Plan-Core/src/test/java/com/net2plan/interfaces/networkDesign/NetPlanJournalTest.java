@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+public class NetPlanJournalTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3;
+	private Link link12, link23, link13;
+	private Demand d13;
+	private Route r123, r13;
+	private SharedRiskGroup srg;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		n1 = np.addNode(0, 0, "node1", null);
+		n2 = np.addNode(1, 0, "node2", null);
+		n3 = np.addNode(2, 0, "node3", null);
+		link12 = np.addLink(n1, n2, 100, 100, 1, null);
+		link23 = np.addLink(n2, n3, 100, 100, 1, null);
+		link13 = np.addLink(n1, n3, 100, 100, 1, null);
+		d13 = np.addDemand(n1, n3, 10, RoutingType.SOURCE_ROUTING, null);
+		r123 = np.addRoute(d13, 4, 5, Arrays.asList(link12, link23), null);
+		r13 = np.addRoute(d13, 6, 6, Collections.singletonList(link13), null);
+		srg = np.addSRG(1, 1, null);
+		srg.addLink(link23);
+		link12.setAttribute("key", "value");
+	}
+
+	@Test
+	public void testRollbackRestoresStateAndIdentifiers()
+	{
+		final long numberOfElementsBefore = np.getNumberOfNodes() + np.getNumberOfLinks() + np.getNumberOfRoutes();
+		np.beginTransaction();
+		link13.setCapacity(50);
+		d13.setOfferedTraffic(20);
+		r13.setCarriedTraffic(1, 2);
+		link12.setAttribute("key", "other");
+		link23.setFailureState(false);
+		final Node n4 = np.addNode(3, 0, "node4", null);
+		np.addLink(n3, n4, 10, 10, 1, null);
+		n2.remove();
+		assertEquals(1, np.getNumberOfRoutes());
+		np.rollback();
+
+		assertFalse(np.isTransactionActive());
+		assertEquals(numberOfElementsBefore, np.getNumberOfNodes() + np.getNumberOfLinks() + np.getNumberOfRoutes());
+		final Node restoredN2 = np.getNodeFromId(n2.getId());
+		assertEquals(1, restoredN2.getIndex());
+		assertEquals("node2", restoredN2.getName());
+		final Link restoredLink12 = np.getLinkFromId(link12.getId());
+		final Link restoredLink23 = np.getLinkFromId(link23.getId());
+		assertEquals("value", restoredLink12.getAttribute("key"));
+		assertTrue(restoredLink23.isUp());
+		assertTrue(srg.getLinksAllLayers().contains(restoredLink23));
+		assertEquals(100, np.getLinkFromId(link13.getId()).getCapacity(), 0);
+		assertEquals(10, d13.getOfferedTraffic(), 0);
+		final Route restoredR123 = np.getRouteFromId(r123.getId());
+		assertEquals(Arrays.asList(restoredLink12, restoredLink23), restoredR123.getSeqLinks());
+		assertEquals(4, restoredR123.getCarriedTraffic(), 0);
+		assertEquals(5, restoredR123.getOccupiedCapacity(restoredLink12), 0);
+		assertEquals(6, r13.getCarriedTraffic(), 0);
+		assertEquals(10, d13.getCarriedTraffic(), 0);
+		assertEquals(4, restoredLink12.getCarriedTraffic(), 1e-9);
+		assertEquals(6, np.getLinkFromId(link13.getId()).getCarriedTraffic(), 1e-9);
+		assertEquals(3, np.getNumberOfNodes());
+		assertEquals(3, np.getNumberOfLinks());
+	}
+
+	@Test
+	public void testUndoRedo()
+	{
+		np.beginTransaction();
+		link13.setCapacity(50);
+		r123.remove();
+		np.commit();
+		assertTrue(np.canUndo());
+		assertFalse(np.canRedo());
+
+		assertTrue(np.undo());
+		assertEquals(100, link13.getCapacity(), 0);
+		assertEquals(2, np.getNumberOfRoutes());
+		assertEquals(0, np.getRouteFromId(r123.getId()).getIndex());
+		assertTrue(np.canRedo());
+
+		assertTrue(np.redo());
+		assertEquals(50, link13.getCapacity(), 0);
+		assertEquals(1, np.getNumberOfRoutes());
+		assertEquals(null, np.getRouteFromId(r123.getId()));
+		assertFalse(np.redo());
+	}
+
+	@Test
+	public void testChangeOutsideTransactionClearsHistory()
+	{
+		np.beginTransaction();
+		link13.setCapacity(50);
+		np.commit();
+		assertTrue(np.canUndo());
+		link12.setCapacity(10);
+		assertFalse(np.canUndo());
+		assertFalse(np.undo());
+	}
+
+	@Test
+	public void testRollbackRestoresProperties()
+	{
+		r123.addBackupRoute(r13);
+		final Route r1213 = np.addRoute(d13, 0, 0, Arrays.asList(link12, link23), null);
+		r123.addBackupRoute(r1213);
+		np.beginTransaction();
+		r123.removeBackupRoute(r13);
+		link12.setLengthInKm(7);
+		link12.setPropagationSpeedInKmPerSecond(3);
+		link12.setName("other");
+		link12.addTag("tag");
+		d13.setQoSType("gold");
+		n1.setXYPositionMap(new java.awt.geom.Point2D.Double(5, 5));
+		np.rollback();
+
+		assertEquals(Arrays.asList(r13, r1213), r123.getBackupRoutes());
+		assertTrue(r13.isBackupRoute());
+		assertEquals(100, link12.getLengthInKm(), 0);
+		assertEquals(1, link12.getPropagationSpeedInKmPerSecond(), 0);
+		assertEquals("Link-0", link12.getName());
+		assertFalse(link12.hasTag("tag"));
+		assertTrue(np.getTaggedLinks("tag").isEmpty());
+		assertEquals("", d13.getQosType());
+		assertEquals(0, n1.getXYPositionMap().getX(), 0);
+	}
+
+	@Test
+	public void testNotReversibleTransaction()
+	{
+		np.beginTransaction();
+		link13.setCapacity(50);
+		d13.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		try
+		{
+			np.rollback();
+			fail();
+		} catch (Net2PlanException e)
+		{
+		}
+		assertFalse(np.isTransactionActive());
+		assertEquals(50, link13.getCapacity(), 0);
+		assertFalse(np.canUndo());
+
+		np.beginTransaction();
+		final Link link31 = np.addLink(n3, n1, 100, 100, 1, null);
+		link13.setBidirectionalPair(link31);
+		try
+		{
+			np.rollback();
+			fail();
+		} catch (Net2PlanException e)
+		{
+		}
+		assertEquals(link31, link13.getBidirectionalPair());
+	}
+}
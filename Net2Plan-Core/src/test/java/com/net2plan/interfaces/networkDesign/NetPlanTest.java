@@ -15,6 +15,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URL;
 import java.util.Arrays;
@@ -281,6 +283,65 @@ public class NetPlanTest
 		assertEquals (np.getCurrentDate() , d);
 	}
 	
+	@Test
+	public void testSaveToBinaryFile()
+	{
+		final File xmlFile = new File (TEST_FILE_DIRECTORY, TEST_FILE_NAME);
+		np.saveToFile(xmlFile);
+		final NetPlan readXmlNp = NetPlan.loadFromFile(xmlFile);
+		for (boolean compress : new boolean [] { false , true })
+		{
+			final File binaryFile = new File (TEST_FILE_DIRECTORY, "binary_" + TEST_FILE_NAME);
+			np.saveToBinaryFile(binaryFile , compress);
+			final NetPlan readBinaryNp = NetPlan.loadFromFile(binaryFile);
+			readBinaryNp.checkCachesConsistency();
+			assertTrue(readBinaryNp.isDeepCopy(np));
+			assertTrue(np.isDeepCopy(readBinaryNp));
+			assertTrue(readBinaryNp.isDeepCopy(readXmlNp));
+			assertEquals (readBinaryNp.getCurrentDate() , np.getCurrentDate());
+		}
+	}
+
+	@Test
+	public void testSaveToBinaryOutputStreamLargeTables()
+	{
+		/* more than one section of routes */
+		for (int cont = 0; cont < 20000; cont ++)
+			np.addRoute(d13 , 0.001 , 0.001 , path13 , null).setAttribute("key" , "value" + (cont % 10));
+		final ByteArrayOutputStream os = new ByteArrayOutputStream ();
+		np.saveToBinaryOutputStream(os , false);
+		final NetPlan readNp = new NetPlan (new ByteArrayInputStream (os.toByteArray()));
+		assertTrue(readNp.isDeepCopy(np));
+		assertTrue(np.isDeepCopy(readNp));
+	}
+
+	@Test
+	public void testNetPlanBinaryFile()
+	{
+		final File binaryFile = new File (TEST_FILE_DIRECTORY, "binary_" + TEST_FILE_NAME);
+		np.saveToBinaryFile(binaryFile , true);
+		try (NetPlanBinaryFile file = new NetPlanBinaryFile(binaryFile))
+		{
+			assertEquals (file.getLayerNames().keySet() , new TreeSet<> (Arrays.asList(lowerLayer.getId() , upperLayer.getId())));
+			assertEquals (file.getLayerNames().get(upperLayer.getId()) , "upperLayer");
+			final NetPlan readNp = file.load();
+			assertTrue(readNp.isDeepCopy(np));
+
+			final NetPlan upperNp = file.load(Collections.singleton(upperLayer.getId()));
+			upperNp.checkCachesConsistency();
+			assertEquals (upperNp.getNumberOfLayers() , 1);
+			final NetworkLayer readUpperLayer = upperNp.getNetworkLayerFromId(upperLayer.getId());
+			assertEquals (upperNp.getNetworkLayerDefault() , readUpperLayer);
+			assertEquals (upperNp.getNumberOfNodes() , np.getNumberOfNodes());
+			assertEquals (upperNp.getNumberOfLinks(readUpperLayer) , np.getNumberOfLinks(upperLayer));
+			assertEquals (upperNp.getNumberOfMulticastTrees(readUpperLayer) , np.getNumberOfMulticastTrees(upperLayer));
+			assertEquals (upperNp.getLinkFromId(upperLink12.getId()).getCapacity() , upperLink12.getCapacity() , 0);
+			assertTrue (!upperNp.getLinkFromId(upperLink12.getId()).isCoupled());
+			assertEquals (upperNp.getSRGFromId(srgDynN12L0.getId()) , null);
+			assertEquals (upperNp.getSRGFromId(srgNonDynN1.getId()).getNodes().size() , 1);
+		}
+	}
+
 	@Test
 	public void testQosType_1()
 	{
@@ -820,6 +881,38 @@ public class NetPlanTest
 		assertTrue (np2.isDeepCopy(np));
 	}
 
+	@Test
+	public void testGetReadOnlyCopy()
+	{
+		final NetPlan readOnlyCopy = np.getReadOnlyCopy();
+		assertTrue (readOnlyCopy.isReadOnlyCopy());
+		assertTrue (!readOnlyCopy.isModifiable());
+		assertEquals (readOnlyCopy.getNodeIds() , np.getNodeIds());
+		assertEquals (readOnlyCopy.getLinkIds() , np.getLinkIds());
+		assertTrue (np.getReadOnlyCopy() == readOnlyCopy);
+
+		final double capacity = link12.getCapacity();
+		link12.setCapacity(capacity + 1);
+		n1.setSiteName("otherSite");
+		assertEquals (readOnlyCopy.getLinkFromId(link12.getId()).getCapacity() , capacity , 0);
+		assertEquals (readOnlyCopy.getNodeFromId(n1.getId()).getSiteName() , "s12");
+		final NetPlan newCopy = np.getReadOnlyCopy();
+		assertTrue (newCopy != readOnlyCopy);
+		assertEquals (newCopy.getLinkFromId(link12.getId()).getCapacity() , capacity + 1 , 0);
+		assertTrue (newCopy.getReadOnlyCopy() == newCopy);
+	}
+
+	@Test
+	public void testReadOnlyCopyCannotBeModified()
+	{
+		final NetPlan readOnlyCopy = np.getReadOnlyCopy();
+		try { readOnlyCopy.getNodeFromId(n1.getId()).setSiteName("otherSite"); fail (); } catch (UnsupportedOperationException e) {}
+		try { readOnlyCopy.getLinkFromId(link12.getId()).setCapacity(0); fail (); } catch (UnsupportedOperationException e) {}
+		try { readOnlyCopy.setModifiableState(true); fail (); } catch (Net2PlanException e) {}
+		assertTrue (!readOnlyCopy.isModifiable());
+		assertTrue (readOnlyCopy.copy().isModifiable());
+	}
+
 	@Test
 	public void testGetAttributesCollectionOfQextendsNetworkElementString()
 	{
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Compares the bytes allocated per connection (arrival, route add, release and route remove events) when the events are created with their
+ * constructors, and when they are taken from a {@link SimEventPool}. The events go through a priority queue, as in the future event list, and the
+ * processing of a pooled event finishes releasing it, as the kernel does. The allocated bytes are measured per thread with the {@code com.sun.management}
+ * extension of the thread MX bean (the same figure as the normalized allocation rate of a GC profiler).</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code SimEventPoolBenchmark [numConnections]}.</p>
+ */
+public class SimEventPoolBenchmark
+{
+	private static final int NUM_DEMANDS = 100;
+
+	public static void main(String[] args)
+	{
+		final int numConnections = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		final NetPlan np = new NetPlan();
+		final List<Node> nodes = new ArrayList<Node>();
+		for (int n = 0; n < 10; n++) nodes.add(np.addNode(n, 0, "n" + n, null));
+		final List<Link> path = new ArrayList<Link>();
+		for (int n = 0; n < 9; n++) path.add(np.addLink(nodes.get(n), nodes.get(n + 1), 10, 1, 200000, null));
+		final List<Demand> demands = new ArrayList<Demand>();
+		for (int d = 0; d < NUM_DEMANDS; d++) demands.add(np.addDemand(nodes.get(0), nodes.get(9), 1, RoutingType.SOURCE_ROUTING, null));
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+		{
+			final String suffix = rep == 0 ? " [warm-up]" : "";
+			report("constructors", numConnections, runWithConstructors(demands, path, numConnections), suffix);
+			report("pool", numConnections, runWithPool(demands, path, numConnections), suffix);
+		}
+	}
+
+	private static void report(String label, int numConnections, long [] bytesAndNanos, String suffix)
+	{
+		System.out.println(String.format("%-12s: %d connections, %.1f bytes/connection, %.1f ns/connection%s", label, numConnections,
+				(double) bytesAndNanos [0] / numConnections, (double) bytesAndNanos [1] / numConnections, suffix));
+	}
+
+	private static long [] runWithConstructors(List<Demand> demands, List<Link> path, int numConnections)
+	{
+		final PriorityQueue<SimEvent> fel = new PriorityQueue<SimEvent>();
+		for (Demand demand : demands) fel.add(new SimEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, 0, new Arrival(demand)));
+		final long bytes = allocatedBytes();
+		final long start = System.nanoTime();
+		int arrivals = 0;
+		while (arrivals < numConnections)
+		{
+			final SimEvent event = fel.poll();
+			final double time = event.getEventTime();
+			final Object object = event.getEventObject();
+			if (object instanceof Arrival)
+			{
+				final SimEvent.RouteAdd routeAdd = new SimEvent.RouteAdd(((Arrival) object).demand, path, 1, 1);
+				fel.add(new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, routeAdd));
+				fel.add(new SimEvent(time + 50, SimEvent.DestinationModule.EVENT_GENERATOR, 0, new Release(routeAdd)));
+				fel.add(new SimEvent(time + 1, SimEvent.DestinationModule.EVENT_GENERATOR, 0, new Arrival(((Arrival) object).demand)));
+				arrivals++;
+			}
+			else if (object instanceof Release)
+				fel.add(new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, new SimEvent.RouteRemove(null)));
+		}
+		return new long [] { allocatedBytes() - bytes, System.nanoTime() - start };
+	}
+
+	private static long [] runWithPool(List<Demand> demands, List<Link> path, int numConnections)
+	{
+		final SimEventPool pool = new SimEventPool();
+		final PriorityQueue<SimEvent> fel = new PriorityQueue<SimEvent>();
+		final Arrival [] arrivalObjects = new Arrival [demands.size()];
+		for (int d = 0; d < arrivalObjects.length; d++)
+		{
+			arrivalObjects [d] = new Arrival(demands.get(d));
+			fel.add(pool.newEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, 0, arrivalObjects [d]));
+		}
+		final long bytes = allocatedBytes();
+		final long start = System.nanoTime();
+		int arrivals = 0;
+		while (arrivals < numConnections)
+		{
+			final SimEvent event = fel.poll();
+			final double time = event.getEventTime();
+			final Object object = event.getEventObject();
+			if (object instanceof Arrival)
+			{
+				final SimEvent.PooledRouteAdd routeAdd = pool.newRouteAdd(((Arrival) object).demand, path, 1, 1);
+				routeAdd.retain();
+				final PooledRelease release = pool.newPayload(PooledRelease.class, PooledRelease::new);
+				release.routeAdd = routeAdd;
+				fel.add(pool.newEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, routeAdd));
+				fel.add(pool.newEvent(time + 50, SimEvent.DestinationModule.EVENT_GENERATOR, 0, release));
+				fel.add(pool.newEvent(time + 1, SimEvent.DestinationModule.EVENT_GENERATOR, 0, object));
+				arrivals++;
+			}
+			else if (object instanceof PooledRelease)
+				fel.add(pool.newEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, pool.newRouteRemove(null)));
+			pool.release(event);
+		}
+		return new long [] { allocatedBytes() - bytes, System.nanoTime() - start };
+	}
+
+	private static long allocatedBytes()
+	{
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static final class Arrival
+	{
+		final Demand demand;
+		Arrival(Demand demand) { this.demand = demand; }
+	}
+
+	private static final class Release
+	{
+		final SimEvent.RouteAdd routeAdd;
+		Release(SimEvent.RouteAdd routeAdd) { this.routeAdd = routeAdd; }
+	}
+
+	private static final class PooledRelease extends SimEvent.PooledPayload
+	{
+		SimEvent.PooledRouteAdd routeAdd;
+
+		@Override
+		protected void clear()
+		{
+			routeAdd.release();
+			routeAdd = null;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingType;
+
+public class SimEventPoolTest
+{
+	private SimEventPool pool;
+	private Demand demand;
+	private List<Link> path;
+
+	@Before
+	public void setUp()
+	{
+		final NetPlan np = new NetPlan();
+		final List<Node> nodes = new ArrayList<Node>();
+		for (int n = 0; n < 12; n++) nodes.add(np.addNode(n, 0, "n" + n, null));
+		path = new ArrayList<Link>();
+		for (int n = 0; n < 11; n++) path.add(np.addLink(nodes.get(n), nodes.get(n + 1), 10, 1, 200000, null));
+		demand = np.addDemand(nodes.get(0), nodes.get(11), 1, RoutingType.SOURCE_ROUTING, null);
+		pool = new SimEventPool();
+	}
+
+	@Test
+	public void testEventsAndPayloadsAreReusedAfterRelease()
+	{
+		final SimEvent.PooledRouteAdd routeAdd = pool.newRouteAdd(demand, path, 2, 3);
+		assertEquals(path, routeAdd.getSeqLinks());
+		assertEquals(11, routeAdd.getNumberOfLinks());
+		final SimEvent event = pool.newEvent(5, SimEvent.DestinationModule.EVENT_PROCESSOR, 1, 2, routeAdd);
+		assertTrue(event.isPooled());
+		assertFalse(new SimEvent(5, SimEvent.DestinationModule.EVENT_PROCESSOR, 1, routeAdd).isPooled());
+		assertEquals(2, pool.getNumberOfCreatedObjects());
+
+		pool.release(event);
+		assertNull(routeAdd.demand);
+		assertEquals(0, routeAdd.getNumberOfLinks());
+
+		final SimEvent.PooledRouteAdd routeAdd2 = pool.newRouteAdd(demand, path.subList(0, 2), 4, 4);
+		final SimEvent event2 = pool.newEvent(7, SimEvent.DestinationModule.EVENT_GENERATOR, 0, routeAdd2);
+		assertSame(routeAdd, routeAdd2);
+		assertSame(event, event2);
+		assertEquals(Arrays.asList(path.get(0), path.get(1)), routeAdd2.getSeqLinks());
+		assertEquals(7, event2.getEventTime(), 0);
+		assertEquals(SimEvent.DestinationModule.EVENT_GENERATOR, event2.getEventDestinationModule());
+		assertEquals(SimEvent.DEFAULT_PRIORITY, event2.getEventPriority());
+		assertEquals(2, pool.getNumberOfCreatedObjects());
+		assertEquals(2, pool.getNumberOfReusedObjects());
+	}
+
+	@Test
+	public void testRetainedPayloadIsNotReused()
+	{
+		final SimEvent.PooledRouteAdd routeAdd = pool.newRouteAdd(demand, null, 1, 1);
+		routeAdd.retain();
+		final Release release = pool.newPayload(Release.class, Release::new);
+		release.routeAdd = routeAdd;
+		final SimEvent toProcessor = pool.newEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, routeAdd);
+		final SimEvent toGenerator = pool.newEvent(1, SimEvent.DestinationModule.EVENT_GENERATOR, 0, release);
+
+		pool.release(toProcessor);
+		assertSame(demand, routeAdd.demand);
+		assertTrue(pool.newRouteAdd(demand, null, 1, 1) != routeAdd);
+
+		pool.release(toGenerator);
+		assertNull(routeAdd.demand);
+		assertSame(routeAdd, pool.newRouteAdd(demand, null, 1, 1));
+		assertSame(release, pool.newPayload(Release.class, Release::new));
+	}
+
+	@Test(expected = Net2PlanException.class)
+	public void testEventCannotBeReleasedTwice()
+	{
+		final SimEvent event = pool.newEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, pool.newRouteRemove(null));
+		pool.release(event);
+		pool.release(event);
+	}
+
+	@Test
+	public void testNotPooledEventsAreIgnored()
+	{
+		final SimEvent.PooledRouteRemove routeRemove = new SimEvent.PooledRouteRemove();
+		pool.release(new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, routeRemove));
+		assertEquals(0, pool.getNumberOfCreatedObjects());
+		routeRemove.release();
+		assertTrue(pool.newRouteRemove(null) != routeRemove);
+	}
+
+	private static final class Release extends SimEvent.PooledPayload
+	{
+		SimEvent.PooledRouteAdd routeAdd;
+
+		@Override
+		protected void clear()
+		{
+			routeAdd.release();
+			routeAdd = null;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.simulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SimRandomStreamsTest
+{
+	@Test
+	public void testStreamsDependOnlyOnSeedAndName()
+	{
+		final SimRandomStreams streams1 = new SimRandomStreams(7);
+		final SimRandomStreams streams2 = new SimRandomStreams(7);
+
+		/* Requested and used in different orders */
+		final double [] arrivals1 = draw(streams1.getStream("arrivals"), 100);
+		draw(streams1.getStream("srg", 3), 50);
+		draw(streams2.getStream("srg", 3), 10);
+		draw(streams2.getStream("durations"), 10);
+		final double [] arrivals2 = draw(streams2.getStream("arrivals"), 100);
+		assertArrayEquals(arrivals1, arrivals2, 0);
+
+		assertSame(streams1.getStream("arrivals"), streams1.getStream("arrivals"));
+		assertArrayEquals(draw(streams1.newStream("arrivals"), 100), arrivals1, 0);
+		assertFalse(draw(streams1.newStream("srg#4"), 1)[0] == draw(streams1.newStream("srg#3"), 1)[0]);
+		assertFalse(draw(new SimRandomStreams(8).getStream("arrivals"), 1)[0] == arrivals1[0]);
+	}
+
+	@Test
+	public void testParallelReplicasGiveIdenticalResults() throws Exception
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			final List<Future<double []>> results = new ArrayList<Future<double []>>();
+			for (int replica = 0; replica < 8; replica++)
+			{
+				final long seed = replica % 2;
+				results.add(executor.submit(new Callable<double []>()
+				{
+					@Override
+					public double [] call()
+					{
+						final SimRandomStreams streams = new SimRandomStreams(seed);
+						final double [] values = new double [1000];
+						for (int cont = 0; cont < values.length; cont++)
+							values[cont] = streams.getStream("srg", cont % 10).nextExponential(2) + streams.getStream("traffic").nextGaussian();
+						return values;
+					}
+				}));
+			}
+			for (int replica = 2; replica < 8; replica++)
+				assertArrayEquals(results.get(replica % 2).get(), results.get(replica).get(), 0);
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSamplers()
+	{
+		final SimRandomStream stream = new SimRandomStreams(1).getStream("test");
+		final int n = 200000;
+		double sumExponential = 0, sumNormal = 0, sumSquaresNormal = 0, sumPareto = 0;
+		for (int cont = 0; cont < n; cont++)
+		{
+			sumExponential += stream.nextExponential(5);
+			final double normal = stream.nextNormal(10, 2);
+			sumNormal += normal;
+			sumSquaresNormal += normal * normal;
+			final double pareto = stream.nextPareto(3, 2);
+			assertTrue(pareto >= 2);
+			sumPareto += pareto;
+		}
+		assertEquals(5, sumExponential / n, 0.1);
+		assertEquals(10, sumNormal / n, 0.05);
+		assertEquals(4, sumSquaresNormal / n - Math.pow(sumNormal / n, 2), 0.1);
+		assertEquals(3, sumPareto / n, 0.1); // scale * shape / (shape - 1)
+	}
+
+	private static double [] draw(SimRandomStream stream, int number)
+	{
+		final double [] values = new double [number];
+		for (int cont = 0; cont < number; cont++) values[cont] = stream.nextDouble();
+		return values;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class AttributeMapTest
+{
+	@Test
+	public void testAgainstTreeMap()
+	{
+		final Random rng = new Random(1L);
+		final AttributeMap map = new AttributeMap();
+		final TreeMap<String, String> reference = new TreeMap<String, String>();
+		for (int it = 0; it < 50000; it++)
+		{
+			final String key = "key" + rng.nextInt(40);
+			if (rng.nextInt(4) == 0)
+				assertEquals(reference.remove(key), map.remove(key));
+			else
+				assertEquals(reference.put(key, "v" + it), map.put(key, "v" + it));
+			if (rng.nextInt(1000) == 0)
+			{
+				final Iterator<Map.Entry<String, String>> it1 = map.entrySet().iterator();
+				while (it1.hasNext()) if (it1.next().getKey().endsWith("3")) it1.remove();
+				reference.keySet().removeIf(k -> k.endsWith("3"));
+			}
+			assertEquals(reference.size(), map.size());
+		}
+		assertEquals(reference, map);
+		assertEquals(map, reference);
+		assertEquals(reference.firstKey(), map.firstKey());
+		assertEquals(reference.lastKey(), map.lastKey());
+		assertEquals(reference.headMap("key2"), map.headMap("key2"));
+		assertEquals(reference, new AttributeMap(map));
+	}
+
+	@Test
+	public void testKeysAreInterned()
+	{
+		final AttributeMap map1 = new AttributeMap();
+		final AttributeMap map2 = new AttributeMap();
+		map1.put(new String("key"), "1");
+		map2.put(new String("key"), "2");
+		assertSame(map1.firstKey(), map2.firstKey());
+		try
+		{
+			map1.put("", "1");
+			fail();
+		} catch (RuntimeException e)
+		{
+		}
+	}
+
+	@Test
+	public void testTypedValues()
+	{
+		final AttributeMap map = new AttributeMap();
+		map.putNumber("int", 3);
+		map.putNumber("double", 0.1);
+		map.putNumber("float", 0.1f);
+		map.putDoubles("doubles", new double [] { 1.5, -2 }, null);
+		map.putDoubles("integers", new double [] { 1, 2 }, "1 2");
+		map.put("string", " 1.25  3 ");
+		map.put("text", "abc");
+
+		assertEquals("3", map.get("int"));
+		assertEquals("0.1", map.get("double"));
+		assertEquals("0.1", map.get("float"));
+		assertEquals("1.5 -2.0", map.get("doubles"));
+		assertEquals("1 2", map.get("integers"));
+		assertEquals(3.0, map.getDouble("int"), 0);
+		assertEquals(0.1, map.getDouble("float"), 0);
+		assertArrayEquals(new double [] { 1.25, 3 }, map.getDoubles("string"), 0);
+		assertArrayEquals(new double [] { 1.25, 3 }, map.getDoubles("string"), 0);
+		assertEquals(" 1.25  3 ", map.get("string"));
+		assertSame(map.getDoubles("string"), map.getDoubles("string"));
+		map.put("number", "7");
+		assertEquals(7.0, map.getDouble("number"), 0);
+		assertArrayEquals(new double [] { 7 }, map.getDoubles("number"), 0);
+		assertEquals("7", map.get("number"));
+		assertArrayEquals(new double [] { 1.5, -2 }, map.getDoubles("doubles"), 0);
+		assertNull(map.getDouble("missing"));
+		try
+		{
+			map.getDouble("text");
+			fail();
+		} catch (NumberFormatException e)
+		{
+		}
+		assertEquals("abc", map.get("text"));
+
+		/* the copies keep the typed values */
+		final AttributeMap copy = new AttributeMap(map);
+		assertEquals(map, copy);
+		copy.putNumber("int", 4L);
+		assertEquals("3", map.get("int"));
+		assertEquals("4", copy.get("int"));
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongObjectHashMapTest
+{
+	@Test
+	public void testBasicOperations()
+	{
+		LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(3, "a"));
+		assertNull(map.put(-7, "b"));
+		assertEquals("a", map.put(3, "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(3));
+		assertEquals("b", map.get(-7));
+		assertNull(map.get(4));
+		assertEquals("b", map.remove(-7));
+		assertNull(map.remove(-7));
+		assertFalse(map.containsKey(-7));
+		assertEquals(1, map.values().size());
+		map.clear();
+		assertEquals(0, map.size());
+		assertNull(map.get(3));
+	}
+
+	@Test
+	public void testAgainstHashMap()
+	{
+		final Random rng = new Random(1L);
+		LongObjectHashMap<Long> map = new LongObjectHashMap<Long>();
+		Map<Long, Long> reference = new HashMap<Long, Long>();
+		for (int it = 0; it < 200000; it++)
+		{
+			/* sequential identifiers with small gaps, as in NetPlan, plus some collisions in the low bits */
+			final long key = rng.nextBoolean() ? rng.nextInt(5000) : ((long) rng.nextInt(64) << 32);
+			if (rng.nextInt(3) == 0)
+				assertEquals(reference.remove(key), map.remove(key));
+			else
+				assertEquals(reference.put(key, (long) it), map.put(key, (long) it));
+			assertEquals(reference.size(), map.size());
+		}
+		for (long key = 0; key < 5000; key++) assertEquals(reference.get(key), map.get(key));
+		for (long high = 0; high < 64; high++) assertEquals(reference.get(high << 32), map.get(high << 32));
+	}
+}
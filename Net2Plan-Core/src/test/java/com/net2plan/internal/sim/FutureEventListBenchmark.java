@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.Random;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.internal.sim.FutureEventList.FutureEventListType;
+
+/**
+ * <p>Hold-model benchmark of the future event list implementations. The list is filled
+ * with a number of pending events, and then each processed event schedules a new one
+ * with an exponential inter-arrival time, mimicking a connection-level simulation.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code FutureEventListBenchmark [numEvents] [numPendingEvents]}
+ * (defaults: 10^7 events, 10^5 pending events).</p>
+ */
+public class FutureEventListBenchmark
+{
+	public static void main(String[] args)
+	{
+		final long numEvents = args.length > 0 ? Long.parseLong(args[0]) : 10000000L;
+		final int numPending = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+		{
+			for (FutureEventListType type : FutureEventListType.values())
+			{
+				final double seconds = run(type, numEvents, numPending);
+				System.out.println(String.format("%s: %d events, %d pending, %.3f s (%.3g ev/sec)%s", type, numEvents, numPending, seconds, numEvents / seconds, rep == 0 ? " [warm-up]" : ""));
+			}
+		}
+	}
+
+	private static double run(FutureEventListType type, long numEvents, int numPending)
+	{
+		final Random rng = new Random(1L);
+		final FutureEventList fel = new FutureEventList(type);
+		for (int i = 0; i < numPending; i++) fel.addEvent(newEvent(-Math.log(rng.nextDouble()) * numPending));
+
+		final long start = System.nanoTime();
+		for (long i = 0; i < numEvents; i++)
+		{
+			final SimEvent event = fel.getNextEvent();
+			fel.addEvent(newEvent(event.getEventTime() - Math.log(rng.nextDouble()) * numPending));
+		}
+		return (System.nanoTime() - start) / 1e9;
+	}
+
+	private static SimEvent newEvent(double time)
+	{
+		return new SimEvent(time, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null);
+	}
+}
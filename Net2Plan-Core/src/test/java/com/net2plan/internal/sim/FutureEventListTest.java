@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.internal.sim.FutureEventList.FutureEventListType;
+
+public class FutureEventListTest
+{
+	@Test
+	public void testOrderTimeThenPriorityThenInsertion()
+	{
+		for (FutureEventListType type : FutureEventListType.values())
+		{
+			FutureEventList fel = new FutureEventList(type);
+			SimEvent late = newEvent(2.0, 0);
+			SimEvent lowPriority = newEvent(1.0, -1);
+			SimEvent highPriority = newEvent(1.0, 5);
+			SimEvent firstInserted = newEvent(1.0, 0);
+			SimEvent secondInserted = newEvent(1.0, 0);
+			fel.addEvent(late);
+			fel.addEvent(lowPriority);
+			fel.addEvent(firstInserted);
+			fel.addEvent(highPriority);
+			fel.addEvent(secondInserted);
+
+			assertSame(highPriority, fel.getNextEvent());
+			assertSame(firstInserted, fel.getNextEvent());
+			assertSame(secondInserted, fel.getNextEvent());
+			assertSame(lowPriority, fel.getNextEvent());
+			assertSame(late, fel.getNextEvent());
+			assertFalse(fel.hasMoreEvents());
+			assertEquals(2.0, fel.getCurrentSimulationTime(), 0);
+		}
+	}
+
+	@Test
+	public void testCalendarQueueMatchesBinaryHeap()
+	{
+		Random rng = new Random(1L);
+		FutureEventList heap = new FutureEventList(FutureEventListType.BINARY_HEAP);
+		FutureEventList calendar = new FutureEventList(FutureEventListType.CALENDAR_QUEUE);
+		List<SimEvent> toRemove = new ArrayList<SimEvent>();
+
+		/* Hold model with bursts of enqueues and dequeues, so that the calendar is resized up and down */
+		for (int round = 0; round < 200; round++)
+		{
+			final int numAdds = rng.nextInt(500);
+			for (int i = 0; i < numAdds; i++)
+			{
+				final double now = heap.getCurrentSimulationTime();
+				final double time = rng.nextInt(10) == 0 ? now : now + (rng.nextBoolean() ? rng.nextInt(5) : -Math.log(rng.nextDouble()) * 10);
+				SimEvent event = newEvent(time, rng.nextInt(3));
+				heap.addEvent(event);
+				calendar.addEvent(event);
+				if (rng.nextInt(50) == 0) toRemove.add(event);
+			}
+			for (SimEvent event : toRemove)
+			{
+				heap.remove(event);
+				calendar.remove(event);
+			}
+			toRemove.clear();
+
+			assertEquals(heap.getNumberOfPendingEvents(), calendar.getNumberOfPendingEvents());
+			assertEquals(heap.getPendingEventsInOrder(), calendar.getPendingEventsInOrder());
+
+			final int numPolls = rng.nextInt(500);
+			for (int i = 0; i < numPolls && heap.hasMoreEvents(); i++)
+			{
+				assertEquals(heap.getNextEventSimulationTime(), calendar.getNextEventSimulationTime(), 0);
+				assertSame(heap.getNextEvent(), calendar.getNextEvent());
+			}
+		}
+
+		while (heap.hasMoreEvents()) assertSame(heap.getNextEvent(), calendar.getNextEvent());
+		assertFalse(calendar.hasMoreEvents());
+		assertEquals(heap.getNumberOfProcessedEvents(), calendar.getNumberOfProcessedEvents());
+	}
+
+	@Test
+	public void testTypeChangeOnlyWhenEmpty()
+	{
+		FutureEventList fel = new FutureEventList();
+		assertEquals(FutureEventListType.BINARY_HEAP, fel.getFutureEventListType());
+		fel.setFutureEventListType(FutureEventListType.CALENDAR_QUEUE);
+		fel.addEvent(newEvent(1.0, 0));
+		boolean failed = false;
+		try { fel.setFutureEventListType(FutureEventListType.BINARY_HEAP); }
+		catch (RuntimeException e) { failed = true; }
+		assertTrue(failed);
+		assertEquals(FutureEventListType.CALENDAR_QUEUE, FutureEventListType.fromLabel("calendarQueue"));
+	}
+
+	private static SimEvent newEvent(double time, int priority)
+	{
+		return new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, -1, priority, null);
+	}
+}
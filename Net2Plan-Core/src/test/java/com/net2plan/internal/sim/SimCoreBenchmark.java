@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.internal.sim.SimCoreTest.HoldModelCallback;
+
+/**
+ * <p>Events-per-second benchmark of the simulation loop, with a trivial event processing (each event
+ * schedules a new one), so that the overhead of the loop itself dominates. The interactive loop, with per-event
+ * synchronization and timing as in previous versions, is compared with the headless loop used when no
+ * GUI listener is attached.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code SimCoreBenchmark [numEvents]} (default: 2*10^7 events).</p>
+ */
+public class SimCoreBenchmark
+{
+	public static void main(String[] args)
+	{
+		final long numEvents = args.length > 0 ? Long.parseLong(args[0]) : 20000000L;
+
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+		{
+			for (boolean interactive : new boolean[] { true, false })
+			{
+				final double seconds = run(interactive, numEvents);
+				System.out.println(String.format("%s: %d events, %.3f s (%.3g ev/sec)%s", interactive ? "interactive" : "headless", numEvents, seconds, numEvents / seconds, rep == 0 ? " [warm-up]" : ""));
+			}
+		}
+	}
+
+	private static double run(boolean interactive, long numEvents)
+	{
+		HoldModelCallback callback = new HoldModelCallback(interactive);
+		SimCore simCore = callback.simCore;
+		simCore.setTotalSimulationEvents(numEvents);
+		simCore.getFutureEventList().addEvent(new SimEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		simCore.setSimulationState(SimCore.SimState.RUNNING);
+
+		final long start = System.nanoTime();
+		simCore.run();
+		return (System.nanoTime() - start) / 1e9;
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+public class SimCoreTest
+{
+	@Test
+	public void testHeadlessRunStopsAfterTotalEvents()
+	{
+		HoldModelCallback callback = new HoldModelCallback(false);
+		SimCore simCore = callback.simCore;
+		simCore.setTotalSimulationEvents(5000);
+		simCore.getFutureEventList().addEvent(new SimEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		simCore.setSimulationState(SimCore.SimState.RUNNING);
+		simCore.run();
+
+		assertEquals(5000, callback.processedEvents.get());
+		assertEquals(SimCore.SimState.STOPPED, simCore.getSimulationState());
+		assertTrue(callback.lastReason instanceof EndSimulationException);
+	}
+
+	@Test
+	public void testInteractivePauseResumeAndStopFromAnotherThread() throws InterruptedException
+	{
+		HoldModelCallback callback = new HoldModelCallback(true);
+		SimCore simCore = callback.simCore;
+		simCore.getFutureEventList().addEvent(new SimEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		simCore.setSimulationState(SimCore.SimState.RUNNING);
+		Thread simThread = new Thread(simCore);
+		simThread.start();
+
+		waitForEvents(callback, 1000);
+		simCore.setSimulationState(SimCore.SimState.PAUSED);
+		final long eventsWhenPaused = callback.processedEvents.get();
+		Thread.sleep(50);
+		assertEquals(eventsWhenPaused, callback.processedEvents.get());
+
+		simCore.setSimulationState(SimCore.SimState.RUNNING);
+		waitForEvents(callback, eventsWhenPaused + 1000);
+
+		simCore.setSimulationState(SimCore.SimState.STOPPED);
+		simThread.join(10000);
+		assertFalse(simThread.isAlive());
+	}
+
+	private static void waitForEvents(HoldModelCallback callback, long numEvents) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (callback.processedEvents.get() < numEvents && System.currentTimeMillis() < deadline) Thread.sleep(1);
+		assertTrue(callback.processedEvents.get() >= numEvents);
+	}
+
+	/* Each processed event schedules a new one, one time unit later */
+	static final class HoldModelCallback implements IEventCallback
+	{
+		final SimCore simCore = new SimCore(this);
+		final AtomicLong processedEvents = new AtomicLong();
+		final boolean interactive;
+		volatile Throwable lastReason;
+
+		HoldModelCallback(boolean interactive)
+		{
+			this.interactive = interactive;
+		}
+
+		@Override
+		public void refresh(boolean forceRefresh)
+		{
+		}
+
+		@Override
+		public void simulationStateChanged(SimCore.SimState simulationState, Throwable reason)
+		{
+			lastReason = reason;
+		}
+
+		@Override
+		public void endTransitory()
+		{
+		}
+
+		@Override
+		public void finishTransitory(double currentSimTime)
+		{
+		}
+
+		@Override
+		public boolean isInteractive()
+		{
+			return interactive;
+		}
+
+		@Override
+		public void processEvent(SimEvent event)
+		{
+			processedEvents.incrementAndGet();
+			scheduleEvent(new SimEvent(event.getEventTime() + 1, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		}
+
+		@Override
+		public void scheduleEvent(SimEvent event)
+		{
+			simCore.getFutureEventList().addEvent(event);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.WDMUtils;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.utils.Triple;
+
+import cern.colt.matrix.tint.IntFactory2D;
+
+public class SimEventTraceTest
+{
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetPlan np;
+	private File traceFile;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "node1", null);
+		final Node n2 = np.addNode(1, 0, "node2", null);
+		final Node n3 = np.addNode(2, 0, "node3", null);
+		final Link link12 = np.addLink(n1, n2, 100, 100, 200000, null);
+		final Link link23 = np.addLink(n2, n3, 100, 100, 200000, null);
+		final Link link13 = np.addLink(n1, n3, 100, 100, 200000, null);
+		final Demand d13 = np.addDemand(n1, n3, 10, RoutingType.SOURCE_ROUTING, null);
+		final NetPlan initialNetPlan = np.copy();
+
+		/* The simulation: routes are added and removed, and a link fails and is repaired */
+		traceFile = temporaryFolder.newFile("trace.bin");
+		final RouteProcessor processor = new RouteProcessor();
+		final LinkedList<Route> routes = new LinkedList<>();
+		try (SimEventTraceWriter writer = new SimEventTraceWriter(traceFile, 10, initialNetPlan))
+		{
+			for (int t = 0; t < 100; t++)
+			{
+				final Object object;
+				if (t % 25 == 7) object = new SimEvent.NodesAndLinksChangeFailureState(null, null, null, Collections.singleton(link13));
+				else if (t % 25 == 9) object = new SimEvent.NodesAndLinksChangeFailureState(null, null, Collections.singleton(link13), null);
+				else if (t % 3 == 2) object = new SimEvent.RouteRemove(routes.removeFirst());
+				else object = new SimEvent.RouteAdd(d13, t % 2 == 0 ? Arrays.asList(link12, link23) : Collections.singletonList(link13), t, t + 1);
+				final SimEvent event = new SimEvent(t, SimEvent.DestinationModule.EVENT_PROCESSOR, t % 4, t % 2, object);
+				writer.record(event, np);
+				processor.processEvent(np, event);
+				if (object instanceof SimEvent.RouteAdd) routes.add(((SimEvent.RouteAdd) object).routeAddedToFillByProcessor);
+			}
+		}
+	}
+
+	@Test
+	public void testReplayFromTheStartAndFromACheckpoint()
+	{
+		try (SimEventTraceReplay replay = new SimEventTraceReplay(traceFile))
+		{
+			assertEquals(10, replay.getCheckpointTimes().size());
+			assertEquals(0.0, replay.getCheckpointTimes().get(0), 0);
+			assertEquals(50.0, replay.getCheckpointTimes().get(5), 0);
+			assertEquals(0, replay.getCheckpoint(5).getNumberOfRoutes());
+
+			final RouteProcessor processor = new RouteProcessor();
+			checkSameRoutes(np, replay.replay(processor, new HashMap<>(), new HashMap<>(), new HashMap<>(), 0, -1));
+			assertEquals(100, replay.getNumberOfReplayedEvents());
+			assertEquals(100, processor.events.size());
+			assertEquals(99.0, processor.events.get(99).getEventTime(), 0);
+			assertEquals(1, processor.events.get(99).getEventPriority());
+			assertEquals(3, processor.events.get(99).getEventType());
+
+			checkSameRoutes(np, replay.replay(new RouteProcessor(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 55, -1));
+			assertEquals(50, replay.getNumberOfReplayedEvents());
+
+			final NetPlan atTime30 = replay.replay(new RouteProcessor(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 30, 30);
+			assertEquals(1, replay.getNumberOfReplayedEvents());
+			final NetPlan checkpoint31 = replay.getCheckpoint(31);
+			assertEquals(checkpoint31.getNumberOfRoutes() + 1, atTime30.getNumberOfRoutes());
+		}
+	}
+
+	@Test
+	public void testReplayOfATraceNotClosed() throws Exception
+	{
+		try (RandomAccessFile raf = new RandomAccessFile(traceFile, "rw"))
+		{
+			raf.setLength(raf.length() - SimEventTraceFormat.TRAILER_LENGTH - 20);
+		}
+		try (SimEventTraceReplay replay = new SimEventTraceReplay(traceFile))
+		{
+			assertEquals(10, replay.getCheckpointTimes().size());
+			checkSameRoutes(np, replay.replay(new RouteProcessor(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 95, -1));
+			assertTrue(replay.getNumberOfReplayedEvents() > 0);
+		}
+	}
+
+	@Test
+	public void testLightpathEventsAndEventsNotRecorded() throws Exception
+	{
+		final Demand demand = np.getDemand(0);
+		final Link link = np.getLink(2);
+		final Route lp = np.addRoute(demand, 1, 1, Collections.singletonList(link), null);
+		final File lightpathTraceFile = temporaryFolder.newFile("lightpaths.bin");
+		try (SimEventTraceWriter writer = new SimEventTraceWriter(lightpathTraceFile, 0, np))
+		{
+			final WDMUtils.RSA rsa = new WDMUtils.RSA(Collections.singletonList(link), IntFactory2D.dense.make(1, 1, 3), null);
+			writer.record(new SimEvent(1, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, new WDMUtils.LightpathAdd(demand, rsa, 10)), np);
+			writer.record(new SimEvent(2, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, new Object()), np);
+			writer.record(new SimEvent(3, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, new WDMUtils.LightpathModify(lp, rsa, 5)), np);
+			writer.record(new SimEvent(4, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, new WDMUtils.LightpathRemove(lp)), np);
+		}
+		try (SimEventTraceReplay replay = new SimEventTraceReplay(lightpathTraceFile))
+		{
+			final RouteProcessor processor = new RouteProcessor();
+			replay.replay(processor, new HashMap<>(), new HashMap<>(), new HashMap<>(), 0, -1);
+			assertEquals(3, processor.events.size());
+			final WDMUtils.LightpathAdd lpAdd = (WDMUtils.LightpathAdd) processor.events.get(0).getEventObject();
+			assertEquals(demand.getId(), lpAdd.demand.getId());
+			assertEquals(link.getId(), lpAdd.primaryRSA.seqLinks.get(0).getId());
+			assertEquals(3, lpAdd.primaryRSA.seqFrequencySlots_se.get(0, 0));
+			assertNull(lpAdd.backupRSA);
+			assertEquals(10, lpAdd.lineRateGbps, 0);
+			final WDMUtils.LightpathModify lpModify = (WDMUtils.LightpathModify) processor.events.get(1).getEventObject();
+			assertEquals(lp.getId(), lpModify.lp.getId());
+			assertEquals(5, lpModify.carriedTraffic, 0);
+			assertEquals(lp.getId(), ((WDMUtils.LightpathRemove) processor.events.get(2).getEventObject()).lp.getId());
+		}
+	}
+
+	private static void checkSameRoutes(NetPlan expected, NetPlan actual)
+	{
+		assertEquals(expected.getNumberOfRoutes(), actual.getNumberOfRoutes());
+		for (Route route : expected.getRoutes())
+		{
+			final Route other = actual.getRouteFromId(route.getId());
+			assertEquals(route.getCarriedTraffic(), other.getCarriedTraffic(), 0);
+			assertEquals(route.getSeqLinks().size(), other.getSeqLinks().size());
+		}
+		assertEquals(expected.getLinkFromId(expected.getLink(2).getId()).isUp(), actual.getLinkFromId(expected.getLink(2).getId()).isUp());
+	}
+
+	/* Applies the route and failure events to the design */
+	static final class RouteProcessor extends IEventProcessor
+	{
+		final List<SimEvent> events = new ArrayList<>();
+
+		@Override
+		public String getDescription() { return null; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters() { return new ArrayList<>(); }
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters) { }
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			events.add(event);
+			final Object object = event.getEventObject();
+			if (object instanceof SimEvent.RouteAdd)
+			{
+				final SimEvent.RouteAdd routeAdd = (SimEvent.RouteAdd) object;
+				routeAdd.routeAddedToFillByProcessor = currentNetPlan.addRoute(routeAdd.demand, routeAdd.carriedTraffic, routeAdd.occupiedLinkCapacity, routeAdd.seqLinks, null);
+			}
+			else if (object instanceof SimEvent.RouteRemove)
+				((SimEvent.RouteRemove) object).route.remove();
+			else if (object instanceof SimEvent.NodesAndLinksChangeFailureState)
+			{
+				final SimEvent.NodesAndLinksChangeFailureState failure = (SimEvent.NodesAndLinksChangeFailureState) object;
+				currentNetPlan.setLinksAndNodesFailureState(failure.linksToUp, failure.linksToDown, failure.nodesToUp, failure.nodesToDown);
+			}
+		}
+	}
+}
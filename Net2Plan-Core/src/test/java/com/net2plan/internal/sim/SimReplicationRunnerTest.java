@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.net2plan.internal.sim.SimReplicationRunner.MetricSummary;
+import com.net2plan.internal.sim.SimReplicationRunner.Replication;
+
+public class SimReplicationRunnerTest
+{
+	@Test
+	public void testMergeMetrics()
+	{
+		List<Replication> replications = new ArrayList<Replication>();
+		for (int index = 0; index < 5; index++)
+		{
+			Replication replication = new Replication(index, index);
+			replication.metrics = new LinkedHashMap<String, Double>();
+			replication.metrics.put("layer.0.avgCarriedTraffic", index + 1.0);
+			if (index == 0) replication.metrics.put("demand.7.availabilityClassic", 0.5);
+			replications.add(replication);
+		}
+
+		Map<String, MetricSummary> merged = SimReplicationRunner.mergeMetrics(replications, 0.95);
+		assertEquals(2, merged.size());
+
+		MetricSummary carried = merged.get("layer.0.avgCarriedTraffic");
+		assertEquals(5, carried.getNumberOfReplications());
+		assertEquals(3.0, carried.getMean(), 1e-12);
+		assertEquals(Math.sqrt(2.5), carried.getStandardDeviation(), 1e-12);
+		assertEquals(2.776445 * Math.sqrt(2.5) / Math.sqrt(5), carried.getConfidenceIntervalHalfWidth(), 1e-5);
+		assertEquals(1.0, carried.getMinimum(), 0);
+		assertEquals(5.0, carried.getMaximum(), 0);
+
+		MetricSummary single = merged.get("demand.7.availabilityClassic");
+		assertEquals(1, single.getNumberOfReplications());
+		assertEquals(0.5, single.getMean(), 0);
+		assertTrue(Double.isNaN(single.getConfidenceIntervalHalfWidth()));
+	}
+}
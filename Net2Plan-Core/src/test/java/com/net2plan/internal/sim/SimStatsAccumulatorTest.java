@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SimStatsAccumulatorTest
+{
+	@Test
+	public void testLazyTimeWeightedAccumulation()
+	{
+		SimStatsAccumulator acc = new SimStatsAccumulator(2);
+		final int slot = acc.allocate(1.0);
+
+		acc.set(slot, 0, 5);
+		acc.advance(slot, 3.0); /* value 5 during 2 time units */
+		acc.set(slot, 0, 7);
+		acc.set(slot, 0, 2); /* only the last value at the same time counts */
+		acc.advance(slot, 3.0);
+		acc.advance(slot, 4.0); /* value 2 during 1 time unit */
+
+		assertEquals(12.0, acc.getAccum(slot, 0), 1e-12);
+		assertEquals(2.0, acc.getMin(slot, 0), 0);
+		assertEquals(5.0, acc.getMax(slot, 0), 0);
+		assertEquals(3.0, acc.getTotalTime(slot), 1e-12);
+		assertEquals(0.0, acc.getAccum(slot, 1), 0);
+		assertEquals(0.0, acc.getMin(slot, 1), 0);
+	}
+
+	@Test
+	public void testSlotReuseAndUntrackedElements()
+	{
+		SimStatsAccumulator acc = new SimStatsAccumulator(1);
+		for (int i = 0; i < 100; i++) acc.set(acc.allocate(0), 0, i);
+		assertEquals(100, acc.getNumberOfSlotsInUse());
+		assertEquals(99.0, acc.getMaxCurrentValue(0), 0);
+
+		acc.release(99);
+		assertEquals(98.0, acc.getMaxCurrentValue(0), 0);
+		final int reused = acc.allocate(10);
+		assertEquals(99, reused);
+		assertEquals(0.0, acc.get(reused, 0), 0);
+		assertEquals(Double.MAX_VALUE, acc.getMin(reused, 0), 0);
+
+		assertEquals(0.0, acc.getTotalTime(SimStatsAccumulator.NO_SLOT), 0);
+		assertEquals(Double.MAX_VALUE, acc.getMin(SimStatsAccumulator.NO_SLOT, 0), 0);
+	}
+}
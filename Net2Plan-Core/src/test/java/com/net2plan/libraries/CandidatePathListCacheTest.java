@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+
+public class CandidatePathListCacheTest
+{
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@After
+	public void tearDown()
+	{
+		CandidatePathListCache.getInstance().setDirectory(null);
+		CandidatePathListCache.getInstance().setMaxPathListsInMemory(4);
+		CandidatePathListCache.getInstance().clear();
+	}
+
+	@Test
+	public void testCachedPathsAreTheComputedOnes() throws Exception
+	{
+		final NetPlan np = createRandomDesign(new Random(1L), 30);
+		final File directory = temporaryFolder.newFolder();
+		CandidatePathListCache.getInstance().setDirectory(directory);
+		CandidatePathListCache.getInstance().setMaxPathListsInMemory(8);
+
+		final SortedMap<Pair<Node, Node>, List<List<Link>>> computed = np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null);
+		for (Map.Entry<Pair<Node, Node>, List<List<Link>>> entry : computed.entrySet())
+			assertEquals(GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(), entry.getKey().getFirst(), entry.getKey().getSecond(), null, 4, -1, -1, -1, -1, -1, -1), entry.getValue());
+		assertEquals(computed, np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null));
+
+		/* read from the directory, as in a new execution */
+		CandidatePathListCache.getInstance().clear();
+		assertEquals(1, directory.listFiles().length);
+		assertEquals(computed, np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null));
+
+		/* a copy of the design has the same topology, then the same paths */
+		final NetPlan copy = np.copy();
+		final SortedMap<Pair<Node, Node>, List<List<Link>>> computedInCopy = copy.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null);
+		assertEquals(computed.size(), computedInCopy.size());
+		for (Map.Entry<Pair<Node, Node>, List<List<Link>>> entry : computed.entrySet())
+		{
+			final Pair<Node, Node> pairInCopy = Pair.of(copy.getNode(entry.getKey().getFirst().getIndex()), copy.getNode(entry.getKey().getSecond().getIndex()));
+			assertEquals(getLinkIndexes(entry.getValue()), getLinkIndexes(computedInCopy.get(pairInCopy)));
+		}
+
+		/* a change in the topology gives new paths */
+		final Link e = np.getLink(0);
+		e.setLengthInKm(1000);
+		final SortedMap<Pair<Node, Node>, List<List<Link>>> afterChange = np.computeUnicastCandidatePathList(null, 4, 500, -1, -1, -1, -1, -1, null);
+		for (List<List<Link>> paths : afterChange.values())
+			for (List<Link> path : paths)
+				assertFalse(path.contains(e));
+	}
+
+	@Test
+	public void testInvalidFilesAreIgnored() throws Exception
+	{
+		final NetPlan np = createRandomDesign(new Random(1L), 10);
+		final File directory = temporaryFolder.newFolder();
+		CandidatePathListCache.getInstance().setDirectory(directory);
+		final SortedMap<Pair<Node, Node>, List<List<Link>>> computed = np.computeUnicastCandidatePathList(null, 3, -1, -1, -1, -1, -1, -1, null);
+		final File file = directory.listFiles()[0];
+		final byte[] contents = Files.readAllBytes(file.toPath());
+
+		/* truncated, with a huge count, with a link index out of range, and with trailing bytes */
+		final List<byte[]> invalidContents = new ArrayList<>();
+		invalidContents.add(Arrays.copyOf(contents, contents.length / 2));
+		invalidContents.add(ByteBuffer.allocate(8).putInt(1).putInt(Integer.MAX_VALUE).array());
+		invalidContents.add(ByteBuffer.allocate(32).putInt(1).putInt(1).putLong(1).putInt(1).putInt(1).putInt(np.getNumberOfLinks()).array());
+		invalidContents.add(Arrays.copyOf(contents, contents.length + 1));
+		for (byte[] invalid : invalidContents)
+		{
+			Files.write(file.toPath(), invalid);
+			assertEquals(computed, np.computeUnicastCandidatePathList(null, 3, -1, -1, -1, -1, -1, -1, null));
+			assertTrue(Arrays.equals(contents, Files.readAllBytes(file.toPath())));
+		}
+		assertEquals(1, directory.listFiles().length);
+	}
+
+	private static List<List<Integer>> getLinkIndexes(List<List<Link>> paths)
+	{
+		final List<List<Integer>> res = new ArrayList<>();
+		for (List<Link> path : paths)
+		{
+			final List<Integer> indexes = new ArrayList<>();
+			for (Link e : path) indexes.add(e.getIndex());
+			res.add(indexes);
+		}
+		return res;
+	}
+
+	private static NetPlan createRandomDesign(Random rng, int N)
+	{
+		final NetPlan np = new NetPlan();
+		for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+		for (int n = 0; n < N; n++) np.addLinkBidirectional(np.getNode(n), np.getNode((n + 1) % N), 10, 100, 200000, null);
+		for (int cont = 0; cont < N; cont++)
+		{
+			final int a = rng.nextInt(N);
+			np.addLinkBidirectional(np.getNode(a), np.getNode((a + 1 + rng.nextInt(N - 1)) % N), 10, 100, 200000, null);
+		}
+		return np;
+	}
+}
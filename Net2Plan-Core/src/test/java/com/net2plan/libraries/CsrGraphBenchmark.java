@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections15.Transformer;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * <p>Compares the shortest path, K-shortest path (Yen) and two link-disjoint path (Suurballe) computations of {@link GraphUtils}, based on {@link CsrGraph},
+ * with the previous implementation, which builds a JUNG graph in each call. Random topologies of 1000 to 10000 nodes are used, with a bidirectional ring
+ * and random bidirectional chords (average node degree of 6), and random link costs. For each size and algorithm, prints the average time per origin-destination pair.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code CsrGraphBenchmark [numPairs] [K]}.</p>
+ */
+public class CsrGraphBenchmark
+{
+	private static final int [] NUM_NODES = { 1000, 2000, 5000, 10000 };
+
+	public static void main(String[] args)
+	{
+		final int numPairs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		final int K = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+			for (int N : NUM_NODES)
+				run(N, numPairs, K, rep == 0);
+	}
+
+	private static void run(int N, int numPairs, int K, boolean isWarmUp)
+	{
+		final Random rng = new Random(1L);
+		final NetPlan np = new NetPlan();
+		for (int n = 0; n < N; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (int n = 0; n < N; n++) np.addLinkBidirectional(np.getNode(n), np.getNode((n + 1) % N), 100, 100, 200000, null);
+		for (int cont = 0; cont < 2 * N; cont++)
+		{
+			final int a = rng.nextInt(N);
+			final int b = (a + 1 + rng.nextInt(N - 1)) % N;
+			np.addLinkBidirectional(np.getNode(a), np.getNode(b), 100, 100, 200000, null);
+		}
+		final Map<Link, Double> linkCostMap = new HashMap<>();
+		for (Link e : np.getLinks()) linkCostMap.put(e, 1.0 + rng.nextInt(100));
+		final Node [][] pairs = new Node [numPairs][];
+		for (int p = 0; p < numPairs; p++)
+		{
+			final int a = rng.nextInt(N);
+			pairs[p] = new Node [] { np.getNode(a), np.getNode((a + 1 + rng.nextInt(N - 1)) % N) };
+		}
+		final String prefix = String.format("%6d nodes %6d links", N, np.getNumberOfLinks()) + (isWarmUp ? " [warm-up]" : "");
+
+		final double jungShortestPath = time(pairs, pair -> {
+			final Graph<Node, Link> graph = GraphUtils.JUNGUtils.getGraphFromLinkMap(np.getNodes(), np.getLinks());
+			GraphUtils.JUNGUtils.getShortestPath(graph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap), pair[0], pair[1]);
+		});
+		final double csrShortestPath = time(pairs, pair -> GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), pair[0], pair[1], linkCostMap));
+		System.out.println(String.format("%s, shortest path:          JUNG %10.3f ms, CSR %10.3f ms", prefix, jungShortestPath, csrShortestPath));
+
+		final double jungKShortestPaths = time(pairs, pair -> {
+			final Graph<Node, Link> graph = GraphUtils.JUNGUtils.getGraphFromLinkMap(np.getNodes(), np.getLinks());
+			GraphUtils.JUNGUtils.getKLooplessShortestPaths(graph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap), pair[0], pair[1], K);
+		});
+		final double csrKShortestPaths = time(pairs, pair -> GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(), pair[0], pair[1], linkCostMap, K, -1, -1, -1, -1, -1, -1));
+		System.out.println(String.format("%s, %2d-shortest paths:      JUNG %10.3f ms, CSR %10.3f ms", prefix, K, jungKShortestPaths, csrKShortestPaths));
+
+		final double jungDisjointPaths = time(pairs, pair -> {
+			final Graph<Node, Link> graph = GraphUtils.JUNGUtils.getGraphFromLinkMap(np.getNodes(), np.getLinks());
+			final Transformer<Link, Double> nev = GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap);
+			final List<List<Link>> paths = GraphUtils.JUNGUtils.getTwoLinkDisjointPaths(graph, nev, pair[0], pair[1]);
+			if (paths.isEmpty()) throw new RuntimeException("Bad");
+		});
+		final double csrDisjointPaths = time(pairs, pair -> GraphUtils.getTwoLinkDisjointPaths(np.getNodes(), np.getLinks(), pair[0], pair[1], linkCostMap));
+		System.out.println(String.format("%s, two link-disjoint paths: JUNG %10.3f ms, CSR %10.3f ms", prefix, jungDisjointPaths, csrDisjointPaths));
+	}
+
+	/* Average time in ms per pair */
+	private static double time(Node [][] pairs, Consumer<Node []> computation)
+	{
+		final long start = System.nanoTime();
+		for (Node [] pair : pairs) computation.accept(pair);
+		return (System.nanoTime() - start) / 1e6 / pairs.length;
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.CheckRoutingCycleType;
+
+public class CsrGraphTest
+{
+	@Test
+	public void testAgainstEnumerationOfAllPaths()
+	{
+		final Random rng = new Random(1L);
+		for (int it = 0; it < 300; it++)
+		{
+			final NetPlan np = new NetPlan();
+			final int N = 3 + rng.nextInt(5);
+			for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+			for (int cont = 0; cont < 3 * N; cont++)
+			{
+				final int a = rng.nextInt(N);
+				final int b = (a + 1 + rng.nextInt(N - 1)) % N;
+				np.addLink(np.getNode(a), np.getNode(b), 10, 100, 200000, null);
+			}
+			final Map<Link, Double> linkCostMap = new HashMap<>();
+			for (Link e : np.getLinks()) linkCostMap.put(e, rng.nextInt(10) == 0 ? Double.MAX_VALUE : (double) rng.nextInt(4));
+			final Node originNode = np.getNode(0);
+			final Node destinationNode = np.getNode(N - 1);
+			final List<List<Link>> allPaths = new ArrayList<>();
+			enumeratePaths(originNode, destinationNode, linkCostMap, new ArrayList<>(), new HashSet<>(), allPaths);
+			allPaths.sort((p1, p2) -> Double.compare(getCost(p1, linkCostMap), getCost(p2, linkCostMap)));
+
+			final List<Link> sp = GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), originNode, destinationNode, linkCostMap);
+			if (allPaths.isEmpty()) assertTrue(sp.isEmpty());
+			else assertEquals(getCost(allPaths.get(0), linkCostMap), getCost(sp, linkCostMap), 1e-9);
+
+			final List<List<Link>> kPaths = GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(), originNode, destinationNode, linkCostMap, 5, -1, -1, -1, -1, -1, -1);
+			assertEquals(Math.min(5, allPaths.size()), kPaths.size());
+			assertEquals(kPaths.size(), new HashSet<>(kPaths).size());
+			for (int k = 0; k < kPaths.size(); k++)
+			{
+				assertEquals(getCost(allPaths.get(k), linkCostMap), getCost(kPaths.get(k), linkCostMap), 1e-9);
+				GraphUtils.checkRouteContinuity(kPaths.get(k), CheckRoutingCycleType.NO_REPEAT_NODE);
+			}
+
+			double bestDisjointPairCost = Double.MAX_VALUE;
+			for (List<Link> p1 : allPaths)
+				for (List<Link> p2 : allPaths)
+					if (p1 != p2 && p1.stream().noneMatch(p2::contains)) bestDisjointPairCost = Math.min(bestDisjointPairCost, getCost(p1, linkCostMap) + getCost(p2, linkCostMap));
+			final List<List<Link>> disjointPaths = GraphUtils.getTwoLinkDisjointPaths(np.getNodes(), np.getLinks(), originNode, destinationNode, linkCostMap);
+			if (allPaths.isEmpty()) assertTrue(disjointPaths.isEmpty());
+			else if (bestDisjointPairCost == Double.MAX_VALUE) assertEquals(1, disjointPaths.size());
+			else
+			{
+				assertEquals(2, disjointPaths.size());
+				assertTrue(disjointPaths.get(0).stream().noneMatch(disjointPaths.get(1)::contains));
+				assertTrue(getCost(disjointPaths.get(0), linkCostMap) <= getCost(disjointPaths.get(1), linkCostMap));
+				assertEquals(bestDisjointPairCost, getCost(disjointPaths.get(0), linkCostMap) + getCost(disjointPaths.get(1), linkCostMap), 1e-9);
+				for (List<Link> path : disjointPaths) GraphUtils.checkRouteContinuity(path, CheckRoutingCycleType.NO_REPEAT_NODE);
+			}
+		}
+	}
+
+	@Test
+	public void testLayerGraphIsRebuiltOnlyWhenTheTopologyChanges()
+	{
+		final NetPlan np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "n1", null);
+		final Node n2 = np.addNode(0, 0, "n2", null);
+		final Node n3 = np.addNode(0, 0, "n3", null);
+		np.addLink(n1, n2, 10, 100, 200000, null);
+		np.addLink(n2, n3, 10, 100, 200000, null);
+		final CsrGraph graph = CsrGraph.getFromLayer(np);
+		assertSame(graph, CsrGraph.getFromCollections(np.getNodes(), np.getLinks()));
+		assertNotSame(graph, CsrGraph.getFromCollections(np.getNodes(), np.getLinks().subList(0, 1)));
+		np.getLink(0).setAttribute("key", "value");
+		assertSame(graph, CsrGraph.getFromLayer(np));
+		final Link e13 = np.addLink(n1, n3, 10, 100, 200000, null);
+		final CsrGraph newGraph = CsrGraph.getFromLayer(np);
+		assertNotSame(graph, newGraph);
+		assertEquals(3, newGraph.getNumberOfLinks());
+		assertEquals(1, GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), n1, n3, null).size());
+		e13.remove();
+		assertEquals(2, GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), n1, n3, null).size());
+	}
+
+	private static void enumeratePaths(Node node, Node destinationNode, Map<Link, Double> linkCostMap, List<Link> path, Set<Node> visitedNodes, List<List<Link>> allPaths)
+	{
+		if (node == destinationNode) { allPaths.add(new ArrayList<>(path)); return; }
+		visitedNodes.add(node);
+		for (Link e : node.getOutgoingLinks())
+		{
+			if (linkCostMap.get(e) == Double.MAX_VALUE || visitedNodes.contains(e.getDestinationNode())) continue;
+			path.add(e);
+			enumeratePaths(e.getDestinationNode(), destinationNode, linkCostMap, path, visitedNodes, allPaths);
+			path.remove(path.size() - 1);
+		}
+		visitedNodes.remove(node);
+	}
+
+	private static double getCost(List<Link> path, Map<Link, Double> linkCostMap)
+	{
+		return path.stream().mapToDouble(linkCostMap::get).sum();
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+import com.net2plan.utils.Constants.RoutingType;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+public class FailureStateEvaluatorTest
+{
+	private NetPlan np;
+
+	@Before
+	public void setUp()
+	{
+		this.np = new NetPlan();
+		final List<Node> nodes = new ArrayList<>();
+		for (int n = 0; n < 6; n++) nodes.add(np.addNode(0, 0, "n" + n, null));
+		for (int n = 0; n < 6; n++)
+		{
+			final Link e = np.addLink(nodes.get(n), nodes.get((n + 1) % 6), 100, 100, 200000, null);
+			np.addSRG(1000 * (n + 1), 12, null).addLink(e);
+		}
+		np.addDemand(nodes.get(0), nodes.get(3), 10, RoutingType.SOURCE_ROUTING, null);
+	}
+
+	@Test
+	public void testFailureStatesAsSRGUtils()
+	{
+		for (boolean doubleFailures : new boolean [] { false, true })
+		{
+			final FailureStateEvaluator evaluator = new FailureStateEvaluator(np, np.getSRGs(), true, doubleFailures);
+			final List<SortedSet<SharedRiskGroup>> expectedStates = SRGUtils.enumerateFailureStates(np.getSRGs(), true, doubleFailures);
+			final DoubleMatrix1D A_f = DoubleFactory1D.dense.make(np.getNumberOfSRGs());
+			for (SharedRiskGroup srg : np.getSRGs()) A_f.set(srg.getIndex(), srg.getAvailability());
+			final double [] expectedProbabilities = SRGUtils.computeStateProbabilities(SRGUtils.getMatrixFailureState2SRG(np.getSRGs(), true, doubleFailures), A_f).toArray();
+			assertEquals(expectedStates.size(), evaluator.getNumberOfFailureStates());
+			double sum = 0;
+			for (int index = 0; index < expectedStates.size(); index++)
+			{
+				assertEquals(expectedStates.get(index), evaluator.getFailureState(index));
+				assertEquals(expectedProbabilities[index], evaluator.getFailureStateProbability(index), 1e-12);
+				sum += expectedProbabilities[index];
+			}
+			assertEquals(1 - sum, evaluator.getProbabilityOfNonEnumeratedFailureStates(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testParallelEvaluation()
+	{
+		final FailureStateEvaluator evaluator = new FailureStateEvaluator(np, np.getSRGs(), true, true);
+		final FailureStateEvaluator.WorstCaseValue wcDownLinks = new FailureStateEvaluator.WorstCaseValue();
+		final DoubleAdder probabilityAllLinksUp = new DoubleAdder();
+		evaluator.evaluate(4, null, (netPlan, index, failedSrgs, probability) ->
+		{
+			final int numLinksDown = netPlan.getLinksDown().size();
+			assertEquals(failedSrgs.size(), numLinksDown);
+			wcDownLinks.update(numLinksDown, index);
+			if (numLinksDown == 0) probabilityAllLinksUp.add(probability);
+		});
+		assertEquals(2, wcDownLinks.getValue(), 0);
+		assertEquals(15, wcDownLinks.getNumberOfFailureStates());
+		assertEquals(7, wcDownLinks.getFirstFailureStateIndex());
+		assertEquals(evaluator.getFailureStateProbability(0), probabilityAllLinksUp.sum(), 1e-12);
+		assertEquals(0, np.getLinksDown().size());
+	}
+
+	@Test
+	public void testReactionDoesNotLeakToNextFailureStates()
+	{
+		for (boolean reactionReversible : new boolean [] { false, true })
+		{
+			final FailureStateEvaluator evaluator = new FailureStateEvaluator(np, np.getSRGs(), true, true);
+			evaluator.setReactionReversible(reactionReversible);
+			final LongAdder numReactions = new LongAdder();
+			evaluator.evaluate(2, () -> (netPlan, failedSrgs) ->
+			{
+				final Link e = netPlan.getLink(0);
+				assertEquals(100, e.getLengthInKm(), 0);
+				assertEquals("Link-0", e.getName());
+				e.setLengthInKm(1);
+				e.setName("changed");
+				if (failedSrgs.size() == 2) e.setBidirectionalPair(null);
+				numReactions.increment();
+			}, (netPlan, index, failedSrgs, probability) -> assertEquals(failedSrgs.size(), netPlan.getLinksDown().size()));
+			assertEquals(evaluator.getNumberOfFailureStates(), numReactions.sum());
+		}
+		assertEquals(100, np.getLink(0).getLengthInKm(), 0);
+	}
+}
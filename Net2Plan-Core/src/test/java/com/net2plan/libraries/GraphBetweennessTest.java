@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+public class GraphBetweennessTest
+{
+	@Test
+	public void testAgainstEnumerationOfShortestPaths()
+	{
+		final Random rng = new Random(1L);
+		for (int it = 0; it < 200; it++)
+		{
+			final NetPlan np = new NetPlan();
+			final int N = 2 + rng.nextInt(6);
+			for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+			for (int cont = 0; cont < 2 * N; cont++)
+			{
+				final int a = rng.nextInt(N);
+				final int b = (a + 1 + rng.nextInt(N - 1)) % N;
+				np.addLink(np.getNode(a), np.getNode(b), 10, 100, 200000, null);
+			}
+			final Map<Link, Double> linkCostMap = new HashMap<>();
+			for (Link e : np.getLinks()) linkCostMap.put(e, rng.nextInt(10) == 0 ? Double.MAX_VALUE : 1.0 + rng.nextInt(3));
+
+			final double[] nodeBetweenness = new double[N];
+			final double[] linkBetweenness = new double[np.getNumberOfLinks()];
+			for (Node originNode : np.getNodes())
+			{
+				for (Node destinationNode : np.getNodes())
+				{
+					if (originNode == destinationNode) continue;
+					final List<List<Link>> allPaths = new ArrayList<>();
+					enumeratePaths(originNode, destinationNode, linkCostMap, new ArrayList<>(), new HashSet<>(), allPaths);
+					if (allPaths.isEmpty()) continue;
+					final double minCost = allPaths.stream().mapToDouble(p -> getCost(p, linkCostMap)).min().getAsDouble();
+					final List<List<Link>> shortestPaths = new ArrayList<>();
+					for (List<Link> p : allPaths) if (getCost(p, linkCostMap) == minCost) shortestPaths.add(p);
+					for (List<Link> p : shortestPaths)
+					{
+						for (Link e : p)
+						{
+							linkBetweenness[e.getIndex()] += 1.0 / shortestPaths.size();
+							if (e.getDestinationNode() != destinationNode) nodeBetweenness[e.getDestinationNode().getIndex()] += 1.0 / shortestPaths.size();
+						}
+					}
+				}
+			}
+
+			final CsrGraph graph = CsrGraph.create(np.getNodes(), np.getLinks());
+			final GraphBetweenness betweenness = new GraphBetweenness(graph, graph.getLinkCosts(linkCostMap));
+			betweenness.setParallelism(1 + rng.nextInt(3));
+			betweenness.computeExact();
+			assertEquals(N, betweenness.getNumberOfSourceNodes());
+			for (int n = 0; n < N; n++) assertEquals(nodeBetweenness[graph.getNode(n).getIndex()], betweenness.getNodeBetweenness().get(n), 1e-9);
+			for (int e = 0; e < graph.getNumberOfLinks(); e++) assertEquals(linkBetweenness[graph.getLink(e).getIndex()], betweenness.getLinkBetweenness().get(e), 1e-9);
+
+			final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), null);
+			metrics.configureLinkCostMap(linkCostMap);
+			for (Node n : np.getNodes()) assertEquals(nodeBetweenness[n.getIndex()], metrics.getNodeBetweenessCentrality().get(n.getIndex()), 1e-9);
+			for (Link e : np.getLinks()) assertEquals(linkBetweenness[e.getIndex()], metrics.getLinkBetweenessCentrality().get(e.getIndex()), 1e-9);
+		}
+	}
+
+	@Test
+	public void testSampling()
+	{
+		final Random rng = new Random(1L);
+		final NetPlan np = new NetPlan();
+		final int N = 600;
+		for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+		for (int n = 0; n < N; n++)
+		{
+			np.addLinkBidirectional(np.getNode(n), np.getNode((n + 1) % N), 10, 100, 200000, null);
+			np.addLinkBidirectional(np.getNode(n), np.getNode((n + 2 + rng.nextInt(N - 3)) % N), 10, 100, 200000, null);
+		}
+		final CsrGraph graph = CsrGraph.create(np.getNodes(), np.getLinks());
+		final GraphBetweenness betweenness = new GraphBetweenness(graph, graph.getLinkCosts(null));
+		betweenness.setParallelism(1);
+		betweenness.computeExact();
+		final double[] exactNodeBetweenness = betweenness.getNodeBetweenness().toArray();
+		final double[] exactLinkBetweenness = betweenness.getLinkBetweenness().toArray();
+
+		betweenness.setParallelism(3);
+		betweenness.computeExact();
+		for (int n = 0; n < N; n++) assertEquals(exactNodeBetweenness[n], betweenness.getNodeBetweenness().get(n), 1e-6);
+
+		final double maximumError = 0.1;
+		final int numSamples = GraphBetweenness.getNumberOfSampledSourceNodes(N, graph.getNumberOfLinks(), maximumError, 0.1);
+		assertTrue(numSamples < N);
+		betweenness.computeApproximate(maximumError, 0.1, 1L);
+		assertEquals(numSamples, betweenness.getNumberOfSourceNodes());
+		for (int n = 0; n < N; n++) assertEquals(exactNodeBetweenness[n], betweenness.getNodeBetweenness().get(n), maximumError * N * (N - 1));
+		for (int e = 0; e < graph.getNumberOfLinks(); e++) assertEquals(exactLinkBetweenness[e], betweenness.getLinkBetweenness().get(e), maximumError * N * (N - 1));
+	}
+
+	private static void enumeratePaths(Node n, Node destinationNode, Map<Link, Double> linkCostMap, List<Link> path, Set<Node> visited, List<List<Link>> allPaths)
+	{
+		if (n == destinationNode) { allPaths.add(new ArrayList<>(path)); return; }
+		visited.add(n);
+		for (Link e : n.getOutgoingLinks())
+		{
+			if (linkCostMap.get(e) == Double.MAX_VALUE || visited.contains(e.getDestinationNode())) continue;
+			path.add(e);
+			enumeratePaths(e.getDestinationNode(), destinationNode, linkCostMap, path, visited, allPaths);
+			path.remove(path.size() - 1);
+		}
+		visited.remove(n);
+	}
+
+	private static double getCost(List<Link> path, Map<Link, Double> linkCostMap)
+	{
+		double cost = 0;
+		for (Link e : path) cost += linkCostMap.get(e);
+		return cost;
+	}
+}
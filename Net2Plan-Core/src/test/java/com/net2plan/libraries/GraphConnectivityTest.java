@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+public class GraphConnectivityTest
+{
+	@Test
+	public void testRing()
+	{
+		final NetPlan np = new NetPlan();
+		final int N = 6;
+		for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+		for (int n = 0; n < N; n++) np.addLinkBidirectional(np.getNode(n), np.getNode((n + 1) % N), 10, 100, 200000, null);
+
+		final GraphConnectivity connectivity = new GraphConnectivity(CsrGraph.create(np.getNodes(), np.getLinks()));
+		assertTrue(connectivity.isSymmetric());
+		assertEquals(2, connectivity.getLinkConnectivity());
+		assertEquals(2, connectivity.getNodeConnectivity());
+		assertEquals(2, connectivity.getLinkConnectivity(np.getNode(0), np.getNode(3)));
+		assertEquals(2, connectivity.getNodeConnectivity(np.getNode(0), np.getNode(3)));
+
+		final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), null);
+		assertEquals(2, metrics.getLinkConnectivity());
+		assertEquals(2, metrics.getNodeConnectivity());
+
+		np.getLink(0).remove();
+		final GraphConnectivity oneWay = new GraphConnectivity(CsrGraph.create(np.getNodes(), np.getLinks()));
+		assertFalse(oneWay.isSymmetric());
+		assertEquals(1, oneWay.getLinkConnectivity());
+		assertEquals(1, oneWay.getNodeConnectivity());
+	}
+
+	@Test
+	public void testAgainstEnumerationOfCuts()
+	{
+		final Random rng = new Random(1L);
+		for (int it = 0; it < 200; it++)
+		{
+			final NetPlan np = new NetPlan();
+			final int N = 2 + rng.nextInt(5);
+			final boolean symmetric = rng.nextBoolean();
+			for (int n = 0; n < N; n++) np.addNode(0, 0, "n" + n, null);
+			for (int cont = 0; cont < 2 * N; cont++)
+			{
+				final int a = rng.nextInt(N);
+				final int b = (a + 1 + rng.nextInt(N - 1)) % N;
+				if (symmetric) np.addLinkBidirectional(np.getNode(a), np.getNode(b), 10, 100, 200000, null);
+				else np.addLink(np.getNode(a), np.getNode(b), 10, 100, 200000, null);
+			}
+
+			final GraphConnectivity connectivity = new GraphConnectivity(CsrGraph.create(np.getNodes(), np.getLinks()));
+			if (symmetric) assertTrue(connectivity.isSymmetric());
+			final DoubleMatrix2D linkMatrix = connectivity.getLinkConnectivityMatrix();
+			final DoubleMatrix2D nodeMatrix = connectivity.getNodeConnectivityMatrix();
+			int minLinkConnectivity = Integer.MAX_VALUE;
+			int minNodeConnectivity = Integer.MAX_VALUE;
+			for (int s = 0; s < N; s++)
+			{
+				for (int t = 0; t < N; t++)
+				{
+					if (s == t) { assertEquals(0, linkMatrix.get(s, t), 0); assertEquals(0, nodeMatrix.get(s, t), 0); continue; }
+					final int linkCut = getMinimumLinkCut(np, s, t, 0);
+					final int nodeCut = getMinimumNodeCut(np, s, t);
+					assertEquals(linkCut, linkMatrix.get(s, t), 0);
+					assertEquals(nodeCut, nodeMatrix.get(s, t), 0);
+					minLinkConnectivity = Math.min(minLinkConnectivity, linkCut);
+					minNodeConnectivity = Math.min(minNodeConnectivity, nodeCut);
+				}
+			}
+			assertEquals(minLinkConnectivity, new GraphConnectivity(CsrGraph.create(np.getNodes(), np.getLinks())).getLinkConnectivity());
+			assertEquals(minNodeConnectivity, new GraphConnectivity(CsrGraph.create(np.getNodes(), np.getLinks())).getNodeConnectivity());
+		}
+	}
+
+	/* Minimum number of links from a node set with s to its complement with t, among the nodes not in the removed set */
+	private static int getMinimumLinkCut(NetPlan np, int s, int t, int removedNodes)
+	{
+		final int N = np.getNumberOfNodes();
+		int best = Integer.MAX_VALUE;
+		for (int sourceSide = 0; sourceSide < (1 << N); sourceSide++)
+		{
+			if ((sourceSide & (1 << s)) == 0 || (sourceSide & (1 << t)) != 0 || (sourceSide & removedNodes) != 0) continue;
+			int cut = 0;
+			for (Link e : np.getLinks())
+			{
+				final int a = e.getOriginNode().getIndex();
+				final int b = e.getDestinationNode().getIndex();
+				if (((removedNodes >> a) & 1) == 1 || ((removedNodes >> b) & 1) == 1) continue;
+				if (((sourceSide >> a) & 1) == 1 && ((sourceSide >> b) & 1) == 0) cut++;
+			}
+			best = Math.min(best, cut);
+		}
+		return best;
+	}
+
+	/* Minimum, among the sets of intermediate nodes, of their size plus the minimum link cut without them (then, links between s and t count) */
+	private static int getMinimumNodeCut(NetPlan np, int s, int t)
+	{
+		final int N = np.getNumberOfNodes();
+		int best = Integer.MAX_VALUE;
+		for (int removedNodes = 0; removedNodes < (1 << N); removedNodes++)
+		{
+			if ((removedNodes & (1 << s)) != 0 || (removedNodes & (1 << t)) != 0) continue;
+			best = Math.min(best, Integer.bitCount(removedNodes) + getMinimumLinkCut(np, s, t, removedNodes));
+		}
+		return best;
+	}
+}
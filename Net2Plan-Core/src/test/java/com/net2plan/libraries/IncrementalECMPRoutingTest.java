@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingType;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+public class IncrementalECMPRoutingTest
+{
+	private NetPlan np;
+	private Random rng;
+
+	@Before
+	public void setUp()
+	{
+		this.rng = new Random(1L);
+		this.np = new NetPlan();
+		final List<Node> nodes = new ArrayList<>();
+		for (int n = 0; n < 12; n++) nodes.add(np.addNode(0, 0, "n" + n, null));
+		for (int n = 0; n < 12; n++)
+		{
+			np.addLinkBidirectional(nodes.get(n), nodes.get((n + 1) % 12), 100, 100, 200000, null);
+			if (n % 3 == 0) np.addLinkBidirectional(nodes.get(n), nodes.get((n + 5) % 12), 100, 100, 200000, null);
+		}
+		for (Node a : nodes)
+			for (Node b : nodes)
+				if (a != b) np.addDemand(a, b, rng.nextDouble(), RoutingType.HOP_BY_HOP_ROUTING, null);
+	}
+
+	@Test
+	public void testIncrementalChangesAgainstFullComputation()
+	{
+		final DoubleMatrix1D weights = DoubleFactory1D.dense.make(np.getNumberOfLinks(), 1.0);
+		final IncrementalECMPRouting routing = new IncrementalECMPRouting(np, weights);
+		checkSameRouting(routing, weights);
+		for (int it = 0; it < 200; it++)
+		{
+			final Link e = np.getLink(rng.nextInt(np.getNumberOfLinks()));
+			final double newWeight = rng.nextInt(10) == 0 ? Double.MAX_VALUE : 1 + rng.nextInt(3);
+
+			/* the evaluation of the change does not modify the routing */
+			final DoubleMatrix1D y_eEvaluated = routing.evaluateLinkWeightChange(e, newWeight);
+			checkSameRouting(routing, weights);
+
+			routing.setLinkWeight(e, newWeight);
+			weights.set(e.getIndex(), newWeight);
+			checkSameRouting(routing, weights);
+			for (int cont = 0; cont < weights.size(); cont++) assertEquals(y_eEvaluated.get(cont), routing.getCarriedTrafficPerLink().get(cont), 1e-6);
+		}
+	}
+
+	@Test
+	public void testSetForwardingRulesInNetPlan()
+	{
+		final DoubleMatrix1D weights = DoubleFactory1D.dense.make(np.getNumberOfLinks(), 1.0);
+		final IncrementalECMPRouting routing = new IncrementalECMPRouting(np, weights);
+		routing.setLinkWeight(np.getLink(0), 3);
+		routing.setForwardingRulesInNetPlan();
+		final DoubleMatrix1D y_e = routing.getCarriedTrafficPerLink();
+		for (Link e : np.getLinks()) assertEquals(y_e.get(e.getIndex()), e.getCarriedTraffic(), 1e-6);
+	}
+
+	private void checkSameRouting(IncrementalECMPRouting routing, DoubleMatrix1D weights)
+	{
+		final DoubleMatrix1D expected = IPUtils.computeCarriedTrafficFromIGPWeights(np, weights).getFourth();
+		final DoubleMatrix1D actual = routing.getCarriedTrafficPerLink();
+		for (int cont = 0; cont < weights.size(); cont++) assertEquals(expected.get(cont), actual.get(cont), 1e-6);
+	}
+}
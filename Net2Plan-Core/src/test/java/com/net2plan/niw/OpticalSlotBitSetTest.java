@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package com.net2plan.niw;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.net2plan.utils.Pair;
+
+public class OpticalSlotBitSetTest
+{
+	@Test
+	public void testAgainstSortedSets()
+	{
+		final Random rng = new Random(1L);
+		for (int it = 0; it < 2000; it++)
+		{
+			final SortedSet<Integer> a = randomSlots(rng);
+			final SortedSet<Integer> b = randomSlots(rng);
+			final OpticalSlotBitSet bitsA = OpticalSlotBitSet.of(a);
+			assertEquals(a, bitsA.toSortedSet());
+			assertEquals(a.size(), bitsA.cardinality());
+
+			OpticalSlotBitSet bits = new OpticalSlotBitSet(bitsA);
+			bits.and(OpticalSlotBitSet.of(b));
+			SortedSet<Integer> expected = new TreeSet<>(a);
+			expected.retainAll(b);
+			assertEquals(expected, bits.toSortedSet());
+
+			bits = new OpticalSlotBitSet(bitsA);
+			bits.andNot(OpticalSlotBitSet.of(b));
+			expected = new TreeSet<>(a);
+			expected.removeAll(b);
+			assertEquals(expected, bits.toSortedSet());
+
+			bits = new OpticalSlotBitSet(bitsA);
+			bits.or(OpticalSlotBitSet.of(b));
+			expected = new TreeSet<>(a);
+			expected.addAll(b);
+			assertEquals(expected, bits.toSortedSet());
+
+			final int threshold = rng.nextInt(600) - 300;
+			bits = new OpticalSlotBitSet(bitsA);
+			bits.clearBelow(threshold);
+			assertEquals(a.tailSet(threshold), bits.toSortedSet());
+			final int nextSlot = bitsA.nextSetSlot(threshold);
+			assertEquals(a.tailSet(threshold).isEmpty() ? OpticalSlotBitSet.NONE : a.tailSet(threshold).first(), nextSlot);
+			int nextClearSlot = threshold;
+			while (a.contains(nextClearSlot)) nextClearSlot++;
+			assertEquals(nextClearSlot, bitsA.nextClearSlot(threshold));
+			int previousClearSlot = threshold;
+			while (a.contains(previousClearSlot)) previousClearSlot--;
+			assertEquals(previousClearSlot, bitsA.previousClearSlot(threshold));
+
+			/* initial slots of the ranges of contiguous slots, as the first-fit searches did with sorted sets */
+			final int numContiguousSlots = 1 + rng.nextInt(70);
+			final SortedSet<Integer> expectedInitialSlots = new TreeSet<>();
+			for (int slot : a)
+			{
+				boolean ok = true;
+				for (int cont = 0; cont < numContiguousSlots; cont++) if (!a.contains(slot + cont)) { ok = false; break; }
+				if (ok) expectedInitialSlots.add(slot);
+			}
+			assertEquals(expectedInitialSlots, bitsA.getInitialSlotsOfContiguousRanges(numContiguousSlots).toSortedSet());
+		}
+	}
+
+	@Test
+	public void testRanges()
+	{
+		final OpticalSlotBitSet bits = OpticalSlotBitSet.ofRanges(Arrays.asList(Pair.of(-70, 10), Pair.of(100, 319)));
+		assertEquals(81 + 220, bits.cardinality());
+		assertEquals(-70, bits.nextSetSlot(Integer.MIN_VALUE));
+		assertEquals(100, bits.nextSetSlot(11));
+		assertEquals(OpticalSlotBitSet.NONE, bits.nextSetSlot(320));
+		assertEquals(-70, bits.getInitialSlotsOfContiguousRanges(81).nextSetSlot(Integer.MIN_VALUE));
+		assertEquals(100, bits.getInitialSlotsOfContiguousRanges(82).nextSetSlot(Integer.MIN_VALUE));
+		assertEquals(0, bits.getInitialSlotsOfContiguousRanges(221).cardinality());
+	}
+
+	private static SortedSet<Integer> randomSlots(Random rng)
+	{
+		final SortedSet<Integer> res = new TreeSet<>();
+		final int firstSlot = rng.nextInt(400) - 200;
+		final int numSlots = rng.nextInt(300);
+		for (int cont = 0; cont < numSlots; cont++) if (rng.nextInt(3) > 0) res.add(firstSlot + cont);
+		return res;
+	}
+}
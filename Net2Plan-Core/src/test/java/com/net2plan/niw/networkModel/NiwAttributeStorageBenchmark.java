@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.niw.networkModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import com.net2plan.internal.AttributeMap;
+import com.net2plan.niw.OpticalAmplifierInfo;
+import com.net2plan.niw.WFiber;
+import com.net2plan.niw.WNet;
+import com.net2plan.niw.WNode;
+
+/**
+ * <p>Compares the attribute storage of the network elements ({@link AttributeMap}) with the previous one (a {@code TreeMap} with a copy of
+ * each key and value, parsing the numbers at each read), on a large NIW design (by default 2000 nodes and 6000 bidirectional fibers):
+ * heap used by the attributes of the fibers, and throughput of the reads of the WFiber getters based on numeric attributes.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code NiwAttributeStorageBenchmark [numNodes] [numReadPasses]}.</p>
+ */
+public class NiwAttributeStorageBenchmark
+{
+	/* names of the attributes read by the getters of WFiber used in the benchmark */
+	private static final String ATTNAME_SLOTRANGES = WFiber.NIWNAMEPREFIX + "Fiber_OpticalSlotRanges";
+	private static final String ATTNAME_PMD = WFiber.NIWNAMEPREFIX + "Fiber_FiberPmdCoef_psPerSqrKm";
+	private static final String ATTNAME_CD = WFiber.NIWNAMEPREFIX + "Fiber_FiberCdCoef_psPerNmKm";
+
+	public static void main(String[] args)
+	{
+		final int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final int numReadPasses = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		final WNet net = createDesign(numNodes);
+		final List<WFiber> fibers = net.getFibers();
+		System.out.println("Fibers: " + fibers.size());
+
+		/* footprint: the attributes of all the fibers, stored as before and as now */
+		List<Map<String, String>> legacy = new ArrayList<>();
+		long before = usedHeap();
+		for (WFiber fiber : fibers) legacy.add(legacyCopy(fiber.getNe().getAttributes()));
+		final long legacyBytes = usedHeap() - before;
+		legacy = null;
+		List<AttributeMap> current = new ArrayList<>();
+		before = usedHeap();
+		for (WFiber fiber : fibers) current.add(new AttributeMap(legacyCopy(fiber.getNe().getAttributes())));
+		final long currentBytes = usedHeap() - before;
+		System.out.println(String.format("Attribute heap: TreeMap %.1f MB, AttributeMap %.1f MB (%d maps)", legacyBytes / 1e6, currentBytes / 1e6, current.size()));
+
+		/* throughput: slot ranges, PMD and CD of all the fibers */
+		final List<Map<String, String>> legacyMaps = new ArrayList<>();
+		for (WFiber fiber : fibers) legacyMaps.add(legacyCopy(fiber.getNe().getAttributes()));
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+		{
+			double check = 0;
+			long start = System.nanoTime();
+			for (int pass = 0; pass < numReadPasses; pass++)
+				for (Map<String, String> attributes : legacyMaps)
+					check += legacyParseDoubleList(attributes.get(ATTNAME_SLOTRANGES)).size() / 2 + Double.parseDouble(attributes.get(ATTNAME_PMD)) + Double.parseDouble(attributes.get(ATTNAME_CD));
+			final double secondsLegacy = (System.nanoTime() - start) / 1e9;
+
+			start = System.nanoTime();
+			for (int pass = 0; pass < numReadPasses; pass++)
+				for (WFiber fiber : fibers)
+					check += fiber.getValidOpticalSlotRanges().size() + fiber.getPmdLinkDesignValueCoeff_psPerSqrtKm() + fiber.getChromaticDispersionCoeff_psPerNmKm();
+			final double secondsCurrent = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("Reads of %d fibers x %d passes: parsing each time %.3f s, AttributeMap %.3f s (%s)%s", fibers.size(), numReadPasses,
+					secondsLegacy, secondsCurrent, check > 0 ? "ok" : "-", rep == 0 ? " [warm-up]" : ""));
+		}
+	}
+
+	private static WNet createDesign(int numNodes)
+	{
+		final Random rng = new Random(1L);
+		final WNet net = WNet.createEmptyDesign(true, true);
+		final List<WNode> nodes = new ArrayList<>(numNodes);
+		for (int n = 0; n < numNodes; n++) nodes.add(net.addNode(rng.nextDouble() * 10, rng.nextDouble() * 10, "n" + n, "ROADM"));
+		for (int n = 0; n < numNodes; n++)
+			for (int chord = 0; chord < 3; chord++)
+			{
+				final WNode b = chord == 0 ? nodes.get((n + 1) % numNodes) : nodes.get(rng.nextInt(numNodes));
+				if (b == nodes.get(n)) continue;
+				final WFiber fiber = net.addFiber(nodes.get(n), b, null, 20 + rng.nextInt(200), true).getFirst();
+				fiber.setPmdLinkDesignValueCoeff_psPerSqrtKm(0.1 + rng.nextDouble() * 0.1);
+				fiber.setChromaticDispersionCoeff_psPerNmKm(16 + rng.nextDouble());
+				final List<OpticalAmplifierInfo> olas = new ArrayList<>();
+				for (int ola = 0; ola < 1 + rng.nextInt(4); ola++) olas.add(OpticalAmplifierInfo.getDefaultOla(10.0 * (ola + 1)));
+				fiber.setOlaTraversedInfo(olas);
+			}
+		return net;
+	}
+
+	/* The previous storage: a TreeMap with copies of the keys and values */
+	private static Map<String, String> legacyCopy(Map<String, String> attributes)
+	{
+		final Map<String, String> res = new TreeMap<>();
+		for (Map.Entry<String, String> entry : attributes.entrySet()) res.put(new String(entry.getKey()), new String(entry.getValue()));
+		return res;
+	}
+
+	/* The previous reads of lists of numbers: parsed at each read */
+	private static List<Double> legacyParseDoubleList(String value)
+	{
+		final String [] parts = value.split(" ", -1);
+		final List<Double> res = new ArrayList<>(parts.length);
+		for (String part : parts)
+		{
+			if (part.equals("")) continue;
+			res.add(Double.parseDouble(part));
+		}
+		return res;
+	}
+
+	private static long usedHeap()
+	{
+		for (int cont = 0; cont < 3; cont++) System.gc();
+		return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+	}
+}
@@ -10,6 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.SortedMap;
 import java.util.TreeSet;
 
 import org.apache.xmlbeans.impl.tool.XSTCTester.TestCase;
@@ -396,11 +397,76 @@ public class NiwModelTest extends TestCase
 					2 * Math.pow(0.5, 2); // pre-amplifiers
 			assertEquals (pmdSquare , osm.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPmdSquared_ps2() , 1e-3);
 
-			
+
 		}
 
 	}
 
+	@Test
+	public void opticalSignalIncrementalUpdateTests ()
+	{
+		final OpticalSimulationModule osim = new OpticalSimulationModule (net);
+
+		/* what-if a lightpath is added, and then add it */
+		final List<WFiber> path = Arrays.asList(f12.getFirst() , f23.getFirst());
+		final TreeSet<Integer> slots = new TreeSet<> (Arrays.asList(100 , 101 , 102 , 103));
+		final Pair<OpticalSimulationModule.LpSignalState,SortedMap<WFiber,Double>> whatIf = osim.getOpticalPerformanceIfLightpathAdded(new OsmLightpathOccupationInfo(path, Optional.empty(), Optional.empty(), Optional.of(slots)), 0.0);
+		assertEquals (net.getLightpaths().size() , 6);
+		final WLightpath lp = net.addLightpathRequest(n1, n3, 100.0, false).addLightpathUnregenerated(path, slots, false);
+		lp.setAddTransponderInjectionPower_dBm(0.0);
+		osim.updatePerformanceInfo(Arrays.asList(lp), Arrays.asList());
+		assertEquals (whatIf.getFirst().getPower_dbm() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPower_dbm() , 1e-9);
+		assertEquals (whatIf.getFirst().getOsnrAt12_5GhzRefBw() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getOsnrAt12_5GhzRefBw() , 1e-9);
+		for (WFiber e : path)
+			assertEquals (whatIf.getSecond().get(e) , osim.getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(e).getFirst() , 1e-9);
+		checkSameOpticalPerformance (osim , new OpticalSimulationModule (net));
+
+		/* change the amplifiers of a fiber */
+		final OpticalAmplifierInfo ola = OpticalAmplifierInfo.getDefaultOla(10.0);
+		ola.setGainDb(5.0);
+		f12.getFirst().setOlaTraversedInfo(Arrays.asList (ola));
+		osim.updatePerformanceInfo(Arrays.asList(), Arrays.asList(f12.getFirst()));
+		checkSameOpticalPerformance (osim , new OpticalSimulationModule (net));
+
+		/* remove lightpaths */
+		final List<WLightpath> lpsRemoved = Arrays.asList(lp , l13);
+		lp.getLightpathRequest().remove();
+		l13.remove();
+		osim.updatePerformanceInfo(lpsRemoved, Arrays.asList());
+		checkSameOpticalPerformance (osim , new OpticalSimulationModule (net));
+	}
+
+	@Test
+	public void cachedElementsTests ()
+	{
+		assertTrue (net.getNodes().get(0) == net.getNodes().get(0));
+		assertTrue (net.getLightpaths().get(0) == l12.getNet().getLightpaths().get(0));
+		assertTrue (net.getWElement(l13.getNe()).get() == net.getLightpaths().get(net.getLightpaths().indexOf(l13)));
+		final WNode firstNode = net.getNodes().get(0);
+		n1.setArbitraryParamString("param");
+		assertTrue (net.getNodes().get(0) == firstNode);
+		final WNode n6 = net.addNode(0, 0, "n6", "type1");
+		assertEquals (net.getNumberOfNodes() , 6);
+		assertEquals (net.getNodes().get(5) , n6);
+		assertTrue (net.getNodes().get(0) == firstNode);
+	}
+
+	private void checkSameOpticalPerformance (OpticalSimulationModule osim , OpticalSimulationModule osimFromScratch)
+	{
+		for (WLightpath lp : net.getLightpaths())
+		{
+			assertEquals (osimFromScratch.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPower_dbm() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPower_dbm() , 1e-9);
+			assertEquals (osimFromScratch.getOpticalPerformanceAtTransponderReceiverEnd(lp).getCd_psPerNm() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getCd_psPerNm() , 1e-9);
+			assertEquals (osimFromScratch.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPmdSquared_ps2() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPmdSquared_ps2() , 1e-9);
+			assertEquals (osimFromScratch.getOpticalPerformanceAtTransponderReceiverEnd(lp).getOsnrAt12_5GhzRefBw() , osim.getOpticalPerformanceAtTransponderReceiverEnd(lp).getOsnrAt12_5GhzRefBw() , 1e-9);
+		}
+		for (WFiber e : net.getFibers())
+		{
+			assertEquals (osimFromScratch.getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(e) , osim.getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(e));
+			assertEquals (osimFromScratch.getTotalPowerAtLineAmplifierOutputs_dBm(e) , osim.getTotalPowerAtLineAmplifierOutputs_dBm(e));
+		}
+	}
+
     public static double dB2linear(double dB)
     {
         return Math.pow(10, dB / 10);
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.niw.networkModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.net2plan.niw.ISpectrumAssignmentPolicy;
+import com.net2plan.niw.OpticalSpectrumManager;
+import com.net2plan.niw.OsmLightpathOccupationInfo;
+import com.net2plan.niw.WFiber;
+import com.net2plan.niw.WLightpath;
+import com.net2plan.niw.WLightpathRequest;
+import com.net2plan.niw.WNet;
+import com.net2plan.niw.WNode;
+
+/**
+ * <p>Compares the spectrum assignment policies ({@link ISpectrumAssignmentPolicy#availableRepresentatives}) in a dynamic flexgrid scenario on the
+ * NSFNET topology (14 nodes, 21 bidirectional fibers of 320 optical slots): lightpaths arrive as a Poisson process between random node pairs, with
+ * 2 to 8 optical slots, are routed in the first of the 3 shortest paths with an available range of slots, and are released after an exponential holding time.
+ * For each policy, prints the blocking probability and the spectrum assignment decisions per second. All the policies see the same sequence of requests.</p>
+ *
+ * <p>Not run as part of the unit tests. Usage: {@code SpectrumAssignmentPolicyBenchmark [loadErlangs] [numArrivals]}.</p>
+ */
+public class SpectrumAssignmentPolicyBenchmark
+{
+	private static final int [][] NSFNET_LINKS = { {0,1},{0,2},{0,7},{1,2},{1,3},{2,5},{3,4},{3,10},{4,5},{4,6},{5,9},{5,13},{6,7},{7,8},{8,9},{8,11},{8,12},{10,11},{10,12},{11,13},{12,13} };
+	private static final int [] NUMSLOTS_OPTIONS = { 2, 3, 4, 6, 8 };
+	private static final int K = 3;
+
+	public static void main(String[] args)
+	{
+		final double loadErlangs = args.length > 0 ? Double.parseDouble(args[0]) : 250;
+		final int numArrivals = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		for (int rep = 0; rep < 2; rep++) /* first repetition warms up the JIT */
+			for (ISpectrumAssignmentPolicy policy : ISpectrumAssignmentPolicy.availableRepresentatives)
+				run(policy, loadErlangs, numArrivals, rep == 0);
+	}
+
+	private static void run(ISpectrumAssignmentPolicy policy, double loadErlangs, int numArrivals, boolean isWarmUp)
+	{
+		final WNet net = WNet.createEmptyDesign(true, true);
+		final List<WNode> nodes = new ArrayList<>();
+		for (int n = 0; n < 14; n++) nodes.add(net.addNode(n, n, "n" + n, "ROADM"));
+		final Random topologyRng = new Random(1L);
+		for (int [] link : NSFNET_LINKS) net.addFiber(nodes.get(link[0]), nodes.get(link[1]), null, 200 + topologyRng.nextInt(800), true);
+		final List<List<List<WFiber>>> paths = new ArrayList<>(); // per node pair (index a*N+b)
+		for (WNode a : nodes)
+			for (WNode b : nodes)
+				paths.add(a == b ? null : net.getKShortestWdmPath(K, a, b, Optional.empty()));
+		final OpticalSpectrumManager osm = OpticalSpectrumManager.createFromRegularLps(net);
+
+		final Random rng = new Random(2L);
+		final PriorityQueue<Departure> departures = new PriorityQueue<>();
+		final int numWarmUpArrivals = numArrivals / 10;
+		double time = 0;
+		long numDecisions = 0;
+		long decisionsNanos = 0;
+		int numBlocked = 0;
+		for (int arrival = 0; arrival < numArrivals + numWarmUpArrivals; arrival++)
+		{
+			time += -Math.log(1 - rng.nextDouble()) / loadErlangs;
+			final double holdingTime = -Math.log(1 - rng.nextDouble());
+			final int a = rng.nextInt(nodes.size());
+			final int b = (a + 1 + rng.nextInt(nodes.size() - 1)) % nodes.size();
+			final int numSlots = NUMSLOTS_OPTIONS[rng.nextInt(NUMSLOTS_OPTIONS.length)];
+			while (!departures.isEmpty() && departures.peek().time <= time)
+			{
+				final Departure departure = departures.poll();
+				osm.releaseOccupation(departure.lp);
+				departure.lp.remove();
+				departure.lr.remove();
+			}
+
+			List<WFiber> chosenPath = null;
+			SortedSet<Integer> chosenSlots = null;
+			final long start = System.nanoTime();
+			for (List<WFiber> path : paths.get(a * nodes.size() + b))
+			{
+				final Optional<SortedSet<Integer>> slots = osm.spectrumAssignment(policy, new OsmLightpathOccupationInfo(path, Optional.empty(), Optional.empty(), Optional.empty()), numSlots, Optional.empty(), new TreeSet<>());
+				if (slots.isPresent()) { chosenPath = path; chosenSlots = slots.get(); break; }
+			}
+			decisionsNanos += System.nanoTime() - start;
+			numDecisions++;
+
+			final boolean isWarmUpArrival = arrival < numWarmUpArrivals;
+			if (chosenPath == null) { if (!isWarmUpArrival) numBlocked++; continue; }
+			final WLightpathRequest lr = net.addLightpathRequest(nodes.get(a), nodes.get(b), 100.0, false);
+			final WLightpath lp = lr.addLightpathUnregenerated(chosenPath, chosenSlots, false);
+			osm.allocateOccupation(lp, Optional.empty());
+			departures.add(new Departure(time + holdingTime, lr, lp));
+		}
+		if (!osm.isSpectrumOccupationOk()) throw new RuntimeException("Spectrum clashing with policy " + policy.getShortName());
+		System.out.println(String.format("%-12s load %.0f Erlangs: blocking probability %.5f, %.0f decisions/s%s", policy.getShortName(), loadErlangs,
+				((double) numBlocked) / numArrivals, numDecisions / (decisionsNanos / 1e9), isWarmUp ? " [warm-up]" : ""));
+	}
+
+	private static class Departure implements Comparable<Departure>
+	{
+		private final double time;
+		private final WLightpathRequest lr;
+		private final WLightpath lp;
+
+		private Departure(double time, WLightpathRequest lr, WLightpath lp)
+		{
+			this.time = time;
+			this.lr = lr;
+			this.lp = lp;
+		}
+
+		@Override
+		public int compareTo(Departure o) { return Double.compare(time, o.time); }
+	}
+}
@@ -13,10 +13,11 @@ package com.net2plan.examples.general.onlineSim;
 
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.jet.random.tdouble.Exponential;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.interfaces.simulation.IEventGenerator;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.interfaces.simulation.SimRandomStream;
+import com.net2plan.interfaces.simulation.SimRandomStreams;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.libraries.TrafficMatrixGenerationModels;
 import com.net2plan.libraries.WDMUtils;
@@ -74,7 +75,8 @@ public class Online_evGen_wdm extends IEventGenerator
 	private InputParameter lineRatesPerLightpath_Gbps = new InputParameter ("lineRatesPerLightpath_Gbps", "40 0.5 ; 100 0.5" , "Pairs of the form line-rate-Gbps SPACE probability, where probability stands for the chances of requesting a lightpath of such rate. Pairs are separated among them by character \";\" ");
 
 	/* demands and links do not change the number (maybe capacity, offered traffic...) */
-	private Random rng;
+	private SimRandomStreams randomStreams;
+	private SimRandomStream rng , cac_arrivalsRandomStream , cac_durationsRandomStream;
 	private DoubleMatrix1D cac_avHoldingTimeHours_d , cac_avConnectionSize_d;
 	private DoubleMatrix1D currentTheoreticalOfferedTraffic_d; 
 	private boolean cac_auxIATDeterministic , cac_auxIATExponential , cac_auxDurationDeterministic , cac_auxDurationExponential , cac_auxIncremental;
@@ -140,7 +142,10 @@ public class Online_evGen_wdm extends IEventGenerator
 		
 		/* More initializations */
 		if (randomSeed.getLong () == -1) randomSeed.initialize((long) RandomUtils.random(0, Long.MAX_VALUE - 1));
-		this.rng = new Random(randomSeed.getLong ());
+		this.randomStreams = new SimRandomStreams(randomSeed.getLong ());
+		this.rng = randomStreams.getStream("trafficFluctuations");
+		this.cac_arrivalsRandomStream = randomStreams.getStream("connectionArrivals");
+		this.cac_durationsRandomStream = randomStreams.getStream("connectionDurations");
 		this.initialOfferedTraffic_d = initialNetPlan.getVectorDemandOfferedTraffic(trafficLayer);
 		this.currentTheoreticalOfferedTraffic_d = initialNetPlan.getVectorDemandOfferedTraffic(trafficLayer);
 		this.isCac = (_trafficType.getString ().equalsIgnoreCase("connection-based-longrun") || _trafficType.getString ().equalsIgnoreCase("connection-based-incremental"));
@@ -161,7 +166,7 @@ public class Online_evGen_wdm extends IEventGenerator
 				final double averageConnectionSize = DoubleUtils.scalarProduct(lineRatesGbps_t , probabilitiesLineRates_t);
 				final double holdingTime = (originalDemand.getAttribute("holdingTime") != null)? Double.parseDouble(originalDemand.getAttribute("holdingTime")) : cac_avHoldingTimeHours.getDouble();
 				final double avIATHours = averageConnectionSize * holdingTime / currentTheoreticalOfferedTraffic_d.get(d);
-				final double nextInterArrivalTime = cac_auxIATDeterministic? avIATHours : cac_auxIATExponential? Exponential.staticNextDouble(1/avIATHours) : -1;
+				final double nextInterArrivalTime = cac_auxIATDeterministic? avIATHours : cac_auxIATExponential? cac_arrivalsRandomStream.nextExponential(avIATHours) : -1;
 				cac_avHoldingTimeHours_d.set (d,holdingTime);
 				cac_avConnectionSize_d.set (d,averageConnectionSize);
 				scheduleEvent(new SimEvent(nextInterArrivalTime, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateConnectionRequest(originalDemand)));
@@ -223,7 +228,7 @@ public class Online_evGen_wdm extends IEventGenerator
 			if (initialNetPlan.getNumberOfSRGs() == 0) throw new Net2PlanException("No SRGs were defined");
 			for (SharedRiskGroup srg : initialNetPlan.getSRGs())
 			{
-				final double nextEvent = Exponential.staticNextDouble(1 / srg.getMeanTimeToFailInHours());
+				final double nextEvent = randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToFailInHours());
 				scheduleEvent(new SimEvent(nextEvent , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));
 			}
 		}
@@ -257,8 +262,8 @@ public class Online_evGen_wdm extends IEventGenerator
 			final double avHoldingTimeHours = cac_avHoldingTimeHours_d.get(d);
 			final double connectionSize = cac_avConnectionSize_d.get (d);
 			final double avIATHours = connectionSize * avHoldingTimeHours / h_d;
-			final double nextHoldingTime = cac_auxDurationDeterministic? avHoldingTimeHours : cac_auxDurationExponential? Exponential.staticNextDouble(1/avHoldingTimeHours) : -1;
-			final double nextInterArrivalTime = cac_auxIATDeterministic? avIATHours : cac_auxIATExponential? Exponential.staticNextDouble(1/avIATHours) : -1;
+			final double nextHoldingTime = cac_auxDurationDeterministic? avHoldingTimeHours : cac_auxDurationExponential? cac_durationsRandomStream.nextExponential(avHoldingTimeHours) : -1;
+			final double nextInterArrivalTime = cac_auxIATDeterministic? avIATHours : cac_auxIATExponential? cac_arrivalsRandomStream.nextExponential(avIATHours) : -1;
 			final double lineRateThisLpGbps = randomPick (lineRatesGbps_t , probabilitiesLineRates_t);
 			
 			/* Events to the processor. RouteAdd, and if not incremental mode, route remove */
@@ -357,7 +362,7 @@ public class Online_evGen_wdm extends IEventGenerator
 				scheduleEvent(new SimEvent(simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failEvent));
 			}
 			/* Send repair event to myself */
-			scheduleEvent(new SimEvent(simTime + Exponential.staticNextDouble(1 / srg.getMeanTimeToRepairInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateRepairSRG(srg)));			
+			scheduleEvent(new SimEvent(simTime + randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToRepairInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateRepairSRG(srg)));			
 			
 			fail_currentlyFailedSRGs.add (srg);
 		}
@@ -384,7 +389,7 @@ public class Online_evGen_wdm extends IEventGenerator
 				scheduleEvent(new SimEvent(simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , repairEvent));
 			}
 			/* Send repair event to myself */
-			scheduleEvent(new SimEvent(simTime + Exponential.staticNextDouble(1 / srg.getMeanTimeToFailInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));			
+			scheduleEvent(new SimEvent(simTime + randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToFailInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));			
 		}
 	}
 
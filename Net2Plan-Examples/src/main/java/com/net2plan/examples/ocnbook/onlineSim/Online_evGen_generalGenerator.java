@@ -20,10 +20,12 @@ package com.net2plan.examples.ocnbook.onlineSim;
 
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.jet.random.tdouble.Exponential;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.interfaces.simulation.IEventGenerator;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.interfaces.simulation.SimEventPool;
+import com.net2plan.interfaces.simulation.SimRandomStream;
+import com.net2plan.interfaces.simulation.SimRandomStreams;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.libraries.TrafficMatrixGenerationModels;
 import com.net2plan.utils.InputParameter;
@@ -41,6 +43,7 @@ import java.util.*;
  * <ul>
  * <li>SimEvent.RouteAdd: To add a route to the network, associated to a given demand (the demand is seen as a source of connection requests).</li>
  * <li>SimEvent.RouteRemove: If the processor successfully creates a Route object, as a reaction to the RouteAdd event, then a RouteRemove event will be sent to the processor, to release the resources when the connection holding time ends. In the incremental model, route remove events are never sent</li>
+ * <li>SimEvent.PooledRouteAdd and SimEvent.PooledRouteRemove: Replace the two previous ones in the long-run model if the cac_usePooledEvents parameter is true, so that the events are reused.</li>
  * <li>SimEvent.DemandModify: Sends this event to ask the processor to modify the offered traffic of a demand (recall that generators cannot modify the NetPlan object). The demand offered traffic is the average traffic of connection requests created. This generator changes it to be able to simulate fast and slow traffic fluctuations.</li>
  * <li>SimEvent.NodesAndLinksChangeFailureState: Sends these events to the processor, representing network failures and repairs to react to.</li>
  * </ul>
@@ -79,13 +82,17 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 	private InputParameter fail_defaultMTTFInHours = new InputParameter ("fail_defaultMTTFInHours", (double) 10 , "Default value for Mean Time To Fail (hours) (unused when failureModel=SRGfromNetPlan)" , 0 , false , Double.MAX_VALUE , true);
 	private InputParameter fail_defaultMTTRInHours = new InputParameter ("fail_defaultMTTRInHours", (double) 12 , "Default value for Mean Time To Repair (hours) (unused when failureModel=SRGfromNetPlan)" , 0 , false , Double.MAX_VALUE , true);
 	private InputParameter fail_statisticalPattern = new InputParameter ("fail_statisticalPattern", "#select# exponential-iid" , "Type of failure and repair statistical pattern");
+	private InputParameter cac_usePooledEvents = new InputParameter ("cac_usePooledEvents", false , "If true, the connection requests and releases are sent in reusable events (see SimEventPool), reducing the objects created in simulations with high connection rates. The event processor must accept SimEvent.PooledRouteAdd and SimEvent.PooledRouteRemove objects. Unused in the connection-based-incremental traffic type");
 
 	/* demands and links do not change the number (maybe capacity, offered traffic...) */
-	private Random rng;
+	private SimRandomStreams randomStreams;
+	private SimRandomStream rng , cac_arrivalsRandomStream , cac_durationsRandomStream;
 	private DoubleMatrix1D cac_avHoldingTimeSeconds_d , cac_connectionSize_d;
 	private DoubleMatrix1D currentTheoreticalOfferedTraffic_d; 
 	private boolean cac_auxIATDeterministic , cac_auxIATExponential , cac_auxDurationDeterministic , cac_auxDurationExponential , cac_auxIncremental;
 	private boolean isCac;
+	private boolean cac_auxPooledEvents;
+	private GenerateConnectionRequest [] cac_connectionRequest_d;
 	private boolean tfFast_auxRandomGaussian;
 	private DoubleMatrix1D initialOfferedTraffic_d; // the offered traffic is the sum of the two
 	private DoubleMatrix1D slowChangingOfferedTraffic_d; // the offered traffic is the sum of the two
@@ -125,7 +132,10 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 		if (D == 0) throw new Net2PlanException("No demands were defined in the original design");
 
 		if (randomSeed.getLong () == -1) randomSeed.initialize((long) RandomUtils.random(0, Long.MAX_VALUE - 1));
-		this.rng = new Random(randomSeed.getLong ());
+		this.randomStreams = new SimRandomStreams(randomSeed.getLong ());
+		this.rng = randomStreams.getStream("trafficFluctuations");
+		this.cac_arrivalsRandomStream = randomStreams.getStream("connectionArrivals");
+		this.cac_durationsRandomStream = randomStreams.getStream("connectionDurations");
 		this.initialOfferedTraffic_d = initialNetPlan.getVectorDemandOfferedTraffic(trafficLayer);
 		this.currentTheoreticalOfferedTraffic_d = initialNetPlan.getVectorDemandOfferedTraffic(trafficLayer);
 		this.isCac = (_trafficType.getString ().equalsIgnoreCase("connection-based-longrun") || _trafficType.getString ().equalsIgnoreCase("connection-based-incremental"));
@@ -140,16 +150,19 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 			this.cac_avHoldingTimeSeconds_d = DoubleFactory1D.dense.make (D , 0); 
 			this.cac_connectionSize_d = DoubleFactory1D.dense.make (D , 0);
 			this.cacIncremental_potentiallyBlockedRouteRequests = cac_auxIncremental? new HashSet<Pair<SimEvent.RouteAdd,Double>> () : null;
+			this.cac_auxPooledEvents = cac_usePooledEvents.getBoolean() && !cac_auxIncremental;
+			this.cac_connectionRequest_d = new GenerateConnectionRequest [D];
 			for (Demand originalDemand : initialNetPlan.getDemands(trafficLayer))
 			{
 				final int d = originalDemand.getIndex();
 				final double connectionSize = (originalDemand.getAttribute("connectionSize") != null)? Double.parseDouble(originalDemand.getAttribute("connectionSize")) : cac_defaultConnectionSizeTrafficUnits.getDouble();
 				final double holdingTimeSeconds = (originalDemand.getAttribute("holdingTime") != null)? Double.parseDouble(originalDemand.getAttribute("holdingTime")) : cac_avHoldingTimeHours.getDouble() * 3600;
 				final double avIATSeconds = connectionSize * holdingTimeSeconds / currentTheoreticalOfferedTraffic_d.get(d);
-				final double nextInterArrivalTimeSeconds = cac_auxIATDeterministic? avIATSeconds : cac_auxIATExponential? Exponential.staticNextDouble(1/avIATSeconds) : -1;
+				final double nextInterArrivalTimeSeconds = cac_auxIATDeterministic? avIATSeconds : cac_auxIATExponential? cac_arrivalsRandomStream.nextExponential(avIATSeconds) : -1;
 				cac_avHoldingTimeSeconds_d.set (d,holdingTimeSeconds);
 				cac_connectionSize_d.set (d,connectionSize);
-				scheduleEvent(new SimEvent(nextInterArrivalTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateConnectionRequest(originalDemand)));
+				cac_connectionRequest_d [d] = new GenerateConnectionRequest(originalDemand);
+				scheduleEvent(new SimEvent(nextInterArrivalTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , cac_connectionRequest_d [d]));
 			}
 		}
 		
@@ -209,7 +222,7 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 			if (initialNetPlan.getNumberOfSRGs() == 0) throw new Net2PlanException("No SRGs were defined");
 			for (SharedRiskGroup srg : initialNetPlan.getSRGs())
 			{
-				final double nextEvent = Exponential.staticNextDouble(1 / srg.getMeanTimeToFailInHours());
+				final double nextEvent = randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToFailInHours());
 //				System.out.println ("nextEvent: " + nextEvent  +", srg.getMeanTimeToFailInHours(): " + srg.getMeanTimeToFailInHours());
 				scheduleEvent(new SimEvent(nextEvent , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));
 			}
@@ -244,19 +257,34 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 			final double avHoldingTimeSeconds = cac_avHoldingTimeSeconds_d.get(d);
 			final double connectionSize = cac_connectionSize_d.get (d);
 			final double avIATSeconds = connectionSize * avHoldingTimeSeconds / h_d;
-			final double nextHoldingTimeSeconds = cac_auxDurationDeterministic? avHoldingTimeSeconds : cac_auxDurationExponential? Exponential.staticNextDouble(1/avHoldingTimeSeconds) : -1;
-			final double nextInterArrivalTimeSeconds = cac_auxIATDeterministic? avIATSeconds : cac_auxIATExponential? Exponential.staticNextDouble(1/avIATSeconds) : -1;
+			final double nextHoldingTimeSeconds = cac_auxDurationDeterministic? avHoldingTimeSeconds : cac_auxDurationExponential? cac_durationsRandomStream.nextExponential(avHoldingTimeSeconds) : -1;
+			final double nextInterArrivalTimeSeconds = cac_auxIATDeterministic? avIATSeconds : cac_auxIATExponential? cac_arrivalsRandomStream.nextExponential(avIATSeconds) : -1;
 
-			/* Events to the processor. RouteAdd, and if not incremental mode, route remove */
-			SimEvent.RouteAdd routeInfo_add = new SimEvent.RouteAdd(demand , null , connectionSize , connectionSize);
-			scheduleEvent(new SimEvent (simTime, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , routeInfo_add));
-			if (cac_auxIncremental)
-				this.cacIncremental_potentiallyBlockedRouteRequests.add (Pair.of(routeInfo_add,simTime)); // to check later if it was blocked
+			if (cac_auxPooledEvents)
+			{
+				/* The same events with reusable objects: the route add is referenced by the event to the processor, and by the release */
+				final SimEventPool pool = getEventPool();
+				final SimEvent.PooledRouteAdd routeInfo_add = pool.newRouteAdd(demand , null , connectionSize , connectionSize);
+				routeInfo_add.retain();
+				final PooledConnectionRelease release = pool.newPayload(PooledConnectionRelease.class , PooledConnectionRelease::new);
+				release.routeAddEvent = routeInfo_add;
+				scheduleEvent(pool.newEvent(simTime, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , routeInfo_add));
+				scheduleEvent(pool.newEvent(simTime + nextHoldingTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , release));
+				scheduleEvent(pool.newEvent(simTime + nextInterArrivalTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , cac_connectionRequest_d [d]));
+			}
 			else
-				scheduleEvent(new SimEvent(simTime + nextHoldingTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateConnectionRelease(routeInfo_add)));
+			{
+				/* Events to the processor. RouteAdd, and if not incremental mode, route remove */
+				SimEvent.RouteAdd routeInfo_add = new SimEvent.RouteAdd(demand , null , connectionSize , connectionSize);
+				scheduleEvent(new SimEvent (simTime, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , routeInfo_add));
+				if (cac_auxIncremental)
+					this.cacIncremental_potentiallyBlockedRouteRequests.add (Pair.of(routeInfo_add,simTime)); // to check later if it was blocked
+				else
+					scheduleEvent(new SimEvent(simTime + nextHoldingTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateConnectionRelease(routeInfo_add)));
 			
-			/* Event for me: new connection */
-			scheduleEvent(new SimEvent(simTime + nextInterArrivalTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateConnectionRequest(demand)));
+				/* Event for me: new connection */
+				scheduleEvent(new SimEvent(simTime + nextInterArrivalTimeSeconds, SimEvent.DestinationModule.EVENT_GENERATOR , -1 , cac_connectionRequest_d [d]));
+			}
 		}
 		if (eventObject instanceof GenerateConnectionRelease)
 		{
@@ -269,6 +297,12 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 				scheduleEvent(new SimEvent (simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , routeInfo_remove));
 			}
 		}
+		else if (eventObject instanceof PooledConnectionRelease)
+		{
+			final Route route = ((PooledConnectionRelease) eventObject).routeAddEvent.routeAddedToFillByProcessor;
+			if (route != null)
+				scheduleEvent(getEventPool().newEvent(simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , getEventPool().newRouteRemove(route)));
+		}
 		else if (eventObject instanceof GenerateDemandOfferedTrafficFastFluctuation)
 		{
 			final GenerateDemandOfferedTrafficFastFluctuation trafficFluctuation = (GenerateDemandOfferedTrafficFastFluctuation) eventObject;
@@ -344,7 +378,7 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 				scheduleEvent(new SimEvent(simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failEvent));
 			}
 			/* Send repair event to myself */
-			scheduleEvent(new SimEvent(simTime + Exponential.staticNextDouble(1 / srg.getMeanTimeToRepairInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateRepairSRG(srg)));			
+			scheduleEvent(new SimEvent(simTime + randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToRepairInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateRepairSRG(srg)));			
 			
 			fail_currentlyFailedSRGs.add (srg);
 		}
@@ -371,7 +405,7 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 				scheduleEvent(new SimEvent(simTime , SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , repairEvent));
 			}
 			/* Send repair event to myself */
-			scheduleEvent(new SimEvent(simTime + Exponential.staticNextDouble(1 / srg.getMeanTimeToFailInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));			
+			scheduleEvent(new SimEvent(simTime + randomStreams.getStream("srgFailures" , srg.getId ()).nextExponential(srg.getMeanTimeToFailInHours()) , SimEvent.DestinationModule.EVENT_GENERATOR , -1 , new GenerateFailureSRG(srg)));			
 		}
 	}
 
@@ -390,6 +424,14 @@ public class Online_evGen_generalGenerator extends IEventGenerator
 		@Override
 		public String toString() { return "Generate connection release for demand " + routeAddEvent.demand.getId (); }
 	}
+	private static class PooledConnectionRelease extends SimEvent.PooledPayload
+	{
+		public SimEvent.PooledRouteAdd routeAddEvent;
+		@Override
+		protected void clear() { routeAddEvent.release(); routeAddEvent = null; }
+		@Override
+		public String toString() { return "Generate connection release for demand " + routeAddEvent.demand.getId (); }
+	}
 	private static class GenerateDemandOfferedTrafficFastFluctuation
 	{
 		public final Demand demand;
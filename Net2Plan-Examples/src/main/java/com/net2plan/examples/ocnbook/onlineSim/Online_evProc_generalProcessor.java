@@ -52,8 +52,8 @@ import cern.colt.matrix.tdouble.DoubleMatrix1D;
  * 
  * The algorithm reacts to the following events: 
  * <ul>
- * <li>SimEvent.RouteAdd: Adds a route associated to the given demand. This can mean creating also a backup route if the 1+1 protection options are active. If there is not enough resources for the route, it is not created.</li>
- * <li>SimEvent.RouteRemove: Removes the corresponding Route object, and any associated backup route.</li>
+ * <li>SimEvent.RouteAdd (or SimEvent.PooledRouteAdd): Adds a route associated to the given demand. This can mean creating also a backup route if the 1+1 protection options are active. If there is not enough resources for the route, it is not created.</li>
+ * <li>SimEvent.RouteRemove (or SimEvent.PooledRouteRemove): Removes the corresponding Route object, and any associated backup route.</li>
  * <li>SimEvent.DemandModify: Modifies the offered traffic of a demand, caused by a traffic fluctuation.</li>
  * <li>SimEvent.NodesAndLinksChangeFailureState: Fails/repairs the indicated nodes and/or links, and reacts to such failures (the particular form depends on the network recovery options selected).</li>
  * </ul>
@@ -159,45 +159,16 @@ public class Online_evProc_generalProcessor extends IEventProcessor
 		if (event.getEventObject () instanceof SimEvent.RouteAdd)
 		{
 			SimEvent.RouteAdd addRouteEvent = (SimEvent.RouteAdd) event.getEventObject ();
-			if (addRouteEvent.demand.getLayer() != this.layer) throw new Net2PlanException ("Routes cannot be added at layers different to layer " + layerId.getLong ());
-
-			/* update the offered traffic of the demand */
-			this.stat_numOfferedConnections ++;
-			this.stat_trafficOfferedConnections += addRouteEvent.carriedTraffic;
-			
-			/* Computes one or two paths over the links (the second path would be a backup route).  */
-			if (newRoutesHave11Protection)
-			{
-				Pair<List<Link>,List<Link>> spLinks = computeValid11PathPairNewRoute(addRouteEvent.demand , addRouteEvent.occupiedLinkCapacity); 
-				if (spLinks != null)
-				{
-					final Route addedRoute = currentNetPlan.addRoute(addRouteEvent.demand , addRouteEvent.carriedTraffic , addRouteEvent.occupiedLinkCapacity, spLinks.getFirst() , null);
-					final Route addedBackupRoute = currentNetPlan.addRoute(addRouteEvent.demand , 0 , addRouteEvent.occupiedLinkCapacity , spLinks.getSecond() , null);
-					addedRoute.addBackupRoute(addedBackupRoute);
-					addRouteEvent.routeAddedToFillByProcessor = addedRoute;
-					this.routeOriginalLinks.put (addedRoute , spLinks.getFirst());
-					this.stat_numCarriedConnections ++;
-					this.stat_trafficCarriedConnections += addRouteEvent.carriedTraffic;
-				}
-			}
-			else
-			{
-				List<Link> spLinks = computeValidPathNewRoute(addRouteEvent.demand , addRouteEvent.occupiedLinkCapacity); 
-				if (!spLinks.isEmpty())
-				{
-					final Route addedRoute = currentNetPlan.addRoute(addRouteEvent.demand , addRouteEvent.carriedTraffic , addRouteEvent.occupiedLinkCapacity, spLinks , null);
-					this.routeOriginalLinks.put (addedRoute , spLinks);
-					this.stat_numCarriedConnections ++;
-					this.stat_trafficCarriedConnections += addRouteEvent.carriedTraffic;
-					addRouteEvent.routeAddedToFillByProcessor = addedRoute;
-				}
-			}
-			
+			addRouteEvent.routeAddedToFillByProcessor = addRoute (currentNetPlan , addRouteEvent.demand , addRouteEvent.carriedTraffic , addRouteEvent.occupiedLinkCapacity);
 		}
-		else if (event.getEventObject () instanceof SimEvent.RouteRemove)
+		else if (event.getEventObject () instanceof SimEvent.PooledRouteAdd)
 		{
-			SimEvent.RouteRemove routeEvent = (SimEvent.RouteRemove) event.getEventObject ();
-			Route routeToRemove = routeEvent.route;
+			SimEvent.PooledRouteAdd addRouteEvent = (SimEvent.PooledRouteAdd) event.getEventObject ();
+			addRouteEvent.routeAddedToFillByProcessor = addRoute (currentNetPlan , addRouteEvent.demand , addRouteEvent.carriedTraffic , addRouteEvent.occupiedLinkCapacity);
+		}
+		else if (event.getEventObject () instanceof SimEvent.RouteRemove || event.getEventObject () instanceof SimEvent.PooledRouteRemove)
+		{
+			Route routeToRemove = event.getEventObject () instanceof SimEvent.RouteRemove? ((SimEvent.RouteRemove) event.getEventObject ()).route : ((SimEvent.PooledRouteRemove) event.getEventObject ()).route;
 			if (routeToRemove == null) throw new RuntimeException ("Bad");
 			for (Route backup : new ArrayList<> (routeToRemove.getBackupRoutes())) backup.remove ();
 			routeToRemove.remove();
@@ -300,6 +271,40 @@ public class Online_evProc_generalProcessor extends IEventProcessor
 		this.stat_transitoryInitTime = simTime;
 	}
 
+	/* Adds a route for a connection request (and its backup route, if any), returning it, or null if there were not enough resources */
+	private Route addRoute (NetPlan currentNetPlan , Demand demand , double carriedTraffic , double occupiedLinkCapacity)
+	{
+		if (demand.getLayer() != this.layer) throw new Net2PlanException ("Routes cannot be added at layers different to layer " + layerId.getLong ());
+
+		/* update the offered traffic of the demand */
+		this.stat_numOfferedConnections ++;
+		this.stat_trafficOfferedConnections += carriedTraffic;
+		
+		/* Computes one or two paths over the links (the second path would be a backup route).  */
+		if (newRoutesHave11Protection)
+		{
+			Pair<List<Link>,List<Link>> spLinks = computeValid11PathPairNewRoute(demand , occupiedLinkCapacity); 
+			if (spLinks == null) return null;
+			final Route addedRoute = currentNetPlan.addRoute(demand , carriedTraffic , occupiedLinkCapacity, spLinks.getFirst() , null);
+			final Route addedBackupRoute = currentNetPlan.addRoute(demand , 0 , occupiedLinkCapacity , spLinks.getSecond() , null);
+			addedRoute.addBackupRoute(addedBackupRoute);
+			this.routeOriginalLinks.put (addedRoute , spLinks.getFirst());
+			this.stat_numCarriedConnections ++;
+			this.stat_trafficCarriedConnections += carriedTraffic;
+			return addedRoute;
+		}
+		else
+		{
+			List<Link> spLinks = computeValidPathNewRoute(demand , occupiedLinkCapacity); 
+			if (spLinks.isEmpty()) return null;
+			final Route addedRoute = currentNetPlan.addRoute(demand , carriedTraffic , occupiedLinkCapacity, spLinks , null);
+			this.routeOriginalLinks.put (addedRoute , spLinks);
+			this.stat_numCarriedConnections ++;
+			this.stat_trafficCarriedConnections += carriedTraffic;
+			return addedRoute;
+		}
+	}
+
 	/* down links cannot be used */
 	private List<Link> computeValidPathNewRoute (Demand demand , double occupiedLinkCapacity)
 	{
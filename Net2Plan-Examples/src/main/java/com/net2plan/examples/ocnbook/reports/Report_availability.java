@@ -20,12 +20,13 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.atomic.DoubleAdder;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.net2plan.interfaces.networkDesign.Configuration;
@@ -41,6 +42,7 @@ import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
 import com.net2plan.interfaces.simulation.IEventProcessor;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.FailureStateEvaluator;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.InputParameter;
@@ -48,11 +50,6 @@ import com.net2plan.utils.Pair;
 import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
-import cern.colt.list.tdouble.DoubleArrayList;
-import cern.colt.list.tint.IntArrayList;
-import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
-
 /**
  * This report receives as an input a network design, the network recovery scheme algorithm, and the network risks (SRGs), and estimates the availability of the 
  * network (including individual availabilities for each demand), using an enumerative process that also provides an estimation of the estimation error. 
@@ -71,6 +68,8 @@ public class Report_availability implements IReport
 	private InputParameter defaultMTTRInHours = new InputParameter ("defaultMTTRInHours" , (double) 12 , "Default value for Mean Time To Repair (hours)" , 0 , false , Double.MAX_VALUE , true);
 	private InputParameter failureModel = new InputParameter ("failureModel" , "#select# perBidirectionalLinkBundle SRGfromNetPlan perNode perLink perDirectionalLinkBundle" , "Failure model selection: SRGfromNetPlan, perNode, perLink, perDirectionalLinkBundle, perBidirectionalLinkBundle");
 	private InputParameter capacityAnalysys_updateLinkCapacitiesInDesign = new InputParameter ("capacityAnalysys_updateLinkCapacitiesInDesign" , false , "If true, the link capacities are updated with the worst case occupied capacity in the links, removing any previous capacities");
+	private InputParameter numThreads = new InputParameter ("numThreads", (int) 0 , "Number of failure states evaluated in parallel, each one with its own instance of the algorithm. A non-positive value means the number of available processors. Values other than 1 are only valid for thread-safe algorithms (e.g. not sharing static state): use 1 for the rest");
+	private InputParameter algorithmIsReversible = new InputParameter ("algorithmIsReversible" , true , "If true, the design is restored after each failure state by rolling back the changes made by the algorithm, and a new copy is made only if they cannot be rolled back. Set to false for algorithms that modify the objects returned by the methods of the design (e.g. a map of attributes), since those changes are not rolled back: then, a new copy is made after each failure state");
 	
 	private Map<Long , PerDemandInfo> info_d = new HashMap<> ();
 	private Map<Long , PerDemandInfo> info_md = new HashMap<> ();
@@ -78,8 +77,7 @@ public class Report_availability implements IReport
 	
 	private double pi_excess;
 
-	private IEventProcessor algorithm_evProc;
-	private IAlgorithm algorithm_alg;
+	private FailureStateEvaluator failureStateEvaluator;
 	private final static DecimalFormat dfAv = new DecimalFormat("#.#######");
 	private final static DecimalFormat df_6 = new DecimalFormat("#.######");
 	
@@ -132,15 +130,10 @@ public class Report_availability implements IReport
 		netPlan.setAllNodesFailureState(true);
 		for (NetworkLayer layer : netPlan.getNetworkLayers ())
 			netPlan.setAllLinksFailureState(true , layer);
-		final DoubleMatrix1D A_f = netPlan.getVectorSRGAvailability();
 		final List<SharedRiskGroup> srgs = netPlan.getSRGs();
-		final DoubleMatrix2D F_s = SRGUtils.getMatrixFailureState2SRG(srgs, true, analyzeDoubleFailures.getBoolean());
-		
-		/* Compute state probabilities (pi_s) */
-		final DoubleMatrix1D pi_s = SRGUtils.computeStateProbabilities(F_s , A_f);
-		final double sum_pi_s = pi_s.zSum();
-		final double pi_s0 = pi_s.get(0); 
-		pi_excess = 1 - sum_pi_s;
+		this.failureStateEvaluator = new FailureStateEvaluator(netPlan, srgs, true, analyzeDoubleFailures.getBoolean());
+		failureStateEvaluator.setReactionReversible(algorithmIsReversible.getBoolean());
+		pi_excess = failureStateEvaluator.getProbabilityOfNonEnumeratedFailureStates();
 
 		/* Initialize statistics variables */
 		for(NetworkLayer layer : netPlan.getNetworkLayers())
@@ -153,33 +146,51 @@ public class Report_availability implements IReport
 		/* the up and oversubscribed links that were set as down, are set to up again */
 		if (!netPlan.getLinksDownAllLayers().isEmpty() || !netPlan.getNodesDown().isEmpty()) throw new RuntimeException ("Bad");
 
-		this.algorithm_alg = null;
-		this.algorithm_evProc = null;
-		if (evProcDefined)
-			this.algorithm_evProc = ClassLoaderUtils.getInstance(new File(algorithmFile_evProc), algorithmName_evProc, IEventProcessor.class , null);
-		else
-			this.algorithm_alg = ClassLoaderUtils.getInstance(new File(algorithmFile_alg), algorithmName_alg, IAlgorithm.class , null);
-
-		for (int failureState = 0 ; failureState < F_s.rows () ; failureState ++) // first failure state (no failure) was already considered
+		/* Each worker has its own instance of the algorithm, and its own copy of the design, restored after each failure state */
+		final List<Object> algorithmInstances = new ArrayList<> ();
+		final Supplier<FailureStateEvaluator.IFailureStateReaction> reactionPerWorker = () -> 
 		{
-			final IntArrayList srgs_thisState = new IntArrayList (); 
-			F_s.viewRow (failureState).getNonZeros (srgs_thisState , new DoubleArrayList ());
-			final Set<SharedRiskGroup> srgsThisFs_thisNp = ((ArrayList<Integer>) srgs_thisState.toList()).stream().map(i->netPlan.getSRG(i)).collect(Collectors.toSet ());
-			final double pi_s_thisState = failureState == 0? pi_s0 : pi_s.get (failureState);
-
-			final NetPlan auxNetPlan = testFailureStateAndRunProvisioningAlgorithmAndReturnNpCopy(netPlan , srgsThisFs_thisNp  , algorithmParameters , reportParameters , net2planParameters);
-			
-			for(int indexLayer = 0 ; indexLayer < auxNetPlan.getNumberOfLayers() ; indexLayer ++)
+			if (evProcDefined)
 			{
-				final NetworkLayer layer = auxNetPlan.getNetworkLayer (indexLayer);
-		    	final SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap = auxNetPlan.getAllLinksPerQosOccupationAndQosViolationMap(layer);
-		    	for (Demand d : auxNetPlan.getDemands(layer))
-		    		info_d.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
-		    	for (MulticastDemand d : auxNetPlan.getMulticastDemands(layer))
-		    		info_md.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
-		    	for (Link d : auxNetPlan.getLinks(layer))
-		    		info_e.get(d.getId()).update(d, srgsThisFs_thisNp);
+				final IEventProcessor algorithm_evProc = ClassLoaderUtils.getInstance(new File(algorithmFile_evProc), algorithmName_evProc, IEventProcessor.class , null);
+				algorithmInstances.add(algorithm_evProc);
+				return (np , failedSrgs) -> 
+				{
+					algorithm_evProc.initialize(np , algorithmParameters , reportParameters , net2planParameters);
+					algorithm_evProc.processEvent(np, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , null));
+				};
 			}
+			final IAlgorithm algorithm_alg = ClassLoaderUtils.getInstance(new File(algorithmFile_alg), algorithmName_alg, IAlgorithm.class , null);
+			algorithmInstances.add(algorithm_alg);
+			return (np , failedSrgs) -> algorithm_alg.executeAlgorithm(np , algorithmParameters , net2planParameters);
+		};
+
+		try
+		{
+			final int numThreadsToUse = numThreads.getInt() > 0? numThreads.getInt() : Runtime.getRuntime().availableProcessors();
+			failureStateEvaluator.evaluate(numThreadsToUse, reactionPerWorker, (auxNetPlan , failureStateIndex , srgsThisFs , pi_s_thisState) -> 
+			{
+				for(int indexLayer = 0 ; indexLayer < auxNetPlan.getNumberOfLayers() ; indexLayer ++)
+				{
+					final NetworkLayer layer = auxNetPlan.getNetworkLayer (indexLayer);
+			    	final SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap = auxNetPlan.getAllLinksPerQosOccupationAndQosViolationMap(layer);
+			    	for (Demand d : auxNetPlan.getDemands(layer))
+			    		info_d.get(d.getId()).update(d, pi_s_thisState, failureStateIndex, srgsThisFs.isEmpty(), perLink_qos2occupationAndViolationMap);
+			    	for (MulticastDemand d : auxNetPlan.getMulticastDemands(layer))
+			    		info_md.get(d.getId()).update(d, pi_s_thisState, failureStateIndex, srgsThisFs.isEmpty(), perLink_qos2occupationAndViolationMap);
+			    	for (Link d : auxNetPlan.getLinks(layer))
+			    		info_e.get(d.getId()).update(d, failureStateIndex);
+				}
+			});
+		}
+		finally
+		{
+			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
+			for (Object algorithm : algorithmInstances)
+				if (!this.getClass().getClassLoader().equals(algorithm.getClass().getClassLoader()))
+				{
+					try { ((Closeable) algorithm.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
+				}
 		}
 
 		final String report = printReport(netPlan , reportParameters);
@@ -320,9 +331,9 @@ public class Report_availability implements IReport
 						d->"<td>" + df_6.format(d.getOfferedTraffic())+ "</td>",
 						d->printAvailability(info_d.get(d.getId()).getAvailability() , pi_excess) ,
 						d->printAvailability(info_d.get(d.getId()).getSurvivability() , pi_excess) ,
-						d->printWcAndSrgs(info_d.get(d.getId()).getWcLatencyMs() , info_d.get(d.getId()).getFailureStates_wcLat() , info_d.get(d.getId()).getWcLatencyMs() + Configuration.precisionFactor > d.getMaximumAcceptableE2EWorstCaseLatencyInMs()) ,
-						d->printWcAndSrgs(info_d.get(d.getId()).getWcBlockingGbps() , info_d.get(d.getId()).getFailureStates_wcBlocking() , info_d.get(d.getId()).getWcBlockingGbps() > Configuration.precisionFactor) ,
-						d->printWcAndSrgs(info_d.get(d.getId()).getWcQoSViolationGbps() , info_d.get(d.getId()).getFailureStates_wcQosViolation() , info_d.get(d.getId()).getWcQoSViolationGbps() > Configuration.precisionFactor)
+						d->printWcAndSrgs(info_d.get(d.getId()).getWcLatency() , info_d.get(d.getId()).getWcLatencyMs() + Configuration.precisionFactor > d.getMaximumAcceptableE2EWorstCaseLatencyInMs()) ,
+						d->printWcAndSrgs(info_d.get(d.getId()).getWcBlocking() , info_d.get(d.getId()).getWcBlockingGbps() > Configuration.precisionFactor) ,
+						d->printWcAndSrgs(info_d.get(d.getId()).getWcQoSViolation() , info_d.get(d.getId()).getWcQoSViolationGbps() > Configuration.precisionFactor)
 						);
 				out.append("<tr>"); for (String h : headers) out.append("<th><b>" + h + "</b></th>"); out.append("</tr>"); 
 				for (Demand d : np.getDemands (layer))
@@ -350,9 +361,9 @@ public class Report_availability implements IReport
 						d->"<td>" + df_6.format(d.getOfferedTraffic())+ "</td>",
 						d->printAvailability(info_md.get(d.getId()).getAvailability() , pi_excess) ,
 						d->printAvailability(info_md.get(d.getId()).getSurvivability() , pi_excess) ,
-						d->printWcAndSrgs(info_md.get(d.getId()).getWcLatencyMs() , info_md.get(d.getId()).getFailureStates_wcLat() , info_md.get(d.getId()).getWcLatencyMs() + Configuration.precisionFactor > d.getMaximumAcceptableE2EWorstCaseLatencyInMs()) ,
-						d->printWcAndSrgs(info_md.get(d.getId()).getWcBlockingGbps() , info_md.get(d.getId()).getFailureStates_wcBlocking() , info_md.get(d.getId()).getWcBlockingGbps() > Configuration.precisionFactor) ,
-						d->printWcAndSrgs(info_md.get(d.getId()).getWcQoSViolationGbps() , info_md.get(d.getId()).getFailureStates_wcQosViolation() , info_md.get(d.getId()).getWcQoSViolationGbps() > Configuration.precisionFactor)
+						d->printWcAndSrgs(info_md.get(d.getId()).getWcLatency() , info_md.get(d.getId()).getWcLatencyMs() + Configuration.precisionFactor > d.getMaximumAcceptableE2EWorstCaseLatencyInMs()) ,
+						d->printWcAndSrgs(info_md.get(d.getId()).getWcBlocking() , info_md.get(d.getId()).getWcBlockingGbps() > Configuration.precisionFactor) ,
+						d->printWcAndSrgs(info_md.get(d.getId()).getWcQoSViolation() , info_md.get(d.getId()).getWcQoSViolationGbps() > Configuration.precisionFactor)
 						);
 				out.append("<tr>"); for (String h : headers) out.append("<th><b>" + h + "</b></th>"); out.append("</tr>"); 
 				for (MulticastDemand d : np.getMulticastDemands (layer))
@@ -374,7 +385,7 @@ public class Report_availability implements IReport
 						d->"<td>" + d.getOriginNode().getIndex() + "(" + d.getOriginNode().getName() + ")" + "</td>",
 						d->"<td>" + d.getDestinationNode().getIndex() + "(" + d.getDestinationNode().getName() + ")" + "</td>",
 						d->"<td>" + df_6.format(d.getCapacity()) + "</td>",
-						d->printWcAndSrgs(info_e.get(d.getId()).getWcOccupiedCapacityGbps() , info_e.get(d.getId()).getFailureStates_wcOccupiedCapacity() , info_e.get(d.getId()).getWcOccupiedCapacityGbps() + Configuration.precisionFactor > d.getCapacity()),
+						d->printWcAndSrgs(info_e.get(d.getId()).getWcOccupiedCapacity() , info_e.get(d.getId()).getWcOccupiedCapacityGbps() + Configuration.precisionFactor > d.getCapacity()),
 						d-> { final double cap = d.getCapacity(); final double traf = info_e.get(d.getId()).getWcOccupiedCapacityGbps(); return "<td>" + df_6.format(cap == 0? (traf == 0? 0 : Double.MAX_VALUE) :  traf/cap) + "</td>"; }
 						);
 				out.append("<tr>"); for (String h : headers) out.append("<th><b>" + h + "</b></th>"); out.append("</tr>"); 
@@ -399,22 +410,25 @@ public class Report_availability implements IReport
 	{
 		return "<td>" + dfAv.format(val) +" ... " + dfAv.format(Math.min(val + pi_ne, 1.0)) + "</td>";
 	}
-	private static String printWcAndSrgs (double val , Set<Set<SharedRiskGroup>> srgs , boolean highlight)
+	private String printWcAndSrgs (FailureStateEvaluator.WorstCaseValue wc , boolean highlight)
 	{
 		final StringBuffer st = new StringBuffer ();
+		final double val = wc.getValue();
 		if (val == Double.MAX_VALUE) st.append("Inf"); else st.append(df_6.format(val));
-		if (srgs.isEmpty()) st.append (" (No Srg Info)");
-		else if (srgs.contains(new HashSet<> ())) st.append (" (" + srgs.size() + " states. E.g. no failure)");
-		else st.append (" (" + srgs.size() + " states. E.g. [" + srgs.iterator().next().stream().map(s->"Srg" + s.getIndex()).collect (Collectors.joining(","))+ "])");
+		final Set<SharedRiskGroup> exampleSrgs = wc.getNumberOfFailureStates() == 0? null : failureStateEvaluator.getFailureState(wc.getFirstFailureStateIndex());
+		if (exampleSrgs == null) st.append (" (No Srg Info)");
+		else if (exampleSrgs.isEmpty()) st.append (" (" + wc.getNumberOfFailureStates() + " states. E.g. no failure)");
+		else st.append (" (" + wc.getNumberOfFailureStates() + " states. E.g. [" + exampleSrgs.stream().map(s->"Srg" + s.getIndex()).collect (Collectors.joining(","))+ "])");
 		if (highlight) return "<td bgcolor=\"Yellow\">" + st.toString() + "</td>"; else return "<td>" + st.toString() + "</td>";  
 	}
 
+	/* Updated from several threads (one per failure state being evaluated) */
 	private class PerDemandInfo
 	{
-		private double fractionOkTrafficNoFailure = 0;
-		private double av = 0, surv = 0, wcLatMs = 0.0, wcOversubsGbps = 0.0 , wcBlockingGbps = 0.0;
-		private Set<Set<SharedRiskGroup>> failureStates_wcLat = new HashSet<> () , failureStates_wcOversubs  = new HashSet<> (), failureStates_wcBlocking  = new HashSet<> ();
-		public void update (NetworkElement element ,  double prob , Set<SharedRiskGroup> srgs , SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap)
+		private volatile double fractionOkTrafficNoFailure = 0;
+		private final DoubleAdder av = new DoubleAdder (), surv = new DoubleAdder ();
+		private final FailureStateEvaluator.WorstCaseValue wcLat = new FailureStateEvaluator.WorstCaseValue () , wcOversubs = new FailureStateEvaluator.WorstCaseValue () , wcBlocking = new FailureStateEvaluator.WorstCaseValue ();
+		public void update (NetworkElement element ,  double prob , long failureStateIndex , boolean isNoFailureState , SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap)
 		{
 			if (!((element instanceof Demand) || (element instanceof MulticastDemand))) throw new RuntimeException ();
 			final boolean isDemand = element instanceof Demand;
@@ -428,93 +442,32 @@ public class Report_availability implements IReport
 			final double trafFullyOkGbps = Math.max(0.0 ,  !okLatency? 0.0 : (isDemand? d.getCarriedTraffic() : md.getCarriedTraffic()) - oversubsGbps);
 			final double fractionTrafficOk = (isDemand? d.getOfferedTraffic() : md.getOfferedTraffic()) < Configuration.precisionFactor? 0.0 : Math.min (1.0 , trafFullyOkGbps /  (isDemand? d.getOfferedTraffic() : md.getOfferedTraffic()));
 			final boolean allTrafficOk = trafFullyOkGbps + Configuration.precisionFactor >= (isDemand? d.getOfferedTraffic(): md.getOfferedTraffic());
-			if (allTrafficOk) av += prob;
-			surv += prob * fractionTrafficOk; 
-			if (latMs > wcLatMs) { wcLatMs = latMs; failureStates_wcLat = new HashSet<> (Arrays.asList(srgs)); }
-			else if (latMs == wcLatMs) { failureStates_wcLat.add(srgs); }
-			if (oversubsGbps > wcOversubsGbps) { wcOversubsGbps = oversubsGbps; failureStates_wcOversubs = new HashSet<> (Arrays.asList(srgs)); }
-			else if (oversubsGbps == wcOversubsGbps) { failureStates_wcOversubs.add(srgs); }
-			if (blockGbps > wcBlockingGbps) { wcBlockingGbps = blockGbps; failureStates_wcBlocking = new HashSet<> (Arrays.asList(srgs)); }
-			else if (blockGbps == wcBlockingGbps) { failureStates_wcBlocking.add(srgs); }
-			if (srgs.isEmpty()) { fractionOkTrafficNoFailure = fractionTrafficOk; } 
+			if (allTrafficOk) av.add(prob);
+			surv.add(prob * fractionTrafficOk); 
+			wcLat.update(latMs, failureStateIndex);
+			wcOversubs.update(oversubsGbps, failureStateIndex);
+			wcBlocking.update(blockGbps, failureStateIndex);
+			if (isNoFailureState) { fractionOkTrafficNoFailure = fractionTrafficOk; } 
 		}
-		public double getAvailability () { return av; }
-		public double getSurvivability () { return surv; }
-		public double getWcLatencyMs () { return wcLatMs; }
-		public double getWcBlockingGbps () { return wcBlockingGbps; }
-		public double getWcQoSViolationGbps () { return wcOversubsGbps; }
-		public Set<Set<SharedRiskGroup>> getFailureStates_wcLat () { return failureStates_wcLat; }
-		public Set<Set<SharedRiskGroup>> getFailureStates_wcQosViolation () { return failureStates_wcOversubs; }
-		public Set<Set<SharedRiskGroup>> getFailureStates_wcBlocking () { return failureStates_wcBlocking; }
+		public double getAvailability () { return av.sum(); }
+		public double getSurvivability () { return surv.sum(); }
+		public double getWcLatencyMs () { return wcLat.getValue(); }
+		public double getWcBlockingGbps () { return wcBlocking.getValue(); }
+		public double getWcQoSViolationGbps () { return wcOversubs.getValue(); }
+		public FailureStateEvaluator.WorstCaseValue getWcLatency () { return wcLat; }
+		public FailureStateEvaluator.WorstCaseValue getWcQoSViolation () { return wcOversubs; }
+		public FailureStateEvaluator.WorstCaseValue getWcBlocking () { return wcBlocking; }
 		public double getFractionOkTrafficNoFailure () { return fractionOkTrafficNoFailure; }
 	}
 	private class PerLinkInfo
 	{
-		private double wcOccupiedCapacityGbps = 0;
-		private Set<Set<SharedRiskGroup>> failureStates_wcOccupiedCapacity = new HashSet<> ();
-		public void update (Link e ,  Set<SharedRiskGroup> srgs)
-		{
-			final double occupiedCapacityGbps = e.getOccupiedCapacity();
-			if (occupiedCapacityGbps > wcOccupiedCapacityGbps) { wcOccupiedCapacityGbps = occupiedCapacityGbps; failureStates_wcOccupiedCapacity = new HashSet<> (Arrays.asList(srgs)); }
-			else if (occupiedCapacityGbps == wcOccupiedCapacityGbps) { failureStates_wcOccupiedCapacity.add(srgs); }
-		}
-		public double getWcOccupiedCapacityGbps  () { return wcOccupiedCapacityGbps; }
-		public Set<Set<SharedRiskGroup>> getFailureStates_wcOccupiedCapacity () { return failureStates_wcOccupiedCapacity; }
-	}
-
-	private NetPlan testFailureStateAndRunProvisioningAlgorithmAndReturnNpCopy (NetPlan thisNetPlan , Set<SharedRiskGroup> srgsThisFs_thisNp , Map<String,String> algorithmParameters , Map<String,String> reportParameters , Map<String,String> net2planParameters)
-	{
-		final NetPlan auxNetPlan = thisNetPlan.getNetPlan().copy();
-		for (SharedRiskGroup srgThisNp : srgsThisFs_thisNp)
+		private final FailureStateEvaluator.WorstCaseValue wcOccupiedCapacity = new FailureStateEvaluator.WorstCaseValue ();
+		public void update (Link e ,  long failureStateIndex)
 		{
-			final SharedRiskGroup srgCopy = auxNetPlan.getSRGFromId(srgThisNp.getId());
-			srgCopy.setAsDown();
+			wcOccupiedCapacity.update(e.getOccupiedCapacity(), failureStateIndex);
 		}
-
-		if (this.algorithm_evProc != null)
-		{
-			this.algorithm_evProc.initialize(auxNetPlan , algorithmParameters , reportParameters , net2planParameters);
-
-			try
-			{
-				/* Apply the reaction algorithm */
-				algorithm_evProc.processEvent(auxNetPlan, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , null));
-			}
-			catch (Throwable e)
-			{
-				try { ((Closeable) algorithm_evProc.getClass().getClassLoader()).close();  }
-				catch (Throwable e1) { e.printStackTrace();}					
-				throw (e);
-			}
-			
-			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
-			if (!this.getClass().getClassLoader().equals(algorithm_evProc.getClass().getClassLoader()))
-			{
-				try { ((Closeable) algorithm_evProc.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
-			}
-		}
-		else if (this.algorithm_alg != null)
-		{
-
-			try
-			{
-				this.algorithm_alg.executeAlgorithm(auxNetPlan , algorithmParameters , net2planParameters);
-			}
-			catch (Throwable e)
-			{
-				try { ((Closeable) algorithm_alg.getClass().getClassLoader()).close();  }
-				catch (Throwable e1) { e.printStackTrace();}					
-				throw (e);
-			}
-			
-			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
-			if (!this.getClass().getClassLoader().equals(algorithm_alg.getClass().getClassLoader()))
-			{
-				try { ((Closeable) algorithm_alg.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
-			}
-		}
-		
-		return auxNetPlan;
+		public double getWcOccupiedCapacityGbps  () { return wcOccupiedCapacity.getValue(); }
+		public FailureStateEvaluator.WorstCaseValue getWcOccupiedCapacity () { return wcOccupiedCapacity; }
 	}
 	
 }
@@ -23,11 +23,10 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.PriorityQueue;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -480,11 +479,10 @@ public class OnlineSimulationPane extends JTabbedPane implements ActionListener,
         JScrollPane scrollPane = new JScrollPane(table);
         dialog.add(scrollPane, "grow");
 
-        PriorityQueue<SimEvent> futureEventList = simKernel.getSimCore().getFutureEventList().getPendingEvents();
+        List<SimEvent> futureEventList = simKernel.getSimCore().getFutureEventList().getPendingEventsInOrder();
         if (!futureEventList.isEmpty()) {
             int numEvents = futureEventList.size();
             SimEvent[] futureEventList_array = futureEventList.toArray(new SimEvent[numEvents]);
-            Arrays.sort(futureEventList_array, futureEventList.comparator());
             data = new Object[numEvents][tableHeader.length];
 
             for (int eventId = 0; eventId < numEvents; eventId++) {
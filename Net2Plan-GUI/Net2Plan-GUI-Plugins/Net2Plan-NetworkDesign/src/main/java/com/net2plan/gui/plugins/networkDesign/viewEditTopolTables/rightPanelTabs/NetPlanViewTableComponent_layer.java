@@ -78,6 +78,8 @@ public class NetPlanViewTableComponent_layer extends JPanel
     private final static String[] attributeTableTips = attributeTableHeader;
     private final static String[] tagTableHeader = StringUtils.arrayOf("Tag");
     private final static String[] tagTableTips = StringUtils.arrayOf("Name of the tag");
+    private final static int maxNodesExactBetweenness = 1000;
+    private final static double maxErrorEstimatedBetweenness = 0.05;
     private JTable layerAttributeTable;
     private JTable layerTagTable;
     private JTextField txt_layerName, txt_layerLinkCapacityUnits, txt_layerDemandTrafficUnits;
@@ -326,9 +328,18 @@ public class NetPlanViewTableComponent_layer extends JPanel
             double networkDiameter_ms = metrics.getDiameter();
 
             topologyData.put("Layer diameter (hops, km, ms)", String.format("%d, %.3f, %.3g", networkDiameter_hops, networkDiameter_km, networkDiameter_ms));
+
+            /* In large networks, the betweenness is estimated from the shortest paths of a sample of origin nodes */
+            metrics.configureLinkCostMap(null);
+            final boolean estimateBetweenness = N > maxNodesExactBetweenness;
+            DoubleMatrix1D nodeBetweenness = estimateBetweenness ? metrics.getNodeBetweenessCentrality(maxErrorEstimatedBetweenness) : metrics.getNodeBetweenessCentrality();
+            double maxNodeBetweenness = N == 0 ? 0 : nodeBetweenness.getMaxLocation()[0];
+            double avgNodeBetweenness = N == 0 ? 0 : nodeBetweenness.zSum() / N;
+            topologyData.put("Node betweenness centrality, hops (max, avg)", String.format("%.3f, %.3f", maxNodeBetweenness, avgNodeBetweenness) + (estimateBetweenness ? " (estimated)" : ""));
         } else
         {
             topologyData.put("Layer diameter (hops, km, ms)", "- (use 'Update all metrics' button)");
+            topologyData.put("Node betweenness centrality, hops (max, avg)", "- (use 'Update all metrics' button)");
         }
 
         topologyData.put("Capacity installed: total", String.format("%.3f", U_e));